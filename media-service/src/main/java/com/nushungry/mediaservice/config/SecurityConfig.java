@@ -2,6 +2,7 @@ package com.nushungry.mediaservice.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -23,6 +24,9 @@ public class SecurityConfig {
             .authorizeHttpRequests(auth -> auth
                 // 允许公开访问的端点
                 .requestMatchers("/api/upload/**", "/media/upload/**").permitAll()
+                // 图片文件公开读取
+                .requestMatchers(HttpMethod.GET, "/media/**").permitAll()
+                .requestMatchers(HttpMethod.HEAD, "/media/**").permitAll()
                 .requestMatchers("/swagger-ui/**", "/v3/api-docs/**").permitAll()
                 .requestMatchers("/actuator/**").permitAll()
                 // 管理员接口需要ADMIN角色
@@ -0,0 +1,55 @@
+package com.nushungry.mediaservice.config;
+
+import com.nushungry.mediaservice.storage.LocalStorageBackend;
+import com.nushungry.mediaservice.storage.S3StorageBackend;
+import com.nushungry.mediaservice.storage.StorageBackend;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 媒体文件存储配置
+ * media.storage.type=local（默认）写入 media.storage.path；
+ * media.storage.type=s3 写入 minio.* 指定的 S3 兼容存储，此时 media-service 不再依赖本地卷，可以运行多个副本
+ */
+@Configuration
+@Slf4j
+public class StorageConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "media.storage.type", havingValue = "local", matchIfMissing = true)
+    public StorageBackend localStorageBackend(@Value("${media.storage.path}") String storagePath,
+                                              @Value("${media.serve.open-file-cache-size:128}") int openFileCacheSize)
+            throws IOException {
+        LocalStorageBackend backend = new LocalStorageBackend(Paths.get(storagePath), openFileCacheSize);
+        log.info("使用本地存储: {}", backend.getRoot());
+        return backend;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "media.storage.type", havingValue = "s3")
+    public StorageBackend s3StorageBackend(@Value("${minio.endpoint}") String endpoint,
+                                           @Value("${minio.bucket-name}") String bucket,
+                                           @Value("${minio.access-key}") String accessKey,
+                                           @Value("${minio.secret-key}") String secretKey,
+                                           @Value("${minio.region:us-east-1}") String region,
+                                           @Value("${media.storage.s3.part-size:8388608}") long partSize,
+                                           @Value("${media.storage.s3.upload-threads:4}") int uploadThreads,
+                                           @Value("${media.storage.s3.create-bucket:false}") boolean createBucket)
+            throws IOException {
+        Path staging = Paths.get(System.getProperty("java.io.tmpdir"), "media-staging");
+        S3StorageBackend backend = new S3StorageBackend(endpoint, bucket, accessKey, secretKey, region,
+                partSize, uploadThreads, staging);
+        if (createBucket) {
+            backend.ensureBucket();
+        }
+        log.info("使用 S3 兼容存储: {}/{}", endpoint, bucket);
+        return backend;
+    }
+}
@@ -5,6 +5,7 @@ import com.nushungry.mediaservice.dto.ImageDetailResponse;
 import com.nushungry.mediaservice.dto.ImageStatsResponse;
 import com.nushungry.mediaservice.model.MediaFile;
 import com.nushungry.mediaservice.service.AdminImageService;
+import com.nushungry.mediaservice.service.StorageLayoutMigrationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -33,6 +34,7 @@ import java.util.Optional;
 public class AdminImageController {
 
     private final AdminImageService adminImageService;
+    private final StorageLayoutMigrationService storageLayoutMigrationService;
 
     @GetMapping
     @Operation(summary = "分页查询图片列表", description = "管理员分页查询图片列表，支持按类型、上传者、关键词筛选")
@@ -101,6 +103,24 @@ public class AdminImageController {
         return ResponseEntity.ok(ApiResponse.success(message, result));
     }
 
+    @PostMapping("/storage-layout/migrate")
+    @Operation(summary = "迁移存储目录布局", description = "把平铺在存储根目录下的图片移动到 ab/cd/ 分级目录并分批改写 URL，每次从 afterId 之后最多处理 limit 条；把返回的 lastId 作为下次的 afterId，直到 hasMore 为 false")
+    public ResponseEntity<ApiResponse<StorageLayoutMigrationService.MigrationResult>> migrateStorageLayout(
+            @RequestParam(defaultValue = "0") long afterId,
+            @RequestParam(defaultValue = "500") int batchSize,
+            @RequestParam(defaultValue = "10000") int limit
+    ) {
+        log.info("Admin migrating storage layout - afterId: {}, batchSize: {}, limit: {}", afterId, batchSize, limit);
+
+        if (batchSize <= 0 || limit <= 0) {
+            return ResponseEntity.ok(ApiResponse.error("batchSize 和 limit 必须大于 0"));
+        }
+        StorageLayoutMigrationService.MigrationResult result = storageLayoutMigrationService.migrate(afterId, batchSize, limit);
+        String message = String.format("迁移完成：迁移 %d 条，跳过 %d 条，失败 %d 条",
+                result.migrated(), result.skipped(), result.failed());
+        return ResponseEntity.ok(ApiResponse.success(message, result));
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "获取图片详情", description = "管理员获取指定图片的详细信息")
     public ResponseEntity<ApiResponse<ImageDetailResponse>> getImageDetail(@PathVariable Long id) {
@@ -3,9 +3,11 @@ package com.nushungry.mediaservice.controller;
 import com.nushungry.mediaservice.common.ApiResponse;
 import com.nushungry.mediaservice.model.MediaFile;
 import com.nushungry.mediaservice.service.ImageProcessingService;
+import com.nushungry.mediaservice.util.HashingChannelWriter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -62,6 +64,40 @@ public class FileUploadController {
         }
     }
 
+    /**
+     * 流式上传单张图片
+     * 请求体直接是图片内容，不经过 multipart 解析，服务端边接收边写入磁盘
+     */
+    @PostMapping("/image/stream")
+    @Operation(summary = "流式上传单张图片",
+            description = "请求体为图片二进制内容（非 multipart），Content-Type 为图片类型；按文件头校验格式，边写入边计算 SHA-256")
+    public ResponseEntity<ApiResponse<MediaFile>> uploadImageStream(
+            @Parameter(description = "原始文件名", example = "photo.jpg")
+            @RequestParam(value = "filename", required = false) String filename,
+            HttpServletRequest request) {
+
+        log.info("接收到流式图片上传请求: {}, Content-Type: {}, Content-Length: {}",
+                filename, request.getContentType(), request.getContentLengthLong());
+
+        try {
+            MediaFile mediaFile = imageProcessingService.storeStream(
+                    request.getInputStream(), filename, request.getContentType(), request.getContentLengthLong());
+            log.info("流式上传成功: {}", mediaFile.getUrl());
+            return ResponseEntity.ok(ApiResponse.success(mediaFile));
+
+        } catch (HashingChannelWriter.SizeLimitExceededException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                    .body(ApiResponse.error(e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("无效的图片文件: " + e.getMessage()));
+        } catch (Exception e) {
+            log.error("流式上传失败", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("图片上传失败: " + e.getMessage()));
+        }
+    }
+
     /**
      * 批量图片上传
      */
@@ -97,17 +133,22 @@ public class FileUploadController {
 
     /**
      * 删除图片
+     * 释放上传时返回的 referenceId 对应的引用，同一个 referenceId 只生效一次
      */
     @DeleteMapping("/image")
-    @Operation(summary = "删除图片", description = "根据图片URL删除图片文件")
+    @Operation(summary = "删除图片",
+            description = "根据图片URL和上传时返回的 referenceId 释放这次上传的引用，最后一个引用释放后删除图片文件")
     public ResponseEntity<ApiResponse<Map<String, Object>>> deleteImage(
             @Parameter(description = "图片URL", required = true, example = "/media/xxx.jpg")
-            @RequestParam("url") String imageUrl) {
+            @RequestParam("url") String imageUrl,
+
+            @Parameter(description = "上传时返回的引用ID", required = true)
+            @RequestParam("referenceId") String referenceId) {
 
         log.info("接收到图片删除请求: {}", imageUrl);
 
         try {
-            boolean deleted = imageProcessingService.deleteImageByUrl(imageUrl);
+            boolean deleted = imageProcessingService.deleteImageByUrl(imageUrl, referenceId);
 
             if (deleted) {
                 Map<String, Object> responseData = new HashMap<>();
@@ -117,7 +158,7 @@ public class FileUploadController {
                 return ResponseEntity.ok(ApiResponse.success(responseData));
             } else {
                 return ResponseEntity.badRequest()
-                        .body(ApiResponse.error("图片不存在或删除失败"));
+                        .body(ApiResponse.error("图片或引用不存在，或已删除"));
             }
 
         } catch (Exception e) {
@@ -131,15 +172,15 @@ public class FileUploadController {
      * 批量删除图片
      */
     @DeleteMapping("/images")
-    @Operation(summary = "批量删除图片", description = "根据图片URL列表批量删除图片文件")
+    @Operation(summary = "批量删除图片", description = "根据图片URL和上传时返回的 referenceId 列表批量释放引用")
     public ResponseEntity<ApiResponse<Map<String, Object>>> deleteImages(
-            @Parameter(description = "图片URL列表", required = true)
-            @RequestBody List<String> imageUrls) {
+            @Parameter(description = "图片URL和引用ID列表", required = true)
+            @RequestBody List<ImageProcessingService.ImageReference> references) {
 
-        log.info("接收到批量图片删除请求: {} 张图片", imageUrls.size());
+        log.info("接收到批量图片删除请求: {} 张图片", references.size());
 
         try {
-            List<String> deletedUrls = imageProcessingService.deleteImagesByUrls(imageUrls);
+            List<String> deletedUrls = imageProcessingService.deleteImagesByUrls(references);
 
             Map<String, Object> responseData = new HashMap<>();
             responseData.put("message", String.format("成功删除 %d 张图片", deletedUrls.size()));
@@ -0,0 +1,325 @@
+package com.nushungry.mediaservice.controller;
+
+import com.nushungry.mediaservice.service.ImageCompressionService;
+import com.nushungry.mediaservice.service.ImageResizeService;
+import com.nushungry.mediaservice.storage.LocalStorageBackend;
+import com.nushungry.mediaservice.storage.StorageBackend;
+import com.nushungry.mediaservice.storage.StorageLayout;
+import com.nushungry.mediaservice.util.OpenFileCache;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.util.regex.Pattern;
+
+/**
+ * 媒体文件访问控制器
+ * 按存储 key 直接返回 /media/** 下的文件：
+ * - 本地存储走 Tomcat sendfile（大文件）或 FileChannel.transferTo，文件句柄来自 LRU 缓存
+ * - 支持单个 Range 请求、If-None-Match / If-Modified-Since 返回 304
+ * - 按内容哈希命名的文件内容不会变化，返回一年的 immutable 缓存头
+ * - 迁移到分级目录之前的 URL（/media/<sha256>.jpg）找不到时按 ab/cd/<sha256>.jpg 返回
+ * - /media/{id}?w=&h= 按需缩放，结果来自派生图片缓存
+ */
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@Tag(name = "媒体访问", description = "图片文件访问接口")
+public class MediaController {
+
+    /** 按内容哈希命名的文件（包括缩略图等衍生图） */
+    static final Pattern CONTENT_ADDRESSED = Pattern.compile("[0-9a-f]{64}(_[a-z0-9]+)?\\.[a-z0-9]+");
+    static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+    static final String REVALIDATE_CACHE_CONTROL = "public, no-cache";
+    static final int RESIZE_RETRY_AFTER_SECONDS = 1;
+
+    /** 小文件直接 transferTo，sendfile 的额外调度开销不划算 */
+    private static final long SENDFILE_THRESHOLD = 48 * 1024;
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final StorageBackend storage;
+    private final ImageResizeService resizeService;
+
+    @GetMapping("/media/{*path}")
+    @Operation(summary = "获取媒体文件", description = "按存储路径返回图片，支持 Range、ETag 和 Last-Modified 条件请求（同样支持 HEAD）")
+    public void serve(@Parameter(description = "存储路径", example = "/xxx.jpg") @PathVariable String path,
+                      ServletWebRequest webRequest,
+                      HttpServletRequest request,
+                      HttpServletResponse response) throws IOException {
+        String key = path.startsWith("/") ? path.substring(1) : path;
+        try {
+            try {
+                serveKey(key, webRequest, request, response);
+            } catch (NoSuchFileException e) {
+                String sharded = StorageLayout.shard(key);
+                if (sharded.equals(key)) {
+                    throw e;
+                }
+                serveKey(sharded, webRequest, request, response);
+            }
+        } catch (NoSuchFileException | IllegalArgumentException e) {
+            if (!response.isCommitted()) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            }
+        }
+    }
+
+    private void serveKey(String key, ServletWebRequest webRequest,
+                          HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (storage instanceof LocalStorageBackend local) {
+            try (OpenFileCache.Handle file = local.openFile(key)) {
+                serve(key, file.size(), file.lastModified(), webRequest, request, response,
+                        (start, length) -> transferFile(file, start, length, request, response));
+            }
+        } else {
+            StorageBackend.ObjectInfo info = storage.stat(key);
+            serve(key, info.size(), info.lastModified(), webRequest, request, response,
+                    (start, length) -> {
+                        try (InputStream in = storage.open(key, start, length)) {
+                            in.transferTo(response.getOutputStream());
+                        }
+                    });
+        }
+    }
+
+    /**
+     * 按图片 ID 访问，带 w / h 时返回缩放后的图片
+     * 宽高必须在 media.resize.allowed-sizes 白名单中；只有一边时按比例缩放
+     */
+    @GetMapping("/media/{id:\\d+}")
+    @Operation(summary = "按 ID 获取图片（可缩放）", description = "w / h 为白名单中的尺寸，fit 为 contain 或 cover，fmt 为 auto、webp 或 jpeg；不带 w / h 时返回原图")
+    public void serveImage(@Parameter(description = "图片ID", required = true) @PathVariable Long id,
+                           @Parameter(description = "目标宽度") @RequestParam(name = "w", required = false) Integer width,
+                           @Parameter(description = "目标高度") @RequestParam(name = "h", required = false) Integer height,
+                           @Parameter(description = "contain（完整显示）或 cover（铺满后居中裁剪）")
+                           @RequestParam(defaultValue = ImageResizeService.FIT_CONTAIN) String fit,
+                           @Parameter(description = "auto、webp 或 jpeg") @RequestParam(defaultValue = "auto") String fmt,
+                           ServletWebRequest webRequest,
+                           HttpServletRequest request,
+                           HttpServletResponse response) throws IOException {
+        if (width == null && height == null) {
+            String key;
+            try {
+                key = resizeService.originalKey(id);
+            } catch (NoSuchFileException e) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            serve("/" + key, webRequest, request, response);
+            return;
+        }
+
+        try {
+            // 缓存文件可能随时被淘汰，这里自己打开，不走 sendfile（打开后即使被删除也能读完）
+            OpenedVariant opened = openVariant(id, width, height, fit, fmt);
+            ImageResizeService.Variant variant = opened.variant();
+            try (FileChannel channel = opened.channel()) {
+                String etag = "\"" + variant.key().substring(0, variant.key().lastIndexOf('.')) + "\"";
+                serve(variant.file().getFileName().toString(), etag, IMMUTABLE_CACHE_CONTROL, channel.size(), -1,
+                        webRequest, request, response,
+                        (start, length) -> transferChannel(channel, start, length, response));
+            }
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+        } catch (ImageCompressionService.DecodeBusyException e) {
+            // 解码额度被占满，让客户端稍后重试，而不是让请求线程继续排队
+            log.debug("解码额度不足，稍后重试: id={}, {}", id, e.getMessage());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(RESIZE_RETRY_AFTER_SECONDS));
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        } catch (NoSuchFileException e) {
+            if (!response.isCommitted()) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            }
+        }
+    }
+
+    /**
+     * 取得并打开缩放结果；返回路径之后、打开之前缓存文件被淘汰时重新生成一次
+     */
+    private OpenedVariant openVariant(Long id, Integer width, Integer height, String fit, String fmt)
+            throws IOException {
+        ImageResizeService.Variant variant = resizeService.resize(id, width, height, fit, fmt);
+        try {
+            return new OpenedVariant(variant, FileChannel.open(variant.file(), StandardOpenOption.READ));
+        } catch (NoSuchFileException evicted) {
+            log.debug("缓存文件打开前已被淘汰，重新生成: {}", variant.key());
+            variant = resizeService.resize(id, width, height, fit, fmt);
+            return new OpenedVariant(variant, FileChannel.open(variant.file(), StandardOpenOption.READ));
+        }
+    }
+
+    private void serve(String key, long size, long lastModified, ServletWebRequest webRequest,
+                       HttpServletRequest request, HttpServletResponse response, BodyWriter body) throws IOException {
+        String fileName = key.substring(key.lastIndexOf('/') + 1);
+        boolean immutable = CONTENT_ADDRESSED.matcher(fileName).matches();
+        String etag = immutable
+                ? "\"" + fileName.substring(0, fileName.lastIndexOf('.')) + "\""
+                : "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified) + "\"";
+        serve(fileName, etag, immutable ? IMMUTABLE_CACHE_CONTROL : REVALIDATE_CACHE_CONTROL, size, lastModified,
+                webRequest, request, response, body);
+    }
+
+    private void serve(String fileName, String etag, String cacheControl, long size, long lastModified,
+                       ServletWebRequest webRequest, HttpServletRequest request, HttpServletResponse response,
+                       BodyWriter body) throws IOException {
+        // 304 同样需要带上缓存头
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        if (webRequest.checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        response.setContentType(MediaTypeFactory.getMediaType(fileName)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader("X-Content-Type-Options", "nosniff");
+
+        long start = 0;
+        long length = size;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && ifRangeMatches(request, etag, lastModified)) {
+            ByteRange range = parseRange(rangeHeader, size);
+            if (range == ByteRange.UNSATISFIABLE) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                return;
+            }
+            if (range != null) {
+                start = range.start();
+                length = range.length();
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE,
+                        "bytes " + start + "-" + (start + length - 1) + "/" + size);
+            }
+        }
+        response.setContentLengthLong(length);
+
+        if ("HEAD".equals(request.getMethod()) || length == 0) {
+            return;
+        }
+        body.write(start, length);
+    }
+
+    /**
+     * 本地文件：容器支持时交给 sendfile，由 Tomcat 在响应写出时直接从文件发到 socket；
+     * 否则用共享句柄按位置 transferTo，不修改句柄的 position
+     */
+    private void transferFile(OpenFileCache.Handle file, long start, long length,
+                              HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (length >= SENDFILE_THRESHOLD && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.path().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + length);
+            return;
+        }
+        transferChannel(file.channel(), start, length, response);
+    }
+
+    private static void transferChannel(FileChannel channel, long start, long length, HttpServletResponse response)
+            throws IOException {
+        WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+        long position = start;
+        long end = start + length;
+        while (position < end) {
+            long sent = channel.transferTo(position, end - position, out);
+            if (sent <= 0) {
+                throw new IOException("文件在读取过程中被截断");
+            }
+            position += sent;
+        }
+    }
+
+    /**
+     * If-Range 不匹配时忽略 Range，返回完整内容；ETag 必须强匹配，日期精确到秒
+     */
+    private static boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            long date = request.getDateHeader(HttpHeaders.IF_RANGE);
+            return date >= 0 && date / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 解析单个字节范围（bytes=start-end、bytes=start-、bytes=-suffix）
+     * 多个范围或格式不正确时返回 null（忽略 Range）；起点超出文件时返回 UNSATISFIABLE
+     */
+    static ByteRange parseRange(String header, long size) {
+        if (!header.startsWith("bytes=")) {
+            return null;
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0 || spec.indexOf(',') >= 0) {
+            return null;
+        }
+        String first = spec.substring(0, dash).trim();
+        String last = spec.substring(dash + 1).trim();
+        try {
+            if (first.isEmpty()) {
+                long suffix = Long.parseLong(last);
+                if (suffix < 0) {
+                    return null;
+                }
+                if (suffix == 0 || size == 0) {
+                    return ByteRange.UNSATISFIABLE;
+                }
+                long start = Math.max(0, size - suffix);
+                return new ByteRange(start, size - start);
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? size - 1 : Long.parseLong(last);
+            if (start < 0 || end < start) {
+                return null;
+            }
+            if (start >= size) {
+                return ByteRange.UNSATISFIABLE;
+            }
+            end = Math.min(end, size - 1);
+            return new ByteRange(start, end - start + 1);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private record OpenedVariant(ImageResizeService.Variant variant, FileChannel channel) {
+    }
+
+    record ByteRange(long start, long length) {
+        static final ByteRange UNSATISFIABLE = new ByteRange(-1, 0);
+    }
+
+    @FunctionalInterface
+    private interface BodyWriter {
+        void write(long start, long length) throws IOException;
+    }
+}
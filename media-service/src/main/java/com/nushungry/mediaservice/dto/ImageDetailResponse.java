@@ -1,9 +1,11 @@
 package com.nushungry.mediaservice.dto;
 
+import com.nushungry.mediaservice.model.MediaRendition;
 import lombok.Builder;
 import lombok.Data;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Data
 @Builder
@@ -13,8 +15,13 @@ public class ImageDetailResponse {
     private String originalFileName;
     private String url;
     private String thumbnailUrl;
+    private String renditionStatus;
+    private List<MediaRendition> renditions;
     private String contentType;
     private Long size;
+    private Integer width;
+    private Integer height;
+    private String contentHash;
     private String uploadedBy;
     private String type;
     private Long relatedId;
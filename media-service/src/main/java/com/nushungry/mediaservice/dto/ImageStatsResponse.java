@@ -10,6 +10,11 @@ import java.util.Map;
 public class ImageStatsResponse {
     private Long totalImages;
     private Long totalSize;
+    private Long totalOriginalSize;
+    private Long bytesSaved;
+    private Long totalReferences;
+    private Long dedupBytesSaved;
+    private Double dedupRatio; // 去重前大小 / 实际存储大小
     private Map<String, Long> typeDistribution;
     private Map<String, Long> uploadByDistribution;
     private Long todayCount;
@@ -42,7 +42,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         String requestPath = request.getRequestURI();
 
         // 跳过公开端点
-        if (isPublicPath(requestPath)) {
+        if (isPublicPath(requestPath) || isPublicMediaRead(request)) {
             chain.doFilter(request, response);
             return;
         }
@@ -95,4 +95,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private boolean isPublicPath(String path) {
         return PUBLIC_PATHS.stream().anyMatch(path::startsWith);
     }
+
+    /**
+     * /media/** 下的文件只读访问公开（GET / HEAD）
+     */
+    private boolean isPublicMediaRead(HttpServletRequest request) {
+        String method = request.getMethod();
+        return ("GET".equals(method) || "HEAD".equals(method)) && request.getRequestURI().startsWith("/media/");
+    }
 }
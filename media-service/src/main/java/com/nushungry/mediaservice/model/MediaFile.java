@@ -6,25 +6,51 @@ import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "uk_media_file_content_hash", columnList = "contentHash", unique = true),
+        @Index(name = "idx_media_file_source_hash", columnList = "sourceHash")
+})
 @Data
 public class MediaFile {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    private String fileName;
+    private String fileName; // 存储 key，如 ab/cd/<contentHash>.webp
     private String originalFileName;
     private String url;
     private String thumbnailUrl;
     private String contentType;
     private Long size;
+    private Long originalSize; // 上传时的大小，压缩后 size 为实际存储的大小
+    private Integer width;
+    private Integer height;
+
+    @Column(length = 64)
+    private String contentHash; // 存储内容的 SHA-256，文件按它命名，相同内容只保存一份
+
+    @Column(length = 64)
+    private String sourceHash; // 上传内容的 SHA-256，压缩时与 contentHash 不同
+
+    private Integer refCount = 1; // 引用次数，最后一个引用删除时才删除文件
+
+    @Transient
+    private String referenceId; // 本次上传得到的引用 ID（MediaReference），不入库，删除时凭它释放这次引用
     private String uploadedBy;
     private String type; // PHOTO, MENU, AVATAR, etc.
     private Long relatedId; // 关联的食堂或摊位ID
     private String relatedType; // cafeteria, stall, user, etc.
 
+    private String renditionStatus; // PENDING, READY, FAILED
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "media_file_rendition", joinColumns = @JoinColumn(name = "media_file_id"))
+    private List<MediaRendition> renditions = new ArrayList<>();
+
     @CreationTimestamp
     private LocalDateTime createdAt;
 
@@ -34,4 +60,8 @@ public class MediaFile {
     public enum MediaType {
         PHOTO, MENU, AVATAR, OTHER
     }
+
+    public enum RenditionStatus {
+        PENDING, READY, FAILED
+    }
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+package com.nushungry.mediaservice.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * 一次上传对媒体文件的引用
+ * 相同内容的多次上传共用一条 MediaFile，每次上传各得到一个 referenceId，删除时凭它只释放自己的那次引用
+ */
+@Entity
+@Table(indexes = {
+        @Index(name = "uk_media_reference_reference_id", columnList = "referenceId", unique = true),
+        @Index(name = "idx_media_reference_media_file_id", columnList = "mediaFileId")
+})
+@Data
+@NoArgsConstructor
+public class MediaReference {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(length = 36, nullable = false)
+    private String referenceId;
+
+    @Column(nullable = false)
+    private Long mediaFileId;
+
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+
+    public MediaReference(String referenceId, Long mediaFileId) {
+        this.referenceId = referenceId;
+        this.mediaFileId = mediaFileId;
+    }
+}
@@ -0,0 +1,22 @@
+package com.nushungry.mediaservice.model;
+
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 图片的派生尺寸（thumb、card、full），与原图存放在同一目录
+ */
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MediaRendition {
+    private String name;
+    private String fileName;
+    private String url;
+    private Integer width;
+    private Integer height;
+    private Long size;
+}
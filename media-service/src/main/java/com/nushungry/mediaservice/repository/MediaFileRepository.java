@@ -1,10 +1,16 @@
 package com.nushungry.mediaservice.repository;
 
 import com.nushungry.mediaservice.model.MediaFile;
+import com.nushungry.mediaservice.model.MediaRendition;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -21,6 +27,21 @@ public interface MediaFileRepository extends JpaRepository<MediaFile, Long>, Jpa
     @Query("SELECT SUM(m.size) FROM MediaFile m")
     Long getTotalSize();
 
+    /**
+     * 上传时的总大小，压缩前的记录没有 originalSize，按存储大小计算
+     */
+    @Query("SELECT SUM(COALESCE(m.originalSize, m.size)) FROM MediaFile m")
+    Long getTotalOriginalSize();
+
+    /**
+     * 去重前的总大小：每个引用都按一份计算
+     */
+    @Query("SELECT SUM(m.size * COALESCE(m.refCount, 1)) FROM MediaFile m")
+    Long getTotalReferencedSize();
+
+    @Query("SELECT SUM(COALESCE(m.refCount, 1)) FROM MediaFile m")
+    Long getTotalReferences();
+
     @Query("SELECT m.type, COUNT(m) FROM MediaFile m GROUP BY m.type")
     List<Object[]> countByTypeGroupBy();
 
@@ -31,4 +52,102 @@ public interface MediaFileRepository extends JpaRepository<MediaFile, Long>, Jpa
      * 根据URL查找媒体文件
      */
     Optional<MediaFile> findByUrl(String url);
+
+    /**
+     * 按 URL 查找并锁住记录，删除时用来判断是否最后一个引用；锁住期间并发的引用加一会等待删除提交
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT m FROM MediaFile m WHERE m.url = :url")
+    Optional<MediaFile> findByUrlForUpdate(@Param("url") String url);
+
+    Optional<MediaFile> findByContentHash(String contentHash);
+
+    boolean existsByFileName(String fileName);
+
+    /**
+     * 按上传内容的哈希查找；压缩过的图片上传内容与存储内容不同
+     */
+    Optional<MediaFile> findFirstBySourceHash(String sourceHash);
+
+    /**
+     * 按 ID 顺序取还平铺在存储根目录下（key 不含目录）的记录，包括没有内容哈希的旧文件，用于分批迁移目录布局
+     */
+    @Query("SELECT m FROM MediaFile m WHERE m.id > :afterId AND m.fileName NOT LIKE '%/%' ORDER BY m.id")
+    List<MediaFile> findFlatAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE MediaFile m SET m.refCount = COALESCE(m.refCount, 1) + 1 WHERE m.id = :id")
+    int incrementRefCount(@Param("id") Long id);
+
+    /**
+     * 还有其他引用时减一并返回 1；这是最后一个引用时不修改并返回 0，由调用方删除记录和文件
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE MediaFile m SET m.refCount = m.refCount - 1 WHERE m.id = :id AND m.refCount > 1")
+    int decrementRefCount(@Param("id") Long id);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE MediaFile m SET m.renditionStatus = :status WHERE m.id = :id")
+    int updateRenditionStatus(@Param("id") Long id, @Param("status") String status);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE MediaFile m SET m.thumbnailUrl = :thumbnailUrl, m.renditionStatus = :status WHERE m.id = :id")
+    int updateThumbnail(@Param("id") Long id, @Param("thumbnailUrl") String thumbnailUrl,
+                        @Param("status") String status);
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM media_file_rendition WHERE media_file_id = :id", nativeQuery = true)
+    int deleteRenditions(@Param("id") Long id);
+
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO media_file_rendition (media_file_id, name, file_name, url, width, height, size) "
+            + "VALUES (:id, :#{#rendition.name}, :#{#rendition.fileName}, :#{#rendition.url}, "
+            + ":#{#rendition.width}, :#{#rendition.height}, :#{#rendition.size})", nativeQuery = true)
+    int insertRendition(@Param("id") Long id, @Param("rendition") MediaRendition rendition);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE MediaFile m SET m.fileName = :fileName, m.url = :url, m.thumbnailUrl = :thumbnailUrl WHERE m.id = :id")
+    int updateLocation(@Param("id") Long id, @Param("fileName") String fileName, @Param("url") String url,
+                       @Param("thumbnailUrl") String thumbnailUrl);
+
+    /**
+     * 回填派生尺寸：只改写缩略图 URL、状态和派生尺寸表，不会用旧的快照覆盖 refCount 等其他列；
+     * 记录已被删除时不写入并返回 false。先更新主表会锁住记录，与删除互斥
+     */
+    @Transactional
+    default boolean saveRenditions(Long id, String thumbnailUrl, List<MediaRendition> renditions) {
+        if (updateThumbnail(id, thumbnailUrl, MediaFile.RenditionStatus.READY.name()) == 0) {
+            return false;
+        }
+        replaceRenditions(id, renditions);
+        return true;
+    }
+
+    /**
+     * 改写迁移到新目录后的 key 和 URL：只改写这几列和派生尺寸表；记录已被删除时不写入并返回 false
+     */
+    @Transactional
+    default boolean saveLocation(Long id, String fileName, String url, String thumbnailUrl,
+                                 List<MediaRendition> renditions) {
+        if (updateLocation(id, fileName, url, thumbnailUrl) == 0) {
+            return false;
+        }
+        replaceRenditions(id, renditions);
+        return true;
+    }
+
+    @Transactional
+    default void replaceRenditions(Long id, List<MediaRendition> renditions) {
+        deleteRenditions(id);
+        for (MediaRendition rendition : renditions) {
+            insertRendition(id, rendition);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package com.nushungry.mediaservice.repository;
+
+import com.nushungry.mediaservice.model.MediaReference;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface MediaReferenceRepository extends JpaRepository<MediaReference, Long> {
+
+    /**
+     * 释放一次引用；引用不存在（已删除或不属于这个文件）时返回 0，调用方不应再减少引用次数
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM MediaReference r WHERE r.mediaFileId = :mediaFileId AND r.referenceId = :referenceId")
+    int deleteReference(@Param("mediaFileId") Long mediaFileId, @Param("referenceId") String referenceId);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM MediaReference r WHERE r.mediaFileId = :mediaFileId")
+    int deleteByMediaFile(@Param("mediaFileId") Long mediaFileId);
+}
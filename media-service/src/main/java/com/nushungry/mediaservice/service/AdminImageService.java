@@ -3,7 +3,10 @@ package com.nushungry.mediaservice.service;
 import com.nushungry.mediaservice.dto.ImageDetailResponse;
 import com.nushungry.mediaservice.dto.ImageStatsResponse;
 import com.nushungry.mediaservice.model.MediaFile;
+import com.nushungry.mediaservice.model.MediaRendition;
 import com.nushungry.mediaservice.repository.MediaFileRepository;
+import com.nushungry.mediaservice.repository.MediaReferenceRepository;
+import com.nushungry.mediaservice.storage.StorageBackend;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -13,7 +16,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import jakarta.persistence.criteria.Predicate;
-import java.io.File;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -23,7 +25,11 @@ import java.util.stream.Collectors;
 @Slf4j
 public class AdminImageService {
 
+    private static final String MEDIA_URL_PREFIX = "/media/";
+
     private final MediaFileRepository mediaFileRepository;
+    private final MediaReferenceRepository mediaReferenceRepository;
+    private final StorageBackend storage;
 
     /**
      * 分页查询图片列表
@@ -64,6 +70,15 @@ public class AdminImageService {
         // 基础统计
         long totalImages = mediaFileRepository.count();
         Long totalSize = mediaFileRepository.getTotalSize() != null ? mediaFileRepository.getTotalSize() : 0L;
+        Long totalOriginalSize = mediaFileRepository.getTotalOriginalSize() != null
+                ? mediaFileRepository.getTotalOriginalSize() : totalSize;
+
+        // 去重统计：相同内容只存一份，按引用计算的大小与实际存储大小之比
+        Long referencedSize = mediaFileRepository.getTotalReferencedSize() != null
+                ? mediaFileRepository.getTotalReferencedSize() : totalSize;
+        Long totalReferences = mediaFileRepository.getTotalReferences() != null
+                ? mediaFileRepository.getTotalReferences() : totalImages;
+        double dedupRatio = totalSize > 0 ? (double) referencedSize / totalSize : 1.0;
 
         // 类型分布
         Map<String, Long> typeDistribution = new HashMap<>();
@@ -97,6 +112,11 @@ public class AdminImageService {
         return ImageStatsResponse.builder()
                 .totalImages(totalImages)
                 .totalSize(totalSize)
+                .totalOriginalSize(totalOriginalSize)
+                .bytesSaved(Math.max(0L, totalOriginalSize - totalSize))
+                .totalReferences(totalReferences)
+                .dedupBytesSaved(Math.max(0L, referencedSize - totalSize))
+                .dedupRatio(dedupRatio)
                 .typeDistribution(typeDistribution)
                 .uploadByDistribution(uploadByDistribution)
                 .todayCount(todayCount)
@@ -115,6 +135,7 @@ public class AdminImageService {
 
     /**
      * 删除图片（同时删除文件和数据库记录）
+     * 相同内容的上传共用一条记录，管理员删除会移除所有引用
      */
     @Transactional
     public boolean deleteImage(Long id) {
@@ -127,8 +148,14 @@ public class AdminImageService {
             if (file.getThumbnailUrl() != null) {
                 deleteImageFile(file.getThumbnailUrl());
             }
+            for (MediaRendition rendition : file.getRenditions()) {
+                if (!rendition.getUrl().equals(file.getThumbnailUrl())) {
+                    deleteImageFile(rendition.getUrl());
+                }
+            }
 
-            // 删除数据库记录
+            // 删除数据库记录和全部引用
+            mediaReferenceRepository.deleteByMediaFile(id);
             mediaFileRepository.delete(file);
             log.info("图片删除成功: ID={}, 文件名={}", id, file.getFileName());
             return true;
@@ -179,8 +206,13 @@ public class AdminImageService {
                 .originalFileName(mediaFile.getOriginalFileName())
                 .url(mediaFile.getUrl())
                 .thumbnailUrl(mediaFile.getThumbnailUrl())
+                .renditionStatus(mediaFile.getRenditionStatus())
+                .renditions(mediaFile.getRenditions())
                 .contentType(mediaFile.getContentType())
                 .size(mediaFile.getSize())
+                .width(mediaFile.getWidth())
+                .height(mediaFile.getHeight())
+                .contentHash(mediaFile.getContentHash())
                 .uploadedBy(mediaFile.getUploadedBy())
                 .type(mediaFile.getType())
                 .relatedId(mediaFile.getRelatedId())
@@ -195,17 +227,11 @@ public class AdminImageService {
      */
     private void deleteImageFile(String imageUrl) {
         try {
-            if (imageUrl != null && !imageUrl.trim().isEmpty()) {
-                // 从URL提取文件路径 (假设格式为 /uploads/xxx.jpg)
-                String filePath = "uploads" + imageUrl.substring(imageUrl.lastIndexOf("/"));
-                File file = new File(filePath);
-                if (file.exists()) {
-                    if (file.delete()) {
-                        log.info("文件删除成功: {}", filePath);
-                    } else {
-                        log.warn("文件删除失败: {}", filePath);
-                    }
-                }
+            if (imageUrl != null && imageUrl.startsWith(MEDIA_URL_PREFIX)) {
+                // 从URL提取存储 key (格式为 /media/xxx.jpg)
+                String key = imageUrl.substring(MEDIA_URL_PREFIX.length());
+                storage.delete(key);
+                log.info("文件删除成功: {}", key);
             }
         } catch (Exception e) {
             log.error("删除文件时出错: URL={}, 错误: {}", imageUrl, e.getMessage());
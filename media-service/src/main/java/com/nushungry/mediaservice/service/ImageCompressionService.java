@@ -0,0 +1,287 @@
+package com.nushungry.mediaservice.service;
+
+import com.nushungry.mediaservice.util.AreaAveragingScaler;
+import com.nushungry.mediaservice.util.ExifOrientation;
+import com.nushungry.mediaservice.util.ImageHeaderProbe;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 图片压缩与编码
+ * 上传时把最长边限制在 image.compress.max-edge 以内，并按 image.quality 重新编码：
+ * 有 WebP 编码器（classpath 中存在 ImageIO WebP 插件）时输出 WebP，否则输出渐进式 JPEG。
+ * 重新编码不写入任何元数据（EXIF、GPS、ICC 等），因此解码后先按 EXIF Orientation 摆正像素；只有结果比原文件小时才替换原文件。
+ * GIF（可能是动图）和带透明通道的图片不处理，按原文件保存。
+ * 解码前先读文件头，像素数超过 image.max-pixels 的图片不解码，避免一张小文件解码出几 GB 的像素数组。
+ * 上传压缩、派生尺寸和按需缩放共用一个按像素计的解码额度（image.decode.budget-pixels），
+ * 同时驻留在内存中的原图像素总数不超过额度，并发再高也不会撑爆堆。
+ */
+@Service
+@Slf4j
+public class ImageCompressionService {
+
+    @Value("${image.quality:0.85}")
+    private float quality;
+
+    @Value("${image.compress.max-edge:2048}")
+    private int maxEdge;
+
+    @Value("${image.compress.webp-enabled:true}")
+    private boolean webpEnabled;
+
+    @Value("${image.max-pixels:16000000}")
+    private long maxPixels;
+
+    @Value("${image.decode.budget-pixels:48000000}")
+    private long decodeBudgetPixels;
+
+    /**
+     * 每个许可对应一个像素；未初始化或额度小于等于 0 时不限制
+     */
+    private Semaphore decodeBudget;
+
+    @PostConstruct
+    public void init() {
+        decodeBudget = decodeBudgetPixels > 0
+                ? new Semaphore((int) Math.min(decodeBudgetPixels, Integer.MAX_VALUE), true)
+                : null;
+    }
+
+    /**
+     * 压缩上传的图片；无法解码、不适合重新编码或结果不比原文件小时返回 null，调用方按原文件保存
+     */
+    public CompressedImage compress(MultipartFile file) {
+        String contentType = file.getContentType();
+        if (contentType == null || !contentType.startsWith("image/") || contentType.equals("image/gif")) {
+            return null;
+        }
+
+        try (InputStream in = file.getInputStream()) {
+            return withDecoded(in, -1, source -> compress(file, source));
+        } catch (IOException | RuntimeException e) {
+            log.warn("图片压缩失败，保留原文件: {}", file.getOriginalFilename(), e);
+            return null;
+        }
+    }
+
+    private CompressedImage compress(MultipartFile file, BufferedImage source) throws IOException {
+        if (source == null || source.getColorModel().hasAlpha()) {
+            return null;
+        }
+
+        int[] size = AreaAveragingScaler.fit(source.getWidth(), source.getHeight(), maxEdge, maxEdge);
+        boolean resized = size[0] != source.getWidth() || size[1] != source.getHeight();
+        BufferedImage image = resized ? AreaAveragingScaler.scale(source, size[0], size[1]) : source;
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Encoding encoding = encode(image, out);
+        if (out.size() >= file.getSize()) {
+            log.debug("重新编码后没有变小，保留原文件: {} ({} -> {} bytes)",
+                    file.getOriginalFilename(), file.getSize(), out.size());
+            return null;
+        }
+
+        log.info("图片已压缩: {} {}x{} -> {}x{}, {} -> {} bytes ({})",
+                file.getOriginalFilename(), source.getWidth(), source.getHeight(), size[0], size[1],
+                file.getSize(), out.size(), encoding.contentType());
+        return new CompressedImage(out.toByteArray(), encoding, size[0], size[1]);
+    }
+
+    /**
+     * 解码图片并按 EXIF Orientation 摆正后交给 task 处理；文件头无法识别或无法解码时传入 null
+     * 先在同一个流上读取文件头（mark / reset），不需要把整个文件读入内存；读不出宽高时不解码，像素数无法事先检查。
+     * 解码前按像素数占用解码额度，task 返回后才释放，缩放和编码产生的副本也计在这次占用之内；
+     * 单张图片最多占满整个额度，因此不超过 image.max-pixels 的图片总能解码。
+     *
+     * @param maxWaitMs 等待额度的最长毫秒数，小于 0 时一直等待
+     * @throws IllegalArgumentException 像素数超过 image.max-pixels（小于等于 0 时不限制）
+     * @throws DecodeBusyException      maxWaitMs 内没有等到足够的额度
+     */
+    public <T> T withDecoded(InputStream in, long maxWaitMs, DecodedImageTask<T> task) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in);
+        buffered.mark(ImageHeaderProbe.MAX_PROBE_BYTES);
+        ImageHeaderProbe.ImageHeader header = ImageHeaderProbe.probe(buffered);
+        buffered.reset();
+        if (header == null) {
+            return task.apply(null);
+        }
+        long pixels = (long) header.width() * header.height();
+        if (maxPixels > 0 && pixels > maxPixels) {
+            throw new IllegalArgumentException("图片像素过多: " + header.width() + "x" + header.height()
+                    + "，上限 " + maxPixels + " 像素");
+        }
+
+        Semaphore budget = decodeBudget;
+        int permits = budget == null ? 0 : (int) Math.min(pixels, Math.min(decodeBudgetPixels, Integer.MAX_VALUE));
+        acquire(budget, permits, maxWaitMs, header);
+        try {
+            BufferedImage image = ImageIO.read(buffered);
+            return task.apply(image == null ? null : ExifOrientation.apply(image, header.orientation()));
+        } finally {
+            if (permits > 0) {
+                budget.release(permits);
+            }
+        }
+    }
+
+    private static void acquire(Semaphore budget, int permits, long maxWaitMs,
+                                ImageHeaderProbe.ImageHeader header) throws IOException {
+        if (permits <= 0) {
+            return;
+        }
+        try {
+            if (maxWaitMs < 0) {
+                budget.acquire(permits);
+            } else if (!budget.tryAcquire(permits, maxWaitMs, TimeUnit.MILLISECONDS)) {
+                throw new DecodeBusyException("解码额度不足，" + maxWaitMs + " ms 内无法解码 "
+                        + header.width() + "x" + header.height() + " 的图片");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待解码额度时被中断");
+        }
+    }
+
+    /**
+     * 按当前可用的最佳格式编码，不写入元数据
+     */
+    public Encoding encode(BufferedImage image, OutputStream out) throws IOException {
+        return encode(image, Encoding.WEBP, out);
+    }
+
+    /**
+     * 按指定格式编码；请求 WebP 但没有可用的编码器时退回渐进式 JPEG，返回实际使用的格式
+     */
+    public Encoding encode(BufferedImage image, Encoding encoding, OutputStream out) throws IOException {
+        ImageWriter webpWriter = encoding == Encoding.WEBP ? webpWriter() : null;
+        if (webpWriter != null) {
+            write(webpWriter, image, out, false);
+            return Encoding.WEBP;
+        }
+        write(ImageIO.getImageWritersByFormatName("jpeg").next(), toRgb(image), out, true);
+        return Encoding.JPEG;
+    }
+
+    /**
+     * 当前编码输出的格式
+     */
+    public Encoding preferredEncoding() {
+        ImageWriter webpWriter = webpWriter();
+        if (webpWriter == null) {
+            return Encoding.JPEG;
+        }
+        webpWriter.dispose();
+        return Encoding.WEBP;
+    }
+
+    private ImageWriter webpWriter() {
+        if (!webpEnabled) {
+            return null;
+        }
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByMIMEType(Encoding.WEBP.contentType());
+        return writers.hasNext() ? writers.next() : null;
+    }
+
+    private void write(ImageWriter writer, BufferedImage image, OutputStream out, boolean progressive) throws IOException {
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        if (param.canWriteCompressed()) {
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            String[] types = param.getCompressionTypes();
+            if (types != null && Arrays.asList(types).contains("Lossy")) {
+                param.setCompressionType("Lossy");
+            } else if (types != null && param.getCompressionType() == null) {
+                param.setCompressionType(types[0]);
+            }
+            param.setCompressionQuality(quality);
+        }
+        if (progressive && param.canWriteProgressive()) {
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+        }
+        try (MemoryCacheImageOutputStream imageOut = new MemoryCacheImageOutputStream(out)) {
+            writer.setOutput(imageOut);
+            // 不传入 metadata，原图的 EXIF 等信息不会被写出
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * JPEG 编码器只接受不带透明通道的图片
+     */
+    private static BufferedImage toRgb(BufferedImage image) {
+        int type = image.getType();
+        if (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_3BYTE_BGR
+                || type == BufferedImage.TYPE_BYTE_GRAY) {
+            return image;
+        }
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = rgb.createGraphics();
+        try {
+            graphics.drawImage(image, 0, 0, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return rgb;
+    }
+
+    public enum Encoding {
+        WEBP("image/webp", "webp"),
+        JPEG("image/jpeg", "jpg");
+
+        private final String contentType;
+        private final String extension;
+
+        Encoding(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+    }
+
+    public record CompressedImage(byte[] data, Encoding encoding, int width, int height) {
+    }
+
+    @FunctionalInterface
+    public interface DecodedImageTask<T> {
+        T apply(BufferedImage image) throws IOException;
+    }
+
+    /**
+     * 在限定时间内没有等到解码额度
+     */
+    public static class DecodeBusyException extends IOException {
+        public DecodeBusyException(String message) {
+            super(message);
+        }
+    }
+}
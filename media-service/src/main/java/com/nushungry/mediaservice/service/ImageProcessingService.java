@@ -1,60 +1,384 @@
 package com.nushungry.mediaservice.service;
 
 import com.nushungry.mediaservice.model.MediaFile;
+import com.nushungry.mediaservice.model.MediaReference;
+import com.nushungry.mediaservice.model.MediaRendition;
 import com.nushungry.mediaservice.repository.MediaFileRepository;
+import com.nushungry.mediaservice.repository.MediaReferenceRepository;
+import com.nushungry.mediaservice.storage.StorageBackend;
+import com.nushungry.mediaservice.storage.StorageLayout;
+import com.nushungry.mediaservice.util.HashingChannelWriter;
+import com.nushungry.mediaservice.util.ImageHeaderProbe;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.awt.image.BufferedImage;
-import java.io.File;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class ImageProcessingService {
-    @Value("${media.storage.path}")
-    private String storagePath;
+    @Value("${image.validate-header:true}")
+    private boolean validateHeader;
 
-    private final MediaFileRepository repository;
+    @Value("${file.max-file-size:10485760}")
+    private long maxFileSize;
+
+    @Value("${image.batch.concurrency:4}")
+    private int batchConcurrency;
+
+    @Value("${image.batch.queue-capacity:100}")
+    private int batchQueueCapacity;
 
-    public ImageProcessingService(MediaFileRepository repository) {
+    private ThreadPoolExecutor batchExecutor;
+
+    private final MediaFileRepository repository;
+    private final MediaReferenceRepository referenceRepository;
+    private final RenditionService renditionService;
+    private final ImageCompressionService compressionService;
+    private final StorageBackend storage;
+
+    public ImageProcessingService(MediaFileRepository repository, MediaReferenceRepository referenceRepository,
+                                  RenditionService renditionService, ImageCompressionService compressionService,
+                                  StorageBackend storage) {
         this.repository = repository;
+        this.referenceRepository = referenceRepository;
+        this.renditionService = renditionService;
+        this.compressionService = compressionService;
+        this.storage = storage;
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        batchExecutor = new ThreadPoolExecutor(batchConcurrency, batchConcurrency, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(batchQueueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "batch-upload-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        batchExecutor.shutdown();
+        if (!batchExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+            batchExecutor.shutdownNow();
+        }
     }
 
     public MediaFile storeFile(MultipartFile file) throws IOException {
-        String fileName = System.currentTimeMillis() + "_" + file.getOriginalFilename();
+        return storeFile(file, true, true);
+    }
+
+    /**
+     * 保存文件
+     * 文件按内容的 SHA-256 命名，相同内容只保存一份：先只读不写计算上传内容的哈希，
+     * 已有相同内容时不写文件，引用次数加一后直接返回已有记录。
+     * compress 为 true 时先压缩重新编码，结果更小才替换原文件；
+     * generateRenditions 为 true 且能解码时，保存后在后台生成派生尺寸。
+     * 返回的记录带有这次上传的 referenceId
+     */
+    public MediaFile storeFile(MultipartFile file, boolean generateRenditions, boolean compress) throws IOException {
+        Prepared prepared = prepareFile(file, compress);
+        return withReference(
+                prepared.isNew() ? saveOrDiscard(prepared.mediaFile(), generateRenditions) : prepared.mediaFile());
+    }
 
-        // 判断 storagePath 是绝对路径还是相对路径
-        File storageDir = new File(storagePath);
-        if (!storageDir.isAbsolute()) {
-            // 相对路径：拼接到工作目录
-            String basePath = System.getProperty("user.dir");
-            storageDir = new File(basePath, storagePath);
+    /**
+     * 保存文件内容但不插入记录：已有相同内容时返回引用次数加一后的已有记录，
+     * 否则返回文件已保存、尚未插入数据库的新记录
+     */
+    private Prepared prepareFile(MultipartFile file, boolean compress) throws IOException {
+        byte[] buffer = new byte[HashingChannelWriter.BUFFER_SIZE];
+        String sourceHash;
+        try (InputStream in = file.getInputStream()) {
+            sourceHash = HashingChannelWriter.digest(in, buffer);
+        }
+        MediaFile existing = addReference(findBySourceHash(sourceHash));
+        if (existing != null) {
+            return new Prepared(existing, false);
         }
 
-        File dest = new File(storageDir, fileName);
-        dest.getParentFile().mkdirs();
-        file.transferTo(dest);
+        ImageCompressionService.CompressedImage compressed = compress ? compressionService.compress(file) : null;
+        Path stagingDir = storage.stagingDirectory();
 
         MediaFile mediaFile = new MediaFile();
+        mediaFile.setOriginalFileName(file.getOriginalFilename());
+        mediaFile.setOriginalSize(file.getSize());
+        mediaFile.setSourceHash(sourceHash);
+
+        HashingChannelWriter.Result written;
+        String extension;
+        if (compressed != null) {
+            written = HashingChannelWriter.write(
+                    new ByteArrayInputStream(compressed.data()), buffer, 0, stagingDir, Long.MAX_VALUE);
+            extension = compressed.encoding().extension();
+            mediaFile.setContentType(compressed.encoding().contentType());
+            mediaFile.setWidth(compressed.width());
+            mediaFile.setHeight(compressed.height());
+        } else {
+            ImageHeaderProbe.ImageHeader header = probeHeader(file);
+            try (InputStream in = file.getInputStream()) {
+                written = HashingChannelWriter.write(in, buffer, 0, stagingDir, Long.MAX_VALUE);
+            }
+            extension = fileExtension(file.getOriginalFilename(), file.getContentType());
+            mediaFile.setContentType(file.getContentType());
+            if (header != null) {
+                mediaFile.setWidth(header.displayWidth());
+                mediaFile.setHeight(header.displayHeight());
+            }
+        }
+
+        return prepareContent(mediaFile, written, extension);
+    }
+
+    /**
+     * 流式上传：直接读取请求体，不经过 multipart 解析，也不会先落到临时文件
+     * 第一块数据按魔数校验图片格式并尽量读出宽高，之后用固定大小的缓冲区边写边计算 SHA-256，
+     * 内存占用与文件大小无关。不做压缩，派生尺寸照常在后台生成。
+     * 请求体只能读一次，哈希要写完才知道，已有相同内容时丢弃刚写入的临时文件。
+     *
+     * @param contentLength 请求声明的长度，未知时为 -1；超过上限时直接拒绝
+     */
+    public MediaFile storeStream(InputStream in, String originalFilename, String contentType, long contentLength)
+            throws IOException {
+        if (contentLength > maxFileSize) {
+            throw new HashingChannelWriter.SizeLimitExceededException(maxFileSize);
+        }
+
+        byte[] buffer = new byte[HashingChannelWriter.BUFFER_SIZE];
+        int first = in.readNBytes(buffer, 0, buffer.length);
+        if (first == 0) {
+            throw new IllegalArgumentException("文件为空");
+        }
+        String detected = ImageHeaderProbe.detectContentType(buffer, first);
+        if (detected == null) {
+            throw new IllegalArgumentException("不支持的图片格式");
+        }
+        String declared = normalizeContentType(contentType);
+        if (declared != null && !declared.equals("application/octet-stream") && !declared.equals(detected)) {
+            throw new IllegalArgumentException("图片类型与声明不一致: 声明为 " + declared + "，实际为 " + detected);
+        }
+        ImageHeaderProbe.ImageHeader header = ImageHeaderProbe.probe(new ByteArrayInputStream(buffer, 0, first));
+
+        HashingChannelWriter.Result written = HashingChannelWriter.write(
+                in, buffer, first, storage.stagingDirectory(), maxFileSize);
+        log.info("流式上传完成: {}, {} bytes, sha256={}", originalFilename, written.size(), written.sha256());
+
+        MediaFile existing = addReference(findBySourceHash(written.sha256()));
+        if (existing != null) {
+            HashingChannelWriter.discard(written);
+            return withReference(existing);
+        }
+
+        MediaFile mediaFile = new MediaFile();
+        mediaFile.setOriginalFileName(originalFilename);
+        mediaFile.setContentType(detected);
+        mediaFile.setOriginalSize(written.size());
+        mediaFile.setSourceHash(written.sha256());
+        if (header != null) {
+            mediaFile.setWidth(header.displayWidth());
+            mediaFile.setHeight(header.displayHeight());
+        }
+        Prepared prepared = prepareContent(mediaFile, written, imageExtension(detected));
+        return withReference(prepared.isNew() ? saveOrDiscard(prepared.mediaFile(), true) : prepared.mediaFile());
+    }
+
+    /**
+     * 按存储内容的哈希保存文件：已有相同内容时丢弃临时文件并复用已有记录，
+     * 否则把临时文件保存为 ab/cd/<sha256>.<扩展名>，返回待插入的新记录
+     */
+    private Prepared prepareContent(MediaFile mediaFile, HashingChannelWriter.Result written, String extension)
+            throws IOException {
+        MediaFile existing = addReference(repository.findByContentHash(written.sha256()).orElse(null));
+        if (existing != null) {
+            HashingChannelWriter.discard(written);
+            return new Prepared(existing, false);
+        }
+
+        String fileName = StorageLayout.shard(written.sha256() + "." + extension);
+        storage.store(fileName, written.temp(), mediaFile.getContentType());
+
         mediaFile.setFileName(fileName);
         mediaFile.setUrl("/media/" + fileName);
-        mediaFile.setContentType(file.getContentType());
-        mediaFile.setSize(file.getSize());
-        return repository.save(mediaFile);
+        mediaFile.setSize(written.size());
+        mediaFile.setContentHash(written.sha256());
+        mediaFile.setRefCount(1);
+        return new Prepared(mediaFile, true);
+    }
+
+    /**
+     * 插入新记录；插入失败时删除已经保存的文件，不留下没有记录引用的文件
+     */
+    private MediaFile saveOrDiscard(MediaFile mediaFile, boolean generateRenditions) {
+        try {
+            return saveOrReference(mediaFile, generateRenditions);
+        } catch (RuntimeException e) {
+            discardStored(mediaFile);
+            throw e;
+        }
+    }
+
+    /**
+     * 插入新记录。两个请求同时上传相同内容时，后插入的一方违反 contentHash 唯一索引，改为引用先插入的记录；
+     * 两边写入的文件内容相同，覆盖不影响已插入的记录；扩展名不同时（photo.jpg 和 photo.jpeg）删除这次写入的文件。
+     * 同一批次中合并过的记录 refCount 大于 1，改为引用已有记录时同样加上这些引用
+     */
+    private MediaFile saveOrReference(MediaFile mediaFile, boolean generateRenditions) {
+        int references = mediaFile.getRefCount() != null ? mediaFile.getRefCount() : 1;
+        try {
+            return saveAndEnqueue(mediaFile, generateRenditions);
+        } catch (DataIntegrityViolationException e) {
+            MediaFile existing = repository.findByContentHash(mediaFile.getContentHash()).orElse(null);
+            for (int i = 0; i < references && existing != null; i++) {
+                existing = addReference(existing);
+            }
+            if (existing == null) {
+                throw e;
+            }
+            log.info("并发上传了相同内容，复用已有记录: {}", existing.getUrl());
+            if (!mediaFile.getFileName().equals(existing.getFileName())) {
+                discardStored(mediaFile);
+            }
+            return existing;
+        }
+    }
+
+    /**
+     * 删除没有插入记录的文件；key 相同的其他记录（同时上传的相同内容）仍在使用时保留
+     */
+    private void discardStored(MediaFile mediaFile) {
+        try {
+            if (!repository.existsByFileName(mediaFile.getFileName())) {
+                storage.delete(mediaFile.getFileName());
+                log.info("记录未保存，删除已写入的文件: {}", mediaFile.getFileName());
+            }
+        } catch (Exception e) {
+            log.warn("删除未保存记录的文件失败: {}", mediaFile.getFileName(), e);
+        }
+    }
+
+    /**
+     * 先按上传内容查找（压缩过的记录只有 sourceHash 相同），再按存储内容查找
+     */
+    private MediaFile findBySourceHash(String sourceHash) {
+        return repository.findFirstBySourceHash(sourceHash)
+                .or(() -> repository.findByContentHash(sourceHash))
+                .orElse(null);
+    }
+
+    /**
+     * 复用已有记录：引用次数加一。记录恰好在此时被删除时返回 null，调用方按新内容保存
+     */
+    private MediaFile addReference(MediaFile existing) {
+        if (existing == null || repository.incrementRefCount(existing.getId()) == 0) {
+            return null;
+        }
+        int refCount = existing.getRefCount() != null ? existing.getRefCount() : 1;
+        existing.setRefCount(refCount + 1);
+        log.info("内容已存在，不再写入: {} (引用 {} 次)", existing.getUrl(), existing.getRefCount());
+        return existing;
+    }
+
+    /**
+     * 为这次上传登记一个引用，referenceId 随记录返回给调用方
+     */
+    private MediaFile withReference(MediaFile mediaFile) {
+        mediaFile.setReferenceId(newReference(mediaFile.getId()));
+        return mediaFile;
+    }
+
+    /**
+     * 登记一次引用。登记失败时引用次数已经加过，文件只会多保留，不会被其他上传的删除误删
+     */
+    private String newReference(Long mediaFileId) {
+        String referenceId = UUID.randomUUID().toString();
+        referenceRepository.save(new MediaReference(referenceId, mediaFileId));
+        return referenceId;
+    }
+
+    private MediaFile saveAndEnqueue(MediaFile mediaFile, boolean generateRenditions) {
+        boolean renditions = markPending(mediaFile, generateRenditions);
+        MediaFile saved = repository.save(mediaFile);
+        if (renditions) {
+            renditionService.enqueue(saved.getId(), saved.getFileName());
+        }
+        return saved;
+    }
+
+    private boolean markPending(MediaFile mediaFile, boolean generateRenditions) {
+        boolean renditions = generateRenditions && renditionService.supports(mediaFile.getContentType());
+        if (renditions) {
+            mediaFile.setRenditionStatus(MediaFile.RenditionStatus.PENDING.name());
+        }
+        return renditions;
+    }
+
+    /**
+     * 存储文件的扩展名：优先取原文件名的扩展名（只保留字母数字），没有时按图片类型推断
+     */
+    private static String fileExtension(String originalFilename, String contentType) {
+        if (originalFilename != null) {
+            int dot = originalFilename.lastIndexOf('.');
+            String extension = dot >= 0 ? originalFilename.substring(dot + 1).toLowerCase() : "";
+            if (!extension.isEmpty() && extension.length() <= 10
+                    && extension.chars().allMatch(Character::isLetterOrDigit)) {
+                return extension;
+            }
+        }
+        String type = normalizeContentType(contentType);
+        return type != null && type.startsWith("image/") ? imageExtension(type) : "bin";
+    }
+
+    private static String imageExtension(String contentType) {
+        String subtype = contentType.substring("image/".length());
+        return subtype.equals("jpeg") ? "jpg" : subtype;
+    }
+
+    /**
+     * 去掉参数并统一 image/jpg 的写法
+     */
+    private static String normalizeContentType(String contentType) {
+        if (contentType == null || contentType.isBlank()) {
+            return null;
+        }
+        String type = contentType.split(";")[0].trim().toLowerCase();
+        return type.equals("image/jpg") ? "image/jpeg" : type;
     }
 
     /**
      * 验证是否为有效图片
+     * 开启 image.validate-header 时还会读取文件头，格式无法识别或与声明的类型不一致时拒绝
      */
     public boolean isValidImage(MultipartFile file) {
         if (file == null || file.isEmpty()) {
@@ -67,31 +391,61 @@ public class ImageProcessingService {
         }
 
         // 检查是否为常见图片格式
-        return contentType.startsWith("image/") &&
+        boolean supportedType = contentType.startsWith("image/") &&
                (contentType.equals("image/jpeg") ||
                 contentType.equals("image/jpg") ||
                 contentType.equals("image/png") ||
                 contentType.equals("image/gif") ||
                 contentType.equals("image/webp"));
+        if (!supportedType || !validateHeader) {
+            return supportedType;
+        }
+
+        ImageHeaderProbe.ImageHeader header = probeHeader(file);
+        if (header == null) {
+            log.warn("无法识别的图片文件头: {}", file.getOriginalFilename());
+            return false;
+        }
+        if (!header.contentType().equals(normalizeContentType(contentType))) {
+            log.warn("图片类型与声明不一致: {} 声明为 {}，实际为 {}",
+                    file.getOriginalFilename(), contentType, header.contentType());
+            return false;
+        }
+        return true;
     }
 
     /**
      * 根据URL删除图片
+     * 只释放 referenceId 对应的那次上传的引用；同一个 referenceId 重复删除或不属于这张图片时不做任何修改
      */
     @Transactional
-    public boolean deleteImageByUrl(String imageUrl) {
+    public boolean deleteImageByUrl(String imageUrl, String referenceId) {
         try {
             log.info("删除图片: {}", imageUrl);
 
-            // 从数据库中查找对应的记录
-            MediaFile mediaFile = repository.findByUrl(imageUrl).orElse(null);
+            // 从数据库中查找对应的记录并锁住，判断最后一个引用和删除记录之间不会有新的引用加入
+            MediaFile mediaFile = findByUrl(imageUrl);
             if (mediaFile == null) {
                 log.warn("未找到图片记录: {}", imageUrl);
                 return false;
             }
 
+            if (referenceId == null || referenceRepository.deleteReference(mediaFile.getId(), referenceId) == 0) {
+                log.warn("引用不存在或已释放: {} ({})", imageUrl, referenceId);
+                return false;
+            }
+
+            // 相同内容的其他上传仍在引用时只减少引用次数，不删除文件
+            if (repository.decrementRefCount(mediaFile.getId()) > 0) {
+                log.info("图片仍有其他引用，只减少引用次数: {}", imageUrl);
+                return true;
+            }
+
             // 删除物理文件
             boolean fileDeleted = deletePhysicalFile(mediaFile.getFileName());
+            for (MediaRendition rendition : mediaFile.getRenditions()) {
+                deletePhysicalFile(rendition.getFileName());
+            }
 
             if (fileDeleted) {
                 // 删除数据库记录
@@ -112,15 +466,30 @@ public class ImageProcessingService {
     }
 
     /**
-     * 批量删除图片
+     * 按 URL 查找并锁住记录；迁移到分级目录之前返回给调用方的 /media/<sha256>.jpg 和 /media/<时间戳>_<文件名> 同样能找到
+     */
+    private MediaFile findByUrl(String imageUrl) {
+        MediaFile mediaFile = repository.findByUrlForUpdate(imageUrl).orElse(null);
+        if (mediaFile == null && imageUrl != null && imageUrl.startsWith("/media/")) {
+            String key = imageUrl.substring("/media/".length());
+            String sharded = StorageLayout.shard(key);
+            if (!sharded.equals(key)) {
+                mediaFile = repository.findByUrlForUpdate("/media/" + sharded).orElse(null);
+            }
+        }
+        return mediaFile;
+    }
+
+    /**
+     * 批量删除图片，每项各自释放一次引用
      */
     @Transactional
-    public List<String> deleteImagesByUrls(List<String> imageUrls) {
+    public List<String> deleteImagesByUrls(List<ImageReference> references) {
         List<String> deletedUrls = new ArrayList<>();
 
-        for (String imageUrl : imageUrls) {
-            if (deleteImageByUrl(imageUrl)) {
-                deletedUrls.add(imageUrl);
+        for (ImageReference reference : references) {
+            if (deleteImageByUrl(reference.url(), reference.referenceId())) {
+                deletedUrls.add(reference.url());
             }
         }
 
@@ -130,80 +499,203 @@ public class ImageProcessingService {
 
     /**
      * 批量上传图片
+     * 每个文件在有界线程池中独立校验、去重、压缩并保存，一个慢文件不会拖慢其他文件；
+     * 文件处理期间不持有事务，全部完成后新记录用一次 saveAll 插入。结果按上传顺序返回。
+     * 线程池已满时由请求线程自己处理，不会拒绝。
      */
-    @Transactional
     public BatchUploadResult batchUploadImages(List<MultipartFile> files,
                                               boolean generateThumbnail,
                                               boolean compress) {
-        List<ImageUploadResponse> successList = new ArrayList<>();
-        List<ImageUploadResponse> failureList = new ArrayList<>();
-
+        List<CompletableFuture<Prepared>> tasks = new ArrayList<>(files.size());
         for (MultipartFile file : files) {
+            tasks.add(CompletableFuture.supplyAsync(() -> prepareBatchFile(file, compress), batchExecutor));
+        }
+
+        ImageUploadResponse[] results = new ImageUploadResponse[files.size()];
+        MediaFile[] records = new MediaFile[files.size()];
+        // 同一批次中内容相同的新文件合并为一条记录
+        Map<String, MediaFile> pending = new LinkedHashMap<>();
+        for (int i = 0; i < files.size(); i++) {
             try {
-                if (!isValidImage(file)) {
-                    failureList.add(new ImageUploadResponse(
-                        false, "无效的图片文件: " + file.getOriginalFilename(), null, null
-                    ));
+                Prepared prepared = tasks.get(i).join();
+                if (!prepared.isNew()) {
+                    records[i] = prepared.mediaFile();
                     continue;
                 }
+                MediaFile first = pending.putIfAbsent(prepared.mediaFile().getContentHash(), prepared.mediaFile());
+                if (first != null) {
+                    first.setRefCount(first.getRefCount() + 1);
+                    records[i] = first;
+                } else {
+                    records[i] = prepared.mediaFile();
+                }
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() instanceof UncheckedIOException unchecked
+                        ? unchecked.getCause() : e.getCause();
+                if (cause instanceof InvalidImageException) {
+                    results[i] = new ImageUploadResponse(false, cause.getMessage(), null, null);
+                } else {
+                    log.error("图片上传失败: {}", files.get(i).getOriginalFilename(), cause);
+                    results[i] = new ImageUploadResponse(false, "上传失败: " + cause.getMessage(), null, null);
+                }
+            }
+        }
 
-                MediaFile mediaFile = storeFile(file);
-                successList.add(new ImageUploadResponse(
-                    true, "上传成功", mediaFile.getUrl(), null
-                ));
-
-                log.info("图片上传成功: {}", mediaFile.getUrl());
+        Set<MediaFile> unsaved = Collections.newSetFromMap(new IdentityHashMap<>());
+        unsaved.addAll(pending.values());
+        Map<MediaFile, MediaFile> saved = new IdentityHashMap<>();
+        String saveError = "保存记录失败";
+        try {
+            saveBatch(new ArrayList<>(pending.values()), generateThumbnail, saved);
+        } catch (Exception e) {
+            log.error("批量保存图片记录失败", e);
+            saveError = e.getMessage();
+        }
+        for (MediaFile mediaFile : unsaved) {
+            if (!saved.containsKey(mediaFile)) {
+                discardStored(mediaFile);
+            }
+        }
 
-            } catch (Exception e) {
-                log.error("图片上传失败: {}", file.getOriginalFilename(), e);
-                failureList.add(new ImageUploadResponse(
-                    false, "上传失败: " + e.getMessage(), null, null
-                ));
+        List<ImageUploadResponse> successList = new ArrayList<>();
+        List<ImageUploadResponse> failureList = new ArrayList<>();
+        for (int i = 0; i < results.length; i++) {
+            if (records[i] != null && unsaved.contains(records[i]) && !saved.containsKey(records[i])) {
+                results[i] = new ImageUploadResponse(false, "上传失败: " + saveError, null, null);
+            } else if (records[i] != null) {
+                MediaFile mediaFile = saved.getOrDefault(records[i], records[i]);
+                results[i] = referenced(mediaFile);
             }
+            (results[i].isSuccess() ? successList : failureList).add(results[i]);
         }
 
         log.info("批量上传完成: 成功 {} 张，失败 {} 张", successList.size(), failureList.size());
-        return new BatchUploadResult(successList.size(), failureList.size(), successList, failureList);
+        return new BatchUploadResult(successList.size(), failureList.size(), successList, failureList,
+                Arrays.asList(results));
+    }
+
+    /**
+     * 批次中每个成功的文件各自登记一次引用，合并为同一条记录的文件也得到不同的 referenceId
+     */
+    private ImageUploadResponse referenced(MediaFile mediaFile) {
+        try {
+            ImageUploadResponse response = new ImageUploadResponse(true, "上传成功", mediaFile.getUrl(), null);
+            response.setReferenceId(newReference(mediaFile.getId()));
+            log.info("图片上传成功: {}", mediaFile.getUrl());
+            return response;
+        } catch (RuntimeException e) {
+            log.error("登记图片引用失败: {}", mediaFile.getUrl(), e);
+            return new ImageUploadResponse(false, "上传失败: " + e.getMessage(), null, null);
+        }
+    }
+
+    private Prepared prepareBatchFile(MultipartFile file, boolean compress) {
+        if (!isValidImage(file)) {
+            throw new InvalidImageException("无效的图片文件: " + file.getOriginalFilename());
+        }
+        try {
+            return prepareFile(file, compress);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 一次插入批次中的新记录，插入后再提交派生尺寸任务；
+     * 其他请求同时插入了相同内容时整批回滚，改为逐条插入，冲突的记录改为引用已有记录
+     *
+     * @param saved 写入待插入记录到已保存记录的映射；逐条插入时单条失败不影响其他记录
+     */
+    private void saveBatch(List<MediaFile> pending, boolean generateRenditions, Map<MediaFile, MediaFile> saved) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<MediaFile> renditions = new ArrayList<>();
+        for (MediaFile mediaFile : pending) {
+            if (markPending(mediaFile, generateRenditions)) {
+                renditions.add(mediaFile);
+            }
+        }
+
+        List<MediaFile> inserted;
+        try {
+            inserted = repository.saveAll(pending);
+        } catch (DataIntegrityViolationException e) {
+            log.info("批量插入与其他上传冲突，改为逐条插入: {}", e.getMessage());
+            for (MediaFile mediaFile : pending) {
+                // 回滚不会清除已分配的 ID，清除后按新记录插入
+                mediaFile.setId(null);
+                try {
+                    saved.put(mediaFile, saveOrReference(mediaFile, generateRenditions));
+                } catch (RuntimeException single) {
+                    log.error("保存图片记录失败: {}", mediaFile.getUrl(), single);
+                }
+            }
+            return;
+        }
+
+        for (int i = 0; i < pending.size(); i++) {
+            saved.put(pending.get(i), inserted.get(i));
+        }
+        for (MediaFile mediaFile : renditions) {
+            MediaFile record = saved.get(mediaFile);
+            renditionService.enqueue(record.getId(), record.getFileName());
+        }
     }
 
     /**
      * 获取图片信息
      */
     public ImageInfo getImageInfo(MultipartFile file) throws IOException {
-        // TODO: 实现图片信息提取（宽度、高度等）
-        // 这里先返回基本信息
+        // 只读取文件头获取宽高，不解码整张图片
+        ImageHeaderProbe.ImageHeader header = probeHeader(file);
         return ImageInfo.builder()
                 .contentType(file.getContentType())
                 .size(file.getSize())
                 .fileName(file.getOriginalFilename())
+                .width(header != null ? header.displayWidth() : null)
+                .height(header != null ? header.displayHeight() : null)
                 .build();
     }
 
+    /**
+     * 读取图片文件头，无法识别时返回 null
+     */
+    private ImageHeaderProbe.ImageHeader probeHeader(MultipartFile file) {
+        try (InputStream in = file.getInputStream()) {
+            return ImageHeaderProbe.probe(in);
+        } catch (IOException e) {
+            log.warn("读取图片文件头失败: {}", file.getOriginalFilename(), e);
+            return null;
+        }
+    }
+
     /**
      * 删除物理文件
      */
     private boolean deletePhysicalFile(String fileName) {
         try {
-            File storageDir = new File(storagePath);
-            if (!storageDir.isAbsolute()) {
-                String basePath = System.getProperty("user.dir");
-                storageDir = new File(basePath, storagePath);
-            }
-
-            File fileToDelete = new File(storageDir, fileName);
-            if (fileToDelete.exists()) {
-                return fileToDelete.delete();
-            } else {
-                log.warn("物理文件不存在: {}", fileName);
-                return true; // 文件不存在也视为删除成功
-            }
-
+            // 文件不存在也视为删除成功
+            storage.delete(fileName);
+            return true;
         } catch (Exception e) {
             log.error("删除物理文件失败: {}", fileName, e);
             return false;
         }
     }
 
+    /**
+     * 文件已保存后的记录；isNew 为 true 时尚未插入数据库
+     */
+    private record Prepared(MediaFile mediaFile, boolean isNew) {
+    }
+
+    private static class InvalidImageException extends IllegalArgumentException {
+        InvalidImageException(String message) {
+            super(message);
+        }
+    }
+
     // ==================== DTO 类 ====================
 
     /**
@@ -214,6 +706,7 @@ public class ImageProcessingService {
         private String message;
         private String url;
         private String thumbnailUrl;
+        private String referenceId; // 删除时凭它释放这次上传的引用
 
         public ImageUploadResponse(boolean success, String message, String url, String thumbnailUrl) {
             this.success = success;
@@ -231,6 +724,14 @@ public class ImageProcessingService {
         public void setUrl(String url) { this.url = url; }
         public String getThumbnailUrl() { return thumbnailUrl; }
         public void setThumbnailUrl(String thumbnailUrl) { this.thumbnailUrl = thumbnailUrl; }
+        public String getReferenceId() { return referenceId; }
+        public void setReferenceId(String referenceId) { this.referenceId = referenceId; }
+    }
+
+    /**
+     * 批量删除的一项：图片 URL 和上传时返回的 referenceId
+     */
+    public record ImageReference(String url, String referenceId) {
     }
 
     /**
@@ -241,14 +742,17 @@ public class ImageProcessingService {
         private int failureCount;
         private List<ImageUploadResponse> successList;
         private List<ImageUploadResponse> failureList;
+        private List<ImageUploadResponse> results; // 与上传的文件一一对应，顺序相同
 
         public BatchUploadResult(int successCount, int failureCount,
                                 List<ImageUploadResponse> successList,
-                                List<ImageUploadResponse> failureList) {
+                                List<ImageUploadResponse> failureList,
+                                List<ImageUploadResponse> results) {
             this.successCount = successCount;
             this.failureCount = failureCount;
             this.successList = successList;
             this.failureList = failureList;
+            this.results = results;
         }
 
         // Getters and setters
@@ -260,6 +764,8 @@ public class ImageProcessingService {
         public void setSuccessList(List<ImageUploadResponse> successList) { this.successList = successList; }
         public List<ImageUploadResponse> getFailureList() { return failureList; }
         public void setFailureList(List<ImageUploadResponse> failureList) { this.failureList = failureList; }
+        public List<ImageUploadResponse> getResults() { return results; }
+        public void setResults(List<ImageUploadResponse> results) { this.results = results; }
     }
 
     /**
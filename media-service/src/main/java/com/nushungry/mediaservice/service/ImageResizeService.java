@@ -0,0 +1,243 @@
+package com.nushungry.mediaservice.service;
+
+import com.nushungry.mediaservice.model.MediaFile;
+import com.nushungry.mediaservice.repository.MediaFileRepository;
+import com.nushungry.mediaservice.storage.StorageBackend;
+import com.nushungry.mediaservice.util.AreaAveragingScaler;
+import com.nushungry.mediaservice.util.DiskLruCache;
+import com.nushungry.mediaservice.util.SingleFlight;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按需缩放图片
+ * 只允许白名单中的宽高，结果按（内容哈希, 宽, 高, 裁剪方式, 格式）命名写入有大小上限的磁盘 LRU 缓存；
+ * 同一尺寸的并发请求只解码一次原图，其他请求等待并共享结果。
+ * 解码占用 ImageCompressionService 的解码额度，media.resize.decode-wait-ms 内等不到时抛出 DecodeBusyException。
+ */
+@Service
+@Slf4j
+public class ImageResizeService {
+
+    public static final String FIT_CONTAIN = "contain";
+    public static final String FIT_COVER = "cover";
+
+    private final MediaFileRepository repository;
+    private final StorageBackend storage;
+    private final ImageCompressionService compressionService;
+    private final MeterRegistry meterRegistry;
+    private final SingleFlight<String, Path> inFlight = new SingleFlight<>();
+
+    @Value("${media.resize.allowed-sizes:64,128,200,320,400,600,800,1200,1600}")
+    private List<Integer> allowedSizes;
+
+    @Value("${media.resize.cache-dir:}")
+    private String cacheDir;
+
+    @Value("${media.resize.cache-max-bytes:536870912}")
+    private long cacheMaxBytes;
+
+    @Value("${media.resize.decode-wait-ms:2000}")
+    private long decodeWaitMs;
+
+    private DiskLruCache cache;
+    private Counter hitCounter;
+    private Counter missCounter;
+    private Timer generateTimer;
+
+    public ImageResizeService(MediaFileRepository repository, StorageBackend storage,
+                              ImageCompressionService compressionService, MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.storage = storage;
+        this.compressionService = compressionService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        Path directory = cacheDir == null || cacheDir.isBlank()
+                ? Paths.get(System.getProperty("java.io.tmpdir"), "media-resize-cache")
+                : Paths.get(cacheDir);
+        cache = new DiskLruCache(directory, cacheMaxBytes);
+
+        Gauge.builder("media.resize.cache.bytes", cache, DiskLruCache::totalBytes)
+                .description("派生图片缓存占用的字节数")
+                .register(meterRegistry);
+        hitCounter = Counter.builder("media.resize.requests")
+                .description("按需缩放请求数")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        missCounter = Counter.builder("media.resize.requests")
+                .description("按需缩放请求数")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        generateTimer = Timer.builder("media.resize.generate")
+                .description("解码、缩放并编码一个派生图片的耗时")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 图片记录对应的存储 key；不存在时抛出 NoSuchFileException
+     */
+    public String originalKey(Long id) throws IOException {
+        return findImage(id).getFileName();
+    }
+
+    /**
+     * 返回缩放后的图片（缓存中的文件）
+     *
+     * @param width  目标宽度，为 null 时只限制高度
+     * @param height 目标高度，为 null 时只限制宽度
+     * @param fit    contain：完整放入 width x height；cover：铺满 width x height 后居中裁剪
+     * @param format auto / webp / jpeg
+     * @throws IllegalArgumentException 参数不在白名单内、图片无法解码或像素数超过 image.max-pixels
+     * @throws NoSuchFileException      图片记录或原图不存在
+     * @throws ImageCompressionService.DecodeBusyException media.resize.decode-wait-ms 内没有等到解码额度
+     */
+    public Variant resize(Long id, Integer width, Integer height, String fit, String format) throws IOException {
+        String normalizedFit = fit == null ? FIT_CONTAIN : fit.toLowerCase(Locale.ROOT);
+        validate(width, height, normalizedFit);
+        ImageCompressionService.Encoding encoding = encoding(format);
+
+        MediaFile mediaFile = findImage(id);
+        String source = mediaFile.getContentHash() != null ? mediaFile.getContentHash() : "id" + id;
+        String key = source + "_" + (width != null ? width : 0) + "x" + (height != null ? height : 0)
+                + "_" + normalizedFit + "." + encoding.extension();
+
+        Path cached = cache.get(key);
+        if (cached != null) {
+            hitCounter.increment();
+            return new Variant(key, cached);
+        }
+        missCounter.increment();
+        Path generated = inFlight.execute(key, () -> {
+            // 等待期间其他请求可能已经生成完成
+            Path existing = cache.get(key);
+            return existing != null ? existing : generate(mediaFile, key, width, height, normalizedFit, encoding);
+        });
+        return new Variant(key, generated);
+    }
+
+    public DiskLruCache getCache() {
+        return cache;
+    }
+
+    private Path generate(MediaFile mediaFile, String key, Integer width, Integer height, String fit,
+                          ImageCompressionService.Encoding encoding) throws IOException {
+        long start = System.nanoTime();
+        try (InputStream in = storage.open(mediaFile.getFileName())) {
+            // 在请求线程上解码，等不到解码额度时直接放弃，不让请求线程无限堆积
+            return compressionService.withDecoded(in, decodeWaitMs, source -> {
+                if (source == null) {
+                    throw new IllegalArgumentException("图片无法解码，不支持缩放");
+                }
+
+                int maxWidth = width != null ? width : Integer.MAX_VALUE;
+                int maxHeight = height != null ? height : Integer.MAX_VALUE;
+                BufferedImage scaled = FIT_COVER.equals(fit) && width != null && height != null
+                        ? cover(source, width, height)
+                        : contain(source, maxWidth, maxHeight);
+
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                compressionService.encode(scaled, encoding, out);
+                Path path = cache.put(key, out.toByteArray());
+                log.debug("生成派生图片: {} {}x{} ({} bytes)", key, scaled.getWidth(), scaled.getHeight(), out.size());
+                return path;
+            });
+        } finally {
+            generateTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static BufferedImage contain(BufferedImage source, int maxWidth, int maxHeight) {
+        int[] size = AreaAveragingScaler.fit(source.getWidth(), source.getHeight(), maxWidth, maxHeight);
+        if (size[0] == source.getWidth() && size[1] == source.getHeight()) {
+            return source;
+        }
+        return AreaAveragingScaler.scale(source, size[0], size[1]);
+    }
+
+    /**
+     * 缩小到刚好铺满目标尺寸（不放大），再居中裁掉多出的部分
+     */
+    private static BufferedImage cover(BufferedImage source, int width, int height) {
+        double ratio = Math.min(1.0, Math.max((double) width / source.getWidth(), (double) height / source.getHeight()));
+        int scaledWidth = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int scaledHeight = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+        BufferedImage scaled = scaledWidth == source.getWidth() && scaledHeight == source.getHeight()
+                ? source
+                : AreaAveragingScaler.scale(source, scaledWidth, scaledHeight);
+
+        int cropWidth = Math.min(width, scaledWidth);
+        int cropHeight = Math.min(height, scaledHeight);
+        if (cropWidth == scaledWidth && cropHeight == scaledHeight) {
+            return scaled;
+        }
+        int x = (scaledWidth - cropWidth) / 2;
+        int y = (scaledHeight - cropHeight) / 2;
+        // 复制像素，编码器不必处理共享 raster 的子图
+        BufferedImage cropped = new BufferedImage(cropWidth, cropHeight,
+                scaled.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        int[] row = new int[cropWidth];
+        for (int i = 0; i < cropHeight; i++) {
+            scaled.getRGB(x, y + i, cropWidth, 1, row, 0, cropWidth);
+            cropped.setRGB(0, i, cropWidth, 1, row, 0, cropWidth);
+        }
+        return cropped;
+    }
+
+    private void validate(Integer width, Integer height, String fit) {
+        if (width == null && height == null) {
+            throw new IllegalArgumentException("至少需要指定 w 或 h");
+        }
+        if (width != null && !allowedSizes.contains(width)) {
+            throw new IllegalArgumentException("不支持的宽度: " + width + "，可选: " + allowedSizes);
+        }
+        if (height != null && !allowedSizes.contains(height)) {
+            throw new IllegalArgumentException("不支持的高度: " + height + "，可选: " + allowedSizes);
+        }
+        if (!FIT_CONTAIN.equals(fit) && !FIT_COVER.equals(fit)) {
+            throw new IllegalArgumentException("不支持的裁剪方式: " + fit + "，可选: contain, cover");
+        }
+    }
+
+    /**
+     * auto 和 webp 使用当前可用的最佳格式（WebP 不可用时为 JPEG）
+     */
+    private ImageCompressionService.Encoding encoding(String format) {
+        String normalized = format == null ? "auto" : format.toLowerCase(Locale.ROOT);
+        return switch (normalized) {
+            case "auto", "webp" -> compressionService.preferredEncoding();
+            case "jpeg", "jpg" -> ImageCompressionService.Encoding.JPEG;
+            default -> throw new IllegalArgumentException("不支持的格式: " + format + "，可选: auto, webp, jpeg");
+        };
+    }
+
+    private MediaFile findImage(Long id) throws NoSuchFileException {
+        return repository.findById(id)
+                .orElseThrow(() -> new NoSuchFileException("图片不存在: " + id));
+    }
+
+    /**
+     * 缩放结果：缓存 key（同时作为 ETag）和缓存文件
+     */
+    public record Variant(String key, Path file) {
+    }
+}
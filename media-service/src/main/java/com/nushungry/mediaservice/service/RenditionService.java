@@ -0,0 +1,259 @@
+package com.nushungry.mediaservice.service;
+
+import com.nushungry.mediaservice.model.MediaFile;
+import com.nushungry.mediaservice.model.MediaRendition;
+import com.nushungry.mediaservice.repository.MediaFileRepository;
+import com.nushungry.mediaservice.storage.StorageBackend;
+import com.nushungry.mediaservice.util.AreaAveragingScaler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 图片派生尺寸生成
+ * 上传保存后把任务放入有界线程池，后台生成 thumb、card、full 三个尺寸（面积平均缩小、不放大），
+ * 按 ImageCompressionService 的格式（WebP 或渐进式 JPEG）编码后与原图存在同一 StorageBackend 中，完成后回填 MediaFile.thumbnailUrl 和 renditions。
+ * 队列满时不阻塞上传请求，直接标记为 FAILED，前端回退使用原图。
+ */
+@Service
+@Slf4j
+public class RenditionService {
+
+    public static final String THUMB = "thumb";
+    public static final String CARD = "card";
+    public static final String FULL = "full";
+
+    private final MediaFileRepository repository;
+    private final ImageCompressionService compressionService;
+    private final MeterRegistry meterRegistry;
+    private final StorageBackend storage;
+
+    @Value("${image.thumbnail.width:200}")
+    private int thumbWidth;
+
+    @Value("${image.thumbnail.height:200}")
+    private int thumbHeight;
+
+    @Value("${image.rendition.card.width:600}")
+    private int cardWidth;
+
+    @Value("${image.rendition.card.height:600}")
+    private int cardHeight;
+
+    @Value("${image.rendition.full.width:1600}")
+    private int fullWidth;
+
+    @Value("${image.rendition.full.height:1600}")
+    private int fullHeight;
+
+    @Value("${image.rendition.workers:2}")
+    private int workers;
+
+    @Value("${image.rendition.queue-capacity:200}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+    private Timer waitTimer;
+    private Counter rejectedCounter;
+
+    public RenditionService(MediaFileRepository repository, ImageCompressionService compressionService,
+                            MeterRegistry meterRegistry, StorageBackend storage) {
+        this.repository = repository;
+        this.compressionService = compressionService;
+        this.meterRegistry = meterRegistry;
+        this.storage = storage;
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "rendition-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("media.rendition.queue.size", executor, e -> e.getQueue().size())
+                .description("等待生成派生尺寸的任务数")
+                .register(meterRegistry);
+        Gauge.builder("media.rendition.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("正在生成派生尺寸的任务数")
+                .register(meterRegistry);
+        waitTimer = Timer.builder("media.rendition.queue.wait")
+                .description("任务在队列中的等待时间")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("media.rendition.rejected")
+                .description("队列已满被拒绝的任务数")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 是否能解码该类型的图片
+     */
+    public boolean supports(String contentType) {
+        return contentType != null && ImageIO.getImageReadersByMIMEType(contentType).hasNext();
+    }
+
+    /**
+     * 提交生成任务；在事务中调用时等事务提交后再提交，避免后台线程读不到记录
+     */
+    public void enqueue(Long mediaFileId, String original) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(mediaFileId, original);
+                }
+            });
+        } else {
+            submit(mediaFileId, original);
+        }
+    }
+
+    private void submit(Long mediaFileId, String original) {
+        long enqueuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                waitTimer.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+                process(mediaFileId, original);
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            log.warn("派生尺寸队列已满，跳过: ID={}", mediaFileId);
+            markFailed(mediaFileId);
+        }
+    }
+
+    /**
+     * 生成全部派生尺寸并回填记录
+     */
+    void process(Long mediaFileId, String original) {
+        long start = System.nanoTime();
+        List<String> written = new ArrayList<>();
+        String outcome = "success";
+        try {
+            List<MediaRendition> renditions;
+            try (InputStream in = storage.open(original)) {
+                // 解码额度不足时排队等待，派生尺寸在后台生成，不设超时
+                renditions = compressionService.withDecoded(in, -1, source -> {
+                    if (source == null) {
+                        throw new IOException("无法解码图片: " + original);
+                    }
+                    return render(source, original, written);
+                });
+            }
+
+            // 只更新派生尺寸相关的列，生成期间其他上传改过的引用次数不会被覆盖
+            if (!repository.saveRenditions(mediaFileId, renditions.get(0).getUrl(), renditions)) {
+                // 生成期间记录已被删除
+                log.info("图片记录已删除，清理派生尺寸: ID={}", mediaFileId);
+                deleteQuietly(written);
+                outcome = "deleted";
+                return;
+            }
+            log.info("派生尺寸生成完成: ID={}, 耗时 {} ms",
+                    mediaFileId, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (Exception e) {
+            log.error("派生尺寸生成失败: ID={}", mediaFileId, e);
+            deleteQuietly(written);
+            markFailed(mediaFileId);
+            outcome = "failure";
+        } finally {
+            Timer.builder("media.rendition.job")
+                    .description("生成全部派生尺寸的耗时")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 按各个规格缩放、编码并写入存储，已写出的文件记入 written，失败时由调用方清理
+     */
+    private List<MediaRendition> render(BufferedImage source, String original, List<String> written)
+            throws IOException {
+        String extension = compressionService.preferredEncoding().extension();
+        List<MediaRendition> renditions = new ArrayList<>();
+        for (RenditionSpec spec : specs()) {
+            int[] size = AreaAveragingScaler.fit(source.getWidth(), source.getHeight(), spec.width(), spec.height());
+            BufferedImage scaled = AreaAveragingScaler.scale(source, size[0], size[1]);
+            String fileName = renditionFileName(original, spec.name(), extension);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageCompressionService.Encoding encoding = compressionService.encode(scaled, out);
+            storage.store(fileName, out.toByteArray(), encoding.contentType());
+            written.add(fileName);
+            renditions.add(new MediaRendition(spec.name(), fileName, "/media/" + fileName,
+                    size[0], size[1], (long) out.size()));
+        }
+        return renditions;
+    }
+
+    /**
+     * 派生尺寸文件名，与原图同目录：ab/cd/<sha256>.png -> ab/cd/<sha256>_thumb.webp（无 WebP 编码器时为 .jpg）
+     */
+    public static String renditionFileName(String originalFileName, String renditionName, String extension) {
+        int dot = originalFileName.lastIndexOf('.');
+        String baseName = dot > 0 ? originalFileName.substring(0, dot) : originalFileName;
+        return baseName + "_" + renditionName + "." + extension;
+    }
+
+    private List<RenditionSpec> specs() {
+        return List.of(
+                new RenditionSpec(THUMB, thumbWidth, thumbHeight),
+                new RenditionSpec(CARD, cardWidth, cardHeight),
+                new RenditionSpec(FULL, fullWidth, fullHeight));
+    }
+
+    private void markFailed(Long mediaFileId) {
+        try {
+            repository.updateRenditionStatus(mediaFileId, MediaFile.RenditionStatus.FAILED.name());
+        } catch (Exception e) {
+            log.error("更新派生尺寸状态失败: ID={}", mediaFileId, e);
+        }
+    }
+
+    private void deleteQuietly(List<String> keys) {
+        for (String key : keys) {
+            try {
+                storage.delete(key);
+            } catch (IOException e) {
+                log.warn("删除派生尺寸文件失败: {}", key);
+            }
+        }
+    }
+
+    private record RenditionSpec(String name, int width, int height) {
+    }
+}
@@ -0,0 +1,169 @@
+package com.nushungry.mediaservice.service;
+
+import com.nushungry.mediaservice.model.MediaFile;
+import com.nushungry.mediaservice.model.MediaRendition;
+import com.nushungry.mediaservice.repository.MediaFileRepository;
+import com.nushungry.mediaservice.storage.StorageBackend;
+import com.nushungry.mediaservice.storage.StorageLayout;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 存储目录布局迁移
+ * 把平铺在存储根目录下的原图和派生尺寸移动到 ab/cd/ 分级目录，并分批改写记录中的 key 和 URL。
+ * 按内容哈希命名的文件按哈希分目录；去重之前上传的旧文件按文件名的哈希分目录（见 StorageLayout），迁移后存储根目录下不再有文件。
+ * 先移动文件再改写记录；中途中断后可以重新执行：源文件不存在而目标已存在时视为已经移动过。
+ * 只用 UPDATE 改写 key、URL 和派生尺寸，不保存读出的整条记录，迁移期间其他请求改过的引用次数不会被覆盖，
+ * 期间被删除的记录也不会被重新插入。
+ * 旧 URL 在迁移后仍然可以访问（MediaController 和按 URL 删除都会按新布局再查一次）。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StorageLayoutMigrationService {
+
+    private static final String MEDIA_URL_PREFIX = "/media/";
+
+    private final MediaFileRepository repository;
+    private final StorageBackend storage;
+
+    /**
+     * 从 ID 大于 afterId 的记录开始迁移最多 limit 条，每批读取 batchSize 条
+     * 派生尺寸还在生成的记录这次跳过（生成任务会按旧 key 写入），从头再执行一次时迁移；
+     * 移动文件后发现记录已被删除时删除移动过的文件，同样计为跳过。
+     * 失败的记录（例如原图不存在）只计入 failed，下次从返回的 lastId 继续，不会反复扫描这些记录
+     */
+    public MigrationResult migrate(long afterId, int batchSize, int limit) {
+        if (batchSize <= 0 || limit <= 0) {
+            throw new IllegalArgumentException("batchSize 和 limit 必须大于 0");
+        }
+        int scanned = 0;
+        int migrated = 0;
+        int skipped = 0;
+        int failed = 0;
+        long lastId = afterId;
+        while (scanned < limit) {
+            List<MediaFile> batch = repository.findFlatAfter(lastId,
+                    PageRequest.of(0, Math.min(batchSize, limit - scanned)));
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            for (MediaFile mediaFile : batch) {
+                lastId = mediaFile.getId();
+                scanned++;
+                if (MediaFile.RenditionStatus.PENDING.name().equals(mediaFile.getRenditionStatus())) {
+                    skipped++;
+                    continue;
+                }
+                try {
+                    Location location = moveFiles(mediaFile);
+                    if (repository.saveLocation(mediaFile.getId(), location.fileName(), location.url(),
+                            location.thumbnailUrl(), location.renditions())) {
+                        migrated++;
+                    } else {
+                        log.info("图片记录已删除，删除移动过的文件: ID={}", mediaFile.getId());
+                        deleteQuietly(location);
+                        skipped++;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    log.error("迁移图片文件失败: ID={}, key={}", mediaFile.getId(), mediaFile.getFileName(), e);
+                    failed++;
+                }
+            }
+            log.info("存储目录迁移: 已扫描 {} 条，已迁移 {} 条", scanned, migrated);
+        }
+
+        // 只看这次扫描之后的记录：跳过和失败的记录留在 lastId 之前，不会让 hasMore 一直为 true
+        boolean hasMore = !repository.findFlatAfter(lastId, PageRequest.of(0, 1)).isEmpty();
+        log.info("存储目录迁移完成: 扫描 {}，迁移 {}，跳过 {}，失败 {}，lastId {}",
+                scanned, migrated, skipped, failed, lastId);
+        return new MigrationResult(scanned, migrated, skipped, failed, lastId, hasMore);
+    }
+
+    /**
+     * 移动原图和派生尺寸，返回新的 key 和 URL（不修改 mediaFile）；
+     * 原图不存在时不移动任何文件，移动中途失败时把已移动的文件移回去
+     */
+    private Location moveFiles(MediaFile mediaFile) throws IOException {
+        String key = mediaFile.getFileName();
+        String target = StorageLayout.shard(key);
+        if (!storage.exists(key) && !storage.exists(target)) {
+            throw new NoSuchFileException(key);
+        }
+
+        List<String[]> moved = new ArrayList<>();
+        try {
+            move(key, target, moved);
+            for (MediaRendition rendition : mediaFile.getRenditions()) {
+                move(rendition.getFileName(), StorageLayout.shard(rendition.getFileName()), moved);
+            }
+        } catch (IOException | RuntimeException e) {
+            for (String[] pair : moved) {
+                try {
+                    storage.move(pair[1], pair[0]);
+                } catch (IOException rollback) {
+                    log.warn("移回文件失败: {} -> {}", pair[1], pair[0], rollback);
+                }
+            }
+            throw e;
+        }
+
+        String thumbnailUrl = mediaFile.getThumbnailUrl();
+        List<MediaRendition> renditions = new ArrayList<>(mediaFile.getRenditions().size());
+        for (MediaRendition rendition : mediaFile.getRenditions()) {
+            String renditionKey = StorageLayout.shard(rendition.getFileName());
+            if (MEDIA_URL_PREFIX.concat(rendition.getFileName()).equals(mediaFile.getThumbnailUrl())) {
+                thumbnailUrl = MEDIA_URL_PREFIX + renditionKey;
+            }
+            renditions.add(new MediaRendition(rendition.getName(), renditionKey, MEDIA_URL_PREFIX + renditionKey,
+                    rendition.getWidth(), rendition.getHeight(), rendition.getSize()));
+        }
+        return new Location(target, MEDIA_URL_PREFIX + target, thumbnailUrl, renditions);
+    }
+
+    private void deleteQuietly(Location location) {
+        List<String> keys = new ArrayList<>();
+        keys.add(location.fileName());
+        location.renditions().forEach(rendition -> keys.add(rendition.getFileName()));
+        for (String key : keys) {
+            try {
+                storage.delete(key);
+            } catch (IOException e) {
+                log.warn("删除文件失败: {}", key, e);
+            }
+        }
+    }
+
+    /**
+     * 源文件不存在时说明上次执行已经移动过，跳过
+     */
+    private void move(String from, String to, List<String[]> moved) throws IOException {
+        if (storage.exists(from)) {
+            storage.move(from, to);
+            moved.add(new String[]{from, to});
+        } else if (!storage.exists(to)) {
+            log.warn("文件不存在，只改写记录: {}", from);
+        }
+    }
+
+    /**
+     * 迁移后的存储 key、URL 和派生尺寸
+     */
+    private record Location(String fileName, String url, String thumbnailUrl, List<MediaRendition> renditions) {
+    }
+
+    /**
+     * @param lastId  这次扫描到的最后一条记录的 ID，作为下次执行的 afterId
+     * @param hasMore lastId 之后是否还有平铺的记录；这次跳过和失败的记录不计入
+     */
+    public record MigrationResult(int scanned, int migrated, int skipped, int failed, long lastId, boolean hasMore) {
+    }
+}
@@ -0,0 +1,157 @@
+package com.nushungry.mediaservice.storage;
+
+import com.nushungry.mediaservice.util.OpenFileCache;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 本地文件系统存储
+ * 根目录在启动时解析一次（相对路径按工作目录解析），暂存文件写在根目录下，保存时原子重命名，不会再复制一次数据。
+ * 读取时通过 openFile 复用 LRU 缓存中的文件句柄，可以直接 FileChannel.transferTo 或交给容器 sendfile。
+ */
+public class LocalStorageBackend implements StorageBackend, AutoCloseable {
+
+    public static final int DEFAULT_OPEN_FILE_CACHE_SIZE = 128;
+
+    private final Path root;
+    private final OpenFileCache openFiles;
+
+    public LocalStorageBackend(Path root) throws IOException {
+        this(root, DEFAULT_OPEN_FILE_CACHE_SIZE);
+    }
+
+    public LocalStorageBackend(Path root, int openFileCacheSize) throws IOException {
+        this.root = root.toAbsolutePath().normalize();
+        this.openFiles = new OpenFileCache(openFileCacheSize);
+        Files.createDirectories(this.root);
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * key 对应的本地路径；拒绝跳出根目录的 key
+     */
+    public Path resolve(String key) {
+        Path path = root.resolve(key).normalize();
+        if (!path.startsWith(root) || path.equals(root)) {
+            throw new IllegalArgumentException("非法的存储路径: " + key);
+        }
+        return path;
+    }
+
+    @Override
+    public Path stagingDirectory() {
+        return root;
+    }
+
+    @Override
+    public void store(String key, Path staged, String contentType) throws IOException {
+        Path target = resolve(key);
+        try {
+            Files.createDirectories(target.getParent());
+            // 目标已存在时内容必然相同（按内容哈希命名），直接覆盖
+            Files.move(staged, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            openFiles.invalidate(target);
+        } finally {
+            Files.deleteIfExists(staged);
+        }
+    }
+
+    @Override
+    public void store(String key, byte[] data, String contentType) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        Files.write(target, data);
+        openFiles.invalidate(target);
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return Files.newInputStream(resolve(key));
+    }
+
+    @Override
+    public InputStream open(String key, long offset, long length) throws IOException {
+        FileChannel channel = FileChannel.open(resolve(key), StandardOpenOption.READ);
+        channel.position(offset);
+        InputStream in = Channels.newInputStream(channel);
+        return new FilterInputStream(in) {
+            private long remaining = length;
+
+            @Override
+            public int read() throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int b = super.read();
+                if (b >= 0) {
+                    remaining--;
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int off, int len) throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int read = super.read(buffer, off, (int) Math.min(len, remaining));
+                if (read > 0) {
+                    remaining -= read;
+                }
+                return read;
+            }
+        };
+    }
+
+    /**
+     * 获取缓存的文件句柄，用完后必须 close；不存在时抛出 NoSuchFileException
+     */
+    public OpenFileCache.Handle openFile(String key) throws IOException {
+        return openFiles.acquire(resolve(key));
+    }
+
+    @Override
+    public ObjectInfo stat(String key) throws IOException {
+        try (OpenFileCache.Handle file = openFile(key)) {
+            return new ObjectInfo(file.size(), file.lastModified());
+        }
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.exists(resolve(key));
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Path path = resolve(key);
+        openFiles.invalidate(path);
+        Files.deleteIfExists(path);
+    }
+
+    @Override
+    public void move(String from, String to) throws IOException {
+        Path source = resolve(from);
+        Path target = resolve(to);
+        Files.createDirectories(target.getParent());
+        Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        openFiles.invalidate(source);
+        openFiles.invalidate(target);
+    }
+
+    @Override
+    public void close() {
+        openFiles.clear();
+    }
+}
@@ -0,0 +1,345 @@
+package com.nushungry.mediaservice.storage;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * S3 兼容对象存储（MinIO / AWS S3），基于 JDK HttpClient 和 SigV4 签名，不依赖 SDK
+ * - 所有请求共用一个 HttpClient，HTTP/1.1 keep-alive 连接由它的连接池复用
+ * - 超过 partSize 的文件用分片上传，分片在有界线程池中并行上传，同时在读的分片最多 uploadThreads 个，
+ *   内存占用不超过 uploadThreads * partSize；任一分片失败时中止上传，不留下未完成的分片
+ * - 使用 path-style 地址（endpoint/bucket/key），MinIO 默认只支持这种形式
+ */
+@Slf4j
+public class S3StorageBackend implements StorageBackend, AutoCloseable {
+
+    /**
+     * S3 要求除最后一片外每片至少 5MB
+     */
+    public static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+
+    private static final Pattern UPLOAD_ID = Pattern.compile("<UploadId>([^<]+)</UploadId>");
+    private static final Duration REQUEST_TIMEOUT = Duration.ofMinutes(2);
+
+    private final URI endpoint;
+    private final String bucket;
+    private final S3RequestSigner signer;
+    private final long partSize;
+    private final Path stagingDirectory;
+    private final HttpClient httpClient;
+    private final ThreadPoolExecutor uploadExecutor;
+
+    public S3StorageBackend(String endpoint, String bucket, String accessKey, String secretKey, String region,
+                            long partSize, int uploadThreads, Path stagingDirectory) throws IOException {
+        if (partSize < MIN_PART_SIZE) {
+            throw new IllegalArgumentException("分片大小不能小于 5MB: " + partSize);
+        }
+        this.endpoint = URI.create(endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint);
+        this.bucket = bucket;
+        this.signer = new S3RequestSigner(accessKey, secretKey, region);
+        this.partSize = partSize;
+        this.stagingDirectory = stagingDirectory.toAbsolutePath().normalize();
+        Files.createDirectories(this.stagingDirectory);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.uploadExecutor = new ThreadPoolExecutor(uploadThreads, uploadThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "s3-upload-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    /**
+     * bucket 不存在时创建，用于本地 MinIO
+     */
+    public void ensureBucket() throws IOException {
+        URI uri = uri(null, null);
+        if (send("HEAD", uri, HttpRequest.BodyPublishers.noBody(), S3RequestSigner.EMPTY_PAYLOAD_SHA256,
+                Map.of(), HttpResponse.BodyHandlers.discarding()).statusCode() == 404) {
+            expectSuccess(send("PUT", uri, HttpRequest.BodyPublishers.noBody(), S3RequestSigner.EMPTY_PAYLOAD_SHA256,
+                    Map.of(), HttpResponse.BodyHandlers.ofString()), "创建 bucket");
+            log.info("已创建 bucket: {}", bucket);
+        }
+    }
+
+    @Override
+    public Path stagingDirectory() {
+        return stagingDirectory;
+    }
+
+    @Override
+    public void store(String key, Path staged, String contentType) throws IOException {
+        try {
+            long size = Files.size(staged);
+            if (size <= partSize) {
+                putObject(key, HttpRequest.BodyPublishers.ofFile(staged), contentType);
+            } else {
+                multipartUpload(key, staged, size, contentType);
+            }
+        } finally {
+            Files.deleteIfExists(staged);
+        }
+    }
+
+    @Override
+    public void store(String key, byte[] data, String contentType) throws IOException {
+        putObject(key, HttpRequest.BodyPublishers.ofByteArray(data), contentType);
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return get(key, Map.of());
+    }
+
+    @Override
+    public InputStream open(String key, long offset, long length) throws IOException {
+        if (length <= 0) {
+            return InputStream.nullInputStream();
+        }
+        return get(key, Map.of("Range", "bytes=" + offset + "-" + (offset + length - 1)));
+    }
+
+    @Override
+    public ObjectInfo stat(String key) throws IOException {
+        HttpResponse<Void> response = send("HEAD", uri(key, null), HttpRequest.BodyPublishers.noBody(),
+                S3RequestSigner.EMPTY_PAYLOAD_SHA256, Map.of(), HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 404) {
+            throw new NoSuchFileException(key);
+        }
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("查询对象失败: " + key + " HTTP " + response.statusCode());
+        }
+        long size = response.headers().firstValueAsLong("Content-Length").orElse(0L);
+        long lastModified = response.headers().firstValue("Last-Modified")
+                .map(value -> {
+                    try {
+                        return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+                    } catch (DateTimeParseException e) {
+                        return 0L;
+                    }
+                })
+                .orElse(0L);
+        return new ObjectInfo(size, lastModified);
+    }
+
+    private InputStream get(String key, Map<String, String> headers) throws IOException {
+        return getResponse(key, headers).body();
+    }
+
+    private HttpResponse<InputStream> getResponse(String key, Map<String, String> headers) throws IOException {
+        HttpResponse<InputStream> response = send("GET", uri(key, null), HttpRequest.BodyPublishers.noBody(),
+                S3RequestSigner.EMPTY_PAYLOAD_SHA256, headers, HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() == 404) {
+            response.body().close();
+            throw new NoSuchFileException(key);
+        }
+        if (response.statusCode() / 100 != 2) {
+            String body = new String(response.body().readAllBytes(), StandardCharsets.UTF_8);
+            throw new IOException("读取对象失败: " + key + " HTTP " + response.statusCode() + " " + body);
+        }
+        return response;
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        int status = send("HEAD", uri(key, null), HttpRequest.BodyPublishers.noBody(),
+                S3RequestSigner.EMPTY_PAYLOAD_SHA256, Map.of(), HttpResponse.BodyHandlers.discarding()).statusCode();
+        if (status == 404) {
+            return false;
+        }
+        if (status / 100 != 2) {
+            throw new IOException("查询对象失败: " + key + " HTTP " + status);
+        }
+        return true;
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        // 对象不存在时 S3 同样返回 204
+        expectSuccess(send("DELETE", uri(key, null), HttpRequest.BodyPublishers.noBody(),
+                S3RequestSigner.EMPTY_PAYLOAD_SHA256, Map.of(), HttpResponse.BodyHandlers.ofString()), "删除对象 " + key);
+    }
+
+    /**
+     * S3 没有重命名操作，读出后按原 Content-Type 重新上传再删除源对象；图片文件不大，直接放在内存中
+     */
+    @Override
+    public void move(String from, String to) throws IOException {
+        HttpResponse<InputStream> response = getResponse(from, Map.of());
+        byte[] data;
+        try (InputStream in = response.body()) {
+            data = in.readAllBytes();
+        }
+        store(to, data, response.headers().firstValue("Content-Type").orElse(null));
+        delete(from);
+    }
+
+    @Override
+    public void close() {
+        uploadExecutor.shutdown();
+    }
+
+    private void putObject(String key, HttpRequest.BodyPublisher body, String contentType) throws IOException {
+        expectSuccess(send("PUT", uri(key, null), body, S3RequestSigner.UNSIGNED_PAYLOAD,
+                contentTypeHeader(contentType), HttpResponse.BodyHandlers.ofString()), "上传对象 " + key);
+    }
+
+    /**
+     * 分片上传：创建上传任务，分片并行上传，全部完成后按分片号合并；失败时中止
+     */
+    private void multipartUpload(String key, Path staged, long size, String contentType) throws IOException {
+        String createResponse = expectSuccess(send("POST", uri(key, "uploads="), HttpRequest.BodyPublishers.noBody(),
+                S3RequestSigner.EMPTY_PAYLOAD_SHA256, contentTypeHeader(contentType),
+                HttpResponse.BodyHandlers.ofString()), "创建分片上传 " + key);
+        Matcher matcher = UPLOAD_ID.matcher(createResponse);
+        if (!matcher.find()) {
+            throw new IOException("创建分片上传没有返回 UploadId: " + key);
+        }
+        String uploadId = matcher.group(1);
+        String uploadQuery = "uploadId=" + S3RequestSigner.uriEncode(uploadId, false);
+
+        int partCount = (int) ((size + partSize - 1) / partSize);
+        List<CompletableFuture<String>> parts = new ArrayList<>(partCount);
+        try {
+            for (int i = 0; i < partCount; i++) {
+                int partNumber = i + 1;
+                long offset = i * partSize;
+                int length = (int) Math.min(partSize, size - offset);
+                parts.add(CompletableFuture.supplyAsync(
+                        () -> uploadPart(key, uploadQuery, partNumber, staged, offset, length), uploadExecutor));
+            }
+            CompletableFuture.allOf(parts.toArray(new CompletableFuture[0])).get();
+
+            StringBuilder complete = new StringBuilder("<CompleteMultipartUpload>");
+            for (int i = 0; i < partCount; i++) {
+                complete.append("<Part><PartNumber>").append(i + 1).append("</PartNumber><ETag>")
+                        .append(parts.get(i).join()).append("</ETag></Part>");
+            }
+            complete.append("</CompleteMultipartUpload>");
+            byte[] body = complete.toString().getBytes(StandardCharsets.UTF_8);
+            String result = expectSuccess(send("POST", uri(key, uploadQuery), HttpRequest.BodyPublishers.ofByteArray(body),
+                    S3RequestSigner.sha256Hex(body), Map.of(), HttpResponse.BodyHandlers.ofString()), "合并分片 " + key);
+            // 合并失败时 S3 也可能返回 200，错误在响应体中
+            if (result.contains("<Error>")) {
+                throw new IOException("合并分片失败: " + key + " " + result);
+            }
+            log.info("分片上传完成: {}, {} bytes, {} 片", key, size, partCount);
+        } catch (IOException | RuntimeException | InterruptedException | ExecutionException e) {
+            parts.forEach(part -> part.cancel(true));
+            abortQuietly(key, uploadQuery);
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("分片上传被中断: " + key);
+            }
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            if (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            throw cause instanceof IOException io ? io : new IOException("分片上传失败: " + key, cause);
+        }
+    }
+
+    /**
+     * 从暂存文件中按位置读取一个分片并上传，返回 ETag
+     */
+    private String uploadPart(String key, String uploadQuery, int partNumber, Path staged, long offset, int length) {
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            try (FileChannel channel = FileChannel.open(staged, StandardOpenOption.READ)) {
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, offset + buffer.position()) < 0) {
+                        throw new IOException("暂存文件被截断: " + staged);
+                    }
+                }
+            }
+            HttpResponse<String> response = send("PUT", uri(key, "partNumber=" + partNumber + "&" + uploadQuery),
+                    HttpRequest.BodyPublishers.ofByteArray(buffer.array()), S3RequestSigner.UNSIGNED_PAYLOAD, Map.of(),
+                    HttpResponse.BodyHandlers.ofString());
+            expectSuccess(response, "上传分片 " + partNumber);
+            return response.headers().firstValue("ETag")
+                    .orElseThrow(() -> new IOException("分片 " + partNumber + " 没有返回 ETag"));
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private void abortQuietly(String key, String uploadQuery) {
+        try {
+            send("DELETE", uri(key, uploadQuery), HttpRequest.BodyPublishers.noBody(),
+                    S3RequestSigner.EMPTY_PAYLOAD_SHA256, Map.of(), HttpResponse.BodyHandlers.discarding());
+        } catch (IOException e) {
+            log.warn("中止分片上传失败: {}", key, e);
+        }
+    }
+
+    private <T> HttpResponse<T> send(String method, URI uri, HttpRequest.BodyPublisher body, String payloadHash,
+                                     Map<String, String> headers, HttpResponse.BodyHandler<T> handler)
+            throws IOException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .timeout(REQUEST_TIMEOUT)
+                .method(method, body);
+        headers.forEach(builder::header);
+        signer.sign(method, uri, Map.of(), payloadHash, Instant.now()).forEach(builder::header);
+        try {
+            return httpClient.send(builder.build(), handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("请求被中断: " + method + " " + uri);
+        }
+    }
+
+    private static String expectSuccess(HttpResponse<String> response, String action) throws IOException {
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException(action + " 失败: HTTP " + response.statusCode() + " " + response.body());
+        }
+        return response.body();
+    }
+
+    private static Map<String, String> contentTypeHeader(String contentType) {
+        return contentType != null ? Map.of("Content-Type", contentType) : Map.of();
+    }
+
+    private URI uri(String key, String query) {
+        String path = endpoint.getRawPath() + "/" + S3RequestSigner.uriEncode(bucket, false)
+                + (key != null ? "/" + S3RequestSigner.uriEncode(key, true) : "");
+        return URI.create(endpoint.getScheme() + "://" + endpoint.getRawAuthority() + path
+                + (query != null ? "?" + query : ""));
+    }
+}
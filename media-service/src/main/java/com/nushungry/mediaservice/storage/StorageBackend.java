@@ -0,0 +1,58 @@
+package com.nushungry.mediaservice.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * 媒体文件存储
+ * key 为存储中的相对路径（与 URL 中 /media/ 之后的部分一致），由 media.storage.type 选择实现：
+ * local 写入本地目录（只能单副本），s3 写入 S3 兼容的对象存储（MinIO），多个副本可以共享。
+ */
+public interface StorageBackend {
+
+    /**
+     * 上传时写临时文件的本地目录；本地存储与存储根目录相同，保存时只需原子重命名
+     */
+    Path stagingDirectory();
+
+    /**
+     * 把暂存目录中的文件保存为 key；无论成功与否，返回后暂存文件都不再存在
+     */
+    void store(String key, Path staged, String contentType) throws IOException;
+
+    void store(String key, byte[] data, String contentType) throws IOException;
+
+    /**
+     * 读取文件内容，不存在时抛出 NoSuchFileException
+     */
+    InputStream open(String key) throws IOException;
+
+    /**
+     * 读取 [offset, offset + length) 范围的内容，用于 HTTP Range 请求
+     */
+    InputStream open(String key, long offset, long length) throws IOException;
+
+    /**
+     * 文件大小和最后修改时间，不存在时抛出 NoSuchFileException
+     */
+    ObjectInfo stat(String key) throws IOException;
+
+    boolean exists(String key) throws IOException;
+
+    /**
+     * 删除文件，不存在时不做处理
+     */
+    void delete(String key) throws IOException;
+
+    /**
+     * 把 from 移动到 to（目标已存在时覆盖），from 不存在时抛出 NoSuchFileException
+     */
+    void move(String from, String to) throws IOException;
+
+    /**
+     * @param lastModified 毫秒时间戳
+     */
+    record ObjectInfo(long size, long lastModified) {
+    }
+}
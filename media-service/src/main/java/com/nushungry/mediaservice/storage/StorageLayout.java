@@ -0,0 +1,44 @@
+package com.nushungry.mediaservice.storage;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+/**
+ * 存储 key 的目录布局
+ * 按内容哈希命名的文件按哈希前 4 位分到两级目录：ab/cd/abcd...ef.webp，每级最多 256 个子目录，
+ * 避免几十万个文件挤在同一个目录里（ext4 / EFS 上大目录的查找和备份都很慢）。
+ * 派生尺寸的文件名以原图哈希开头，和原图落在同一目录。
+ * 不是按哈希命名的旧文件（<时间戳>_<原文件名>）没有内容哈希，按文件名本身的 SHA-256 分目录，文件名不变，
+ * 因此旧 URL 中的文件名同样可以算出迁移后的位置。
+ */
+public final class StorageLayout {
+
+    private static final Pattern CONTENT_ADDRESSED = Pattern.compile("[0-9a-f]{64}[^/]*");
+
+    private StorageLayout() {
+    }
+
+    /**
+     * 文件名对应的存储 key：abcd...ef.webp -> ab/cd/abcd...ef.webp，123_photo.png -> 按文件名哈希的 xy/zw/123_photo.png；
+     * 已经带目录的原样返回
+     */
+    public static String shard(String fileName) {
+        if (fileName == null || fileName.isEmpty() || fileName.indexOf('/') >= 0) {
+            return fileName;
+        }
+        String hash = CONTENT_ADDRESSED.matcher(fileName).matches() ? fileName : sha256(fileName);
+        return hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + fileName;
+    }
+
+    private static String sha256(String fileName) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(fileName.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.nushungry.mediaservice.util;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * 面积平均缩小图片
+ * 每个目标像素取其覆盖的源像素区域按覆盖面积加权的平均值，缩小倍数较大时不会像最近邻、双线性那样产生锯齿和摩尔纹。
+ * 按行流式处理，除输出图片外只占用 O(目标宽度) 的缓冲，不会为中间结果再分配一张大图。
+ * 透明像素按白色背景合成，输出 TYPE_INT_RGB。
+ */
+public final class AreaAveragingScaler {
+
+    private AreaAveragingScaler() {
+    }
+
+    public static BufferedImage scale(BufferedImage source, int width, int height) {
+        int sourceWidth = source.getWidth();
+        int sourceHeight = source.getHeight();
+        if (width <= 0 || height <= 0 || width > sourceWidth || height > sourceHeight) {
+            throw new IllegalArgumentException(String.format(
+                    "只支持缩小: %dx%d -> %dx%d", sourceWidth, sourceHeight, width, height));
+        }
+
+        Weights columns = Weights.of(sourceWidth, width);
+        Weights rows = Weights.of(sourceHeight, height);
+
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] sourceRow = new int[sourceWidth];
+        float[] scaledRow = new float[width * 3];
+        float[] accumulator = new float[width * 3];
+        int[] targetRow = new int[width];
+        int cachedRow = -1;
+
+        for (int y = 0; y < height; y++) {
+            Arrays.fill(accumulator, 0f);
+            for (int k = rows.start[y]; k < rows.start[y + 1]; k++) {
+                int sourceY = rows.index[k];
+                // 相邻两个目标行最多共享一个源行，缓存最近一次横向缩放的结果
+                if (sourceY != cachedRow) {
+                    source.getRGB(0, sourceY, sourceWidth, 1, sourceRow, 0, sourceWidth);
+                    scaleRow(sourceRow, columns, scaledRow);
+                    cachedRow = sourceY;
+                }
+                float weight = rows.weight[k];
+                for (int i = 0; i < accumulator.length; i++) {
+                    accumulator[i] += scaledRow[i] * weight;
+                }
+            }
+            for (int x = 0; x < width; x++) {
+                targetRow[x] = (clamp(accumulator[x * 3]) << 16)
+                        | (clamp(accumulator[x * 3 + 1]) << 8)
+                        | clamp(accumulator[x * 3 + 2]);
+            }
+            target.setRGB(0, y, width, 1, targetRow, 0, width);
+        }
+        return target;
+    }
+
+    /**
+     * 在 maxWidth x maxHeight 范围内按原比例计算目标尺寸，不放大
+     */
+    public static int[] fit(int sourceWidth, int sourceHeight, int maxWidth, int maxHeight) {
+        double ratio = Math.min(1.0, Math.min((double) maxWidth / sourceWidth, (double) maxHeight / sourceHeight));
+        return new int[]{
+                Math.max(1, (int) Math.round(sourceWidth * ratio)),
+                Math.max(1, (int) Math.round(sourceHeight * ratio))
+        };
+    }
+
+    private static void scaleRow(int[] sourceRow, Weights columns, float[] scaledRow) {
+        Arrays.fill(scaledRow, 0f);
+        for (int x = 0; x < columns.start.length - 1; x++) {
+            for (int k = columns.start[x]; k < columns.start[x + 1]; k++) {
+                int argb = sourceRow[columns.index[k]];
+                float alpha = (argb >>> 24) / 255f;
+                float background = 255f * (1f - alpha);
+                float weight = columns.weight[k];
+                scaledRow[x * 3] += (((argb >> 16) & 0xff) * alpha + background) * weight;
+                scaledRow[x * 3 + 1] += (((argb >> 8) & 0xff) * alpha + background) * weight;
+                scaledRow[x * 3 + 2] += ((argb & 0xff) * alpha + background) * weight;
+            }
+        }
+    }
+
+    private static int clamp(float value) {
+        return Math.min(255, Math.max(0, Math.round(value)));
+    }
+
+    /**
+     * 一维上每个目标像素覆盖的源像素及权重，目标像素 i 的贡献项为 [start[i], start[i + 1])
+     */
+    private static final class Weights {
+
+        private final int[] start;
+        private final int[] index;
+        private final float[] weight;
+
+        private Weights(int[] start, int[] index, float[] weight) {
+            this.start = start;
+            this.index = index;
+            this.weight = weight;
+        }
+
+        static Weights of(int sourceSize, int targetSize) {
+            double span = (double) sourceSize / targetSize;
+            int perTarget = (int) Math.ceil(span) + 1;
+            int[] start = new int[targetSize + 1];
+            int[] index = new int[targetSize * perTarget];
+            float[] weight = new float[targetSize * perTarget];
+
+            int count = 0;
+            for (int i = 0; i < targetSize; i++) {
+                start[i] = count;
+                double low = i * span;
+                double high = Math.min(sourceSize, (i + 1) * span);
+                for (int j = (int) Math.floor(low); j < high && j < sourceSize; j++) {
+                    double overlap = Math.min(high, j + 1) - Math.max(low, j);
+                    if (overlap <= 0) {
+                        continue;
+                    }
+                    index[count] = j;
+                    weight[count] = (float) (overlap / span);
+                    count++;
+                }
+            }
+            start[targetSize] = count;
+            return new Weights(start, index, weight);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.nushungry.mediaservice.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按总字节数限制的磁盘 LRU 缓存
+ * 内存中维护按访问时间排序的 key -> 文件大小索引，写入后超出预算时删除最久未访问的文件。
+ * 命中时最多每分钟把访问时间写回文件修改时间一次，重启后按修改时间重建索引，淘汰顺序基本保持。
+ */
+@Slf4j
+public final class DiskLruCache {
+
+    private static final long TOUCH_INTERVAL_MILLIS = 60_000;
+    private static final String TEMP_PREFIX = ".put-";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> index = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    public DiskLruCache(Path directory, long maxBytes) throws IOException {
+        this.directory = directory.toAbsolutePath().normalize();
+        this.maxBytes = maxBytes;
+        Files.createDirectories(this.directory);
+        rebuildIndex();
+    }
+
+    /**
+     * 命中时返回文件路径并记录访问时间，未命中返回 null
+     */
+    public Path get(String key) {
+        long now = System.currentTimeMillis();
+        Entry entry;
+        boolean touch;
+        synchronized (this) {
+            entry = index.get(key);
+            if (entry == null) {
+                return null;
+            }
+            touch = now - entry.touchedAt >= TOUCH_INTERVAL_MILLIS;
+            if (touch) {
+                entry.touchedAt = now;
+            }
+        }
+        Path path = directory.resolve(key);
+        if (touch) {
+            try {
+                Files.setLastModifiedTime(path, FileTime.fromMillis(now));
+            } catch (IOException e) {
+                log.debug("更新缓存文件访问时间失败: {}", path);
+            }
+        }
+        return path;
+    }
+
+    /**
+     * 写入缓存（先写临时文件再原子重命名，读取方不会看到写了一半的文件），返回文件路径
+     */
+    public Path put(String key, byte[] data) throws IOException {
+        if (key.isEmpty() || key.startsWith(".") || key.contains("/") || key.contains("\\")) {
+            throw new IllegalArgumentException("非法的缓存 key: " + key);
+        }
+        Path target = directory.resolve(key);
+        Path temp = Files.createTempFile(directory, TEMP_PREFIX, ".tmp");
+        try {
+            Files.write(temp, data);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        long now = System.currentTimeMillis();
+        List<String> evicted;
+        synchronized (this) {
+            Entry previous = index.put(key, new Entry(data.length, now));
+            if (previous != null) {
+                totalBytes -= previous.size;
+            }
+            totalBytes += data.length;
+            evicted = evictOverBudget();
+        }
+        deleteFiles(evicted);
+        return target;
+    }
+
+    public synchronized long totalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized int entryCount() {
+        return index.size();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * 超出预算时从最久未访问的一端淘汰；至少保留刚写入的一项
+     */
+    private List<String> evictOverBudget() {
+        List<String> evicted = new ArrayList<>();
+        Iterator<Map.Entry<String, Entry>> eldest = index.entrySet().iterator();
+        while (totalBytes > maxBytes && index.size() > 1 && eldest.hasNext()) {
+            Map.Entry<String, Entry> entry = eldest.next();
+            eldest.remove();
+            totalBytes -= entry.getValue().size;
+            evicted.add(entry.getKey());
+        }
+        return evicted;
+    }
+
+    private void deleteFiles(List<String> keys) {
+        for (String key : keys) {
+            try {
+                Files.deleteIfExists(directory.resolve(key));
+            } catch (IOException e) {
+                log.warn("删除缓存文件失败: {}", key, e);
+            }
+        }
+    }
+
+    /**
+     * 启动时按修改时间从旧到新重建索引，清理上次遗留的临时文件
+     */
+    private void rebuildIndex() throws IOException {
+        List<Map.Entry<String, BasicFileAttributes>> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                if (name.startsWith(TEMP_PREFIX)) {
+                    Files.deleteIfExists(path);
+                    continue;
+                }
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                if (attributes.isRegularFile()) {
+                    files.add(Map.entry(name, attributes));
+                }
+            }
+        }
+        files.sort(Comparator.comparing(file -> file.getValue().lastModifiedTime()));
+
+        List<String> evicted;
+        synchronized (this) {
+            for (Map.Entry<String, BasicFileAttributes> file : files) {
+                long modified = file.getValue().lastModifiedTime().toMillis();
+                Entry entry = new Entry(file.getValue().size(), modified);
+                index.put(file.getKey(), entry);
+                totalBytes += entry.size;
+            }
+            evicted = evictOverBudget();
+        }
+        deleteFiles(evicted);
+        log.info("派生图片缓存: {} 个文件, {} bytes, 上限 {} bytes", entryCount(), totalBytes(), maxBytes);
+    }
+
+    private static final class Entry {
+        private final long size;
+        /** 最近一次写回文件修改时间的时间 */
+        private long touchedAt;
+
+        private Entry(long size, long touchedAt) {
+            this.size = size;
+            this.touchedAt = touchedAt;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.nushungry.mediaservice.util;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+
+/**
+ * 按 EXIF Orientation 摆正图片
+ * 相机按传感器方向保存像素，再用 Orientation 标签记录查看时需要的旋转/翻转；
+ * 重新编码不写出 EXIF，因此必须先把像素转到显示方向，否则竖拍的照片会横着显示。
+ */
+public final class ExifOrientation {
+
+    private ExifOrientation() {
+    }
+
+    /**
+     * 返回摆正后的图片；orientation 为 1 或无效时原样返回
+     */
+    public static BufferedImage apply(BufferedImage image, int orientation) {
+        if (orientation < 2 || orientation > 8) {
+            return image;
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean swap = orientation >= 5;
+
+        // 目标坐标 = 变换(源坐标)，各方向都只是整像素的翻转和 90 度旋转
+        AffineTransform transform = switch (orientation) {
+            case 2 -> new AffineTransform(-1, 0, 0, 1, width, 0);       // 水平翻转
+            case 3 -> new AffineTransform(-1, 0, 0, -1, width, height); // 旋转 180 度
+            case 4 -> new AffineTransform(1, 0, 0, -1, 0, height);      // 垂直翻转
+            case 5 -> new AffineTransform(0, 1, 1, 0, 0, 0);            // 沿主对角线翻转
+            case 6 -> new AffineTransform(0, 1, -1, 0, height, 0);      // 顺时针 90 度
+            case 7 -> new AffineTransform(0, -1, -1, 0, height, width); // 沿副对角线翻转
+            default -> new AffineTransform(0, -1, 1, 0, 0, width);      // 逆时针 90 度
+        };
+
+        BufferedImage oriented = new BufferedImage(swap ? height : width, swap ? width : height,
+                image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = oriented.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+            graphics.drawImage(image, transform, null);
+        } finally {
+            graphics.dispose();
+        }
+        return oriented;
+    }
+}
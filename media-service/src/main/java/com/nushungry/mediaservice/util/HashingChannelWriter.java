@@ -0,0 +1,95 @@
+package com.nushungry.mediaservice.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * 边写边计算 SHA-256 的文件写入
+ * 只用调用方提供的固定大小缓冲区，通过一个 FileChannel 写入暂存目录下的临时文件，无论文件多大内存占用都不变。
+ * 写完后由调用方根据哈希决定交给 StorageBackend 保存为以哈希命名的文件，还是 discard（已有相同内容时丢弃）。
+ * 写入失败时删除临时文件。
+ */
+public final class HashingChannelWriter {
+
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    private HashingChannelWriter() {
+    }
+
+    /**
+     * 写入 buffer 中已读取的前 prefilled 字节，再写入 in 的剩余内容
+     *
+     * @param maxBytes 超过该大小时中止写入并抛出 SizeLimitExceededException
+     */
+    public static Result write(InputStream in, byte[] buffer, int prefilled, Path directory, long maxBytes)
+            throws IOException {
+        MessageDigest digest = sha256();
+        Path temp = directory.resolve(".upload-" + UUID.randomUUID() + ".tmp");
+        long total = 0;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+            int read = prefilled;
+            while (read != -1) {
+                if (read > 0) {
+                    total += read;
+                    if (total > maxBytes) {
+                        throw new SizeLimitExceededException(maxBytes);
+                    }
+                    digest.update(buffer, 0, read);
+                    byteBuffer.clear().limit(read);
+                    while (byteBuffer.hasRemaining()) {
+                        channel.write(byteBuffer);
+                    }
+                }
+                read = in.read(buffer);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return new Result(temp, HexFormat.of().formatHex(digest.digest()), total);
+    }
+
+    /**
+     * 只计算 SHA-256，不写盘；用于写入前先按哈希查找是否已有相同内容
+     */
+    public static String digest(InputStream in, byte[] buffer) throws IOException {
+        MessageDigest digest = sha256();
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public static void discard(Result result) throws IOException {
+        Files.deleteIfExists(result.temp());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public record Result(Path temp, String sha256, long size) {
+    }
+
+    public static class SizeLimitExceededException extends IOException {
+
+        public SizeLimitExceededException(long maxBytes) {
+            super("文件超过大小限制: " + maxBytes + " bytes");
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.nushungry.mediaservice.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Arrays;
+
+/**
+ * 只读文件头获取图片格式和尺寸，不解码像素
+ * PNG 读 IHDR，GIF 读逻辑屏幕描述符，WebP 读 VP8 / VP8L / VP8X 块，都在前 30 字节内；
+ * JPEG 逐个跳过标记段直到 SOF，最多扫描 MAX_JPEG_SCAN_BYTES；EXIF（APP1）段读入内存取出 IFD0 中的
+ * Orientation 标签，其他 APP 段只 skip。
+ * 无法识别或文件头不完整时返回 null。
+ */
+public final class ImageHeaderProbe {
+
+    public static final int MAX_JPEG_SCAN_BYTES = 512 * 1024;
+
+    /**
+     * probe 最多读取的字节数（扫描上限加上最后一个标记段），调用方 mark 流时使用
+     */
+    public static final int MAX_PROBE_BYTES = MAX_JPEG_SCAN_BYTES + 65536;
+
+    private static final int HEAD_LENGTH = 30;
+
+    private static final int ORIENTATION_TAG = 0x0112;
+
+    private static final byte[] EXIF_HEADER = {'E', 'x', 'i', 'f', 0, 0};
+
+    private ImageHeaderProbe() {
+    }
+
+    public static ImageHeader probe(InputStream in) throws IOException {
+        byte[] head = in.readNBytes(HEAD_LENGTH);
+        if (isPng(head)) {
+            return png(head);
+        }
+        if (isGif(head)) {
+            return gif(head);
+        }
+        if (isWebp(head)) {
+            return webp(head);
+        }
+        if (head.length >= 2 && u8(head, 0) == 0xFF && u8(head, 1) == 0xD8) {
+            InputStream rest = new SequenceInputStream(new ByteArrayInputStream(head, 2, head.length - 2), in);
+            try {
+                return jpeg(new DataInputStream(rest));
+            } catch (EOFException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 只按魔数判断格式，用于流式上传的第一块数据；无法识别时返回 null
+     */
+    public static String detectContentType(byte[] head, int length) {
+        byte[] bytes = length == head.length ? head : Arrays.copyOf(head, length);
+        if (bytes.length >= 8 && u8(bytes, 0) == 0x89 && ascii(bytes, 1, "PNG")) {
+            return "image/png";
+        }
+        if (ascii(bytes, 0, "GIF87a") || ascii(bytes, 0, "GIF89a")) {
+            return "image/gif";
+        }
+        if (ascii(bytes, 0, "RIFF") && ascii(bytes, 8, "WEBP")) {
+            return "image/webp";
+        }
+        if (bytes.length >= 3 && u8(bytes, 0) == 0xFF && u8(bytes, 1) == 0xD8 && u8(bytes, 2) == 0xFF) {
+            return "image/jpeg";
+        }
+        return null;
+    }
+
+    private static boolean isPng(byte[] head) {
+        return head.length >= 24 && u8(head, 0) == 0x89 && ascii(head, 1, "PNG")
+                && u8(head, 4) == 0x0D && u8(head, 5) == 0x0A && u8(head, 6) == 0x1A && u8(head, 7) == 0x0A;
+    }
+
+    private static ImageHeader png(byte[] head) {
+        if (!ascii(head, 12, "IHDR")) {
+            return null;
+        }
+        return header("image/png", (int) u32be(head, 16), (int) u32be(head, 20));
+    }
+
+    private static boolean isGif(byte[] head) {
+        return head.length >= 10 && (ascii(head, 0, "GIF87a") || ascii(head, 0, "GIF89a"));
+    }
+
+    private static ImageHeader gif(byte[] head) {
+        return header("image/gif", u16le(head, 6), u16le(head, 8));
+    }
+
+    private static boolean isWebp(byte[] head) {
+        return head.length >= 30 && ascii(head, 0, "RIFF") && ascii(head, 8, "WEBP");
+    }
+
+    private static ImageHeader webp(byte[] head) {
+        if (ascii(head, 12, "VP8 ")) {
+            // 关键帧：3 字节帧头 + 起始码 9D 01 2A，之后是 14 位宽高
+            if (u8(head, 23) != 0x9D || u8(head, 24) != 0x01 || u8(head, 25) != 0x2A) {
+                return null;
+            }
+            return header("image/webp", u16le(head, 26) & 0x3FFF, u16le(head, 28) & 0x3FFF);
+        }
+        if (ascii(head, 12, "VP8L")) {
+            if (u8(head, 20) != 0x2F) {
+                return null;
+            }
+            long bits = u32le(head, 21);
+            return header("image/webp", (int) (bits & 0x3FFF) + 1, (int) ((bits >> 14) & 0x3FFF) + 1);
+        }
+        if (ascii(head, 12, "VP8X")) {
+            return header("image/webp", u24le(head, 24) + 1, u24le(head, 27) + 1);
+        }
+        return null;
+    }
+
+    private static ImageHeader jpeg(DataInputStream data) throws IOException {
+        long scanned = 2;
+        int orientation = 1;
+        while (scanned < MAX_JPEG_SCAN_BYTES) {
+            if (data.readUnsignedByte() != 0xFF) {
+                return null;
+            }
+            int marker = data.readUnsignedByte();
+            scanned += 2;
+            // 标记前可以有任意个 0xFF 填充字节
+            while (marker == 0xFF) {
+                marker = data.readUnsignedByte();
+                scanned++;
+            }
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD8)) {
+                // 没有长度字段的独立标记
+                continue;
+            }
+            if (marker == 0xD9 || marker == 0xDA) {
+                // 已到图像结尾或扫描数据，仍未出现 SOF
+                return null;
+            }
+            int length = data.readUnsignedShort();
+            if (length < 2) {
+                return null;
+            }
+            if (isStartOfFrame(marker)) {
+                data.readUnsignedByte(); // 采样精度
+                int height = data.readUnsignedShort();
+                int width = data.readUnsignedShort();
+                return width > 0 && height > 0 ? new ImageHeader("image/jpeg", width, height, orientation) : null;
+            }
+            if (marker == 0xE1 && length - 2 >= EXIF_HEADER.length) {
+                byte[] prefix = data.readNBytes(EXIF_HEADER.length);
+                if (Arrays.equals(prefix, EXIF_HEADER)) {
+                    byte[] tiff = new byte[length - 2 - EXIF_HEADER.length];
+                    data.readFully(tiff);
+                    orientation = exifOrientation(tiff);
+                } else {
+                    data.skipNBytes(length - 2 - EXIF_HEADER.length);
+                }
+            } else {
+                data.skipNBytes(length - 2);
+            }
+            scanned += length;
+        }
+        return null;
+    }
+
+    /**
+     * 从 EXIF 的 TIFF 结构中读取 IFD0 的 Orientation（1 ~ 8），没有或无效时返回 1
+     */
+    private static int exifOrientation(byte[] tiff) {
+        if (tiff.length < 8) {
+            return 1;
+        }
+        boolean littleEndian;
+        if (tiff[0] == 'I' && tiff[1] == 'I') {
+            littleEndian = true;
+        } else if (tiff[0] == 'M' && tiff[1] == 'M') {
+            littleEndian = false;
+        } else {
+            return 1;
+        }
+        long ifd0 = littleEndian ? u32le(tiff, 4) : u32be(tiff, 4);
+        if (ifd0 < 8 || ifd0 + 2 > tiff.length) {
+            return 1;
+        }
+        int entries = littleEndian ? u16le(tiff, (int) ifd0) : u16be(tiff, (int) ifd0);
+        for (int i = 0; i < entries; i++) {
+            int entry = (int) ifd0 + 2 + i * 12;
+            if (entry + 12 > tiff.length) {
+                break;
+            }
+            int tag = littleEndian ? u16le(tiff, entry) : u16be(tiff, entry);
+            if (tag == ORIENTATION_TAG) {
+                // SHORT 类型，值存放在偏移字段的前两个字节
+                int value = littleEndian ? u16le(tiff, entry + 8) : u16be(tiff, entry + 8);
+                return value >= 1 && value <= 8 ? value : 1;
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * SOF0 ~ SOF15，不包括 DHT (C4)、JPG (C8)、DAC (CC)
+     */
+    private static boolean isStartOfFrame(int marker) {
+        return marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+    }
+
+    private static ImageHeader header(String contentType, int width, int height) {
+        return width > 0 && height > 0 ? new ImageHeader(contentType, width, height, 1) : null;
+    }
+
+    private static boolean ascii(byte[] bytes, int offset, String expected) {
+        if (bytes.length < offset + expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (bytes[offset + i] != (byte) expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int u8(byte[] bytes, int offset) {
+        return bytes[offset] & 0xFF;
+    }
+
+    private static int u16le(byte[] bytes, int offset) {
+        return u8(bytes, offset) | (u8(bytes, offset + 1) << 8);
+    }
+
+    private static int u16be(byte[] bytes, int offset) {
+        return (u8(bytes, offset) << 8) | u8(bytes, offset + 1);
+    }
+
+    private static int u24le(byte[] bytes, int offset) {
+        return u16le(bytes, offset) | (u8(bytes, offset + 2) << 16);
+    }
+
+    private static long u32le(byte[] bytes, int offset) {
+        return u24le(bytes, offset) | ((long) u8(bytes, offset + 3) << 24);
+    }
+
+    private static long u32be(byte[] bytes, int offset) {
+        return ((long) u8(bytes, offset) << 24) | (u8(bytes, offset + 1) << 16)
+                | (u8(bytes, offset + 2) << 8) | u8(bytes, offset + 3);
+    }
+
+    /**
+     * @param width       按存储方向的宽度
+     * @param height      按存储方向的高度
+     * @param orientation EXIF Orientation（1 ~ 8），非 JPEG 或没有 EXIF 时为 1
+     */
+    public record ImageHeader(String contentType, int width, int height, int orientation) {
+
+        /**
+         * 按 orientation 摆正后的宽度（5 ~ 8 需要转 90 度，宽高互换）
+         */
+        public int displayWidth() {
+            return orientation >= 5 ? height : width;
+        }
+
+        public int displayHeight() {
+            return orientation >= 5 ? width : height;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.nushungry.mediaservice.util;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 打开的文件句柄 LRU 缓存
+ * 热门图片反复读取时不必每次 open / fstat；缓存的 FileChannel 只用按位置读取（transferTo(position, ...)），多个线程可以共用。
+ * 句柄带引用计数：被淘汰或失效时如果还有请求在读，等最后一个请求 close 后才真正关闭。
+ */
+public final class OpenFileCache {
+
+    private final int capacity;
+    private final LinkedHashMap<Path, Handle> handles = new LinkedHashMap<>(16, 0.75f, true);
+
+    public OpenFileCache(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * 获取文件句柄，用完后必须 close；文件不存在时抛出 NoSuchFileException
+     */
+    public Handle acquire(Path path) throws IOException {
+        synchronized (this) {
+            Handle cached = handles.get(path);
+            if (cached != null) {
+                cached.references++;
+                return cached;
+            }
+        }
+
+        // 打开文件不持有锁，两个线程同时打开同一文件时只缓存先放入的一个
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        Handle opened;
+        try {
+            long lastModified = Files.getLastModifiedTime(path).toMillis();
+            opened = new Handle(path, channel, channel.size(), lastModified);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+
+        List<Handle> toClose = new ArrayList<>();
+        Handle result;
+        synchronized (this) {
+            Handle cached = handles.get(path);
+            if (cached != null) {
+                cached.references++;
+                result = cached;
+                toClose.add(opened);
+            } else {
+                // 缓存持有一个引用，调用方持有一个引用
+                opened.references = 2;
+                handles.put(path, opened);
+                result = opened;
+                Iterator<Map.Entry<Path, Handle>> eldest = handles.entrySet().iterator();
+                while (handles.size() > capacity && eldest.hasNext()) {
+                    Handle evicted = eldest.next().getValue();
+                    eldest.remove();
+                    if (--evicted.references == 0) {
+                        toClose.add(evicted);
+                    }
+                }
+            }
+        }
+        toClose.forEach(Handle::closeChannel);
+        return result;
+    }
+
+    /**
+     * 文件被删除或替换时移出缓存
+     */
+    public void invalidate(Path path) {
+        Handle removed;
+        synchronized (this) {
+            removed = handles.remove(path);
+            if (removed == null || --removed.references > 0) {
+                return;
+            }
+        }
+        removed.closeChannel();
+    }
+
+    public void clear() {
+        List<Handle> toClose = new ArrayList<>();
+        synchronized (this) {
+            for (Handle handle : handles.values()) {
+                if (--handle.references == 0) {
+                    toClose.add(handle);
+                }
+            }
+            handles.clear();
+        }
+        toClose.forEach(Handle::closeChannel);
+    }
+
+    public synchronized int size() {
+        return handles.size();
+    }
+
+    private void release(Handle handle) {
+        synchronized (this) {
+            if (--handle.references > 0) {
+                return;
+            }
+        }
+        handle.closeChannel();
+    }
+
+    public final class Handle implements AutoCloseable {
+
+        private final Path path;
+        private final FileChannel channel;
+        private final long size;
+        private final long lastModified;
+        private int references;
+
+        private Handle(Path path, FileChannel channel, long size, long lastModified) {
+            this.path = path;
+            this.channel = channel;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        public Path path() {
+            return path;
+        }
+
+        /**
+         * 只能按位置读取，不要修改 position
+         */
+        public FileChannel channel() {
+            return channel;
+        }
+
+        public long size() {
+            return size;
+        }
+
+        public long lastModified() {
+            return lastModified;
+        }
+
+        @Override
+        public void close() {
+            release(this);
+        }
+
+        private void closeChannel() {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // 只读句柄，关闭失败不影响数据
+            }
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.nushungry.mediaservice.controller;
 import com.nushungry.mediaservice.config.SecurityConfig;
 import com.nushungry.mediaservice.filter.JwtAuthenticationFilter;
 import com.nushungry.mediaservice.service.ImageProcessingService;
+import com.nushungry.mediaservice.util.HashingChannelWriter;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -17,8 +18,11 @@ import com.nushungry.mediaservice.model.MediaFile;
 import static org.hamcrest.Matchers.*;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 /**
@@ -32,6 +36,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  * - 文件名安全性（路径穿越攻击防护）
  * - 文件名包含特殊字符
  * - 缺少文件参数
+ * - 流式上传
  */
 @WebMvcTest(
     controllers = FileUploadController.class,
@@ -364,4 +369,56 @@ public class FileUploadControllerTest {
         mockMvc.perform(multipart("/api/upload/upload").file(file))
                .andExpect(status().isOk());
     }
+
+    // ==================== 流式上传 ====================
+
+    @Test
+    void testUploadImageStream_Success() throws Exception {
+        // Arrange
+        byte[] body = new byte[]{(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A};
+
+        MediaFile mockMediaFile = new MediaFile();
+        mockMediaFile.setId(20L);
+        mockMediaFile.setFileName("123456_photo.png");
+        mockMediaFile.setUrl("/media/123456_photo.png");
+        mockMediaFile.setContentType("image/png");
+        mockMediaFile.setContentHash("abc123");
+
+        when(service.storeStream(any(), eq("photo.png"), eq("image/png"), anyLong())).thenReturn(mockMediaFile);
+
+        // Act & Assert
+        mockMvc.perform(post("/api/upload/image/stream")
+                        .param("filename", "photo.png")
+                        .contentType("image/png")
+                        .content(body))
+               .andExpect(status().isOk())
+               .andExpect(jsonPath("$.success").value(true))
+               .andExpect(jsonPath("$.data.url").value("/media/123456_photo.png"))
+               .andExpect(jsonPath("$.data.contentHash").value("abc123"));
+    }
+
+    @Test
+    void testUploadImageStream_InvalidContent() throws Exception {
+        when(service.storeStream(any(), any(), any(), anyLong()))
+            .thenThrow(new IllegalArgumentException("不支持的图片格式"));
+
+        mockMvc.perform(post("/api/upload/image/stream")
+                        .contentType("image/jpeg")
+                        .content("not an image".getBytes()))
+               .andExpect(status().isBadRequest())
+               .andExpect(jsonPath("$.success").value(false))
+               .andExpect(jsonPath("$.message").value("无效的图片文件: 不支持的图片格式"));
+    }
+
+    @Test
+    void testUploadImageStream_TooLarge() throws Exception {
+        when(service.storeStream(any(), any(), any(), anyLong()))
+            .thenThrow(new HashingChannelWriter.SizeLimitExceededException(10L));
+
+        mockMvc.perform(post("/api/upload/image/stream")
+                        .contentType("image/jpeg")
+                        .content(new byte[32]))
+               .andExpect(status().isPayloadTooLarge())
+               .andExpect(jsonPath("$.success").value(false));
+    }
 }
\ No newline at end of file
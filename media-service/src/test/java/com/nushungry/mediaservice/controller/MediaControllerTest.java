@@ -0,0 +1,307 @@
+package com.nushungry.mediaservice.controller;
+
+import com.nushungry.mediaservice.config.SecurityConfig;
+import com.nushungry.mediaservice.filter.JwtAuthenticationFilter;
+import com.nushungry.mediaservice.service.ImageCompressionService;
+import com.nushungry.mediaservice.service.ImageResizeService;
+import com.nushungry.mediaservice.storage.LocalStorageBackend;
+import com.nushungry.mediaservice.storage.StorageBackend;
+import com.nushungry.mediaservice.storage.StorageLayout;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.head;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * 单元测试：MediaController
+ *
+ * 测试覆盖：
+ * - 完整读取，内容哈希命名的文件返回 immutable 缓存头
+ * - Range（普通范围、后缀范围、超出文件返回 416、多个范围忽略）
+ * - If-None-Match / If-Modified-Since 返回 304
+ * - If-Range 不匹配时返回完整内容
+ * - 文件不存在、路径穿越返回 404
+ * - 迁移到分级目录之前的 URL 仍然可以访问
+ * - HEAD 请求
+ * - 按 ID 缩放：返回缓存文件、缓存文件打开前被淘汰时重新生成、参数错误返回 400、不带尺寸时返回原图
+ */
+@WebMvcTest(
+    controllers = MediaController.class,
+    excludeAutoConfiguration = {
+        org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration.class,
+        org.springframework.boot.autoconfigure.security.servlet.SecurityFilterAutoConfiguration.class
+    },
+    excludeFilters = {
+        @ComponentScan.Filter(
+            type = FilterType.ASSIGNABLE_TYPE,
+            classes = {
+                SecurityConfig.class,
+                JwtAuthenticationFilter.class
+            }
+        )
+    }
+)
+@ActiveProfiles("test")
+public class MediaControllerTest {
+
+    private static final String HASH = "a".repeat(64);
+    private static final byte[] CONTENT = "0123456789abcdefghij".getBytes();
+
+    @TestConfiguration
+    static class StorageTestConfig {
+        @Bean
+        StorageBackend storageBackend() throws IOException {
+            return new LocalStorageBackend(Files.createTempDirectory("media-controller-test"));
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private StorageBackend storage;
+
+    @MockBean
+    private ImageResizeService resizeService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        storage.store(HASH + ".jpg", CONTENT, "image/jpeg");
+        storage.store("legacy/old_photo.png", CONTENT, "image/png");
+    }
+
+    @Test
+    void testGet_ContentAddressedFile() throws Exception {
+        mockMvc.perform(get("/media/" + HASH + ".jpg"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(CONTENT))
+                .andExpect(content().contentType("image/jpeg"))
+                .andExpect(header().string("Content-Length", String.valueOf(CONTENT.length)))
+                .andExpect(header().string("Cache-Control", MediaController.IMMUTABLE_CACHE_CONTROL))
+                .andExpect(header().string("ETag", "\"" + HASH + "\""))
+                .andExpect(header().string("Accept-Ranges", "bytes"))
+                .andExpect(header().exists("Last-Modified"));
+    }
+
+    @Test
+    void testGet_OtherFileRevalidates() throws Exception {
+        mockMvc.perform(get("/media/legacy/old_photo.png"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(CONTENT))
+                .andExpect(content().contentType("image/png"))
+                .andExpect(header().string("Cache-Control", MediaController.REVALIDATE_CACHE_CONTROL));
+    }
+
+    @Test
+    void testGet_Range() throws Exception {
+        mockMvc.perform(get("/media/" + HASH + ".jpg").header("Range", "bytes=2-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().bytes("2345".getBytes()))
+                .andExpect(header().string("Content-Range", "bytes 2-5/20"))
+                .andExpect(header().string("Content-Length", "4"));
+
+        mockMvc.perform(get("/media/" + HASH + ".jpg").header("Range", "bytes=-3"))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().bytes("hij".getBytes()))
+                .andExpect(header().string("Content-Range", "bytes 17-19/20"));
+
+        mockMvc.perform(get("/media/" + HASH + ".jpg").header("Range", "bytes=15-"))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().bytes("fghij".getBytes()));
+    }
+
+    @Test
+    void testGet_RangeNotSatisfiable() throws Exception {
+        mockMvc.perform(get("/media/" + HASH + ".jpg").header("Range", "bytes=20-30"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string("Content-Range", "bytes */20"));
+    }
+
+    @Test
+    void testGet_MultipleRangesIgnored() throws Exception {
+        mockMvc.perform(get("/media/" + HASH + ".jpg").header("Range", "bytes=0-1,4-5"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(CONTENT));
+    }
+
+    @Test
+    void testGet_IfRangeMismatchReturnsFullContent() throws Exception {
+        mockMvc.perform(get("/media/" + HASH + ".jpg")
+                        .header("Range", "bytes=2-5")
+                        .header("If-Range", "\"other\""))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(CONTENT));
+    }
+
+    @Test
+    void testGet_IfNoneMatchNotModified() throws Exception {
+        MvcResult first = mockMvc.perform(get("/media/legacy/old_photo.png")).andReturn();
+        String etag = first.getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/media/legacy/old_photo.png").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("Cache-Control", MediaController.REVALIDATE_CACHE_CONTROL));
+        assertNotNull(etag);
+    }
+
+    @Test
+    void testGet_IfModifiedSinceNotModified() throws Exception {
+        MvcResult first = mockMvc.perform(get("/media/" + HASH + ".jpg")).andReturn();
+        String lastModified = first.getResponse().getHeader("Last-Modified");
+
+        MvcResult result = mockMvc.perform(get("/media/" + HASH + ".jpg").header("If-Modified-Since", lastModified))
+                .andExpect(status().isNotModified())
+                .andReturn();
+        assertEquals(0, result.getResponse().getContentAsByteArray().length);
+    }
+
+    @Test
+    void testGet_NotFound() throws Exception {
+        mockMvc.perform(get("/media/missing.jpg"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/media/../application.properties"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testGet_FlatUrlFallsBackToShardedKey() throws Exception {
+        String hash = "c".repeat(64);
+        storage.store("cc/cc/" + hash + ".png", CONTENT, "image/png");
+
+        mockMvc.perform(get("/media/" + hash + ".png"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(CONTENT))
+                .andExpect(header().string("ETag", "\"" + hash + "\""));
+        mockMvc.perform(get("/media/cc/cc/" + hash + ".png"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", MediaController.IMMUTABLE_CACHE_CONTROL));
+        mockMvc.perform(get("/media/" + "d".repeat(64) + ".png"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testGet_LegacyUrlFallsBackToShardedKey() throws Exception {
+        storage.store(StorageLayout.shard("123_photo.png"), CONTENT, "image/png");
+
+        mockMvc.perform(get("/media/123_photo.png"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(CONTENT))
+                .andExpect(header().string("Cache-Control", MediaController.REVALIDATE_CACHE_CONTROL));
+    }
+
+    @Test
+    void testHead_NoBody() throws Exception {
+        MvcResult result = mockMvc.perform(head("/media/" + HASH + ".jpg"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Length", String.valueOf(CONTENT.length)))
+                .andReturn();
+        assertEquals(0, result.getResponse().getContentAsByteArray().length);
+    }
+
+    @Test
+    void testResize_ServesCachedVariant() throws Exception {
+        Path variantFile = Files.createTempFile("variant", ".webp");
+        Files.write(variantFile, CONTENT);
+        when(resizeService.resize(eq(1L), eq(200), eq(null), eq("contain"), eq("auto")))
+                .thenReturn(new ImageResizeService.Variant(HASH + "_200x0_contain.webp", variantFile));
+
+        mockMvc.perform(get("/media/1").param("w", "200"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(CONTENT))
+                .andExpect(content().contentType("image/webp"))
+                .andExpect(header().string("Cache-Control", MediaController.IMMUTABLE_CACHE_CONTROL))
+                .andExpect(header().string("ETag", "\"" + HASH + "_200x0_contain\""));
+
+        mockMvc.perform(get("/media/1").param("w", "200").header("If-None-Match", "\"" + HASH + "_200x0_contain\""))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void testResize_RegeneratesVariantEvictedBeforeOpen() throws Exception {
+        Path evicted = Files.createTempFile("variant", ".webp");
+        Files.delete(evicted);
+        Path regenerated = Files.createTempFile("variant", ".webp");
+        Files.write(regenerated, CONTENT);
+        when(resizeService.resize(eq(1L), eq(200), eq(null), eq("contain"), eq("auto")))
+                .thenReturn(new ImageResizeService.Variant(HASH + "_200x0_contain.webp", evicted))
+                .thenReturn(new ImageResizeService.Variant(HASH + "_200x0_contain.webp", regenerated));
+
+        mockMvc.perform(get("/media/1").param("w", "200"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(CONTENT));
+        verify(resizeService, times(2)).resize(eq(1L), eq(200), eq(null), eq("contain"), eq("auto"));
+    }
+
+    @Test
+    void testResize_InvalidParameters() throws Exception {
+        when(resizeService.resize(anyLong(), any(), any(), any(), any()))
+                .thenThrow(new IllegalArgumentException("不支持的宽度: 123"));
+
+        mockMvc.perform(get("/media/1").param("w", "123"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testResize_NotFound() throws Exception {
+        when(resizeService.resize(anyLong(), any(), any(), any(), any()))
+                .thenThrow(new NoSuchFileException("图片不存在: 9"));
+
+        mockMvc.perform(get("/media/9").param("w", "200"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testResize_DecodeBudgetExhausted() throws Exception {
+        when(resizeService.resize(anyLong(), any(), any(), any(), any()))
+                .thenThrow(new ImageCompressionService.DecodeBusyException("解码额度不足"));
+
+        mockMvc.perform(get("/media/1").param("w", "200"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"));
+    }
+
+    @Test
+    void testImageById_WithoutSizeServesOriginal() throws Exception {
+        when(resizeService.originalKey(1L)).thenReturn(HASH + ".jpg");
+
+        mockMvc.perform(get("/media/1"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(CONTENT))
+                .andExpect(header().string("Cache-Control", MediaController.IMMUTABLE_CACHE_CONTROL));
+    }
+
+    @Test
+    void testParseRange() {
+        assertEquals(new MediaController.ByteRange(0, 10), MediaController.parseRange("bytes=0-", 10));
+        assertEquals(new MediaController.ByteRange(5, 5), MediaController.parseRange("bytes=5-100", 10));
+        assertEquals(new MediaController.ByteRange(0, 10), MediaController.parseRange("bytes=-100", 10));
+        assertSame(MediaController.ByteRange.UNSATISFIABLE, MediaController.parseRange("bytes=-0", 10));
+        assertNull(MediaController.parseRange("bytes=5-2", 10));
+        assertNull(MediaController.parseRange("bytes=abc", 10));
+        assertNull(MediaController.parseRange("items=0-1", 10));
+    }
+}
@@ -1,6 +1,7 @@
 package com.nushungry.mediaservice.repository;
 
 import com.nushungry.mediaservice.model.MediaFile;
+import com.nushungry.mediaservice.model.MediaRendition;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -25,6 +26,8 @@ import static org.junit.jupiter.api.Assertions.*;
  * - 按 ID 查询
  * - 删除操作
  * - 空表场景
+ * - 查找待迁移目录布局的记录
+ * - 回填派生尺寸、改写迁移后的 key 不覆盖引用次数
  */
 @DataJpaTest
 @ActiveProfiles("test")
@@ -383,6 +386,150 @@ public class MediaFileRepositoryTest {
         assertEquals(3000L, totalSize);
     }
 
+    @Test
+    void testGetTotalOriginalSize() {
+        // Arrange - 压缩过的记录按 originalSize 计算，旧记录按 size 计算
+        testMediaFile1.setSize(400L);
+        testMediaFile1.setOriginalSize(1000L);
+        testMediaFile2.setSize(2000L);
+
+        entityManager.persistAndFlush(testMediaFile1);
+        entityManager.persistAndFlush(testMediaFile2);
+
+        // Act
+        Long totalOriginalSize = repository.getTotalOriginalSize();
+
+        // Assert
+        assertEquals(3000L, totalOriginalSize);
+        assertEquals(2400L, repository.getTotalSize());
+    }
+
+    @Test
+    void testGetTotalReferencedSize() {
+        // Arrange - 同一内容被引用 3 次只存一份
+        testMediaFile1.setSize(1000L);
+        testMediaFile1.setRefCount(3);
+        testMediaFile2.setSize(2000L);
+
+        entityManager.persistAndFlush(testMediaFile1);
+        entityManager.persistAndFlush(testMediaFile2);
+
+        // Assert
+        assertEquals(5000L, repository.getTotalReferencedSize());
+        assertEquals(4L, repository.getTotalReferences());
+        assertEquals(3000L, repository.getTotalSize());
+    }
+
+    @Test
+    void testFindByContentHash() {
+        // Arrange
+        testMediaFile1.setContentHash("a".repeat(64));
+        testMediaFile1.setSourceHash("b".repeat(64));
+        entityManager.persistAndFlush(testMediaFile1);
+
+        // Assert
+        assertTrue(repository.findByContentHash("a".repeat(64)).isPresent());
+        assertTrue(repository.findFirstBySourceHash("b".repeat(64)).isPresent());
+        assertFalse(repository.findByContentHash("c".repeat(64)).isPresent());
+    }
+
+    @Test
+    void testFindFlatAfter_OnlyUnshardedFiles() {
+        // Arrange
+        MediaFile flat = testMediaFile1;
+        flat.setContentHash("a".repeat(64));
+        flat.setFileName("a".repeat(64) + ".jpg");
+        MediaFile sharded = testMediaFile2;
+        sharded.setContentHash("b".repeat(64));
+        sharded.setFileName("bb/bb/" + "b".repeat(64) + ".png");
+        MediaFile legacy = new MediaFile();
+        legacy.setFileName("123_photo.jpg");
+        entityManager.persist(flat);
+        entityManager.persist(sharded);
+        entityManager.persistAndFlush(legacy);
+
+        // Act
+        List<MediaFile> result = repository.findFlatAfter(0L, org.springframework.data.domain.PageRequest.of(0, 10));
+
+        // Assert: 没有内容哈希的旧文件同样需要迁移
+        assertEquals(2, result.size());
+        assertEquals(flat.getId(), result.get(0).getId());
+        assertEquals(legacy.getId(), result.get(1).getId());
+        assertTrue(repository.findFlatAfter(legacy.getId(), org.springframework.data.domain.PageRequest.of(0, 10)).isEmpty());
+    }
+
+    @Test
+    void testIncrementAndDecrementRefCount() {
+        // Arrange
+        MediaFile saved = entityManager.persistAndFlush(testMediaFile1);
+        Long id = saved.getId();
+        entityManager.clear();
+
+        // Act & Assert
+        assertEquals(1, repository.incrementRefCount(id));
+        entityManager.clear();
+        assertEquals(2, repository.findById(id).orElseThrow().getRefCount());
+
+        assertEquals(1, repository.decrementRefCount(id));
+        entityManager.clear();
+        assertEquals(1, repository.findById(id).orElseThrow().getRefCount());
+
+        // 最后一个引用不再减少，由调用方删除
+        assertEquals(0, repository.decrementRefCount(id));
+        entityManager.clear();
+        assertEquals(1, repository.findById(id).orElseThrow().getRefCount());
+    }
+
+    @Test
+    void testSaveRenditions_KeepsRefCount() {
+        // Arrange
+        testMediaFile1.setRenditionStatus("PENDING");
+        Long id = entityManager.persistAndFlush(testMediaFile1).getId();
+        entityManager.clear();
+        // 生成派生尺寸期间其他上传增加了引用
+        repository.incrementRefCount(id);
+
+        // Act
+        boolean saved = repository.saveRenditions(id, "/media/test1_thumb.jpg", List.of(
+                new MediaRendition("thumb", "test1_thumb.jpg", "/media/test1_thumb.jpg", 200, 100, 10L),
+                new MediaRendition("card", "test1_card.jpg", "/media/test1_card.jpg", 600, 300, 20L)));
+        entityManager.clear();
+
+        // Assert
+        assertTrue(saved);
+        MediaFile found = repository.findById(id).orElseThrow();
+        assertEquals(2, found.getRefCount());
+        assertEquals("READY", found.getRenditionStatus());
+        assertEquals("/media/test1_thumb.jpg", found.getThumbnailUrl());
+        assertEquals(2, found.getRenditions().size());
+        assertFalse(repository.saveRenditions(id + 1, "/media/none.jpg", List.of()));
+    }
+
+    @Test
+    void testSaveLocation_KeepsRefCount() {
+        // Arrange
+        testMediaFile1.getRenditions().add(
+                new MediaRendition("thumb", "test1_thumb.jpg", "/media/test1_thumb.jpg", 200, 100, 10L));
+        Long id = entityManager.persistAndFlush(testMediaFile1).getId();
+        entityManager.clear();
+        repository.incrementRefCount(id);
+
+        // Act
+        boolean saved = repository.saveLocation(id, "te/st/test1.jpg", "/media/te/st/test1.jpg",
+                "/media/te/st/test1_thumb.jpg", List.of(new MediaRendition(
+                        "thumb", "te/st/test1_thumb.jpg", "/media/te/st/test1_thumb.jpg", 200, 100, 10L)));
+        entityManager.clear();
+
+        // Assert
+        assertTrue(saved);
+        MediaFile found = repository.findById(id).orElseThrow();
+        assertEquals(2, found.getRefCount());
+        assertEquals("/media/te/st/test1.jpg", found.getUrl());
+        assertEquals(1, found.getRenditions().size());
+        assertEquals("te/st/test1_thumb.jpg", found.getRenditions().get(0).getFileName());
+        assertFalse(repository.saveLocation(id + 1, "x", "/media/x", null, List.of()));
+    }
+
     @Test
     void testGetTotalSize_EmptyTable() {
         // Act
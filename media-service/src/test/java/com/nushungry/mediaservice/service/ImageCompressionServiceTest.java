@@ -0,0 +1,174 @@
+package com.nushungry.mediaservice.service;
+
+import com.nushungry.mediaservice.util.ImageHeaderProbeTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 单元测试：ImageCompressionService
+ *
+ * 测试覆盖：
+ * - 超过最长边的图片被缩小并重新编码为渐进式 JPEG
+ * - 重新编码后没有变小时保留原文件
+ * - 带透明通道、GIF、无法解码的文件不处理
+ * - 按 EXIF Orientation 摆正后再缩放和编码
+ * - 像素数超过上限的图片不解码
+ * - 解码额度被占满时按等待时间放弃，处理完成后归还额度
+ */
+public class ImageCompressionServiceTest {
+
+    private ImageCompressionService compressionService;
+
+    @BeforeEach
+    void setUp() {
+        compressionService = new ImageCompressionService();
+        ReflectionTestUtils.setField(compressionService, "quality", 0.85f);
+        ReflectionTestUtils.setField(compressionService, "maxEdge", 1024);
+        ReflectionTestUtils.setField(compressionService, "webpEnabled", false);
+    }
+
+    @Test
+    void testCompress_ResizesAndReencodes() throws Exception {
+        byte[] png = encode(photo(3000, 1500, BufferedImage.TYPE_INT_RGB), "png");
+        MockMultipartFile file = new MockMultipartFile("file", "photo.png", "image/png", png);
+
+        ImageCompressionService.CompressedImage compressed = compressionService.compress(file);
+
+        assertNotNull(compressed);
+        assertEquals(ImageCompressionService.Encoding.JPEG, compressed.encoding());
+        assertEquals(1024, compressed.width());
+        assertEquals(512, compressed.height());
+        assertTrue(compressed.data().length < png.length);
+
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(compressed.data()))) {
+            ImageReader reader = ImageIO.getImageReaders(in).next();
+            reader.setInput(in);
+            assertEquals(1024, reader.getWidth(0));
+            assertEquals(512, reader.getHeight(0));
+            // 渐进式 JPEG 的 SOF 标记为 SOF2（process = 2）
+            IIOMetadataNode tree = (IIOMetadataNode) reader.getImageMetadata(0)
+                    .getAsTree("javax_imageio_jpeg_image_1.0");
+            assertEquals("2", ((IIOMetadataNode) tree.getElementsByTagName("sof").item(0)).getAttribute("process"));
+            reader.dispose();
+        }
+    }
+
+    @Test
+    void testCompress_KeepsOriginalWhenNotSmaller() throws Exception {
+        // 已经是低质量的小 JPEG，重新编码不会更小
+        BufferedImage image = photo(300, 200, BufferedImage.TYPE_INT_RGB);
+        ReflectionTestUtils.setField(compressionService, "quality", 0.2f);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        compressionService.encode(image, out);
+        ReflectionTestUtils.setField(compressionService, "quality", 0.95f);
+
+        MockMultipartFile file = new MockMultipartFile("file", "small.jpg", "image/jpeg", out.toByteArray());
+
+        assertNull(compressionService.compress(file));
+    }
+
+    @Test
+    void testCompress_SkipsUnsupportedInputs() throws Exception {
+        byte[] transparent = encode(photo(2000, 2000, BufferedImage.TYPE_INT_ARGB), "png");
+        assertNull(compressionService.compress(
+                new MockMultipartFile("file", "logo.png", "image/png", transparent)));
+
+        byte[] gif = encode(photo(2000, 2000, BufferedImage.TYPE_INT_RGB), "gif");
+        assertNull(compressionService.compress(
+                new MockMultipartFile("file", "anim.gif", "image/gif", gif)));
+
+        assertNull(compressionService.compress(
+                new MockMultipartFile("file", "broken.jpg", "image/jpeg", "not an image".getBytes())));
+
+        assertNull(compressionService.compress(
+                new MockMultipartFile("file", "doc.pdf", "application/pdf", "%PDF".getBytes())));
+    }
+
+    @Test
+    void testCompress_AppliesExifOrientation() throws Exception {
+        // 传感器方向 3000x1500，Orientation 6 表示需要顺时针转 90 度显示
+        byte[] jpeg = ImageHeaderProbeTest.withExifOrientation(
+                encode(photo(3000, 1500, BufferedImage.TYPE_INT_RGB), "jpeg"), 6, false);
+        MockMultipartFile file = new MockMultipartFile("file", "portrait.jpg", "image/jpeg", jpeg);
+
+        ImageCompressionService.CompressedImage compressed = compressionService.compress(file);
+
+        assertNotNull(compressed);
+        assertEquals(512, compressed.width());
+        assertEquals(1024, compressed.height());
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(compressed.data()));
+        assertEquals(512, decoded.getWidth());
+        assertEquals(1024, decoded.getHeight());
+    }
+
+    @Test
+    void testDecode_AppliesExifOrientation() throws Exception {
+        byte[] jpeg = ImageHeaderProbeTest.withExifOrientation(
+                encode(photo(60, 40, BufferedImage.TYPE_INT_RGB), "jpeg"), 8, true);
+
+        BufferedImage image = compressionService.withDecoded(new ByteArrayInputStream(jpeg), -1, decoded -> decoded);
+
+        assertEquals(40, image.getWidth());
+        assertEquals(60, image.getHeight());
+    }
+
+    @Test
+    void testDecode_RejectsTooManyPixels() throws Exception {
+        ReflectionTestUtils.setField(compressionService, "maxPixels", 100L * 100);
+        byte[] png = encode(photo(200, 100, BufferedImage.TYPE_INT_RGB), "png");
+
+        assertThrows(IllegalArgumentException.class,
+                () -> compressionService.withDecoded(new ByteArrayInputStream(png), -1, decoded -> decoded));
+        assertNull(compressionService.compress(new MockMultipartFile("file", "big.png", "image/png", png)));
+        assertNotNull(compressionService.withDecoded(new ByteArrayInputStream(
+                encode(photo(100, 100, BufferedImage.TYPE_INT_RGB), "png")), -1, decoded -> decoded));
+    }
+
+    @Test
+    void testWithDecoded_WaitsForDecodeBudget() throws Exception {
+        ReflectionTestUtils.setField(compressionService, "decodeBudgetPixels", 100L * 100);
+        compressionService.init();
+        byte[] png = encode(photo(100, 100, BufferedImage.TYPE_INT_RGB), "png");
+
+        // 第一张图片处理期间额度已用完，第二张等不到额度
+        Integer width = compressionService.withDecoded(new ByteArrayInputStream(png), -1, first -> {
+            assertThrows(ImageCompressionService.DecodeBusyException.class,
+                    () -> compressionService.withDecoded(new ByteArrayInputStream(png), 50, second -> second));
+            return first.getWidth();
+        });
+
+        assertEquals(100, width);
+        // 处理完成后额度归还，可以再次解码
+        assertNotNull(compressionService.withDecoded(new ByteArrayInputStream(png), 50, decoded -> decoded));
+    }
+
+    private static BufferedImage photo(int width, int height, int type) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int rgb = ((x * 255 / width) << 16) | ((y * 255 / height) << 8) | ((x * y) & 0xff);
+                image.setRGB(x, y, type == BufferedImage.TYPE_INT_ARGB ? (0x80 << 24) | rgb : rgb);
+            }
+        }
+        return image;
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+}
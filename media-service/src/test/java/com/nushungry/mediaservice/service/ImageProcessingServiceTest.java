@@ -1,7 +1,12 @@
 package com.nushungry.mediaservice.service;
 
 import com.nushungry.mediaservice.model.MediaFile;
+import com.nushungry.mediaservice.model.MediaRendition;
+import com.nushungry.mediaservice.model.MediaReference;
 import com.nushungry.mediaservice.repository.MediaFileRepository;
+import com.nushungry.mediaservice.repository.MediaReferenceRepository;
+import com.nushungry.mediaservice.storage.LocalStorageBackend;
+import com.nushungry.mediaservice.util.HashingChannelWriter;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -20,6 +25,9 @@ import java.nio.file.Path;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -27,13 +35,20 @@ import static org.mockito.Mockito.*;
  *
  * 测试覆盖：
  * - 成功存储文件
- * - 文件名生成（带时间戳）
+ * - 文件名生成（按内容哈希）
  * - URL 生成正确性
  * - 元数据保存（contentType, size）
  * - 空文件处理
  * - 不同文件类型处理
  * - 文件存储失败场景
- * - 数据库保存失败场景
+ * - 数据库保存失败场景（删除已写入的文件）
+ * - 派生尺寸任务提交
+ * - 上传压缩
+ * - 文件头校验与尺寸读取
+ * - 流式上传
+ * - 内容去重与引用计数（每次上传一个 referenceId，删除按引用只生效一次）
+ * - 批量上传并行处理与批量插入
+ * - 按哈希分级的存储目录
  */
 @SpringBootTest
 @ActiveProfiles("test")
@@ -45,19 +60,26 @@ public class ImageProcessingServiceTest {
     @MockBean
     private MediaFileRepository repository;
 
+    @MockBean
+    private MediaReferenceRepository referenceRepository;
+
+    @MockBean
+    private RenditionService renditionService;
+
     @TempDir
     Path tempDir;
 
     @BeforeEach
-    void setUp() {
+    void setUp() throws Exception {
         // 使用临时目录作为存储路径
-        ReflectionTestUtils.setField(service, "storagePath", tempDir.toString());
+        ReflectionTestUtils.setField(service, "storage", new LocalStorageBackend(tempDir));
+        when(referenceRepository.deleteReference(anyLong(), anyString())).thenReturn(1);
     }
 
     @AfterEach
     void tearDown() {
         // 清理 mock
-        reset(repository);
+        reset(repository, referenceRepository, renditionService);
     }
 
     @Test
@@ -90,15 +112,12 @@ public class ImageProcessingServiceTest {
     }
 
     @Test
-    void testStoreFile_FileNameContainsTimestamp() throws Exception {
+    void testStoreFile_FileNameIsContentHash() throws Exception {
         // Arrange
         MockMultipartFile file = new MockMultipartFile(
             "file", "original.jpg", "image/jpeg", "content".getBytes()
         );
 
-        MediaFile mockMediaFile = new MediaFile();
-        mockMediaFile.setFileName("123456_original.jpg");
-
         when(repository.save(any(MediaFile.class))).thenAnswer(invocation -> {
             MediaFile arg = invocation.getArgument(0);
             arg.setId(1L);
@@ -110,10 +129,12 @@ public class ImageProcessingServiceTest {
 
         // Assert
         assertNotNull(savedFile);
-        assertTrue(savedFile.getFileName().endsWith("_original.jpg"),
-            "文件名应该包含时间戳前缀");
-        assertTrue(savedFile.getFileName().matches("\\d+_original\\.jpg"),
-            "文件名格式应该是：timestamp_original.jpg");
+        assertEquals(storageKey("content".getBytes(), "jpg"), savedFile.getFileName(),
+            "文件名格式应该是：ab/cd/sha256.jpg");
+        assertEquals(sha256("content".getBytes()), savedFile.getContentHash());
+        assertEquals(sha256("content".getBytes()), savedFile.getSourceHash());
+        assertEquals("original.jpg", savedFile.getOriginalFileName());
+        assertEquals(1, savedFile.getRefCount());
     }
 
     @Test
@@ -136,8 +157,9 @@ public class ImageProcessingServiceTest {
         assertNotNull(savedFile);
         assertTrue(savedFile.getUrl().startsWith("/media/"),
             "URL 应该以 /media/ 开头");
-        assertTrue(savedFile.getUrl().endsWith("_image.png"),
+        assertEquals("/media/" + savedFile.getFileName(), savedFile.getUrl(),
             "URL 应该包含完整文件名");
+        assertTrue(savedFile.getUrl().endsWith(".png"));
     }
 
     @Test
@@ -219,8 +241,8 @@ public class ImageProcessingServiceTest {
             assertNotNull(savedFile, "保存的文件不应为 null: " + fileType[0]);
             assertEquals(fileType[1], savedFile.getContentType(),
                 "Content type 应该匹配: " + fileType[0]);
-            assertTrue(savedFile.getFileName().endsWith(fileType[0]),
-                "文件名应该以原始文件名结尾: " + fileType[0]);
+            assertTrue(savedFile.getFileName().endsWith(fileType[0].substring(fileType[0].lastIndexOf('.'))),
+                "文件名应该保留原始扩展名: " + fileType[0]);
 
             reset(repository);
         }
@@ -244,9 +266,9 @@ public class ImageProcessingServiceTest {
 
         // Assert
         assertNotNull(savedFile);
-        // When filename is null, the filename will be like: "123456_null"
-        assertTrue(savedFile.getFileName().contains("_"),
-            "文件名应该包含时间戳分隔符");
+        // 没有原始文件名时按图片类型推断扩展名
+        assertTrue(savedFile.getFileName().endsWith(".jpg"),
+            "文件名应该带有推断的扩展名");
     }
 
     @Test
@@ -263,6 +285,8 @@ public class ImageProcessingServiceTest {
         assertThrows(RuntimeException.class, () -> {
             service.storeFile(file);
         }, "当数据库保存失败时应该抛出异常");
+        assertFalse(Files.exists(tempDir.resolve(storageKey("content".getBytes(), "jpg"))),
+            "记录没有保存时应该删除已写入的文件");
     }
 
     @Test
@@ -283,8 +307,10 @@ public class ImageProcessingServiceTest {
 
         // Assert
         assertNotNull(savedFile);
-        assertTrue(savedFile.getFileName().contains("测试 文件-2024(1).jpg"),
-            "文件名应该保留特殊字符");
+        assertEquals("测试 文件-2024(1).jpg", savedFile.getOriginalFileName(),
+            "原始文件名应该保留特殊字符");
+        assertTrue(savedFile.getFileName().matches("[0-9a-f]{2}/[0-9a-f]{2}/[0-9a-f]{64}\\.jpg"),
+            "存储文件名只包含哈希和扩展名");
     }
 
     @Test
@@ -309,6 +335,119 @@ public class ImageProcessingServiceTest {
         assertEquals(5 * 1024 * 1024L, savedFile.getSize());
     }
 
+    @Test
+    void testStoreFile_EnqueuesRenditions() throws Exception {
+        // Arrange
+        MockMultipartFile file = new MockMultipartFile(
+            "file", "photo.jpg", "image/jpeg", "content".getBytes()
+        );
+
+        when(renditionService.supports("image/jpeg")).thenReturn(true);
+        when(repository.save(any(MediaFile.class))).thenAnswer(invocation -> {
+            MediaFile arg = invocation.getArgument(0);
+            arg.setId(1L);
+            return arg;
+        });
+
+        // Act
+        MediaFile savedFile = service.storeFile(file);
+
+        // Assert
+        assertEquals("PENDING", savedFile.getRenditionStatus());
+        verify(renditionService, times(1)).enqueue(eq(1L), eq(savedFile.getFileName()));
+    }
+
+    @Test
+    void testStoreFile_UnsupportedTypeSkipsRenditions() throws Exception {
+        // Arrange
+        MockMultipartFile file = new MockMultipartFile(
+            "file", "document.pdf", "application/pdf", "content".getBytes()
+        );
+
+        when(repository.save(any(MediaFile.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        MediaFile savedFile = service.storeFile(file);
+
+        // Assert
+        assertNull(savedFile.getRenditionStatus());
+        verify(renditionService, never()).enqueue(any(), any());
+    }
+
+    @Test
+    void testStoreFile_CompressesImage() throws Exception {
+        // Arrange
+        byte[] png = gradientPng(1200, 900);
+        MockMultipartFile file = new MockMultipartFile(
+            "file", "photo.png", "image/png", png
+        );
+
+        when(repository.save(any(MediaFile.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        MediaFile savedFile = service.storeFile(file);
+
+        // Assert
+        assertTrue(savedFile.getFileName().endsWith(".jpg"), "压缩后扩展名应该变为 jpg");
+        assertEquals(sha256(png), savedFile.getSourceHash());
+        assertEquals(sha256(Files.readAllBytes(tempDir.resolve(savedFile.getFileName()))),
+            savedFile.getContentHash());
+        assertEquals("image/jpeg", savedFile.getContentType());
+        assertEquals("photo.png", savedFile.getOriginalFileName());
+        assertEquals(png.length, savedFile.getOriginalSize());
+        assertTrue(savedFile.getSize() < png.length, "压缩后应该变小");
+        assertEquals(savedFile.getSize(), Files.size(tempDir.resolve(savedFile.getFileName())));
+    }
+
+    @Test
+    void testBatchUploadImages_WithoutCompressKeepsOriginal() throws Exception {
+        // Arrange
+        byte[] png = gradientPng(1200, 900);
+        MockMultipartFile file = new MockMultipartFile(
+            "file", "photo.png", "image/png", png
+        );
+
+        when(repository.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        var result = service.batchUploadImages(java.util.List.of(file), false, false);
+
+        // Assert
+        assertEquals(1, result.getSuccessCount());
+        assertEquals("/media/" + storageKey(png, "png"), result.getSuccessList().get(0).getUrl());
+        verify(repository).saveAll(argThat(records -> {
+            MediaFile mf = records.iterator().next();
+            return mf.getSize() == png.length && mf.getOriginalSize() == png.length;
+        }));
+    }
+
+    @Test
+    void testDeleteImageByUrl_DeletesRenditions() throws Exception {
+        // Arrange
+        String imageUrl = "/media/photo.jpg";
+        File original = new File(tempDir.toFile(), "photo.jpg");
+        File thumb = new File(tempDir.toFile(), "photo_thumb.jpg");
+        Files.write(original.toPath(), "original".getBytes());
+        Files.write(thumb.toPath(), "thumb".getBytes());
+
+        MediaFile mediaFile = new MediaFile();
+        mediaFile.setId(1L);
+        mediaFile.setFileName("photo.jpg");
+        mediaFile.setUrl(imageUrl);
+        mediaFile.getRenditions().add(new MediaRendition(
+            "thumb", "photo_thumb.jpg", "/media/photo_thumb.jpg", 200, 150, 5L));
+
+        when(repository.findByUrlForUpdate(imageUrl)).thenReturn(java.util.Optional.of(mediaFile));
+
+        // Act
+        boolean result = service.deleteImageByUrl(imageUrl, "ref-1");
+
+        // Assert
+        assertTrue(result);
+        assertFalse(original.exists(), "原图应该被删除");
+        assertFalse(thumb.exists(), "派生尺寸应该被删除");
+    }
+
     // ==================== Delete 功能测试 ====================
 
     @Test
@@ -327,16 +466,40 @@ public class ImageProcessingServiceTest {
         mediaFile.setFileName(fileName);
         mediaFile.setUrl(imageUrl);
 
-        when(repository.findByUrl(imageUrl)).thenReturn(java.util.Optional.of(mediaFile));
+        when(repository.findByUrlForUpdate(imageUrl)).thenReturn(java.util.Optional.of(mediaFile));
         doNothing().when(repository).delete(any(MediaFile.class));
 
         // Act
-        boolean result = service.deleteImageByUrl(imageUrl);
+        boolean result = service.deleteImageByUrl(imageUrl, "ref-1");
 
         // Assert
         assertTrue(result, "删除应该成功");
         assertFalse(testFile.exists(), "物理文件应该被删除");
-        verify(repository, times(1)).findByUrl(imageUrl);
+        verify(repository, times(1)).findByUrlForUpdate(imageUrl);
+        verify(repository, times(1)).delete(mediaFile);
+    }
+
+    @Test
+    void testDeleteImageByUrl_FlatUrlFindsShardedRecord() throws Exception {
+        // Arrange - 调用方保存的是迁移到分级目录之前的 URL
+        byte[] content = "migrated".getBytes();
+        String key = storageKey(content, "jpg");
+        Files.createDirectories(tempDir.resolve(key).getParent());
+        Files.write(tempDir.resolve(key), content);
+
+        MediaFile mediaFile = new MediaFile();
+        mediaFile.setId(1L);
+        mediaFile.setFileName(key);
+        mediaFile.setUrl("/media/" + key);
+
+        when(repository.findByUrlForUpdate("/media/" + key)).thenReturn(java.util.Optional.of(mediaFile));
+
+        // Act
+        boolean result = service.deleteImageByUrl("/media/" + sha256(content) + ".jpg", "ref-1");
+
+        // Assert
+        assertTrue(result);
+        assertFalse(Files.exists(tempDir.resolve(key)));
         verify(repository, times(1)).delete(mediaFile);
     }
 
@@ -344,14 +507,14 @@ public class ImageProcessingServiceTest {
     void testDeleteImageByUrl_ImageNotFound() {
         // Arrange
         String imageUrl = "/media/nonexistent.jpg";
-        when(repository.findByUrl(imageUrl)).thenReturn(java.util.Optional.empty());
+        when(repository.findByUrlForUpdate(imageUrl)).thenReturn(java.util.Optional.empty());
 
         // Act
-        boolean result = service.deleteImageByUrl(imageUrl);
+        boolean result = service.deleteImageByUrl(imageUrl, "ref-1");
 
         // Assert
         assertFalse(result, "删除不存在的图片应该返回 false");
-        verify(repository, times(1)).findByUrl(imageUrl);
+        verify(repository, times(1)).findByUrlForUpdate(imageUrl);
         verify(repository, never()).delete(any(MediaFile.class));
     }
 
@@ -366,11 +529,11 @@ public class ImageProcessingServiceTest {
         mediaFile.setFileName(fileName);
         mediaFile.setUrl(imageUrl);
 
-        when(repository.findByUrl(imageUrl)).thenReturn(java.util.Optional.of(mediaFile));
+        when(repository.findByUrlForUpdate(imageUrl)).thenReturn(java.util.Optional.of(mediaFile));
         doNothing().when(repository).delete(any(MediaFile.class));
 
         // Act - 物理文件不存在,但仍应删除数据库记录
-        boolean result = service.deleteImageByUrl(imageUrl);
+        boolean result = service.deleteImageByUrl(imageUrl, "ref-1");
 
         // Assert
         assertTrue(result, "即使物理文件不存在,删除也应该成功");
@@ -393,12 +556,12 @@ public class ImageProcessingServiceTest {
         mediaFile.setFileName(fileName);
         mediaFile.setUrl(imageUrl);
 
-        when(repository.findByUrl(imageUrl)).thenReturn(java.util.Optional.of(mediaFile));
+        when(repository.findByUrlForUpdate(imageUrl)).thenReturn(java.util.Optional.of(mediaFile));
         doNothing().when(repository).delete(any(MediaFile.class));
 
         // 注意: 在某些操作系统上设置只读可能不生效,这个测试主要验证逻辑
         // Act
-        boolean result = service.deleteImageByUrl(imageUrl);
+        boolean result = service.deleteImageByUrl(imageUrl, "ref-1");
 
         // Assert
         assertTrue(result, "即使物理文件删除失败,也应删除数据库记录并返回成功");
@@ -430,12 +593,14 @@ public class ImageProcessingServiceTest {
         mediaFile2.setFileName(fileName2);
         mediaFile2.setUrl(imageUrl2);
 
-        when(repository.findByUrl(imageUrl1)).thenReturn(java.util.Optional.of(mediaFile1));
-        when(repository.findByUrl(imageUrl2)).thenReturn(java.util.Optional.of(mediaFile2));
+        when(repository.findByUrlForUpdate(imageUrl1)).thenReturn(java.util.Optional.of(mediaFile1));
+        when(repository.findByUrlForUpdate(imageUrl2)).thenReturn(java.util.Optional.of(mediaFile2));
         doNothing().when(repository).delete(any(MediaFile.class));
 
         // Act
-        var deletedUrls = service.deleteImagesByUrls(java.util.List.of(imageUrl1, imageUrl2));
+        var deletedUrls = service.deleteImagesByUrls(java.util.List.of(
+            new ImageProcessingService.ImageReference(imageUrl1, "ref-1"),
+            new ImageProcessingService.ImageReference(imageUrl2, "ref-2")));
 
         // Assert
         assertEquals(2, deletedUrls.size(), "应该删除2个图片");
@@ -463,12 +628,14 @@ public class ImageProcessingServiceTest {
         mediaFile1.setFileName(fileName1);
         mediaFile1.setUrl(imageUrl1);
 
-        when(repository.findByUrl(imageUrl1)).thenReturn(java.util.Optional.of(mediaFile1));
-        when(repository.findByUrl(imageUrl2)).thenReturn(java.util.Optional.empty());
+        when(repository.findByUrlForUpdate(imageUrl1)).thenReturn(java.util.Optional.of(mediaFile1));
+        when(repository.findByUrlForUpdate(imageUrl2)).thenReturn(java.util.Optional.empty());
         doNothing().when(repository).delete(any(MediaFile.class));
 
         // Act
-        var deletedUrls = service.deleteImagesByUrls(java.util.List.of(imageUrl1, imageUrl2));
+        var deletedUrls = service.deleteImagesByUrls(java.util.List.of(
+            new ImageProcessingService.ImageReference(imageUrl1, "ref-1"),
+            new ImageProcessingService.ImageReference(imageUrl2, "ref-2")));
 
         // Assert
         assertEquals(1, deletedUrls.size(), "应该只成功删除1个图片");
@@ -558,6 +725,23 @@ public class ImageProcessingServiceTest {
         assertFalse(service.isValidImage(file));
     }
 
+    @Test
+    void testIsValidImage_HeaderValidation() throws Exception {
+        ReflectionTestUtils.setField(service, "validateHeader", true);
+        try {
+            byte[] png = gradientPng(40, 30);
+
+            assertTrue(service.isValidImage(new MockMultipartFile(
+                "file", "real.png", "image/png", png)));
+            assertFalse(service.isValidImage(new MockMultipartFile(
+                "file", "mislabeled.jpg", "image/jpeg", png)), "声明类型与文件头不一致应该被拒绝");
+            assertFalse(service.isValidImage(new MockMultipartFile(
+                "file", "fake.jpg", "image/jpeg", "content".getBytes())), "无法识别的文件头应该被拒绝");
+        } finally {
+            ReflectionTestUtils.setField(service, "validateHeader", false);
+        }
+    }
+
     // ==================== 批量上传功能测试 ====================
 
     @Test
@@ -570,11 +754,7 @@ public class ImageProcessingServiceTest {
             "file", "test2.png", "image/png", "content2".getBytes()
         );
 
-        when(repository.save(any(MediaFile.class))).thenAnswer(invocation -> {
-            MediaFile arg = invocation.getArgument(0);
-            arg.setId(1L);
-            return arg;
-        });
+        when(repository.saveAll(any())).thenAnswer(invocation -> assignIds(invocation.getArgument(0)));
 
         // Act
         var result = service.batchUploadImages(
@@ -586,7 +766,10 @@ public class ImageProcessingServiceTest {
         assertEquals(0, result.getFailureCount());
         assertEquals(2, result.getSuccessList().size());
         assertEquals(0, result.getFailureList().size());
-        verify(repository, times(2)).save(any(MediaFile.class));
+        // 新记录一次批量插入
+        verify(repository, times(1)).saveAll(argThat(records -> ((java.util.Collection<?>) records).size() == 2));
+        verify(repository, never()).save(any(MediaFile.class));
+        verify(renditionService, never()).enqueue(any(), any());
     }
 
     @Test
@@ -599,11 +782,7 @@ public class ImageProcessingServiceTest {
             "file", "test.pdf", "application/pdf", "content".getBytes()
         );
 
-        when(repository.save(any(MediaFile.class))).thenAnswer(invocation -> {
-            MediaFile arg = invocation.getArgument(0);
-            arg.setId(1L);
-            return arg;
-        });
+        when(repository.saveAll(any())).thenAnswer(invocation -> assignIds(invocation.getArgument(0)));
 
         // Act
         var result = service.batchUploadImages(
@@ -616,7 +795,7 @@ public class ImageProcessingServiceTest {
         assertEquals(1, result.getSuccessList().size());
         assertEquals(1, result.getFailureList().size());
         assertTrue(result.getFailureList().get(0).getMessage().contains("无效的图片文件"));
-        verify(repository, times(1)).save(any(MediaFile.class));
+        verify(repository, times(1)).saveAll(argThat(records -> ((java.util.Collection<?>) records).size() == 1));
     }
 
     @Test
@@ -630,6 +809,7 @@ public class ImageProcessingServiceTest {
         assertEquals(0, result.getSuccessCount());
         assertEquals(0, result.getFailureCount());
         verify(repository, never()).save(any(MediaFile.class));
+        verify(repository, never()).saveAll(any());
     }
 
     @Test
@@ -639,7 +819,7 @@ public class ImageProcessingServiceTest {
             "file", "test.jpg", "image/jpeg", "content".getBytes()
         );
 
-        when(repository.save(any(MediaFile.class)))
+        when(repository.saveAll(any()))
             .thenThrow(new RuntimeException("Database error"));
 
         // Act
@@ -651,10 +831,444 @@ public class ImageProcessingServiceTest {
         assertEquals(0, result.getSuccessCount());
         assertEquals(1, result.getFailureCount());
         assertTrue(result.getFailureList().get(0).getMessage().contains("上传失败"));
+        assertFalse(Files.exists(tempDir.resolve(storageKey("content".getBytes(), "jpg"))),
+            "记录没有保存时应该删除已写入的文件");
+    }
+
+    @Test
+    void testBatchUploadImages_ResultsKeepInputOrder() throws Exception {
+        // Arrange
+        MockMultipartFile first = new MockMultipartFile("file", "a.jpg", "image/jpeg", "aaa".getBytes());
+        MockMultipartFile invalid = new MockMultipartFile("file", "b.pdf", "application/pdf", "bbb".getBytes());
+        MockMultipartFile third = new MockMultipartFile("file", "c.png", "image/png", "ccc".getBytes());
+
+        when(repository.saveAll(any())).thenAnswer(invocation -> assignIds(invocation.getArgument(0)));
+
+        // Act
+        var result = service.batchUploadImages(java.util.List.of(first, invalid, third), false, false);
+
+        // Assert
+        assertEquals(3, result.getResults().size());
+        assertEquals("/media/" + storageKey("aaa".getBytes(), "jpg"), result.getResults().get(0).getUrl());
+        assertFalse(result.getResults().get(1).isSuccess());
+        assertEquals("/media/" + storageKey("ccc".getBytes(), "png"), result.getResults().get(2).getUrl());
+    }
+
+    @Test
+    void testBatchUploadImages_ProcessesFilesConcurrently() throws Exception {
+        // Arrange - 查重时阻塞，所有文件同时处于处理中才放行
+        int fileCount = 4;
+        java.util.concurrent.CountDownLatch allStarted = new java.util.concurrent.CountDownLatch(fileCount);
+        java.util.Set<String> threads = java.util.concurrent.ConcurrentHashMap.newKeySet();
+        when(repository.findFirstBySourceHash(any())).thenAnswer(invocation -> {
+            threads.add(Thread.currentThread().getName());
+            allStarted.countDown();
+            allStarted.await(5, java.util.concurrent.TimeUnit.SECONDS);
+            return java.util.Optional.empty();
+        });
+        when(repository.saveAll(any())).thenAnswer(invocation -> assignIds(invocation.getArgument(0)));
+
+        java.util.List<org.springframework.web.multipart.MultipartFile> files = new java.util.ArrayList<>();
+        for (int i = 0; i < fileCount; i++) {
+            files.add(new MockMultipartFile("file", "p" + i + ".jpg", "image/jpeg", ("content" + i).getBytes()));
+        }
+
+        // Act
+        var result = service.batchUploadImages(files, false, false);
+
+        // Assert
+        assertEquals(0, allStarted.getCount(), "所有文件应该同时处理");
+        assertEquals(fileCount, result.getSuccessCount());
+        assertTrue(threads.size() > 1);
+        verify(repository, times(1)).saveAll(any());
+    }
+
+    @Test
+    void testBatchUploadImages_DuplicateContentMergedIntoOneRecord() throws Exception {
+        // Arrange
+        byte[] content = "same content".getBytes();
+        MockMultipartFile file1 = new MockMultipartFile("file", "one.jpg", "image/jpeg", content);
+        MockMultipartFile file2 = new MockMultipartFile("file", "two.jpg", "image/jpeg", content);
+
+        when(repository.saveAll(any())).thenAnswer(invocation -> assignIds(invocation.getArgument(0)));
+
+        // Act
+        var result = service.batchUploadImages(java.util.List.of(file1, file2), false, false);
+
+        // Assert
+        assertEquals(2, result.getSuccessCount());
+        assertEquals(result.getResults().get(0).getUrl(), result.getResults().get(1).getUrl());
+        // 合并为一条记录，但两次上传各自得到一个引用
+        assertNotEquals(result.getResults().get(0).getReferenceId(), result.getResults().get(1).getReferenceId());
+        verify(referenceRepository, times(2)).save(any(MediaReference.class));
+        verify(repository).saveAll(argThat(records -> {
+            java.util.List<MediaFile> list = new java.util.ArrayList<>();
+            records.forEach(list::add);
+            return list.size() == 1 && list.get(0).getRefCount() == 2;
+        }));
+    }
+
+    @Test
+    void testBatchUploadImages_ConflictFallsBackToSingleInserts() throws Exception {
+        // Arrange - 批量插入期间另一个请求插入了相同内容
+        byte[] content = "race content".getBytes();
+        MediaFile winner = new MediaFile();
+        winner.setId(9L);
+        winner.setFileName(storageKey(content, "jpg"));
+        winner.setUrl("/media/" + sha256(content) + ".jpg");
+
+        when(repository.findByContentHash(sha256(content)))
+            .thenReturn(java.util.Optional.empty(), java.util.Optional.empty(), java.util.Optional.of(winner));
+        when(repository.saveAll(any()))
+            .thenThrow(new org.springframework.dao.DataIntegrityViolationException("uk_media_file_content_hash"));
+        when(repository.save(any(MediaFile.class)))
+            .thenThrow(new org.springframework.dao.DataIntegrityViolationException("uk_media_file_content_hash"));
+        when(repository.incrementRefCount(9L)).thenReturn(1);
+
+        // Act
+        var result = service.batchUploadImages(
+            java.util.List.of(new MockMultipartFile("file", "race.jpg", "image/jpeg", content)), false, false);
+
+        // Assert
+        assertEquals(1, result.getSuccessCount());
+        assertEquals(winner.getUrl(), result.getSuccessList().get(0).getUrl());
+        verify(repository).incrementRefCount(9L);
+    }
+
+    @Test
+    void testBatchUploadImages_FailedSingleInsertDeletesFile() throws Exception {
+        // Arrange - 批量插入冲突后逐条插入，其中一条失败
+        byte[] failing = "failing content".getBytes();
+        when(repository.saveAll(any()))
+            .thenThrow(new org.springframework.dao.DataIntegrityViolationException("uk_media_file_content_hash"));
+        when(repository.save(any(MediaFile.class))).thenAnswer(invocation -> {
+            MediaFile record = invocation.getArgument(0);
+            if (record.getContentHash().equals(sha256(failing))) {
+                throw new RuntimeException("Database error");
+            }
+            record.setId(1L);
+            return record;
+        });
+
+        // Act
+        var result = service.batchUploadImages(java.util.List.of(
+            new MockMultipartFile("file", "ok.jpg", "image/jpeg", "ok content".getBytes()),
+            new MockMultipartFile("file", "bad.jpg", "image/jpeg", failing)), false, false);
+
+        // Assert
+        assertEquals(1, result.getSuccessCount());
+        assertTrue(Files.exists(tempDir.resolve(storageKey("ok content".getBytes(), "jpg"))));
+        assertFalse(Files.exists(tempDir.resolve(storageKey(failing, "jpg"))), "没有插入的记录不应留下文件");
+    }
+
+    @Test
+    void testStoreFile_ConcurrentDuplicateWithOtherExtensionDeletesOwnFile() throws Exception {
+        // Arrange - 另一个请求以 .jpg 先插入了相同内容，这次上传的是 .jpeg
+        byte[] content = "race content".getBytes();
+        MediaFile winner = new MediaFile();
+        winner.setId(9L);
+        winner.setFileName(storageKey(content, "jpg"));
+
+        when(repository.findByContentHash(sha256(content)))
+            .thenReturn(java.util.Optional.empty(), java.util.Optional.empty(), java.util.Optional.of(winner));
+        when(repository.save(any(MediaFile.class)))
+            .thenThrow(new org.springframework.dao.DataIntegrityViolationException("uk_media_file_content_hash"));
+        when(repository.incrementRefCount(9L)).thenReturn(1);
+
+        // Act
+        MediaFile savedFile = service.storeFile(
+            new MockMultipartFile("file", "race.jpeg", "image/jpeg", content));
+
+        // Assert
+        assertSame(winner, savedFile);
+        assertFalse(Files.exists(tempDir.resolve(storageKey(content, "jpeg"))));
+    }
+
+    // ==================== 流式上传测试 ====================
+
+    @Test
+    void testStoreStream_WritesFileAndHash() throws Exception {
+        // Arrange - 大于一个缓冲区，验证分块写入
+        byte[] png = gradientPng(600, 400);
+        assertTrue(png.length > HashingChannelWriter.BUFFER_SIZE);
+        when(repository.save(any(MediaFile.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        MediaFile savedFile = service.storeStream(
+            new java.io.ByteArrayInputStream(png), "photo.png", "image/png", png.length);
+
+        // Assert
+        assertEquals(storageKey(png, "png"), savedFile.getFileName());
+        assertEquals("image/png", savedFile.getContentType());
+        assertEquals(png.length, savedFile.getSize());
+        assertEquals(600, savedFile.getWidth());
+        assertEquals(400, savedFile.getHeight());
+        assertEquals(sha256(png), savedFile.getContentHash());
+        assertArrayEquals(png, Files.readAllBytes(tempDir.resolve(savedFile.getFileName())));
+    }
+
+    @Test
+    void testStoreStream_RejectsBadContent() throws Exception {
+        byte[] png = gradientPng(40, 30);
+
+        assertThrows(IllegalArgumentException.class, () -> service.storeStream(
+            new java.io.ByteArrayInputStream("not an image".getBytes()), "fake.jpg", "image/jpeg", -1));
+        assertThrows(IllegalArgumentException.class, () -> service.storeStream(
+            new java.io.ByteArrayInputStream(png), "mislabeled.jpg", "image/jpeg", -1));
+        assertThrows(IllegalArgumentException.class, () -> service.storeStream(
+            new java.io.ByteArrayInputStream(new byte[0]), "empty.png", "image/png", -1));
+        verify(repository, never()).save(any(MediaFile.class));
+    }
+
+    @Test
+    void testStoreStream_SizeLimitRemovesPartialFile() throws Exception {
+        // Arrange - 请求未声明长度，写入过程中超过上限
+        byte[] png = gradientPng(600, 400);
+        ReflectionTestUtils.setField(service, "maxFileSize", 100_000L);
+        try {
+            // Act & Assert
+            assertThrows(HashingChannelWriter.SizeLimitExceededException.class, () -> service.storeStream(
+                new java.io.ByteArrayInputStream(png), "photo.png", "image/png", -1));
+            try (var files = Files.list(tempDir)) {
+                assertEquals(0, files.count(), "不应留下部分写入的文件");
+            }
+            verify(repository, never()).save(any(MediaFile.class));
+        } finally {
+            ReflectionTestUtils.setField(service, "maxFileSize", 10485760L);
+        }
+    }
+
+    @Test
+    void testStoreStream_IgnoresDirectoryInFilename() throws Exception {
+        byte[] png = gradientPng(40, 30);
+        when(repository.save(any(MediaFile.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        MediaFile savedFile = service.storeStream(
+            new java.io.ByteArrayInputStream(png), "../../etc/evil.png", "image/png", png.length);
+
+        // 存储文件名只由哈希和检测到的格式决定
+        assertEquals(storageKey(png, "png"), savedFile.getFileName());
+        assertTrue(Files.exists(tempDir.resolve(savedFile.getFileName())));
+    }
+
+    // ==================== 内容去重测试 ====================
+
+    @Test
+    void testStoreFile_DuplicateReturnsExistingWithoutWriting() throws Exception {
+        // Arrange
+        byte[] content = "same content".getBytes();
+        MediaFile existing = new MediaFile();
+        existing.setId(7L);
+        existing.setUrl("/media/" + sha256(content) + ".jpg");
+        existing.setRefCount(1);
+
+        when(repository.findFirstBySourceHash(sha256(content))).thenReturn(java.util.Optional.of(existing));
+        when(repository.incrementRefCount(7L)).thenReturn(1);
+
+        // Act
+        MediaFile savedFile = service.storeFile(
+            new MockMultipartFile("file", "again.jpg", "image/jpeg", content));
+
+        // Assert
+        assertEquals(existing.getUrl(), savedFile.getUrl());
+        assertEquals(2, savedFile.getRefCount());
+        verify(repository, never()).save(any(MediaFile.class));
+        verify(renditionService, never()).enqueue(any(), any());
+        try (var files = Files.list(tempDir)) {
+            assertEquals(0, files.count(), "重复内容不应写入文件");
+        }
+    }
+
+    @Test
+    void testStoreStream_DuplicateDiscardsTempFile() throws Exception {
+        // Arrange
+        byte[] png = gradientPng(40, 30);
+        MediaFile existing = new MediaFile();
+        existing.setId(7L);
+        existing.setUrl("/media/" + sha256(png) + ".png");
+
+        when(repository.findFirstBySourceHash(sha256(png))).thenReturn(java.util.Optional.of(existing));
+        when(repository.incrementRefCount(7L)).thenReturn(1);
+
+        // Act
+        MediaFile savedFile = service.storeStream(
+            new java.io.ByteArrayInputStream(png), "photo.png", "image/png", png.length);
+
+        // Assert
+        assertSame(existing, savedFile);
+        verify(repository, never()).save(any(MediaFile.class));
+        try (var files = Files.list(tempDir)) {
+            assertEquals(0, files.count(), "临时文件应该被删除");
+        }
+    }
+
+    @Test
+    void testStoreFile_ConcurrentDuplicateInsertReusesWinner() throws Exception {
+        // Arrange - 另一个请求先插入了相同内容
+        byte[] content = "race content".getBytes();
+        MediaFile winner = new MediaFile();
+        winner.setId(9L);
+        winner.setFileName(storageKey(content, "jpg"));
+        winner.setUrl("/media/" + sha256(content) + ".jpg");
+
+        when(repository.findByContentHash(sha256(content)))
+            .thenReturn(java.util.Optional.empty(), java.util.Optional.empty(), java.util.Optional.of(winner));
+        when(repository.save(any(MediaFile.class)))
+            .thenThrow(new org.springframework.dao.DataIntegrityViolationException("uk_media_file_content_hash"));
+        when(repository.incrementRefCount(9L)).thenReturn(1);
+
+        // Act
+        MediaFile savedFile = service.storeFile(
+            new MockMultipartFile("file", "race.jpg", "image/jpeg", content));
+
+        // Assert
+        assertSame(winner, savedFile);
+        assertTrue(Files.exists(tempDir.resolve(storageKey(content, "jpg"))), "文件内容相同，保留即可");
+    }
+
+    @Test
+    void testDeleteImageByUrl_KeepsFileWhileReferenced() throws Exception {
+        // Arrange
+        String imageUrl = "/media/shared.jpg";
+        File shared = new File(tempDir.toFile(), "shared.jpg");
+        Files.write(shared.toPath(), "shared".getBytes());
+
+        MediaFile mediaFile = new MediaFile();
+        mediaFile.setId(1L);
+        mediaFile.setFileName("shared.jpg");
+        mediaFile.setUrl(imageUrl);
+        mediaFile.setRefCount(2);
+
+        when(repository.findByUrlForUpdate(imageUrl)).thenReturn(java.util.Optional.of(mediaFile));
+        when(repository.decrementRefCount(1L)).thenReturn(1);
+
+        // Act
+        boolean result = service.deleteImageByUrl(imageUrl, "ref-1");
+
+        // Assert
+        assertTrue(result);
+        assertTrue(shared.exists(), "仍有引用时不应删除文件");
+        verify(repository, never()).delete(any(MediaFile.class));
+    }
+
+    @Test
+    void testDeleteImageByUrl_ReleasedReferenceIsNotCountedTwice() throws Exception {
+        // Arrange - 同一个 referenceId 的第二次删除，或伪造的 referenceId
+        String imageUrl = "/media/shared.jpg";
+        File shared = new File(tempDir.toFile(), "shared.jpg");
+        Files.write(shared.toPath(), "shared".getBytes());
+
+        MediaFile mediaFile = new MediaFile();
+        mediaFile.setId(1L);
+        mediaFile.setFileName("shared.jpg");
+        mediaFile.setUrl(imageUrl);
+        mediaFile.setRefCount(2);
+
+        when(repository.findByUrlForUpdate(imageUrl)).thenReturn(java.util.Optional.of(mediaFile));
+        when(referenceRepository.deleteReference(1L, "ref-1")).thenReturn(0);
+
+        // Act
+        boolean result = service.deleteImageByUrl(imageUrl, "ref-1");
+
+        // Assert
+        assertFalse(result);
+        assertTrue(shared.exists());
+        verify(repository, never()).decrementRefCount(anyLong());
+        verify(repository, never()).delete(any(MediaFile.class));
+    }
+
+    @Test
+    void testStoreFile_DuplicateGetsItsOwnReference() throws Exception {
+        // Arrange
+        byte[] content = "dup reference".getBytes();
+        MediaFile existing = new MediaFile();
+        existing.setId(5L);
+        existing.setUrl("/media/" + storageKey(content, "jpg"));
+        existing.setRefCount(1);
+
+        when(repository.findFirstBySourceHash(sha256(content))).thenReturn(java.util.Optional.of(existing));
+        when(repository.incrementRefCount(5L)).thenReturn(1);
+
+        // Act
+        MediaFile savedFile = service.storeFile(
+            new MockMultipartFile("file", "dup.jpg", "image/jpeg", content), false, false);
+
+        // Assert
+        assertNotNull(savedFile.getReferenceId());
+        verify(referenceRepository).save(argThat(reference ->
+            reference.getMediaFileId() == 5L && reference.getReferenceId().equals(savedFile.getReferenceId())));
+    }
+
+    private static java.util.List<MediaFile> assignIds(Iterable<MediaFile> records) {
+        java.util.List<MediaFile> saved = new java.util.ArrayList<>();
+        long id = 1;
+        for (MediaFile record : records) {
+            record.setId(id++);
+            saved.add(record);
+        }
+        return saved;
+    }
+
+    /**
+     * 存储 key：ab/cd/<sha256>.<扩展名>
+     */
+    private static String storageKey(byte[] content, String extension) throws Exception {
+        String hash = sha256(content);
+        return hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash + "." + extension;
+    }
+
+    private static String sha256(byte[] content) throws Exception {
+        return java.util.HexFormat.of().formatHex(java.security.MessageDigest.getInstance("SHA-256").digest(content));
+    }
+
+    private static byte[] gradientPng(int width, int height) throws IOException {
+        java.awt.image.BufferedImage image =
+            new java.awt.image.BufferedImage(width, height, java.awt.image.BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, ((x * 255 / width) << 16) | ((y * 255 / height) << 8) | ((x ^ y) & 0xff));
+            }
+        }
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+        javax.imageio.ImageIO.write(image, "png", out);
+        return out.toByteArray();
     }
 
     // ==================== 图片信息提取测试 ====================
 
+    @Test
+    void testGetImageInfo_ReadsDimensionsFromHeader() throws Exception {
+        // Arrange
+        MockMultipartFile file = new MockMultipartFile(
+            "file", "photo.png", "image/png", gradientPng(320, 240)
+        );
+
+        // Act
+        var imageInfo = service.getImageInfo(file);
+
+        // Assert
+        assertEquals(320, imageInfo.getWidth());
+        assertEquals(240, imageInfo.getHeight());
+    }
+
+    @Test
+    void testStoreFile_RecordsDimensions() throws Exception {
+        // Arrange
+        MockMultipartFile file = new MockMultipartFile(
+            "file", "photo.png", "image/png", gradientPng(320, 240)
+        );
+
+        when(repository.save(any(MediaFile.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        MediaFile savedFile = service.storeFile(file, false, false);
+
+        // Assert
+        assertEquals(320, savedFile.getWidth());
+        assertEquals(240, savedFile.getHeight());
+        assertEquals(64, savedFile.getContentHash().length(), "应该记录 SHA-256");
+    }
+
     @Test
     void testGetImageInfo_BasicInfo() throws Exception {
         // Arrange
@@ -670,5 +1284,6 @@ public class ImageProcessingServiceTest {
         assertEquals("image/jpeg", imageInfo.getContentType());
         assertEquals("test.jpg", imageInfo.getFileName());
         assertEquals(7L, imageInfo.getSize()); // "content".length
+        assertNull(imageInfo.getWidth());
     }
 }
\ No newline at end of file
@@ -0,0 +1,175 @@
+package com.nushungry.mediaservice.service;
+
+import com.nushungry.mediaservice.model.MediaFile;
+import com.nushungry.mediaservice.repository.MediaFileRepository;
+import com.nushungry.mediaservice.storage.LocalStorageBackend;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 单元测试：ImageResizeService
+ *
+ * 测试覆盖：
+ * - contain / cover 缩放尺寸，小图不放大
+ * - 第二次请求命中缓存
+ * - 并发请求同一尺寸只生成一次
+ * - 白名单、裁剪方式和格式校验
+ * - 像素数超过上限的原图不解码
+ * - 图片不存在
+ */
+@ExtendWith(MockitoExtension.class)
+public class ImageResizeServiceTest {
+
+    private static final String HASH = "b".repeat(64);
+
+    @Mock
+    private MediaFileRepository repository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ImageCompressionService compressionService;
+
+    private ImageResizeService resizeService;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        compressionService = new ImageCompressionService();
+        ReflectionTestUtils.setField(compressionService, "quality", 0.85f);
+        ReflectionTestUtils.setField(compressionService, "webpEnabled", false);
+        LocalStorageBackend storage = new LocalStorageBackend(tempDir.resolve("media"));
+        resizeService = new ImageResizeService(repository, storage, compressionService, meterRegistry);
+        ReflectionTestUtils.setField(resizeService, "allowedSizes", List.of(100, 200, 400));
+        ReflectionTestUtils.setField(resizeService, "cacheDir", tempDir.resolve("cache").toString());
+        ReflectionTestUtils.setField(resizeService, "cacheMaxBytes", 10L * 1024 * 1024);
+        resizeService.init();
+
+        BufferedImage image = new BufferedImage(800, 400, BufferedImage.TYPE_INT_RGB);
+        ImageIO.write(image, "png", storage.resolve(HASH + ".png").toFile());
+    }
+
+    @Test
+    void testResize_Contain() throws Exception {
+        when(repository.findById(1L)).thenReturn(Optional.of(mediaFile()));
+
+        ImageResizeService.Variant variant = resizeService.resize(1L, 200, 200, "contain", "auto");
+
+        assertEquals(HASH + "_200x200_contain.jpg", variant.key());
+        BufferedImage result = ImageIO.read(variant.file().toFile());
+        assertEquals(200, result.getWidth());
+        assertEquals(100, result.getHeight());
+    }
+
+    @Test
+    void testResize_CoverCropsToExactSize() throws Exception {
+        when(repository.findById(1L)).thenReturn(Optional.of(mediaFile()));
+
+        ImageResizeService.Variant variant = resizeService.resize(1L, 200, 200, "cover", "jpeg");
+
+        BufferedImage result = ImageIO.read(variant.file().toFile());
+        assertEquals(200, result.getWidth());
+        assertEquals(200, result.getHeight());
+    }
+
+    @Test
+    void testResize_WidthOnlyDoesNotUpscale() throws Exception {
+        when(repository.findById(1L)).thenReturn(Optional.of(mediaFile()));
+
+        ImageResizeService.Variant variant = resizeService.resize(1L, null, 400, null, null);
+
+        BufferedImage result = ImageIO.read(variant.file().toFile());
+        assertEquals(800, result.getWidth());
+        assertEquals(400, result.getHeight());
+    }
+
+    @Test
+    void testResize_SecondRequestHitsCache() throws Exception {
+        when(repository.findById(1L)).thenReturn(Optional.of(mediaFile()));
+
+        Path first = resizeService.resize(1L, 100, null, "contain", "auto").file();
+        Path second = resizeService.resize(1L, 100, null, "contain", "auto").file();
+
+        assertEquals(first, second);
+        assertEquals(1L, meterRegistry.get("media.resize.generate").timer().count());
+        assertEquals(1.0, meterRegistry.get("media.resize.requests").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    void testResize_ConcurrentRequestsGenerateOnce() throws Exception {
+        when(repository.findById(1L)).thenReturn(Optional.of(mediaFile()));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<ImageResizeService.Variant>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> resizeService.resize(1L, 400, 400, "cover", "auto")));
+            }
+            for (Future<ImageResizeService.Variant> result : results) {
+                assertNotNull(result.get(10, TimeUnit.SECONDS).file());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1L, meterRegistry.get("media.resize.generate").timer().count(), "同一尺寸只应该解码一次");
+        assertEquals(1, resizeService.getCache().entryCount());
+    }
+
+    @Test
+    void testResize_RejectsInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> resizeService.resize(1L, 150, null, "contain", "auto"));
+        assertThrows(IllegalArgumentException.class, () -> resizeService.resize(1L, null, null, "contain", "auto"));
+        assertThrows(IllegalArgumentException.class, () -> resizeService.resize(1L, 200, 200, "stretch", "auto"));
+        assertThrows(IllegalArgumentException.class, () -> resizeService.resize(1L, 200, 200, "contain", "gif"));
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void testResize_RejectsTooManyPixels() {
+        ReflectionTestUtils.setField(compressionService, "maxPixels", 800L * 400 - 1);
+        when(repository.findById(1L)).thenReturn(Optional.of(mediaFile()));
+
+        assertThrows(IllegalArgumentException.class, () -> resizeService.resize(1L, 200, null, "contain", "auto"));
+        assertEquals(0, resizeService.getCache().entryCount());
+    }
+
+    @Test
+    void testResize_NotFound() {
+        when(repository.findById(9L)).thenReturn(Optional.empty());
+
+        assertThrows(NoSuchFileException.class, () -> resizeService.resize(9L, 200, null, "contain", "auto"));
+        assertThrows(NoSuchFileException.class, () -> resizeService.originalKey(9L));
+    }
+
+    private MediaFile mediaFile() {
+        MediaFile mediaFile = new MediaFile();
+        mediaFile.setId(1L);
+        mediaFile.setFileName(HASH + ".png");
+        mediaFile.setContentHash(HASH);
+        mediaFile.setContentType("image/png");
+        return mediaFile;
+    }
+}
@@ -0,0 +1,208 @@
+package com.nushungry.mediaservice.service;
+
+import com.nushungry.mediaservice.model.MediaFile;
+import com.nushungry.mediaservice.model.MediaRendition;
+import com.nushungry.mediaservice.repository.MediaFileRepository;
+import com.nushungry.mediaservice.storage.LocalStorageBackend;
+import com.nushungry.mediaservice.util.AreaAveragingScaler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 单元测试：RenditionService
+ *
+ * 测试覆盖：
+ * - 生成三个派生尺寸并回填记录
+ * - 小图不放大
+ * - 无法解码时标记失败并清理文件
+ * - 生成期间记录被删除
+ * - 后台线程池提交
+ * - 面积平均缩小
+ */
+@ExtendWith(MockitoExtension.class)
+public class RenditionServiceTest {
+
+    @Mock
+    private MediaFileRepository repository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private RenditionService renditionService;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        ImageCompressionService compressionService = new ImageCompressionService();
+        ReflectionTestUtils.setField(compressionService, "quality", 0.85f);
+        ReflectionTestUtils.setField(compressionService, "webpEnabled", false);
+        renditionService = new RenditionService(repository, compressionService, meterRegistry,
+            new LocalStorageBackend(tempDir));
+        ReflectionTestUtils.setField(renditionService, "thumbWidth", 200);
+        ReflectionTestUtils.setField(renditionService, "thumbHeight", 200);
+        ReflectionTestUtils.setField(renditionService, "cardWidth", 600);
+        ReflectionTestUtils.setField(renditionService, "cardHeight", 600);
+        ReflectionTestUtils.setField(renditionService, "fullWidth", 1600);
+        ReflectionTestUtils.setField(renditionService, "fullHeight", 1600);
+        ReflectionTestUtils.setField(renditionService, "workers", 1);
+        ReflectionTestUtils.setField(renditionService, "queueCapacity", 10);
+        renditionService.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        renditionService.stop();
+    }
+
+    @Test
+    void testProcess_GeneratesAllRenditions() throws Exception {
+        String original = writePng("123_photo.png", 2000, 1000);
+        MediaFile mediaFile = stubSaveRenditions();
+
+        renditionService.process(1L, original);
+
+        verify(repository).saveRenditions(eq(1L), eq("/media/123_photo_thumb.jpg"), anyList());
+        verify(repository, never()).save(any(MediaFile.class));
+        assertEquals("READY", mediaFile.getRenditionStatus());
+        assertEquals("/media/123_photo_thumb.jpg", mediaFile.getThumbnailUrl());
+        assertEquals(3, mediaFile.getRenditions().size());
+        assertRendition(mediaFile.getRenditions().get(0), "thumb", 200, 100);
+        assertRendition(mediaFile.getRenditions().get(1), "card", 600, 300);
+        assertRendition(mediaFile.getRenditions().get(2), "full", 1600, 800);
+
+        BufferedImage thumb = ImageIO.read(tempDir.resolve("123_photo_thumb.jpg").toFile());
+        assertEquals(200, thumb.getWidth());
+        assertEquals(100, thumb.getHeight());
+        assertEquals(1L, meterRegistry.get("media.rendition.job").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    void testProcess_SmallImageIsNotUpscaled() throws Exception {
+        String original = writePng("123_small.png", 120, 80);
+        MediaFile mediaFile = stubSaveRenditions();
+
+        renditionService.process(1L, original);
+
+        assertRendition(mediaFile.getRenditions().get(0), "thumb", 120, 80);
+        assertRendition(mediaFile.getRenditions().get(2), "full", 120, 80);
+    }
+
+    @Test
+    void testProcess_UndecodableFileMarksFailed() throws Exception {
+        String original = "123_broken.jpg";
+        Files.write(tempDir.resolve(original), "not an image".getBytes());
+
+        renditionService.process(1L, original);
+
+        verify(repository).updateRenditionStatus(1L, "FAILED");
+        verify(repository, never()).saveRenditions(any(), any(), anyList());
+        assertFalse(Files.exists(tempDir.resolve("123_broken_thumb.jpg")));
+        assertEquals(1L, meterRegistry.get("media.rendition.job").tag("outcome", "failure").timer().count());
+    }
+
+    @Test
+    void testProcess_DeletedRecordCleansUpFiles() throws Exception {
+        String original = writePng("123_gone.png", 800, 800);
+        when(repository.saveRenditions(eq(1L), any(), anyList())).thenReturn(false);
+
+        renditionService.process(1L, original);
+
+        verify(repository, never()).updateRenditionStatus(any(), any());
+        assertFalse(Files.exists(tempDir.resolve("123_gone_thumb.jpg")));
+        assertFalse(Files.exists(tempDir.resolve("123_gone_card.jpg")));
+        assertFalse(Files.exists(tempDir.resolve("123_gone_full.jpg")));
+    }
+
+    @Test
+    void testEnqueue_RunsOnWorkerPool() throws Exception {
+        String original = writePng("123_async.png", 400, 300);
+        MediaFile mediaFile = stubSaveRenditions();
+
+        renditionService.enqueue(1L, original);
+
+        verify(repository, timeout(5000)).saveRenditions(eq(1L), any(), anyList());
+        assertEquals("/media/123_async_thumb.jpg", mediaFile.getThumbnailUrl());
+        assertNotNull(meterRegistry.find("media.rendition.queue.size").gauge());
+    }
+
+    @Test
+    void testSupports() {
+        assertTrue(renditionService.supports("image/jpeg"));
+        assertTrue(renditionService.supports("image/png"));
+        assertFalse(renditionService.supports("application/pdf"));
+        assertFalse(renditionService.supports(null));
+    }
+
+    @Test
+    void testAreaAveragingScaler_AveragesCoveredPixels() {
+        BufferedImage source = new BufferedImage(4, 2, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < 4; x++) {
+            int rgb = x % 2 == 0 ? 0x000000 : 0xffffff;
+            source.setRGB(x, 0, rgb);
+            source.setRGB(x, 1, rgb);
+        }
+
+        BufferedImage scaled = AreaAveragingScaler.scale(source, 2, 1);
+
+        assertEquals(2, scaled.getWidth());
+        assertEquals(1, scaled.getHeight());
+        assertEquals(0x808080, scaled.getRGB(0, 0) & 0xffffff);
+        assertEquals(0x808080, scaled.getRGB(1, 0) & 0xffffff);
+        assertThrows(IllegalArgumentException.class, () -> AreaAveragingScaler.scale(source, 8, 2));
+    }
+
+    private String writePng(String fileName, int width, int height) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y += 10) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, 0x3366cc);
+            }
+        }
+        Path path = tempDir.resolve(fileName);
+        ImageIO.write(image, "png", path.toFile());
+        return fileName;
+    }
+
+    /**
+     * 回填时把写入的列记录到返回的 MediaFile 上，便于断言
+     */
+    private MediaFile stubSaveRenditions() {
+        MediaFile mediaFile = new MediaFile();
+        mediaFile.setId(1L);
+        mediaFile.setRenditionStatus("PENDING");
+        when(repository.saveRenditions(eq(1L), any(), anyList())).thenAnswer(invocation -> {
+            mediaFile.setThumbnailUrl(invocation.getArgument(1));
+            mediaFile.setRenditions(invocation.getArgument(2));
+            mediaFile.setRenditionStatus("READY");
+            return true;
+        });
+        return mediaFile;
+    }
+
+    private static void assertRendition(MediaRendition rendition, String name, int width, int height) {
+        assertEquals(name, rendition.getName());
+        assertEquals(width, rendition.getWidth());
+        assertEquals(height, rendition.getHeight());
+        assertTrue(rendition.getSize() > 0);
+    }
+}
@@ -0,0 +1,217 @@
+package com.nushungry.mediaservice.service;
+
+import com.nushungry.mediaservice.model.MediaFile;
+import com.nushungry.mediaservice.model.MediaRendition;
+import com.nushungry.mediaservice.repository.MediaFileRepository;
+import com.nushungry.mediaservice.storage.LocalStorageBackend;
+import com.nushungry.mediaservice.storage.StorageLayout;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 单元测试：StorageLayoutMigrationService
+ *
+ * 测试覆盖：
+ * - 移动原图和派生尺寸，只改写 key、URL、缩略图 URL 和派生尺寸
+ * - 分批读取，逐条改写
+ * - 重新执行时文件已经移动过
+ * - 没有内容哈希的旧文件按文件名的哈希分目录
+ * - 原图不存在时不改写记录，派生尺寸仍在生成时跳过，两者都不让 hasMore 保持 true
+ * - 从 afterId 之后继续
+ * - 迁移期间记录被删除时删除移动过的文件
+ */
+@ExtendWith(MockitoExtension.class)
+public class StorageLayoutMigrationServiceTest {
+
+    private static final String HASH_A = "ab" + "0".repeat(62);
+    private static final String HASH_B = "cd" + "1".repeat(62);
+
+    @Mock
+    private MediaFileRepository repository;
+
+    private LocalStorageBackend storage;
+
+    private StorageLayoutMigrationService migrationService;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        storage = new LocalStorageBackend(tempDir);
+        migrationService = new StorageLayoutMigrationService(repository, storage);
+    }
+
+    @Test
+    void testMigrate_MovesFilesAndRewritesUrls() throws Exception {
+        MediaFile mediaFile = mediaFile(1L, HASH_A);
+        mediaFile.getRenditions().add(new MediaRendition("thumb", HASH_A + "_thumb.jpg",
+                "/media/" + HASH_A + "_thumb.jpg", 10, 10, 5L));
+        mediaFile.setThumbnailUrl("/media/" + HASH_A + "_thumb.jpg");
+        storage.store(HASH_A + ".png", "original".getBytes(), "image/png");
+        storage.store(HASH_A + "_thumb.jpg", "thumb".getBytes(), "image/jpeg");
+        when(repository.findFlatAfter(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(mediaFile), List.of());
+        when(repository.findFlatAfter(eq(1L), any(Pageable.class))).thenReturn(List.of());
+        when(repository.saveLocation(anyLong(), any(), any(), any(), anyList())).thenReturn(true);
+
+        StorageLayoutMigrationService.MigrationResult result = migrationService.migrate(0L, 100, 1000);
+
+        assertEquals(1, result.migrated());
+        assertFalse(result.hasMore());
+        String dir = "ab/00/";
+        verify(repository).saveLocation(eq(1L), eq(dir + HASH_A + ".png"), eq("/media/" + dir + HASH_A + ".png"),
+                eq("/media/" + dir + HASH_A + "_thumb.jpg"),
+                argThat(renditions -> renditions.size() == 1
+                        && renditions.get(0).getFileName().equals(dir + HASH_A + "_thumb.jpg")
+                        && renditions.get(0).getUrl().equals("/media/" + dir + HASH_A + "_thumb.jpg")));
+        // 不保存读出的整条记录，避免覆盖迁移期间改过的引用次数
+        verify(repository, never()).saveAll(any());
+        verify(repository, never()).save(any(MediaFile.class));
+        assertArrayEquals("original".getBytes(), Files.readAllBytes(tempDir.resolve(dir + HASH_A + ".png")));
+        assertArrayEquals("thumb".getBytes(), Files.readAllBytes(tempDir.resolve(dir + HASH_A + "_thumb.jpg")));
+        assertFalse(Files.exists(tempDir.resolve(HASH_A + ".png")));
+    }
+
+    @Test
+    void testMigrate_ReadsAndSavesInBatches() throws Exception {
+        MediaFile first = mediaFile(1L, HASH_A);
+        MediaFile second = mediaFile(2L, HASH_B);
+        storage.store(HASH_A + ".png", "a".getBytes(), "image/png");
+        storage.store(HASH_B + ".png", "b".getBytes(), "image/png");
+        when(repository.findFlatAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(first), List.of());
+        when(repository.findFlatAfter(eq(1L), any(Pageable.class))).thenReturn(List.of(second));
+        when(repository.findFlatAfter(eq(2L), any(Pageable.class))).thenReturn(List.of());
+        when(repository.saveLocation(anyLong(), any(), any(), any(), anyList())).thenReturn(true);
+
+        StorageLayoutMigrationService.MigrationResult result = migrationService.migrate(0L, 1, 1000);
+
+        assertEquals(2, result.scanned());
+        assertEquals(2, result.migrated());
+        verify(repository).saveLocation(eq(1L), eq("ab/00/" + HASH_A + ".png"), any(), any(), anyList());
+        verify(repository).saveLocation(eq(2L), eq("cd/11/" + HASH_B + ".png"), any(), any(), anyList());
+    }
+
+    @Test
+    void testMigrate_FileAlreadyMovedByPreviousRun() throws Exception {
+        MediaFile mediaFile = mediaFile(1L, HASH_A);
+        storage.store("ab/00/" + HASH_A + ".png", "original".getBytes(), "image/png");
+        when(repository.findFlatAfter(anyLong(), any(Pageable.class))).thenReturn(List.of(mediaFile), List.of());
+        when(repository.saveLocation(anyLong(), any(), any(), any(), anyList())).thenReturn(true);
+
+        StorageLayoutMigrationService.MigrationResult result = migrationService.migrate(0L, 100, 1);
+
+        assertEquals(1, result.migrated());
+        verify(repository).saveLocation(eq(1L), eq("ab/00/" + HASH_A + ".png"), any(), any(), anyList());
+    }
+
+    @Test
+    void testMigrate_RecordDeletedDuringMigrationRemovesMovedFiles() throws Exception {
+        MediaFile mediaFile = mediaFile(1L, HASH_A);
+        storage.store(HASH_A + ".png", "original".getBytes(), "image/png");
+        when(repository.findFlatAfter(anyLong(), any(Pageable.class))).thenReturn(List.of(mediaFile), List.of());
+        when(repository.saveLocation(anyLong(), any(), any(), any(), anyList())).thenReturn(false);
+
+        StorageLayoutMigrationService.MigrationResult result = migrationService.migrate(0L, 100, 1);
+
+        assertEquals(0, result.migrated());
+        assertEquals(1, result.skipped());
+        assertFalse(storage.exists(HASH_A + ".png"));
+        assertFalse(storage.exists("ab/00/" + HASH_A + ".png"), "记录已删除，移动过的文件不应留下");
+    }
+
+    @Test
+    void testMigrate_MissingOriginalAndPendingRenditionsNotRewritten() throws Exception {
+        MediaFile missing = mediaFile(1L, HASH_A);
+        MediaFile pending = mediaFile(2L, HASH_B);
+        pending.setRenditionStatus(MediaFile.RenditionStatus.PENDING.name());
+        storage.store(HASH_B + ".png", "b".getBytes(), "image/png");
+        when(repository.findFlatAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(missing, pending));
+        when(repository.findFlatAfter(eq(2L), any(Pageable.class))).thenReturn(List.of());
+
+        StorageLayoutMigrationService.MigrationResult result = migrationService.migrate(0L, 100, 1000);
+
+        assertEquals(0, result.migrated());
+        assertEquals(1, result.failed());
+        assertEquals(1, result.skipped());
+        // 失败和跳过的记录都在 lastId 之前，之后已经没有需要迁移的记录
+        assertEquals(2L, result.lastId());
+        assertFalse(result.hasMore());
+        assertEquals(HASH_A + ".png", missing.getFileName());
+        assertTrue(storage.exists(HASH_B + ".png"), "派生尺寸生成中的原图不应移动");
+        verify(repository, never()).saveLocation(anyLong(), any(), any(), any(), anyList());
+    }
+
+    @Test
+    void testMigrate_LegacyFileShardedByNameHash() throws Exception {
+        MediaFile legacy = new MediaFile();
+        legacy.setId(1L);
+        legacy.setFileName("123_photo.png");
+        legacy.setUrl("/media/123_photo.png");
+        storage.store("123_photo.png", "legacy".getBytes(), "image/png");
+        when(repository.findFlatAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(legacy));
+        when(repository.findFlatAfter(eq(1L), any(Pageable.class))).thenReturn(List.of());
+        when(repository.saveLocation(anyLong(), any(), any(), any(), anyList())).thenReturn(true);
+
+        StorageLayoutMigrationService.MigrationResult result = migrationService.migrate(0L, 100, 1000);
+
+        String target = StorageLayout.shard("123_photo.png");
+        assertEquals("c2/fc/123_photo.png", target);
+        assertEquals(1, result.migrated());
+        assertFalse(result.hasMore());
+        verify(repository).saveLocation(eq(1L), eq(target), eq("/media/" + target), any(), anyList());
+        assertArrayEquals("legacy".getBytes(), Files.readAllBytes(tempDir.resolve(target)));
+        assertFalse(storage.exists("123_photo.png"), "存储根目录下不应留下旧文件");
+    }
+
+    @Test
+    void testMigrate_ContinuesAfterLastId() throws Exception {
+        MediaFile second = mediaFile(2L, HASH_B);
+        MediaFile third = mediaFile(3L, HASH_A);
+        storage.store(HASH_B + ".png", "b".getBytes(), "image/png");
+        when(repository.findFlatAfter(eq(1L), any(Pageable.class))).thenReturn(List.of(second));
+        when(repository.findFlatAfter(eq(2L), any(Pageable.class))).thenReturn(List.of(third));
+        when(repository.saveLocation(anyLong(), any(), any(), any(), anyList())).thenReturn(true);
+
+        StorageLayoutMigrationService.MigrationResult result = migrationService.migrate(1L, 100, 1);
+
+        assertEquals(1, result.migrated());
+        assertEquals(2L, result.lastId());
+        assertTrue(result.hasMore());
+        verify(repository, never()).findFlatAfter(eq(0L), any(Pageable.class));
+    }
+
+    @Test
+    void testMigrate_RejectsInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> migrationService.migrate(0L, 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> migrationService.migrate(0L, 10, 0));
+        verifyNoInteractions(repository);
+    }
+
+    private MediaFile mediaFile(Long id, String hash) {
+        MediaFile mediaFile = new MediaFile();
+        mediaFile.setId(id);
+        mediaFile.setFileName(hash + ".png");
+        mediaFile.setUrl("/media/" + hash + ".png");
+        mediaFile.setContentHash(hash);
+        mediaFile.setContentType("image/png");
+        return mediaFile;
+    }
+}
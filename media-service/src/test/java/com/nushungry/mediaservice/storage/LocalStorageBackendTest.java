@@ -0,0 +1,104 @@
+package com.nushungry.mediaservice.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 单元测试：LocalStorageBackend
+ *
+ * 测试覆盖：
+ * - 暂存文件重命名为目标文件，自动创建子目录
+ * - 读取、判断存在、删除
+ * - 查询大小和修改时间、按范围读取，覆盖或删除后句柄缓存失效
+ * - 移动到子目录，源文件不存在时抛出 NoSuchFileException
+ * - 拒绝跳出根目录的 key
+ */
+public class LocalStorageBackendTest {
+
+    @TempDir
+    Path tempDir;
+
+    private LocalStorageBackend storage;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        storage = new LocalStorageBackend(tempDir);
+    }
+
+    @Test
+    void testStore_MovesStagedFile() throws Exception {
+        Path staged = Files.write(storage.stagingDirectory().resolve(".upload-1.tmp"), "content".getBytes());
+
+        storage.store("ab/cd/file.jpg", staged, "image/jpeg");
+
+        assertFalse(Files.exists(staged), "暂存文件应该被移走");
+        assertTrue(storage.exists("ab/cd/file.jpg"));
+        try (InputStream in = storage.open("ab/cd/file.jpg")) {
+            assertArrayEquals("content".getBytes(), in.readAllBytes());
+        }
+    }
+
+    @Test
+    void testMove_CreatesTargetDirectory() throws Exception {
+        storage.store("file.jpg", "content".getBytes(), "image/jpeg");
+
+        storage.move("file.jpg", "fi/le/file.jpg");
+
+        assertFalse(storage.exists("file.jpg"));
+        assertArrayEquals("content".getBytes(), Files.readAllBytes(tempDir.resolve("fi/le/file.jpg")));
+        assertThrows(NoSuchFileException.class, () -> storage.move("file.jpg", "fi/le/file.jpg"));
+    }
+
+    @Test
+    void testStoreBytesAndDelete() throws Exception {
+        storage.store("file_thumb.jpg", "thumb".getBytes(), "image/jpeg");
+        assertArrayEquals("thumb".getBytes(), Files.readAllBytes(tempDir.resolve("file_thumb.jpg")));
+
+        storage.delete("file_thumb.jpg");
+        storage.delete("file_thumb.jpg");
+
+        assertFalse(storage.exists("file_thumb.jpg"));
+        assertThrows(NoSuchFileException.class, () -> storage.open("file_thumb.jpg"));
+    }
+
+    @Test
+    void testStatAndOpenRange() throws Exception {
+        storage.store("range.jpg", "0123456789".getBytes(), "image/jpeg");
+
+        StorageBackend.ObjectInfo info = storage.stat("range.jpg");
+        assertEquals(10, info.size());
+        assertEquals(Files.getLastModifiedTime(tempDir.resolve("range.jpg")).toMillis(), info.lastModified());
+        try (InputStream in = storage.open("range.jpg", 2, 5)) {
+            assertArrayEquals("23456".getBytes(), in.readAllBytes());
+        }
+        assertThrows(NoSuchFileException.class, () -> storage.stat("missing.jpg"));
+    }
+
+    @Test
+    void testOverwriteInvalidatesCachedHandle() throws Exception {
+        storage.store("file.jpg", "old".getBytes(), "image/jpeg");
+        assertEquals(3, storage.stat("file.jpg").size());
+
+        storage.store("file.jpg", "newer".getBytes(), "image/jpeg");
+        assertEquals(5, storage.stat("file.jpg").size(), "覆盖后不应该读到缓存的旧句柄");
+
+        storage.delete("file.jpg");
+        assertThrows(NoSuchFileException.class, () -> storage.stat("file.jpg"));
+    }
+
+    @Test
+    void testResolve_RejectsPathTraversal() {
+        assertThrows(IllegalArgumentException.class, () -> storage.resolve("../outside.jpg"));
+        assertThrows(IllegalArgumentException.class, () -> storage.resolve("a/../../outside.jpg"));
+        assertThrows(IllegalArgumentException.class, () -> storage.resolve(""));
+        assertEquals(tempDir.toAbsolutePath().normalize().resolve("a/b.jpg"), storage.resolve("a/b.jpg"));
+    }
+}
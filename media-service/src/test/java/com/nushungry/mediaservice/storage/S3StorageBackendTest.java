@@ -0,0 +1,248 @@
+package com.nushungry.mediaservice.storage;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 单元测试：S3StorageBackend
+ *
+ * 用 JDK 自带的 HttpServer 模拟 S3 接口（path-style），代替本地 MinIO
+ *
+ * 测试覆盖：
+ * - 小文件单次上传、读取、判断存在、删除
+ * - 查询大小和修改时间、按范围读取
+ * - 移动对象（复制后删除源对象）
+ * - 大文件分片并行上传并按分片号合并
+ * - 分片失败时中止上传并删除暂存文件
+ * - 请求带 SigV4 签名
+ */
+public class S3StorageBackendTest {
+
+    private static final long PART_SIZE = S3StorageBackend.MIN_PART_SIZE;
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d+)");
+    private static final Pattern PART = Pattern.compile("<PartNumber>(\\d+)</PartNumber><ETag>\"([^\"]+)\"</ETag>");
+
+    @TempDir
+    Path tempDir;
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private S3StorageBackend storage;
+
+    private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+    private final Map<String, byte[]> parts = new ConcurrentHashMap<>();
+    private final AtomicInteger activeParts = new AtomicInteger();
+    private final AtomicInteger maxActiveParts = new AtomicInteger();
+    private final AtomicInteger aborted = new AtomicInteger();
+    private volatile int failPartNumber = -1;
+    private volatile String lastAuthorization;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        serverExecutor = Executors.newFixedThreadPool(8);
+        server.setExecutor(serverExecutor);
+        server.createContext("/", this::handle);
+        server.start();
+
+        storage = new S3StorageBackend("http://127.0.0.1:" + server.getAddress().getPort(), "media",
+                "minioadmin", "minioadmin", "us-east-1", PART_SIZE, 3, tempDir.resolve("staging"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        storage.close();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void testStore_SmallFileSinglePut() throws Exception {
+        Path staged = Files.write(storage.stagingDirectory().resolve(".upload-1.tmp"), "content".getBytes());
+
+        storage.store("abc.jpg", staged, "image/jpeg");
+
+        assertFalse(Files.exists(staged), "暂存文件应该被删除");
+        assertArrayEquals("content".getBytes(), objects.get("/media/abc.jpg"));
+        assertTrue(lastAuthorization.startsWith("AWS4-HMAC-SHA256 Credential=minioadmin/"));
+        assertTrue(storage.exists("abc.jpg"));
+        try (InputStream in = storage.open("abc.jpg")) {
+            assertArrayEquals("content".getBytes(), in.readAllBytes());
+        }
+
+        storage.delete("abc.jpg");
+        assertFalse(storage.exists("abc.jpg"));
+        assertThrows(NoSuchFileException.class, () -> storage.open("abc.jpg"));
+    }
+
+    @Test
+    void testMove_CopiesAndDeletesSource() throws Exception {
+        storage.store("abc.jpg", "content".getBytes(), "image/jpeg");
+
+        storage.move("abc.jpg", "ab/c/abc.jpg");
+
+        assertArrayEquals("content".getBytes(), objects.get("/media/ab/c/abc.jpg"));
+        assertFalse(objects.containsKey("/media/abc.jpg"));
+        assertThrows(NoSuchFileException.class, () -> storage.move("abc.jpg", "ab/c/abc.jpg"));
+    }
+
+    @Test
+    void testStatAndOpenRange() throws Exception {
+        storage.store("range.jpg", "0123456789".getBytes(), "image/jpeg");
+
+        StorageBackend.ObjectInfo info = storage.stat("range.jpg");
+        assertEquals(10, info.size());
+        assertEquals(1445412480000L, info.lastModified());
+        try (InputStream in = storage.open("range.jpg", 2, 5)) {
+            assertArrayEquals("23456".getBytes(), in.readAllBytes());
+        }
+        assertThrows(NoSuchFileException.class, () -> storage.stat("missing.jpg"));
+    }
+
+    @Test
+    void testStore_LargeFileMultipartInParallel() throws Exception {
+        byte[] data = new byte[(int) (PART_SIZE * 2 + 1234)];
+        new Random(42).nextBytes(data);
+        Path staged = Files.write(storage.stagingDirectory().resolve(".upload-2.tmp"), data);
+
+        storage.store("ab/cd/large.jpg", staged, "image/jpeg");
+
+        assertArrayEquals(data, objects.get("/media/ab/cd/large.jpg"), "分片应该按分片号合并");
+        assertTrue(maxActiveParts.get() > 1, "分片应该并行上传");
+        assertEquals(0, aborted.get());
+        assertFalse(Files.exists(staged));
+    }
+
+    @Test
+    void testStore_PartFailureAbortsUpload() throws Exception {
+        failPartNumber = 2;
+        byte[] data = new byte[(int) (PART_SIZE * 2 + 1)];
+        Path staged = Files.write(storage.stagingDirectory().resolve(".upload-3.tmp"), data);
+
+        assertThrows(IOException.class, () -> storage.store("broken.jpg", staged, "image/jpeg"));
+
+        assertEquals(1, aborted.get(), "失败后应该中止分片上传");
+        assertFalse(objects.containsKey("/media/broken.jpg"));
+        assertFalse(Files.exists(staged));
+    }
+
+    /**
+     * 最简单的 S3 模拟：对象、分片上传的创建 / 上传分片 / 合并 / 中止
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        lastAuthorization = exchange.getRequestHeaders().getFirst("Authorization");
+
+        if (method.equals("POST") && query.containsKey("uploads")) {
+            respond(exchange, 200, "<InitiateMultipartUploadResult><UploadId>up-1</UploadId></InitiateMultipartUploadResult>");
+        } else if (method.equals("PUT") && query.containsKey("partNumber")) {
+            int partNumber = Integer.parseInt(query.get("partNumber"));
+            maxActiveParts.accumulateAndGet(activeParts.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            activeParts.decrementAndGet();
+            if (partNumber == failPartNumber) {
+                respond(exchange, 500, "<Error><Code>InternalError</Code></Error>");
+                return;
+            }
+            parts.put(path + "#" + partNumber, body);
+            exchange.getResponseHeaders().add("ETag", "\"etag-" + partNumber + "\"");
+            respond(exchange, 200, "");
+        } else if (method.equals("POST") && query.containsKey("uploadId")) {
+            Map<Integer, byte[]> ordered = new TreeMap<>();
+            Matcher matcher = PART.matcher(new String(body));
+            while (matcher.find()) {
+                int partNumber = Integer.parseInt(matcher.group(1));
+                assertEquals("etag-" + partNumber, matcher.group(2));
+                ordered.put(partNumber, parts.remove(path + "#" + partNumber));
+            }
+            ByteArrayOutputStream combined = new ByteArrayOutputStream();
+            for (byte[] part : ordered.values()) {
+                combined.write(part);
+            }
+            objects.put(path, combined.toByteArray());
+            respond(exchange, 200, "<CompleteMultipartUploadResult/>");
+        } else if (method.equals("DELETE") && query.containsKey("uploadId")) {
+            aborted.incrementAndGet();
+            respond(exchange, 204, null);
+        } else if (method.equals("PUT")) {
+            objects.put(path, body);
+            respond(exchange, 200, "");
+        } else if (method.equals("GET") || method.equals("HEAD")) {
+            byte[] object = objects.get(path);
+            if (object == null) {
+                respond(exchange, 404, method.equals("HEAD") ? null : "<Error><Code>NoSuchKey</Code></Error>");
+            } else if (method.equals("HEAD")) {
+                exchange.getResponseHeaders().add("Content-Length", String.valueOf(object.length));
+                exchange.getResponseHeaders().add("Last-Modified", "Wed, 21 Oct 2015 07:28:00 GMT");
+                respond(exchange, 200, null);
+            } else {
+                String range = exchange.getRequestHeaders().getFirst("Range");
+                if (range != null) {
+                    Matcher matcher = RANGE.matcher(range);
+                    assertTrue(matcher.matches(), range);
+                    int start = Integer.parseInt(matcher.group(1));
+                    int end = Integer.parseInt(matcher.group(2));
+                    object = java.util.Arrays.copyOfRange(object, start, end + 1);
+                }
+                exchange.sendResponseHeaders(range != null ? 206 : 200, object.length);
+                exchange.getResponseBody().write(object);
+                exchange.close();
+            }
+        } else if (method.equals("DELETE")) {
+            objects.remove(path);
+            respond(exchange, 204, null);
+        } else {
+            respond(exchange, 400, "");
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body != null ? body.getBytes() : null;
+        exchange.sendResponseHeaders(status, bytes == null || bytes.length == 0 ? -1 : bytes.length);
+        if (bytes != null && bytes.length > 0) {
+            exchange.getResponseBody().write(bytes);
+        }
+        exchange.close();
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> params = new TreeMap<>();
+        if (rawQuery != null) {
+            for (String pair : rawQuery.split("&")) {
+                int eq = pair.indexOf('=');
+                params.put(eq < 0 ? pair : pair.substring(0, eq), eq < 0 ? "" : pair.substring(eq + 1));
+            }
+        }
+        return params;
+    }
+}
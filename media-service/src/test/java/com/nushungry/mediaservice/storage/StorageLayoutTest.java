@@ -0,0 +1,40 @@
+package com.nushungry.mediaservice.storage;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 单元测试：StorageLayout
+ *
+ * 测试覆盖：
+ * - 按内容哈希命名的文件分到两级目录，派生尺寸与原图同目录
+ * - 不是按哈希命名的旧文件按文件名的哈希分目录，文件名不变
+ * - 已带目录的 key 保持不变
+ */
+public class StorageLayoutTest {
+
+    private static final String HASH = "abcdef" + "0".repeat(58);
+    private static final String LEGACY_PREFIX = "c2/fc/";
+
+    @Test
+    void testShard_ContentAddressedFile() {
+        assertEquals("ab/cd/" + HASH + ".webp", StorageLayout.shard(HASH + ".webp"));
+        assertEquals("ab/cd/" + HASH + "_thumb.jpg", StorageLayout.shard(HASH + "_thumb.jpg"));
+    }
+
+    @Test
+    void testShard_LegacyFileShardedByNameHash() {
+        // sha256("123_photo.png") 以 LEGACY_PREFIX 开头
+        assertEquals(LEGACY_PREFIX + "123_photo.png", StorageLayout.shard("123_photo.png"));
+        assertTrue(StorageLayout.shard("abcd.png").matches("[0-9a-f]{2}/[0-9a-f]{2}/abcd\\.png"));
+        assertTrue(StorageLayout.shard(HASH.toUpperCase() + ".png").endsWith("/" + HASH.toUpperCase() + ".png"));
+    }
+
+    @Test
+    void testShard_KeysWithDirectoryUnchanged() {
+        assertEquals("ab/cd/" + HASH + ".webp", StorageLayout.shard("ab/cd/" + HASH + ".webp"));
+        assertEquals(LEGACY_PREFIX + "123_photo.png", StorageLayout.shard(LEGACY_PREFIX + "123_photo.png"));
+        assertNull(StorageLayout.shard(null));
+    }
+}
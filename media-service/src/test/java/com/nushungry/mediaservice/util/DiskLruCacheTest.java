@@ -0,0 +1,80 @@
+package com.nushungry.mediaservice.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 单元测试：DiskLruCache
+ *
+ * 测试覆盖：
+ * - 写入、读取
+ * - 超出字节预算时淘汰最久未访问的文件
+ * - 重启后按修改时间重建索引并清理临时文件
+ * - 拒绝非法 key
+ */
+public class DiskLruCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testPutAndGet() throws Exception {
+        DiskLruCache cache = new DiskLruCache(tempDir, 1024);
+
+        Path path = cache.put("a.webp", new byte[100]);
+
+        assertEquals(path, cache.get("a.webp"));
+        assertEquals(100, Files.size(path));
+        assertNull(cache.get("missing.webp"));
+        assertEquals(100, cache.totalBytes());
+        assertEquals(1, cache.entryCount());
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsed() throws Exception {
+        DiskLruCache cache = new DiskLruCache(tempDir, 300);
+        cache.put("a.webp", new byte[100]);
+        cache.put("b.webp", new byte[100]);
+        cache.put("c.webp", new byte[100]);
+        cache.get("a.webp");
+
+        cache.put("d.webp", new byte[100]);
+
+        assertNull(cache.get("b.webp"), "最久未访问的 b 应该被淘汰");
+        assertFalse(Files.exists(tempDir.resolve("b.webp")));
+        assertNotNull(cache.get("a.webp"));
+        assertNotNull(cache.get("c.webp"));
+        assertNotNull(cache.get("d.webp"));
+        assertEquals(300, cache.totalBytes());
+    }
+
+    @Test
+    void testRebuildIndexOnStartup() throws Exception {
+        Files.write(tempDir.resolve("old.webp"), new byte[100]);
+        Files.setLastModifiedTime(tempDir.resolve("old.webp"), FileTime.fromMillis(1_000_000));
+        Files.write(tempDir.resolve("new.webp"), new byte[100]);
+        Files.write(tempDir.resolve(".put-123.tmp"), new byte[10]);
+
+        DiskLruCache cache = new DiskLruCache(tempDir, 150);
+
+        assertNull(cache.get("old.webp"), "超出预算时应该淘汰修改时间最早的文件");
+        assertFalse(Files.exists(tempDir.resolve("old.webp")));
+        assertNotNull(cache.get("new.webp"));
+        assertFalse(Files.exists(tempDir.resolve(".put-123.tmp")), "遗留的临时文件应该被清理");
+        assertEquals(100, cache.totalBytes());
+    }
+
+    @Test
+    void testPut_RejectsInvalidKey() throws Exception {
+        DiskLruCache cache = new DiskLruCache(tempDir, 1024);
+
+        assertThrows(IllegalArgumentException.class, () -> cache.put("../escape.webp", new byte[1]));
+        assertThrows(IllegalArgumentException.class, () -> cache.put(".hidden", new byte[1]));
+    }
+}
@@ -0,0 +1,54 @@
+package com.nushungry.mediaservice.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 单元测试：ExifOrientation
+ *
+ * 测试覆盖：
+ * - 8 种方向下左上角像素的去向和宽高
+ * - 方向为 1 或无效时原样返回
+ */
+public class ExifOrientationTest {
+
+    private static final int MARK = 0xFF0000;
+
+    @Test
+    void testApply_MovesTopLeftPixel() {
+        // 3x2 的图片，左上角标红；[方向, 目标 x, 目标 y]，5 ~ 8 宽高互换
+        int[][] expected = {
+                {2, 2, 0},
+                {3, 2, 1},
+                {4, 0, 1},
+                {5, 0, 0},
+                {6, 1, 0},
+                {7, 1, 2},
+                {8, 0, 2},
+        };
+        for (int[] row : expected) {
+            BufferedImage oriented = ExifOrientation.apply(marked(), row[0]);
+            boolean swap = row[0] >= 5;
+            assertEquals(swap ? 2 : 3, oriented.getWidth(), "orientation " + row[0]);
+            assertEquals(swap ? 3 : 2, oriented.getHeight(), "orientation " + row[0]);
+            assertEquals(MARK, oriented.getRGB(row[1], row[2]) & 0xFFFFFF, "orientation " + row[0]);
+        }
+    }
+
+    @Test
+    void testApply_NormalOrInvalidReturnsSameImage() {
+        BufferedImage image = marked();
+        assertSame(image, ExifOrientation.apply(image, 1));
+        assertSame(image, ExifOrientation.apply(image, 0));
+        assertSame(image, ExifOrientation.apply(image, 9));
+    }
+
+    private static BufferedImage marked() {
+        BufferedImage image = new BufferedImage(3, 2, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, MARK);
+        return image;
+    }
+}
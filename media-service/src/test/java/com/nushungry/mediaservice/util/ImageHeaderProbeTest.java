@@ -0,0 +1,170 @@
+package com.nushungry.mediaservice.util;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 单元测试：ImageHeaderProbe
+ *
+ * 测试覆盖：
+ * - JPEG / PNG / GIF 尺寸读取
+ * - JPEG 跳过较大的 APP 段
+ * - JPEG EXIF Orientation（两种字节序）
+ * - WebP 三种块格式
+ * - 无法识别和截断的文件
+ */
+public class ImageHeaderProbeTest {
+
+    @Test
+    void testProbe_ImageIOFormats() throws Exception {
+        assertHeader(probe(encode("jpeg", 640, 480)), "image/jpeg", 640, 480);
+        assertHeader(probe(encode("png", 33, 17)), "image/png", 33, 17);
+        assertHeader(probe(encode("gif", 300, 200)), "image/gif", 300, 200);
+    }
+
+    @Test
+    void testProbe_JpegSkipsLargeAppSegment() throws Exception {
+        byte[] jpeg = encode("jpeg", 120, 90);
+        // 在 SOI 之后插入一个 60KB 的 APP1 段（模拟 EXIF）
+        int appLength = 60 * 1024;
+        byte[] withExif = new byte[jpeg.length + appLength + 2];
+        withExif[0] = (byte) 0xFF;
+        withExif[1] = (byte) 0xD8;
+        withExif[2] = (byte) 0xFF;
+        withExif[3] = (byte) 0xE1;
+        withExif[4] = (byte) (appLength >> 8);
+        withExif[5] = (byte) appLength;
+        System.arraycopy(jpeg, 2, withExif, appLength + 4, jpeg.length - 2);
+
+        assertHeader(probe(withExif), "image/jpeg", 120, 90);
+    }
+
+    @Test
+    void testProbe_JpegExifOrientation() throws Exception {
+        byte[] jpeg = encode("jpeg", 120, 90);
+
+        ImageHeaderProbe.ImageHeader rotated = probe(withExifOrientation(jpeg, 6, false));
+        assertHeader(rotated, "image/jpeg", 120, 90);
+        assertEquals(6, rotated.orientation());
+        assertEquals(90, rotated.displayWidth());
+        assertEquals(120, rotated.displayHeight());
+
+        assertEquals(3, probe(withExifOrientation(jpeg, 3, true)).orientation());
+        assertEquals(1, probe(jpeg).orientation());
+        assertEquals(1, probe(withExifOrientation(jpeg, 42, false)).orientation(), "无效值按 1 处理");
+    }
+
+    /**
+     * 在 SOI 之后插入只含 IFD0 Orientation 一项的 EXIF APP1 段
+     */
+    public static byte[] withExifOrientation(byte[] jpeg, int orientation, boolean littleEndian) {
+        ByteArrayOutputStream tiff = new ByteArrayOutputStream();
+        tiff.writeBytes(littleEndian ? new byte[]{'I', 'I', 42, 0, 8, 0, 0, 0} : new byte[]{'M', 'M', 0, 42, 0, 0, 0, 8});
+        writeShort(tiff, 1, littleEndian);
+        writeShort(tiff, 0x0112, littleEndian);
+        writeShort(tiff, 3, littleEndian);
+        tiff.writeBytes(littleEndian ? new byte[]{1, 0, 0, 0} : new byte[]{0, 0, 0, 1});
+        writeShort(tiff, orientation, littleEndian);
+        tiff.writeBytes(new byte[6]);
+
+        int length = 2 + 6 + tiff.size();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE1, (byte) (length >> 8), (byte) length});
+        out.writeBytes(new byte[]{'E', 'x', 'i', 'f', 0, 0});
+        out.writeBytes(tiff.toByteArray());
+        out.write(jpeg, 2, jpeg.length - 2);
+        return out.toByteArray();
+    }
+
+    private static void writeShort(ByteArrayOutputStream out, int value, boolean littleEndian) {
+        if (littleEndian) {
+            out.write(value);
+            out.write(value >> 8);
+        } else {
+            out.write(value >> 8);
+            out.write(value);
+        }
+    }
+
+    @Test
+    void testProbe_WebpChunks() throws Exception {
+        // VP8（有损）：起始码之后 14 位宽高
+        byte[] lossy = webp("VP8 ");
+        lossy[23] = (byte) 0x9D;
+        lossy[24] = 0x01;
+        lossy[25] = 0x2A;
+        lossy[26] = (byte) (800 & 0xFF);
+        lossy[27] = (byte) (800 >> 8);
+        lossy[28] = (byte) (600 & 0xFF);
+        lossy[29] = (byte) (600 >> 8);
+        assertHeader(probe(lossy), "image/webp", 800, 600);
+
+        // VP8L（无损）：签名 0x2F 之后各 14 位的 (宽 - 1)、(高 - 1)
+        byte[] lossless = webp("VP8L");
+        int bits = (1023 - 1) | ((767 - 1) << 14);
+        lossless[20] = 0x2F;
+        lossless[21] = (byte) bits;
+        lossless[22] = (byte) (bits >> 8);
+        lossless[23] = (byte) (bits >> 16);
+        lossless[24] = (byte) (bits >> 24);
+        assertHeader(probe(lossless), "image/webp", 1023, 767);
+
+        // VP8X（扩展）：各 24 位的 (宽 - 1)、(高 - 1)
+        byte[] extended = webp("VP8X");
+        int width = 4000 - 1;
+        int height = 3000 - 1;
+        extended[24] = (byte) width;
+        extended[25] = (byte) (width >> 8);
+        extended[26] = (byte) (width >> 16);
+        extended[27] = (byte) height;
+        extended[28] = (byte) (height >> 8);
+        extended[29] = (byte) (height >> 16);
+        assertHeader(probe(extended), "image/webp", 4000, 3000);
+    }
+
+    @Test
+    void testProbe_UnrecognizedOrTruncated() throws Exception {
+        assertNull(probe("not an image at all".getBytes()));
+        assertNull(probe(new byte[0]));
+
+        byte[] jpeg = encode("jpeg", 64, 64);
+        assertNull(probe(Arrays.copyOf(jpeg, 20)), "截断在 SOF 之前的 JPEG 应该返回 null");
+
+        byte[] png = encode("png", 64, 64);
+        assertNull(probe(Arrays.copyOf(png, 16)));
+    }
+
+    private static ImageHeaderProbe.ImageHeader probe(byte[] bytes) throws IOException {
+        return ImageHeaderProbe.probe(new ByteArrayInputStream(bytes));
+    }
+
+    private static void assertHeader(ImageHeaderProbe.ImageHeader header, String contentType, int width, int height) {
+        assertNotNull(header);
+        assertEquals(contentType, header.contentType());
+        assertEquals(width, header.width());
+        assertEquals(height, header.height());
+    }
+
+    private static byte[] encode(String format, int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+
+    private static byte[] webp(String chunk) {
+        byte[] bytes = new byte[40];
+        System.arraycopy("RIFF".getBytes(), 0, bytes, 0, 4);
+        System.arraycopy("WEBP".getBytes(), 0, bytes, 8, 4);
+        System.arraycopy(chunk.getBytes(), 0, bytes, 12, 4);
+        return bytes;
+    }
+}
@@ -0,0 +1,89 @@
+package com.nushungry.mediaservice.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 单元测试：OpenFileCache
+ *
+ * 测试覆盖：
+ * - 同一文件复用句柄
+ * - 超出容量时淘汰最久未用的句柄，仍在使用的句柄等释放后才关闭
+ * - 失效后重新打开
+ * - 文件不存在
+ */
+public class OpenFileCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testAcquire_ReusesHandle() throws Exception {
+        Path file = Files.write(tempDir.resolve("a.jpg"), "hello".getBytes());
+        OpenFileCache cache = new OpenFileCache(4);
+
+        try (OpenFileCache.Handle first = cache.acquire(file);
+             OpenFileCache.Handle second = cache.acquire(file)) {
+            assertSame(first, second);
+            assertEquals(5, first.size());
+            assertEquals(Files.getLastModifiedTime(file).toMillis(), first.lastModified());
+        }
+        assertEquals(1, cache.size());
+        assertTrue(cache.acquire(file).channel().isOpen(), "缓存中的句柄不应该被调用方关闭");
+    }
+
+    @Test
+    void testEviction_ClosesAfterLastRelease() throws Exception {
+        Path a = Files.write(tempDir.resolve("a.jpg"), "a".getBytes());
+        Path b = Files.write(tempDir.resolve("b.jpg"), "b".getBytes());
+        Path c = Files.write(tempDir.resolve("c.jpg"), "c".getBytes());
+        OpenFileCache cache = new OpenFileCache(2);
+
+        OpenFileCache.Handle inUse = cache.acquire(a);
+        cache.acquire(b).close();
+        cache.acquire(c).close();
+
+        assertEquals(2, cache.size());
+        assertTrue(inUse.channel().isOpen(), "被淘汰但仍在读取的句柄不应该关闭");
+        ByteBuffer buffer = ByteBuffer.allocate(1);
+        inUse.channel().read(buffer, 0);
+        assertEquals('a', buffer.get(0));
+
+        inUse.close();
+        assertFalse(inUse.channel().isOpen());
+    }
+
+    @Test
+    void testInvalidate_ReopensFile() throws Exception {
+        Path file = Files.write(tempDir.resolve("a.jpg"), "old".getBytes());
+        OpenFileCache cache = new OpenFileCache(4);
+        OpenFileCache.Handle old;
+        try (OpenFileCache.Handle handle = cache.acquire(file)) {
+            old = handle;
+        }
+
+        Files.write(file, "newer".getBytes());
+        cache.invalidate(file);
+
+        assertFalse(old.channel().isOpen());
+        try (OpenFileCache.Handle handle = cache.acquire(file)) {
+            assertNotSame(old, handle);
+            assertEquals(5, handle.size());
+        }
+    }
+
+    @Test
+    void testAcquire_MissingFile() {
+        OpenFileCache cache = new OpenFileCache(4);
+
+        assertThrows(NoSuchFileException.class, () -> cache.acquire(tempDir.resolve("missing.jpg")));
+        assertEquals(0, cache.size());
+    }
+}
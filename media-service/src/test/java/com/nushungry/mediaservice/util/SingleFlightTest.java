@@ -0,0 +1,71 @@
+package com.nushungry.mediaservice.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 单元测试：SingleFlight
+ *
+ * 测试覆盖：
+ * - 并发调用同一 key 只执行一次
+ * - 异常共享给所有等待的调用方
+ * - 执行结束后 key 被释放
+ */
+public class SingleFlightTest {
+
+    @Test
+    void testConcurrentCallsShareOneLoad() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> singleFlight.execute("key", () -> {
+                    loads.incrementAndGet();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        throw new InterruptedIOException();
+                    }
+                    return "value";
+                })));
+            }
+            Thread.sleep(200);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("value", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get(), "同一 key 只应该执行一次");
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    @Test
+    void testFailureIsSharedAndKeyReleased() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+        IOException thrown = assertThrows(IOException.class,
+                () -> singleFlight.execute("key", () -> { throw new IOException("decode failed"); }));
+        assertEquals("decode failed", thrown.getMessage());
+        assertEquals(0, singleFlight.inFlight());
+
+        assertEquals("retry", singleFlight.execute("key", () -> "retry"), "失败后下一次调用应该重新执行");
+    }
+}
@@ -0,0 +1,39 @@
+package com.nushungry.reviewservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * 评价读取的异步执行器
+ * 读接口返回 CompletableFuture，Tomcat 请求线程在等待 MongoDB 时被释放；
+ * 子查询在此线程池上并行执行，线程数应与 MongoDB 连接池大小匹配
+ *
+ * 这里仍是平台线程，总吞吐量依旧受 MongoDB 往返次数限制，换来的是：
+ * 1. 评价列表突发时阻塞的是这 48 个线程（多出的任务在队列中等待），Tomcat 线程继续服务发表评价、点赞等其他接口；
+ * 2. 同时访问 MongoDB 的读取不超过连接池大小（默认 50），不会有请求线程卡在连接池的等待队列里直到 max-wait 超时；
+ * 3. 分页与计数并行，单次请求少一次往返的延迟。
+ * ReviewReadLoadTest 在相同线程总数下验证第 1、3 点（请求线程占用、单次延迟），吞吐量两种方式基本持平
+ */
+@Configuration
+public class AsyncConfig {
+
+    @Bean(name = "reviewReadExecutor")
+    public ThreadPoolTaskExecutor reviewReadExecutor(
+            @Value("${review.read.executor.core-size:48}") int coreSize,
+            @Value("${review.read.executor.max-size:48}") int maxSize,
+            @Value("${review.read.executor.queue-capacity:2000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        // 队列满之前不会扩容到 max-size，因此核心线程数即常态并发度，空闲时允许回收
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("review-read-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        executor.initialize();
+        return executor;
+    }
+}
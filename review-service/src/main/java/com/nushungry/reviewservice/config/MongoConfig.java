@@ -2,8 +2,14 @@ package com.nushungry.reviewservice.config;
 
 import com.mongodb.ConnectionString;
 import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCompressor;
+import com.mongodb.ReadPreference;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.mongodb.MongoMetricsCommandListener;
+import io.micrometer.core.instrument.binder.mongodb.MongoMetricsConnectionPoolListener;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -18,6 +24,9 @@ import java.io.FileInputStream;
 import java.security.KeyStore;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -53,6 +62,36 @@ public class MongoConfig extends AbstractMongoClientConfiguration {
     @Value("${mongodb.ssl.ca-cert-path:/etc/documentdb/global-bundle.pem}")
     private String caCertPath;
 
+    @Value("${mongodb.pool.min-size:5}")
+    private int poolMinSize;
+
+    @Value("${mongodb.pool.max-size:50}")
+    private int poolMaxSize;
+
+    @Value("${mongodb.pool.max-wait-ms:2000}")
+    private long poolMaxWaitMs;
+
+    @Value("${mongodb.pool.max-idle-ms:60000}")
+    private long poolMaxIdleMs;
+
+    @Value("${mongodb.connect-timeout-ms:5000}")
+    private int connectTimeoutMs;
+
+    @Value("${mongodb.server-selection-timeout-ms:5000}")
+    private long serverSelectionTimeoutMs;
+
+    @Value("${mongodb.compressors:zstd,snappy,zlib}")
+    private String compressors;
+
+    @Value("${mongodb.read-preference:primary}")
+    private String readPreference;
+
+    private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    public MongoConfig(ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.meterRegistryProvider = meterRegistryProvider;
+    }
+
     @Override
     protected String getDatabaseName() {
         return database;
@@ -72,34 +111,81 @@ public class MongoConfig extends AbstractMongoClientConfiguration {
                     "mongodb://%s:%s@%s:%d/%s?authSource=%s&authMechanism=SCRAM-SHA-1&tls=true&tlsAllowInvalidHostnames=true&retryWrites=false",
                     username, password, host, port, database, authDatabase
                 );
-
-                // 配置 SSL 上下文使用 AWS CA 证书
-                MongoClientSettings settings = MongoClientSettings.builder()
-                    .applyConnectionString(new ConnectionString(connectionString))
-                    .applyToSslSettings(builder -> {
-                        builder.enabled(true);
-                        try {
-                            builder.context(createSSLContext());
-                        } catch (Exception e) {
-                            throw new RuntimeException("Failed to create SSL context", e);
-                        }
-                    })
-                    .build();
-
-                return MongoClients.create(settings);
             } else {
                 // 本地开发环境:无 SSL
                 connectionString = String.format(
                     "mongodb://%s:%s@%s:%d/%s?authSource=%s",
                     username, password, host, port, database, authDatabase
                 );
-                return MongoClients.create(connectionString);
             }
+            return MongoClients.create(buildClientSettings(connectionString));
         } catch (Exception e) {
             throw new RuntimeException("Failed to create MongoDB client", e);
         }
     }
 
+    /**
+     * 客户端设置：连接池、超时、压缩、读偏好，以及 Micrometer 命令/连接池监听器
+     * 手动创建 MongoClient 时 Spring Boot 的 Mongo 指标自动配置不会生效，因此在这里注册
+     */
+    MongoClientSettings buildClientSettings(String connectionString) {
+        MongoClientSettings.Builder builder = MongoClientSettings.builder()
+            .applyConnectionString(new ConnectionString(connectionString))
+            .applyToConnectionPoolSettings(pool -> {
+                pool.minSize(poolMinSize)
+                    .maxSize(poolMaxSize)
+                    .maxWaitTime(poolMaxWaitMs, TimeUnit.MILLISECONDS)
+                    .maxConnectionIdleTime(poolMaxIdleMs, TimeUnit.MILLISECONDS);
+                MeterRegistry meterRegistry = meterRegistryProvider.getIfAvailable();
+                if (meterRegistry != null) {
+                    pool.addConnectionPoolListener(new MongoMetricsConnectionPoolListener(meterRegistry));
+                }
+            })
+            .applyToSocketSettings(socket -> socket.connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS))
+            .applyToClusterSettings(cluster ->
+                cluster.serverSelectionTimeout(serverSelectionTimeoutMs, TimeUnit.MILLISECONDS))
+            .compressorList(parseCompressors(compressors))
+            .readPreference(ReadPreference.valueOf(readPreference));
+
+        MeterRegistry meterRegistry = meterRegistryProvider.getIfAvailable();
+        if (meterRegistry != null) {
+            builder.addCommandListener(new MongoMetricsCommandListener(meterRegistry));
+        }
+
+        if (sslEnabled) {
+            // 配置 SSL 上下文使用 AWS CA 证书
+            builder.applyToSslSettings(ssl -> {
+                ssl.enabled(true);
+                try {
+                    ssl.context(createSSLContext());
+                } catch (Exception e) {
+                    throw new RuntimeException("Failed to create SSL context", e);
+                }
+            });
+        }
+        return builder.build();
+    }
+
+    /**
+     * 按优先顺序解析压缩算法，服务端不支持时驱动会自动协商回退为不压缩
+     */
+    private List<MongoCompressor> parseCompressors(String value) {
+        List<MongoCompressor> result = new ArrayList<>();
+        if (value == null || value.isBlank()) {
+            return result;
+        }
+        for (String name : value.split(",")) {
+            switch (name.trim().toLowerCase(Locale.ROOT)) {
+                case "zstd" -> result.add(MongoCompressor.createZstdCompressor());
+                case "snappy" -> result.add(MongoCompressor.createSnappyCompressor());
+                case "zlib" -> result.add(MongoCompressor.createZlibCompressor());
+                case "" -> { }
+                default -> throw new IllegalArgumentException("Unsupported MongoDB compressor: " + name);
+            }
+        }
+        return result;
+    }
+
     /**
      * 创建 SSL 上下文加载 AWS DocumentDB CA 证书
      * 支持加载包含多个证书的 PEM 文件
@@ -0,0 +1,64 @@
+package com.nushungry.reviewservice.config;
+
+import com.nushungry.reviewservice.document.ReviewDocument;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.TextIndexDefinition;
+import org.springframework.stereotype.Component;
+
+/**
+ * 启动时创建查询依赖的索引
+ * MongoConfig 继承 AbstractMongoClientConfiguration，不会按注解自动建索引（全局开启会与线上手工创建的同键不同名索引冲突），
+ * 这里只创建缺少时查询会失败或退化的几个索引，名称与 README「MongoDB 索引」一节一致；已存在时 ensureIndex 不做任何事
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MongoIndexInitializer {
+
+    static final String REVIEW_TEXT_INDEX = "review_text_idx";
+
+    private final MongoTemplate mongoTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndexes() {
+        IndexOperations reviews = mongoTemplate.indexOps(ReviewDocument.class);
+        // 游标分页按 (排序字段, _id) 做范围扫描，缺少 _id 时同值的评价要在内存中排序
+        ensureIndex(reviews, cursorIndex("stall_created_id_idx", "stallId", "createdAt"));
+        ensureIndex(reviews, cursorIndex("stall_likes_id_idx", "stallId", "likesCount"));
+        ensureIndex(reviews, cursorIndex("stall_hot_id_idx", "stallId", "hotScore"));
+        ensureIndex(reviews, cursorIndex("user_created_id_idx", "userId", "createdAt"));
+        // 管理端关键词检索使用 $text，没有全文索引时查询直接报错
+        ensureIndex(reviews, new TextIndexDefinition.TextIndexDefinitionBuilder()
+                .named(REVIEW_TEXT_INDEX)
+                .onField("stallName", 3F)
+                .onField("username", 2F)
+                .onField("comment")
+                .build());
+    }
+
+    private static Index cursorIndex(String name, String prefixField, String sortField) {
+        return new Index()
+                .on(prefixField, Sort.Direction.ASC)
+                .on(sortField, Sort.Direction.DESC)
+                .on("_id", Sort.Direction.DESC)
+                .named(name);
+    }
+
+    private void ensureIndex(IndexOperations indexOps, IndexDefinition index) {
+        try {
+            String name = indexOps.ensureIndex(index);
+            log.info("MongoDB 索引已就绪: {}", name);
+        } catch (RuntimeException e) {
+            // 同样的键已经以其他名称或选项建过索引时不影响启动，按 README 手工处理
+            log.warn("创建 MongoDB 索引失败: {}", index.getIndexKeys(), e);
+        }
+    }
+}
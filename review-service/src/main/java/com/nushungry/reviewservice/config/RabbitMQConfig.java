@@ -34,6 +34,21 @@ public class RabbitMQConfig {
     @Value("${rabbitmq.queue.price}")
     private String priceQueue;
 
+    @Value("${rabbitmq.exchange.user}")
+    private String userExchange;
+
+    @Value("${rabbitmq.routing-key.user-profile-changed}")
+    private String userProfileChangedRoutingKey;
+
+    @Value("${rabbitmq.queue.user-profile}")
+    private String userProfileQueue;
+
+    @Value("${rabbitmq.exchange.user-profile-dlx}")
+    private String userProfileDeadLetterExchange;
+
+    @Value("${rabbitmq.queue.user-profile-dlq}")
+    private String userProfileDeadLetterQueue;
+
     /**
      * 创建 Topic 交换机
      * 持久化交换机，服务器重启后不会丢失
@@ -91,6 +106,69 @@ public class RabbitMQConfig {
                 .with(priceChangedRoutingKey);
     }
 
+    /**
+     * user-service 的用户事件交换机
+     * 与 user-service 声明参数一致，任一方先启动均可
+     */
+    @Bean
+    public TopicExchange userExchange() {
+        return new TopicExchange(userExchange, true, false);
+    }
+
+    /**
+     * 用户资料变更队列，用于同步评价中冗余的用户名和头像
+     * 监听器拒绝的消息和过期消息转入死信队列
+     */
+    @Bean
+    public Queue userProfileQueue() {
+        return QueueBuilder.durable(userProfileQueue)
+                .withArgument("x-message-ttl", 86400000)  // 消息TTL: 24小时
+                .withArgument("x-max-length", 10000)      // 队列最大长度
+                .deadLetterExchange(userProfileDeadLetterExchange)
+                .deadLetterRoutingKey(userProfileDeadLetterQueue)
+                .build();
+    }
+
+    /**
+     * 用户资料变更的死信交换机
+     */
+    @Bean
+    public DirectExchange userProfileDeadLetterExchange() {
+        return new DirectExchange(userProfileDeadLetterExchange, true, false);
+    }
+
+    /**
+     * 用户资料变更死信队列，不设 TTL，排查后手工重放
+     */
+    @Bean
+    public Queue userProfileDeadLetterQueue() {
+        return QueueBuilder.durable(userProfileDeadLetterQueue)
+                .withArgument("x-max-length", 10000)      // 队列最大长度
+                .build();
+    }
+
+    /**
+     * 绑定死信队列到死信交换机
+     */
+    @Bean
+    public Binding userProfileDeadLetterBinding() {
+        return BindingBuilder
+                .bind(userProfileDeadLetterQueue())
+                .to(userProfileDeadLetterExchange())
+                .with(userProfileDeadLetterQueue);
+    }
+
+    /**
+     * 绑定用户资料队列到用户交换机
+     */
+    @Bean
+    public Binding userProfileBinding() {
+        return BindingBuilder
+                .bind(userProfileQueue())
+                .to(userExchange())
+                .with(userProfileChangedRoutingKey);
+    }
+
     /**
      * 消息转换器 - 使用 Jackson2 JSON 格式
      */
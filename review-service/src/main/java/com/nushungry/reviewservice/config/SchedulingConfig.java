@@ -0,0 +1,12 @@
+package com.nushungry.reviewservice.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * 启用定时任务 (事件发件箱投递等后台任务)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -2,27 +2,44 @@ package com.nushungry.reviewservice.controller;
 
 import com.nushungry.reviewservice.common.ApiResponse;
 import com.nushungry.reviewservice.document.ReviewDocument;
+import com.nushungry.reviewservice.dto.BatchDeleteResponse;
+import com.nushungry.reviewservice.dto.ReviewImportResponse;
 import com.nushungry.reviewservice.dto.ReviewStatsResponse;
+import com.nushungry.reviewservice.enums.ActivityMetric;
 import com.nushungry.reviewservice.repository.ReviewRepository;
+import com.nushungry.reviewservice.service.ActivityBucketService;
+import com.nushungry.reviewservice.service.ReviewDuplicateService;
 import com.nushungry.reviewservice.service.ReviewService;
-import com.nushungry.reviewservice.service.RatingCalculationService;
-import com.nushungry.reviewservice.service.PriceCalculationService;
+import com.nushungry.reviewservice.service.ReviewTransferService;
+import com.nushungry.reviewservice.service.StallAggregateDebouncer;
+import com.nushungry.reviewservice.service.StallReviewCache;
+import com.nushungry.reviewservice.service.StallTermService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -38,12 +55,18 @@ public class AdminReviewController {
 
     private final ReviewRepository reviewRepository;
     private final ReviewService reviewService;
-    private final RatingCalculationService ratingCalculationService;
-    private final PriceCalculationService priceCalculationService;
+    private final ReviewTransferService reviewTransferService;
+    private final StallAggregateDebouncer stallAggregateDebouncer;
+    private final StallReviewCache stallReviewCache;
     private final MongoTemplate mongoTemplate;
+    private final ActivityBucketService activityBucketService;
+    private final ReviewDuplicateService reviewDuplicateService;
+    private final StallTermService stallTermService;
 
     @GetMapping
-    @Operation(summary = "分页查询所有评价", description = "管理员分页查询所有评价，支持关键词、评分筛选")
+    @Operation(summary = "分页查询所有评价",
+            description = "管理员分页查询所有评价，支持关键词全文检索（按相关度排序）、评分筛选。"
+                    + "带筛选条件时只在第一页返回 totalItems / totalPages，翻页时按 hasNext 判断是否还有下一页")
     public ResponseEntity<ApiResponse<Map<String, Object>>> getAllReviews(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
@@ -61,7 +84,7 @@ public class AdminReviewController {
                 Sort.Direction.ASC : Sort.Direction.DESC;
         Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortBy));
 
-        Page<ReviewDocument> reviews;
+        Slice<ReviewDocument> reviews;
 
         if (keyword != null || rating != null || stallId != null || userId != null) {
             reviews = getReviewsWithFilters(keyword, rating, stallId, userId, pageable);
@@ -72,9 +95,12 @@ public class AdminReviewController {
         Map<String, Object> response = new HashMap<>();
         response.put("reviews", reviews.getContent());
         response.put("currentPage", reviews.getNumber());
-        response.put("totalItems", reviews.getTotalElements());
-        response.put("totalPages", reviews.getTotalPages());
         response.put("pageSize", reviews.getSize());
+        response.put("hasNext", reviews.hasNext());
+        if (reviews instanceof Page<ReviewDocument> counted) {
+            response.put("totalItems", counted.getTotalElements());
+            response.put("totalPages", counted.getTotalPages());
+        }
 
         return ResponseEntity.ok(ApiResponse.success(response));
     }
@@ -110,28 +136,17 @@ public class AdminReviewController {
             ratingDistribution.putIfAbsent(i, 0L);
         }
 
-        // 时间统计
-        LocalDateTime now = LocalDateTime.now();
-        long todayCount = reviewRepository.countByCreatedAtBetween(
-                now.toLocalDate().atStartOfDay(),
-                now
-        );
-        long thisWeekCount = reviewRepository.countByCreatedAtBetween(
-                now.minusDays(7),
-                now
-        );
-        long thisMonthCount = reviewRepository.countByCreatedAtBetween(
-                now.minusDays(30),
-                now
-        );
+        // 时间统计（累加小时/天分桶计数）
+        ActivityBucketService.WindowCounts windowCounts =
+                activityBucketService.getWindowCounts(ActivityMetric.REVIEW, LocalDateTime.now());
 
         ReviewStatsResponse stats = ReviewStatsResponse.builder()
                 .totalReviews(totalReviews)
                 .averageRating(averageRating)
                 .ratingDistribution(ratingDistribution)
-                .todayCount(todayCount)
-                .thisWeekCount(thisWeekCount)
-                .thisMonthCount(thisMonthCount)
+                .todayCount(windowCounts.today())
+                .thisWeekCount(windowCounts.thisWeek())
+                .thisMonthCount(windowCounts.thisMonth())
                 .build();
 
         return ResponseEntity.ok(ApiResponse.success(stats));
@@ -150,57 +165,82 @@ public class AdminReviewController {
         Long stallId = review.getStallId();
 
         reviewRepository.deleteById(reviewId);
+        stallReviewCache.onReviewDeleted(review);
+        activityBucketService.record(ActivityMetric.REVIEW, review.getCreatedAt(), -1);
+        reviewDuplicateService.remove(List.of(reviewId));
+        stallTermService.onCommentChanged(stallId, review.getComment(), null);
         log.info("Review deleted successfully by admin");
 
         // 重新计算评分和价格
-        ratingCalculationService.calculateAndPublishRating(stallId);
-        priceCalculationService.calculateAndPublishPrice(stallId);
+        stallAggregateDebouncer.requestRefresh(stallId);
 
         return ResponseEntity.ok(ApiResponse.success("评价删除成功"));
     }
 
     @DeleteMapping("/batch")
-    @Operation(summary = "批量删除评价", description = "管理员批量删除评价")
-    public ResponseEntity<ApiResponse<String>> batchDeleteReviews(
+    @Operation(summary = "批量删除评价", description = "管理员批量删除评价，级联删除点赞和举报，返回实际删除数量")
+    public ResponseEntity<ApiResponse<BatchDeleteResponse>> batchDeleteReviews(
             @RequestBody List<String> reviewIds
     ) {
         log.info("Admin batch deleting {} reviews", reviewIds.size());
 
-        List<Long> affectedStallIds = new ArrayList<>();
+        BatchDeleteResponse response = reviewService.batchDeleteReviews(reviewIds);
 
-        for (String reviewId : reviewIds) {
-            ReviewDocument review = reviewRepository.findById(reviewId)
-                    .orElse(null);
+        return ResponseEntity.ok(ApiResponse.success("批量删除评价成功", response));
+    }
 
-            if (review != null) {
-                affectedStallIds.add(review.getStallId());
-                reviewRepository.deleteById(reviewId);
-            }
-        }
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    @Operation(summary = "导出评价", description = "以 NDJSON 流式导出评价（每行一条），可按摊位过滤")
+    public ResponseEntity<StreamingResponseBody> exportReviews(
+            @RequestParam(required = false) Long stallId
+    ) {
+        log.info("Admin exporting reviews, stallId: {}", stallId);
+
+        StreamingResponseBody body = outputStream -> reviewTransferService.exportReviews(stallId, outputStream);
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"reviews.ndjson\"")
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", MediaType.TEXT_PLAIN_VALUE})
+    @Operation(summary = "导入评价", description = "以 NDJSON 批量导入评价，带 id 的行按 id 覆盖，导入结束后统一重算摊位评分和价格")
+    public ResponseEntity<ApiResponse<ReviewImportResponse>> importReviews(InputStream body) throws IOException {
+        log.info("Admin importing reviews");
 
-        log.info("Batch delete completed, {} reviews deleted", reviewIds.size());
+        ReviewImportResponse response = reviewTransferService.importReviews(body);
 
-        // 重新计算受影响摊位的评分和价格
-        Set<Long> uniqueStallIds = new HashSet<>(affectedStallIds);
-        for (Long stallId : uniqueStallIds) {
-            ratingCalculationService.calculateAndPublishRating(stallId);
-            priceCalculationService.calculateAndPublishPrice(stallId);
+        return ResponseEntity.ok(ApiResponse.success("评价导入完成", response));
+    }
+
+    @PostMapping("/stats/rebuild")
+    @Operation(summary = "重建统计分桶", description = "按历史数据重建评价和举报的小时/天分桶计数，返回各指标统计的历史数据条数")
+    public ResponseEntity<ApiResponse<Map<String, Long>>> rebuildStatsBuckets() {
+        log.info("Admin rebuilding activity buckets");
+
+        Map<String, Long> scanned = new LinkedHashMap<>();
+        for (ActivityMetric metric : ActivityMetric.values()) {
+            scanned.put(metric.name(), activityBucketService.rebuild(metric));
         }
 
-        return ResponseEntity.ok(ApiResponse.success("批量删除评价成功"));
+        return ResponseEntity.ok(ApiResponse.success("统计分桶重建完成", scanned));
     }
 
-    private Page<ReviewDocument> getReviewsWithFilters(String keyword, Integer rating,
+    /**
+     * 按筛选条件分页查询
+     * 全文检索的计数要扫描全部命中，只在第一页计数并返回 Page；之后的页多取一条判断 hasNext，返回 Slice
+     */
+    private Slice<ReviewDocument> getReviewsWithFilters(String keyword, Integer rating,
                                                       String stallId, String userId, Pageable pageable) {
-        Query query = new Query();
+        Query query;
 
+        // 关键词使用全文索引检索 (stallName/username/comment)，支持词干匹配并按相关度排序
         if (keyword != null && !keyword.trim().isEmpty()) {
-            Criteria keywordCriteria = new Criteria().orOperator(
-                    Criteria.where("stallName").regex(keyword.trim(), "i"),
-                    Criteria.where("username").regex(keyword.trim(), "i"),
-                    Criteria.where("comment").regex(keyword.trim(), "i")
-            );
-            query.addCriteria(keywordCriteria);
+            query = TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(keyword.trim()))
+                    .sortByScore();
+        } else {
+            query = new Query();
         }
 
         if (rating != null && rating >= 1 && rating <= 5) {
@@ -219,7 +259,7 @@ public class AdminReviewController {
             query.addCriteria(Criteria.where("userId").is(userId));
         }
 
-        // 添加排序
+        // 添加排序（全文检索时作为相关度之后的次级排序）
         String sortBy = pageable.getSort().stream()
                 .findFirst()
                 .map(order -> order.getProperty())
@@ -233,12 +273,20 @@ public class AdminReviewController {
         query.with(Sort.by(direction, sortBy));
 
         // 执行查询
-        long total = mongoTemplate.count(query, ReviewDocument.class);
-        query.skip((long) pageable.getPageNumber() * pageable.getPageSize());
-        query.limit(pageable.getPageSize());
-
-        List<ReviewDocument> reviews = mongoTemplate.find(query, ReviewDocument.class);
+        if (pageable.getPageNumber() == 0) {
+            long total = mongoTemplate.count(query, ReviewDocument.class);
+            query.limit(pageable.getPageSize());
+            List<ReviewDocument> reviews = mongoTemplate.find(query, ReviewDocument.class);
+            return new PageImpl<>(reviews, pageable, total);
+        }
 
-        return new org.springframework.data.domain.PageImpl<>(reviews, pageable, total);
+        query.skip((long) pageable.getPageNumber() * pageable.getPageSize());
+        query.limit(pageable.getPageSize() + 1);
+        List<ReviewDocument> reviews = new ArrayList<>(mongoTemplate.find(query, ReviewDocument.class));
+        boolean hasNext = reviews.size() > pageable.getPageSize();
+        if (hasNext) {
+            reviews.remove(reviews.size() - 1);
+        }
+        return new SliceImpl<>(reviews, pageable, hasNext);
     }
 }
\ No newline at end of file
@@ -2,8 +2,9 @@ package com.nushungry.reviewservice.controller;
 
 import com.nushungry.reviewservice.common.ApiResponse;
 import com.nushungry.reviewservice.dto.*;
-import com.nushungry.reviewservice.service.RatingCalculationService;
+import com.nushungry.reviewservice.service.ReviewQueryService;
 import com.nushungry.reviewservice.service.ReviewService;
+import com.nushungry.reviewservice.service.StallTermService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -16,6 +17,8 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/api/reviews")
 @RequiredArgsConstructor
@@ -23,7 +26,8 @@ import org.springframework.web.bind.annotation.*;
 public class ReviewController {
 
     private final ReviewService reviewService;
-    private final RatingCalculationService ratingCalculationService;
+    private final ReviewQueryService reviewQueryService;
+    private final StallTermService stallTermService;
 
     @PostMapping
     @Operation(summary = "Create a new review")
@@ -71,7 +75,7 @@ public class ReviewController {
 
     @GetMapping("/stall/{stallId}")
     @Operation(summary = "Get reviews by stall ID")
-    public ResponseEntity<ApiResponse<Page<ReviewResponse>>> getReviewsByStallId(
+    public CompletableFuture<ResponseEntity<ApiResponse<Page<ReviewResponse>>>> getReviewsByStallId(
             @PathVariable Long stallId,
             @RequestParam(defaultValue = "createdAt") String sortBy,
             @RequestParam(defaultValue = "0") int page,
@@ -79,29 +83,68 @@ public class ReviewController {
             @RequestHeader(value = "X-User-Id", required = false) String currentUserId) {
         
         Pageable pageable = PageRequest.of(page, size);
-        Page<ReviewResponse> response = reviewService.getReviewsByStallId(stallId, sortBy, currentUserId, pageable);
+        return reviewQueryService.getReviewsByStallId(stallId, sortBy, currentUserId, pageable)
+                .thenApply(response -> ResponseEntity.ok(ApiResponse.success(response)));
+    }
+
+    @GetMapping(value = "/stall/{stallId}", params = "cursor")
+    @Operation(summary = "Get reviews by stall ID with cursor pagination",
+            description = "Pass an empty cursor for the first page, then the returned nextCursor")
+    public ResponseEntity<ApiResponse<CursorPageResponse<ReviewResponse>>> getReviewsByStallIdCursor(
+            @PathVariable Long stallId,
+            @RequestParam(defaultValue = "createdAt") String sortBy,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestHeader(value = "X-User-Id", required = false) String currentUserId) {
+
+        CursorPageResponse<ReviewResponse> response =
+                reviewService.getReviewsByStallIdCursor(stallId, sortBy, cursor, size, currentUserId);
         return ResponseEntity.ok(ApiResponse.success(response));
     }
 
     @GetMapping("/user/{userId}")
     @Operation(summary = "Get reviews by user ID")
-    public ResponseEntity<ApiResponse<Page<ReviewResponse>>> getReviewsByUserId(
+    public CompletableFuture<ResponseEntity<ApiResponse<Page<ReviewResponse>>>> getReviewsByUserId(
             @PathVariable String userId,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestHeader(value = "X-User-Id", required = false) String currentUserId) {
         
         Pageable pageable = PageRequest.of(page, size);
-        Page<ReviewResponse> response = reviewService.getReviewsByUserId(userId, currentUserId, pageable);
+        return reviewQueryService.getReviewsByUserId(userId, currentUserId, pageable)
+                .thenApply(response -> ResponseEntity.ok(ApiResponse.success(response)));
+    }
+
+    @GetMapping(value = "/user/{userId}", params = "cursor")
+    @Operation(summary = "Get reviews by user ID with cursor pagination",
+            description = "Pass an empty cursor for the first page, then the returned nextCursor")
+    public ResponseEntity<ApiResponse<CursorPageResponse<ReviewResponse>>> getReviewsByUserIdCursor(
+            @PathVariable String userId,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestHeader(value = "X-User-Id", required = false) String currentUserId) {
+
+        CursorPageResponse<ReviewResponse> response =
+                reviewService.getReviewsByUserIdCursor(userId, cursor, size, currentUserId);
         return ResponseEntity.ok(ApiResponse.success(response));
     }
 
     @GetMapping("/stall/{stallId}/rating-distribution")
     @Operation(summary = "Get rating distribution for a stall")
-    public ResponseEntity<ApiResponse<RatingDistributionResponse>> getRatingDistribution(
+    public CompletableFuture<ResponseEntity<ApiResponse<RatingDistributionResponse>>> getRatingDistribution(
             @PathVariable Long stallId) {
         
-        RatingDistributionResponse response = ratingCalculationService.getRatingDistribution(stallId);
+        return reviewQueryService.getRatingDistribution(stallId)
+                .thenApply(response -> ResponseEntity.ok(ApiResponse.success(response)));
+    }
+
+    @GetMapping("/stall/{stallId}/top-terms")
+    @Operation(summary = "Get the terms mentioned most often in a stall's reviews")
+    public ResponseEntity<ApiResponse<TopTermsResponse>> getTopTerms(
+            @PathVariable Long stallId,
+            @Parameter(description = "Number of terms to return") @RequestParam(defaultValue = "10") int limit) {
+
+        TopTermsResponse response = stallTermService.getTopTerms(stallId, Math.min(limit, 50));
         return ResponseEntity.ok(ApiResponse.success(response));
     }
 }
@@ -0,0 +1,43 @@
+package com.nushungry.reviewservice.document;
+
+import com.nushungry.reviewservice.enums.ActivityMetric;
+import com.nushungry.reviewservice.enums.BucketGranularity;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * 评价/举报数量的时间分桶计数
+ * 每次写入时按创建时间对所在小时桶和天桶各做一次 $inc，
+ * 统计时间窗口时只需累加几十个桶，耗时与集合大小无关。
+ * granularity 为空的文档是历史回填的标记，每个指标一条
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "activity_buckets")
+@CompoundIndex(name = "metric_granularity_start_idx",
+        def = "{'metric': 1, 'granularity': 1, 'bucketStart': 1}", unique = true)
+public class ActivityBucketDocument {
+
+    @Id
+    private String id;
+
+    private ActivityMetric metric;
+
+    private BucketGranularity granularity;
+
+    /**
+     * 桶起始时间（整点或零点）
+     */
+    private LocalDateTime bucketStart;
+
+    private Long count;
+}
@@ -0,0 +1,27 @@
+package com.nushungry.reviewservice.document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * 一次性数据回填的标记，id 为回填任务名
+ * 插入成功的实例执行回填，失败时删除标记以便下次启动重试
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "backfill_markers")
+public class BackfillMarkerDocument {
+
+    @Id
+    private String id;
+
+    private LocalDateTime createdAt;
+}
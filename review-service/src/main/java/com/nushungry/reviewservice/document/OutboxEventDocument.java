@@ -0,0 +1,63 @@
+package com.nushungry.reviewservice.document;
+
+import com.nushungry.reviewservice.enums.OutboxStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * 事件发件箱 (Transactional Outbox)
+ * 评价写入时同步写入此集合，由 OutboxRelayService 在后台批量投递到 RabbitMQ
+ * id 即事件 ID，同时作为 AMQP messageId 供消费端去重
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "event_outbox")
+@CompoundIndex(name = "status_next_attempt_idx", def = "{'status': 1, 'nextAttemptAt': 1}")
+public class OutboxEventDocument {
+
+    @Id
+    private String id;
+
+    private String eventType;
+
+    private Long stallId;
+
+    private String exchange;
+
+    private String routingKey;
+
+    private Object payload;
+
+    @Builder.Default
+    private OutboxStatus status = OutboxStatus.PENDING;
+
+    @Builder.Default
+    private int attempts = 0;
+
+    @Indexed(sparse = true)
+    private String claimToken;
+
+    private LocalDateTime claimedAt;
+
+    private String lastError;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime nextAttemptAt;
+
+    /**
+     * 已发送事件保留 7 天后由 TTL 索引自动清理
+     */
+    @Indexed(expireAfter = "7d", sparse = true)
+    private LocalDateTime publishedAt;
+}
@@ -9,6 +9,7 @@ import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -19,9 +20,10 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "reviews")
-@CompoundIndex(name = "stall_created_idx", def = "{'stallId': 1, 'createdAt': -1}")
-@CompoundIndex(name = "stall_likes_idx", def = "{'stallId': 1, 'likesCount': -1}")
-@CompoundIndex(name = "user_created_idx", def = "{'userId': 1, 'createdAt': -1}")
+@CompoundIndex(name = "stall_created_id_idx", def = "{'stallId': 1, 'createdAt': -1, '_id': -1}")
+@CompoundIndex(name = "stall_likes_id_idx", def = "{'stallId': 1, 'likesCount': -1, '_id': -1}")
+@CompoundIndex(name = "stall_hot_id_idx", def = "{'stallId': 1, 'hotScore': -1, '_id': -1}")
+@CompoundIndex(name = "user_created_id_idx", def = "{'userId': 1, 'createdAt': -1, '_id': -1}")
 public class ReviewDocument {
 
     @Id
@@ -30,18 +32,24 @@ public class ReviewDocument {
     @Indexed
     private Long stallId;
 
+    @TextIndexed(weight = 3)
     private String stallName;
 
     @Indexed
     private String userId;
 
+    @TextIndexed(weight = 2)
     private String username;
 
     private String userAvatarUrl;
 
+    // 最近一次写入用户名/头像的资料变更事件时间，晚到的旧事件据此跳过
+    private LocalDateTime profileUpdatedAt;
+
     @Indexed
     private Integer rating;
 
+    @TextIndexed
     private String comment;
 
     private List<String> imageUrls;
@@ -54,6 +62,9 @@ public class ReviewDocument {
     @Builder.Default
     private Integer likesCount = 0;
 
+    // 时间衰减热度分，由 ReviewHotScoreService 计算
+    private Double hotScore;
+
     @CreatedDate
     @Indexed
     private LocalDateTime createdAt;
@@ -0,0 +1,38 @@
+package com.nushungry.reviewservice.document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 评价内容的 MinHash 指纹，id 与评价 id 相同
+ * 单独存放，避免评价列表查询读取签名；bands 上的多键索引即 LSH 分桶索引
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "review_fingerprints")
+public class ReviewFingerprintDocument {
+
+    @Id
+    private String id;
+
+    @Indexed
+    private List<Long> bands;
+
+    private List<Integer> signature;
+
+    private String userId;
+
+    private Long stallId;
+
+    private LocalDateTime createdAt;
+}
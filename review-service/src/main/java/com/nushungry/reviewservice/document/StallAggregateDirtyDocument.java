@@ -0,0 +1,32 @@
+package com.nushungry.reviewservice.document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * 待重算聚合数据的摊位标记，id 为摊位 id
+ * 评价变更时写入，重算成功后删除；实例崩溃或重算失败时残留的标记由定时任务补做
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "stall_aggregate_dirty")
+public class StallAggregateDirtyDocument {
+
+    @Id
+    private Long id;
+
+    /**
+     * 最近一次请求重算的时间
+     */
+    @Indexed
+    private LocalDateTime requestedAt;
+}
@@ -0,0 +1,55 @@
+package com.nushungry.reviewservice.document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 摊位评价高频词摘要（Space-Saving），id 为摊位 id
+ * 最多保留固定数量的计数器，count 为提到该词的评价数的上界，count - error 为下界
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "stall_term_summaries")
+public class StallTermSummaryDocument {
+
+    @Id
+    private Long id;
+
+    @Builder.Default
+    private List<TermCounter> terms = new ArrayList<>();
+
+    // 乐观锁，并发写入同一摊位时重试
+    @Version
+    private Long version;
+
+    private LocalDateTime updatedAt;
+
+    /**
+     * 不为空表示摘要正在由全部评价构建，terms 还不可用；构建期间有评价写入时占位被删除，构建结果作废
+     */
+    private String rebuildToken;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TermCounter {
+
+        private String term;
+
+        private long count;
+
+        private long error;
+    }
+}
@@ -0,0 +1,21 @@
+package com.nushungry.reviewservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchDeleteResponse {
+
+    private Integer requestedCount; // 请求删除的评价数（去重后）
+    private Long deletedReviews; // 实际删除的评价数
+    private Long deletedLikes; // 级联删除的点赞数
+    private Long deletedReports; // 级联删除的举报数
+    private List<Long> affectedStallIds; // 需要重算评分和价格的摊位
+}
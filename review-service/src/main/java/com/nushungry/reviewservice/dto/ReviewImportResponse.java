@@ -0,0 +1,24 @@
+package com.nushungry.reviewservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewImportResponse {
+
+    private Long receivedLines; // 读取到的非空行数
+    private Long importedCount; // 新增或覆盖的评价数
+    private Long failedCount; // 解析失败或写入失败的数量
+    private Integer batches; // 执行的 bulk 批次数
+    private Integer affectedStalls; // 需要重算评分和价格的摊位数
+    private Long durationMs; // 总耗时
+    private Double reviewsPerSecond; // 吞吐量
+    private List<String> errors; // 部分错误信息样例
+}
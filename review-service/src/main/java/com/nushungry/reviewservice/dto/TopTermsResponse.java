@@ -0,0 +1,28 @@
+package com.nushungry.reviewservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopTermsResponse {
+
+    private Long stallId;
+    private List<TermCount> terms;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TermCount {
+
+        private String term;
+        private Long count;
+    }
+}
@@ -0,0 +1,16 @@
+package com.nushungry.reviewservice.enums;
+
+public enum ActivityMetric {
+    REVIEW("评价"),
+    REPORT("举报");
+
+    private final String description;
+
+    ActivityMetric(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
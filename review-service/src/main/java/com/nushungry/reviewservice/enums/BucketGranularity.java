@@ -0,0 +1,16 @@
+package com.nushungry.reviewservice.enums;
+
+public enum BucketGranularity {
+    HOUR("小时"),
+    DAY("天");
+
+    private final String description;
+
+    BucketGranularity(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,18 @@
+package com.nushungry.reviewservice.enums;
+
+public enum OutboxStatus {
+    PENDING("待发送"),
+    IN_FLIGHT("发送中"),
+    PUBLISHED("已发送"),
+    FAILED("发送失败");
+
+    private final String description;
+
+    OutboxStatus(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,23 @@
+package com.nushungry.reviewservice.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * user-service 发布的用户资料变更事件
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserProfileChangedEvent {
+
+    private Long userId;
+    private String username;
+    private String avatarUrl;
+    private LocalDateTime timestamp;
+}
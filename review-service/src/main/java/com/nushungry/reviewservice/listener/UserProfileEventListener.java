@@ -0,0 +1,38 @@
+package com.nushungry.reviewservice.listener;
+
+import com.nushungry.reviewservice.event.UserProfileChangedEvent;
+import com.nushungry.reviewservice.service.ReviewService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * 用户资料变更事件监听器
+ * 把 user-service 中变更的用户名和头像批量写回评价文档，读取评价时无需再逐条查询用户信息
+ * 写回失败时拒绝消息且不重新入队，由队列的死信交换机转入死信队列等待重放
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserProfileEventListener {
+
+    private final ReviewService reviewService;
+
+    @RabbitListener(queues = "${rabbitmq.queue.user-profile}")
+    public void handleUserProfileChanged(UserProfileChangedEvent event) {
+        log.info("Received user profile changed event: {}", event);
+        if (event.getUserId() == null || event.getUsername() == null) {
+            log.warn("Missing userId or username in user profile event: {}", event);
+            return;
+        }
+        try {
+            reviewService.updateUserProfile(String.valueOf(event.getUserId()), event.getUsername(),
+                    event.getAvatarUrl(), event.getTimestamp());
+        } catch (Exception ex) {
+            log.error("Failed to sync profile of user {} to reviews", event.getUserId(), ex);
+            throw new AmqpRejectAndDontRequeueException("Failed to sync profile of user " + event.getUserId(), ex);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.nushungry.reviewservice.repository;
+
+import com.nushungry.reviewservice.document.OutboxEventDocument;
+import com.nushungry.reviewservice.enums.OutboxStatus;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface OutboxEventRepository extends MongoRepository<OutboxEventDocument, String> {
+
+    List<OutboxEventDocument> findByClaimTokenOrderByCreatedAtAsc(String claimToken);
+
+    long countByStatusIn(Collection<OutboxStatus> statuses);
+
+    Optional<OutboxEventDocument> findFirstByStatusInOrderByCreatedAtAsc(Collection<OutboxStatus> statuses);
+}
@@ -4,6 +4,7 @@ import com.nushungry.reviewservice.document.ReviewLikeDocument;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,6 +19,8 @@ public interface ReviewLikeRepository extends MongoRepository<ReviewLikeDocument
 
     long countByReviewId(String reviewId);
 
+    List<ReviewLikeDocument> findByUserIdAndReviewIdIn(String userId, Collection<String> reviewIds);
+
     List<ReviewLikeDocument> findByReviewId(String reviewId);
 
     void deleteByReviewId(String reviewId);
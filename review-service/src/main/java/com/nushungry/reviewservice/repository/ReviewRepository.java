@@ -1,6 +1,7 @@
 package com.nushungry.reviewservice.repository;
 
 import com.nushungry.reviewservice.document.ReviewDocument;
+import org.bson.types.ObjectId;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
@@ -17,10 +18,33 @@ public interface ReviewRepository extends MongoRepository<ReviewDocument, String
 
     Page<ReviewDocument> findByStallIdOrderByLikesCountDesc(Long stallId, Pageable pageable);
 
+    Page<ReviewDocument> findByStallIdOrderByHotScoreDescIdDesc(Long stallId, Pageable pageable);
+
     Page<ReviewDocument> findByUserIdOrderByCreatedAtDesc(String userId, Pageable pageable);
 
+    // 游标分页（seek）查询：返回 List 不触发 count，_id 作为同值排序的决胜字段
+    List<ReviewDocument> findByStallIdOrderByCreatedAtDescIdDesc(Long stallId, Pageable pageable);
+
+    @Query(value = "{ 'stallId': ?0, 'createdAt': { $lte: ?1 }, $or: [ { 'createdAt': { $lt: ?1 } }, { '_id': { $lt: ?2 } } ] }",
+            sort = "{ 'createdAt': -1, '_id': -1 }")
+    List<ReviewDocument> findByStallIdCreatedAtAfterCursor(Long stallId, LocalDateTime createdAt, ObjectId id, Pageable pageable);
+
+    List<ReviewDocument> findByStallIdOrderByLikesCountDescIdDesc(Long stallId, Pageable pageable);
+
+    @Query(value = "{ 'stallId': ?0, 'likesCount': { $lte: ?1 }, $or: [ { 'likesCount': { $lt: ?1 } }, { '_id': { $lt: ?2 } } ] }",
+            sort = "{ 'likesCount': -1, '_id': -1 }")
+    List<ReviewDocument> findByStallIdLikesCountAfterCursor(Long stallId, Integer likesCount, ObjectId id, Pageable pageable);
+
+    List<ReviewDocument> findByUserIdOrderByCreatedAtDescIdDesc(String userId, Pageable pageable);
+
+    @Query(value = "{ 'userId': ?0, 'createdAt': { $lte: ?1 }, $or: [ { 'createdAt': { $lt: ?1 } }, { '_id': { $lt: ?2 } } ] }",
+            sort = "{ 'createdAt': -1, '_id': -1 }")
+    List<ReviewDocument> findByUserIdCreatedAtAfterCursor(String userId, LocalDateTime createdAt, ObjectId id, Pageable pageable);
+
     long countByStallId(Long stallId);
 
+    long countByUserId(String userId);
+
     boolean existsByUserIdAndStallId(String userId, Long stallId);
 
     List<ReviewDocument> findByStallId(Long stallId);
@@ -0,0 +1,233 @@
+package com.nushungry.reviewservice.service;
+
+import com.nushungry.reviewservice.document.ActivityBucketDocument;
+import com.nushungry.reviewservice.document.ReviewDocument;
+import com.nushungry.reviewservice.document.ReviewReportDocument;
+import com.nushungry.reviewservice.enums.ActivityMetric;
+import com.nushungry.reviewservice.enums.BucketGranularity;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * 评价/举报数量的小时桶和天桶计数
+ * 写入路径对所在的小时桶和天桶做一次无序批量 $inc（upsert），删除时按原创建时间减回；
+ * 时间窗口查询两端不足一天的部分累加小时桶、中间整天累加天桶，一个月的窗口最多读取约 80 个桶。
+ * 统计精确到小时：窗口起点所在的整个小时都会计入。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ActivityBucketService {
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${review.activity-buckets.backfill.enabled:true}")
+    private boolean backfillEnabled;
+
+    /**
+     * 记录一条数据的新增（delta = 1）或删除（delta = -1）
+     */
+    public void record(ActivityMetric metric, LocalDateTime createdAt, long delta) {
+        record(metric, createdAt == null ? List.of() : List.of(createdAt), delta);
+    }
+
+    /**
+     * 批量记录，同一个桶的变化先在内存中合并，整批只执行一次 bulkWrite
+     * 计数失败只记录日志，不影响业务写入
+     */
+    public void record(ActivityMetric metric, Collection<LocalDateTime> createdAts, long deltaEach) {
+        Map<BucketKey, Long> deltas = new HashMap<>();
+        for (LocalDateTime createdAt : createdAts) {
+            if (createdAt != null) {
+                deltas.merge(BucketKey.hourOf(createdAt), deltaEach, Long::sum);
+                deltas.merge(BucketKey.dayOf(createdAt), deltaEach, Long::sum);
+            }
+        }
+        deltas.values().removeIf(delta -> delta == 0);
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        try {
+            BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ActivityBucketDocument.class);
+            deltas.forEach((key, delta) -> bulkOps.upsert(bucketQuery(metric, key), new Update().inc("count", delta)));
+            bulkOps.execute();
+        } catch (DataAccessException e) {
+            log.error("Failed to update {} activity buckets", metric, e);
+        }
+    }
+
+    /**
+     * 统计 [from, to] 内创建的数量（按小时取整）
+     */
+    public long countBetween(ActivityMetric metric, LocalDateTime from, LocalDateTime to) {
+        LocalDateTime firstHour = from.truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime lastHour = to.truncatedTo(ChronoUnit.HOURS);
+        if (lastHour.isBefore(firstHour)) {
+            return 0;
+        }
+
+        // 第一个完整的天桶，以及 to 所在（不完整）的那一天
+        LocalDateTime firstDay = firstHour.equals(firstHour.truncatedTo(ChronoUnit.DAYS))
+                ? firstHour : firstHour.truncatedTo(ChronoUnit.DAYS).plusDays(1);
+        LocalDateTime lastDay = lastHour.truncatedTo(ChronoUnit.DAYS);
+
+        List<Criteria> ranges = new ArrayList<>();
+        if (!firstDay.isBefore(lastDay)) {
+            ranges.add(range(BucketGranularity.HOUR, firstHour, lastHour.plusHours(1)));
+        } else {
+            if (firstHour.isBefore(firstDay)) {
+                ranges.add(range(BucketGranularity.HOUR, firstHour, firstDay));
+            }
+            ranges.add(range(BucketGranularity.DAY, firstDay, lastDay));
+            ranges.add(range(BucketGranularity.HOUR, lastDay, lastHour.plusHours(1)));
+        }
+
+        Query query = Query.query(Criteria.where("metric").is(metric).orOperator(ranges));
+        query.fields().include("count");
+        return mongoTemplate.find(query, ActivityBucketDocument.class).stream()
+                .map(ActivityBucketDocument::getCount)
+                .filter(Objects::nonNull)
+                .mapToLong(Long::longValue)
+                .sum();
+    }
+
+    /**
+     * 管理后台使用的今日、最近 7 天、最近 30 天数量
+     */
+    public WindowCounts getWindowCounts(ActivityMetric metric, LocalDateTime now) {
+        return new WindowCounts(
+                countBetween(metric, now.toLocalDate().atStartOfDay(), now),
+                countBetween(metric, now.minusDays(7), now),
+                countBetween(metric, now.minusDays(30), now));
+    }
+
+    /**
+     * 启动后回填一次历史数据
+     * 通过插入唯一的标记文档抢占，多实例部署时只有一个实例执行，已回填过的指标不再重复
+     */
+    @Scheduled(initialDelayString = "${review.activity-buckets.backfill.initial-delay-ms:20000}")
+    public void backfillOnStartup() {
+        if (!backfillEnabled) {
+            return;
+        }
+        for (ActivityMetric metric : ActivityMetric.values()) {
+            ActivityBucketDocument marker = ActivityBucketDocument.builder().metric(metric).build();
+            try {
+                mongoTemplate.insert(marker);
+            } catch (DuplicateKeyException e) {
+                continue;
+            }
+
+            try {
+                rebuild(metric);
+            } catch (Exception e) {
+                log.error("Failed to backfill {} activity buckets", metric, e);
+                // 释放标记，下次启动重试
+                mongoTemplate.remove(marker);
+            }
+        }
+    }
+
+    /**
+     * 按历史数据重建指定指标的全部桶
+     * 只读取 createdAt 一个字段流式统计；重建期间发生的写入可能被覆盖，应在写入低峰期执行
+     *
+     * @return 统计的历史数据条数
+     */
+    public long rebuild(ActivityMetric metric) {
+        long start = System.currentTimeMillis();
+        Map<BucketKey, Long> counts = new HashMap<>();
+        long scanned = switch (metric) {
+            case REVIEW -> tally(ReviewDocument.class, ReviewDocument::getCreatedAt, counts);
+            case REPORT -> tally(ReviewReportDocument.class, ReviewReportDocument::getCreatedAt, counts);
+        };
+
+        mongoTemplate.remove(Query.query(Criteria.where("metric").is(metric)
+                .and("granularity").in(BucketGranularity.HOUR, BucketGranularity.DAY)), ActivityBucketDocument.class);
+
+        BulkOperations bulkOps = null;
+        int pending = 0;
+        for (Map.Entry<BucketKey, Long> entry : counts.entrySet()) {
+            if (bulkOps == null) {
+                bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ActivityBucketDocument.class);
+            }
+            bulkOps.upsert(bucketQuery(metric, entry.getKey()), Update.update("count", entry.getValue()));
+            if (++pending == REBUILD_BATCH_SIZE) {
+                bulkOps.execute();
+                bulkOps = null;
+                pending = 0;
+            }
+        }
+        if (bulkOps != null) {
+            bulkOps.execute();
+        }
+
+        log.info("Rebuilt {} activity buckets from {} documents ({} buckets) in {} ms",
+                metric, scanned, counts.size(), System.currentTimeMillis() - start);
+        return scanned;
+    }
+
+    private <T> long tally(Class<T> type, Function<T, LocalDateTime> createdAt, Map<BucketKey, Long> counts) {
+        Query query = new Query(Criteria.where("createdAt").ne(null));
+        query.fields().include("createdAt");
+        long scanned = 0;
+        try (Stream<T> documents = mongoTemplate.stream(query, type)) {
+            for (T document : (Iterable<T>) documents::iterator) {
+                LocalDateTime time = createdAt.apply(document);
+                counts.merge(BucketKey.hourOf(time), 1L, Long::sum);
+                counts.merge(BucketKey.dayOf(time), 1L, Long::sum);
+                scanned++;
+            }
+        }
+        return scanned;
+    }
+
+    private static Query bucketQuery(ActivityMetric metric, BucketKey key) {
+        return Query.query(Criteria.where("metric").is(metric)
+                .and("granularity").is(key.granularity())
+                .and("bucketStart").is(key.start()));
+    }
+
+    private static Criteria range(BucketGranularity granularity, LocalDateTime fromInclusive, LocalDateTime toExclusive) {
+        return Criteria.where("granularity").is(granularity)
+                .and("bucketStart").gte(fromInclusive).lt(toExclusive);
+    }
+
+    public record WindowCounts(long today, long thisWeek, long thisMonth) {
+    }
+
+    private record BucketKey(BucketGranularity granularity, LocalDateTime start) {
+
+        static BucketKey hourOf(LocalDateTime time) {
+            return new BucketKey(BucketGranularity.HOUR, time.truncatedTo(ChronoUnit.HOURS));
+        }
+
+        static BucketKey dayOf(LocalDateTime time) {
+            return new BucketKey(BucketGranularity.DAY, time.truncatedTo(ChronoUnit.DAYS));
+        }
+    }
+}
@@ -1,19 +1,32 @@
 package com.nushungry.reviewservice.service;
 
+import com.nushungry.reviewservice.document.OutboxEventDocument;
+import com.nushungry.reviewservice.enums.OutboxStatus;
 import com.nushungry.reviewservice.event.PriceChangedEvent;
 import com.nushungry.reviewservice.event.RatingChangedEvent;
+import com.nushungry.reviewservice.repository.OutboxEventRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * 事件发布服务
+ * 事件先写入发件箱集合，随评价写入在同一次业务操作中完成；
+ * 实际的 RabbitMQ 投递由 OutboxRelayService 在后台完成，请求线程只访问 MongoDB
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class EventPublisherService {
 
-    private final RabbitTemplate rabbitTemplate;
+    public static final String RATING_CHANGED = "RATING_CHANGED";
+    public static final String PRICE_CHANGED = "PRICE_CHANGED";
+
+    private final OutboxEventRepository outboxEventRepository;
 
     @Value("${rabbitmq.exchange.review}")
     private String reviewExchange;
@@ -25,22 +38,30 @@ public class EventPublisherService {
     private String priceChangedRoutingKey;
 
     public void publishRatingChanged(RatingChangedEvent event) {
-        try {
-            log.info("Publishing rating changed event for stall ID: {}", event.getStallId());
-            rabbitTemplate.convertAndSend(reviewExchange, ratingChangedRoutingKey, event);
-            log.info("Successfully published rating changed event");
-        } catch (Exception e) {
-            log.error("Failed to publish rating changed event", e);
-        }
+        log.info("Queueing rating changed event for stall ID: {}", event.getStallId());
+        enqueue(RATING_CHANGED, event.getStallId(), ratingChangedRoutingKey, event);
     }
 
     public void publishPriceChanged(PriceChangedEvent event) {
-        try {
-            log.info("Publishing price changed event for stall ID: {}", event.getStallId());
-            rabbitTemplate.convertAndSend(reviewExchange, priceChangedRoutingKey, event);
-            log.info("Successfully published price changed event");
-        } catch (Exception e) {
-            log.error("Failed to publish price changed event", e);
-        }
+        log.info("Queueing price changed event for stall ID: {}", event.getStallId());
+        enqueue(PRICE_CHANGED, event.getStallId(), priceChangedRoutingKey, event);
+    }
+
+    private void enqueue(String eventType, Long stallId, String routingKey, Object payload) {
+        LocalDateTime now = LocalDateTime.now();
+        OutboxEventDocument outboxEvent = OutboxEventDocument.builder()
+                .id(UUID.randomUUID().toString())
+                .eventType(eventType)
+                .stallId(stallId)
+                .exchange(reviewExchange)
+                .routingKey(routingKey)
+                .payload(payload)
+                .status(OutboxStatus.PENDING)
+                .createdAt(now)
+                .nextAttemptAt(now)
+                .build();
+
+        outboxEventRepository.save(outboxEvent);
+        log.debug("Outbox event {} ({}) stored", outboxEvent.getId(), eventType);
     }
 }
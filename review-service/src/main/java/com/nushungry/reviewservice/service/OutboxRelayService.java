@@ -0,0 +1,283 @@
+package com.nushungry.reviewservice.service;
+
+import com.nushungry.reviewservice.document.OutboxEventDocument;
+import com.nushungry.reviewservice.enums.OutboxStatus;
+import com.nushungry.reviewservice.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 事件发件箱投递服务
+ * 定时从 event_outbox 认领一批待发送事件，批量发送后统一等待 publisher confirm；
+ * 确认成功的标记为已发送，失败的按指数退避重试，超过最大次数标记为 FAILED。
+ * 多实例部署时通过 claimToken 认领，租约过期的 IN_FLIGHT 事件会被重新认领。
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "review.outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxRelayService {
+
+    private static final List<OutboxStatus> UNPUBLISHED = List.of(OutboxStatus.PENDING, OutboxStatus.IN_FLIGHT);
+
+    private final MongoTemplate mongoTemplate;
+    private final OutboxEventRepository outboxEventRepository;
+    private final RabbitTemplate rabbitTemplate;
+
+    private final Timer relayLagTimer;
+    private final Counter publishedCounter;
+    private final Counter failedCounter;
+    private final AtomicLong outboxDepth = new AtomicLong();
+    private final AtomicLong oldestPendingAgeSeconds = new AtomicLong();
+
+    @Value("${review.outbox.relay.batch-size:100}")
+    private int batchSize;
+
+    @Value("${review.outbox.relay.confirm-timeout-ms:5000}")
+    private long confirmTimeoutMs;
+
+    @Value("${review.outbox.relay.lease-ms:60000}")
+    private long leaseMs;
+
+    @Value("${review.outbox.relay.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${review.outbox.relay.backoff-initial-ms:1000}")
+    private long backoffInitialMs;
+
+    @Value("${review.outbox.relay.backoff-max-ms:60000}")
+    private long backoffMaxMs;
+
+    public OutboxRelayService(MongoTemplate mongoTemplate,
+                              OutboxEventRepository outboxEventRepository,
+                              RabbitTemplate rabbitTemplate,
+                              MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.outboxEventRepository = outboxEventRepository;
+        this.rabbitTemplate = rabbitTemplate;
+
+        this.relayLagTimer = Timer.builder("review.outbox.relay.lag")
+                .description("Time from outbox write to broker confirm")
+                .register(meterRegistry);
+        this.publishedCounter = Counter.builder("review.outbox.published")
+                .description("Outbox events confirmed by the broker")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("review.outbox.failed")
+                .description("Outbox publish attempts that were nacked, returned or timed out")
+                .register(meterRegistry);
+        Gauge.builder("review.outbox.depth", outboxDepth, AtomicLong::get)
+                .description("Outbox events not yet published")
+                .register(meterRegistry);
+        Gauge.builder("review.outbox.oldest.age.seconds", oldestPendingAgeSeconds, AtomicLong::get)
+                .description("Age of the oldest unpublished outbox event")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 定时投递，整批全部确认成功时继续处理下一批，直到积压清空
+     */
+    @Scheduled(fixedDelayString = "${review.outbox.relay.interval-ms:500}")
+    public void relay() {
+        try {
+            int published;
+            do {
+                published = relayBatch();
+            } while (published == batchSize);
+        } catch (Exception e) {
+            log.error("Outbox relay run failed", e);
+        } finally {
+            refreshMetrics();
+        }
+    }
+
+    /**
+     * 认领并投递一批事件
+     *
+     * @return 本批被 broker 确认的事件数量
+     */
+    int relayBatch() {
+        String claimToken = UUID.randomUUID().toString();
+        List<OutboxEventDocument> batch = claimBatch(claimToken);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        // 先全部发送，再统一等待确认
+        List<String> confirmedIds = new ArrayList<>();
+        Map<OutboxEventDocument, CorrelationData> sent = new LinkedHashMap<>();
+        for (OutboxEventDocument event : batch) {
+            // 事件携带的是完整快照，重试时若同摊位已有更新的事件则直接丢弃，避免旧值覆盖新值
+            if (event.getAttempts() > 0 && isSuperseded(event)) {
+                confirmedIds.add(event.getId());
+                continue;
+            }
+            CorrelationData correlationData = new CorrelationData(event.getId());
+            try {
+                rabbitTemplate.convertAndSend(event.getExchange(), event.getRoutingKey(), event.getPayload(),
+                        message -> {
+                            message.getMessageProperties().setMessageId(event.getId());
+                            return message;
+                        },
+                        correlationData);
+                sent.put(event, correlationData);
+            } catch (Exception e) {
+                markFailed(event, claimToken, e.getMessage());
+            }
+        }
+
+        long deadline = System.currentTimeMillis() + confirmTimeoutMs;
+        for (Map.Entry<OutboxEventDocument, CorrelationData> entry : sent.entrySet()) {
+            OutboxEventDocument event = entry.getKey();
+            String failure = awaitConfirm(entry.getValue(), deadline);
+            if (failure == null) {
+                confirmedIds.add(event.getId());
+            } else {
+                markFailed(event, claimToken, failure);
+            }
+        }
+
+        markPublished(confirmedIds, claimToken, sent.keySet());
+        log.debug("Outbox relay batch: claimed={}, confirmed={}", batch.size(), confirmedIds.size());
+        return confirmedIds.size();
+    }
+
+    private List<OutboxEventDocument> claimBatch(String claimToken) {
+        LocalDateTime now = LocalDateTime.now();
+        Criteria claimable = new Criteria().orOperator(
+                Criteria.where("status").is(OutboxStatus.PENDING).and("nextAttemptAt").lte(now),
+                Criteria.where("status").is(OutboxStatus.IN_FLIGHT).and("claimedAt").lt(now.minus(Duration.ofMillis(leaseMs)))
+        );
+
+        Query candidates = new Query(claimable)
+                .with(Sort.by(Sort.Direction.ASC, "createdAt"))
+                .limit(batchSize);
+        candidates.fields().include("id");
+        List<String> ids = mongoTemplate.find(candidates, OutboxEventDocument.class).stream()
+                .map(OutboxEventDocument::getId)
+                .toList();
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        // 条件更新保证同一事件只会被一个实例认领
+        mongoTemplate.updateMulti(
+                new Query(new Criteria().andOperator(Criteria.where("id").in(ids), claimable)),
+                new Update()
+                        .set("status", OutboxStatus.IN_FLIGHT)
+                        .set("claimToken", claimToken)
+                        .set("claimedAt", now),
+                OutboxEventDocument.class);
+
+        return outboxEventRepository.findByClaimTokenOrderByCreatedAtAsc(claimToken);
+    }
+
+    private boolean isSuperseded(OutboxEventDocument event) {
+        Query newer = new Query(Criteria.where("eventType").is(event.getEventType())
+                .and("stallId").is(event.getStallId())
+                .and("createdAt").gt(event.getCreatedAt()));
+        return mongoTemplate.exists(newer, OutboxEventDocument.class);
+    }
+
+    private String awaitConfirm(CorrelationData correlationData, long deadline) {
+        try {
+            long remaining = Math.max(0, deadline - System.currentTimeMillis());
+            CorrelationData.Confirm confirm = correlationData.getFuture().get(remaining, TimeUnit.MILLISECONDS);
+            if (!confirm.isAck()) {
+                return "nack: " + confirm.getReason();
+            }
+            if (correlationData.getReturned() != null) {
+                return "returned: " + correlationData.getReturned().getReplyText();
+            }
+            return null;
+        } catch (TimeoutException e) {
+            return "confirm timeout";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "interrupted";
+        } catch (ExecutionException e) {
+            return e.getMessage();
+        }
+    }
+
+    private void markPublished(List<String> confirmedIds, String claimToken, Iterable<OutboxEventDocument> sent) {
+        if (confirmedIds.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        mongoTemplate.updateMulti(
+                new Query(Criteria.where("id").in(confirmedIds).and("claimToken").is(claimToken)),
+                new Update()
+                        .set("status", OutboxStatus.PUBLISHED)
+                        .set("publishedAt", now)
+                        .unset("claimToken")
+                        .unset("claimedAt"),
+                OutboxEventDocument.class);
+
+        for (OutboxEventDocument event : sent) {
+            if (confirmedIds.contains(event.getId()) && event.getCreatedAt() != null) {
+                relayLagTimer.record(Duration.between(event.getCreatedAt(), now));
+            }
+        }
+        publishedCounter.increment(confirmedIds.size());
+    }
+
+    private void markFailed(OutboxEventDocument event, String claimToken, String reason) {
+        int attempts = event.getAttempts() + 1;
+        boolean exhausted = attempts >= maxAttempts;
+        long backoff = Math.min(backoffMaxMs, backoffInitialMs << Math.min(attempts - 1, 20));
+
+        mongoTemplate.updateFirst(
+                new Query(Criteria.where("id").is(event.getId()).and("claimToken").is(claimToken)),
+                new Update()
+                        .set("status", exhausted ? OutboxStatus.FAILED : OutboxStatus.PENDING)
+                        .set("attempts", attempts)
+                        .set("lastError", reason)
+                        .set("nextAttemptAt", LocalDateTime.now().plus(Duration.ofMillis(backoff)))
+                        .unset("claimToken")
+                        .unset("claimedAt"),
+                OutboxEventDocument.class);
+        failedCounter.increment();
+
+        if (exhausted) {
+            log.error("Outbox event {} ({}) failed after {} attempts: {}", event.getId(), event.getEventType(), attempts, reason);
+        } else {
+            log.warn("Outbox event {} ({}) publish failed, retry in {} ms: {}", event.getId(), event.getEventType(), backoff, reason);
+        }
+    }
+
+    private void refreshMetrics() {
+        try {
+            outboxDepth.set(outboxEventRepository.countByStatusIn(UNPUBLISHED));
+            oldestPendingAgeSeconds.set(outboxEventRepository.findFirstByStatusInOrderByCreatedAtAsc(UNPUBLISHED)
+                    .map(event -> Duration.between(event.getCreatedAt(), LocalDateTime.now()).toSeconds())
+                    .orElse(0L));
+        } catch (Exception e) {
+            log.warn("Failed to refresh outbox metrics: {}", e.getMessage());
+        }
+    }
+}
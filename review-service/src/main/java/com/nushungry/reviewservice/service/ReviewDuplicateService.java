@@ -0,0 +1,253 @@
+package com.nushungry.reviewservice.service;
+
+import com.nushungry.reviewservice.document.ReviewDocument;
+import com.nushungry.reviewservice.document.ReviewFingerprintDocument;
+import com.nushungry.reviewservice.enums.ReportReason;
+import com.nushungry.reviewservice.util.MinHash;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 近似重复评价检测（MinHash + LSH）
+ * 评价写入时计算评论内容的 MinHash 签名，用分带哈希在 review_fingerprints 的多键索引上查找候选，
+ * 只与候选比较签名，不需要和全部历史评价逐条比对。
+ * 估计相似度达到阈值时为后写入的评价自动创建一条 SPAM 系统举报，交由管理员审核。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReviewDuplicateService {
+
+    private static final String BACKFILL_MARKER_ID = "backfill";
+
+    private final MongoTemplate mongoTemplate;
+    private final ReviewReportService reviewReportService;
+
+    @Value("${review.duplicate.enabled:true}")
+    private boolean enabled;
+
+    @Value("${review.duplicate.similarity-threshold:0.8}")
+    private double similarityThreshold;
+
+    @Value("${review.duplicate.min-length:10}")
+    private int minLength;
+
+    @Value("${review.duplicate.candidate-limit:50}")
+    private int candidateLimit;
+
+    @Value("${review.duplicate.backfill.enabled:true}")
+    private boolean backfillEnabled;
+
+    @Value("${review.duplicate.backfill.batch-size:500}")
+    private int backfillBatchSize;
+
+    /**
+     * 为新建或修改了内容的评价更新指纹并检测近似重复
+     * 检测失败只记录日志，不影响评价写入
+     *
+     * @return 最相似的已有评价，未发现重复时为空
+     */
+    public Optional<DuplicateMatch> inspect(ReviewDocument review, boolean created) {
+        if (!enabled || review.getId() == null) {
+            return Optional.empty();
+        }
+        try {
+            int[] signature = MinHash.signature(review.getComment(), minLength);
+            if (signature == null) {
+                // 内容过短不参与检测，修改后变短的评价删除旧指纹
+                if (!created) {
+                    remove(List.of(review.getId()));
+                }
+                return Optional.empty();
+            }
+
+            List<Long> bands = MinHash.bandKeys(signature);
+            DuplicateMatch match = findMostSimilar(review.getId(), signature, bands);
+            mongoTemplate.save(toFingerprint(review, signature, bands));
+            if (match != null) {
+                report(review, match);
+            }
+            return Optional.ofNullable(match);
+        } catch (DataAccessException e) {
+            log.error("Failed to inspect review {} for near-duplicates", review.getId(), e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 只写入指纹、不做检测（批量导入使用），整批一次 bulkWrite
+     */
+    public void index(Collection<ReviewDocument> reviews) {
+        if (!enabled || reviews.isEmpty()) {
+            return;
+        }
+        try {
+            BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ReviewFingerprintDocument.class);
+            for (ReviewDocument review : reviews) {
+                Query byId = Query.query(Criteria.where("_id").is(review.getId()));
+                int[] signature = MinHash.signature(review.getComment(), minLength);
+                if (signature == null) {
+                    bulkOps.remove(byId);
+                } else {
+                    bulkOps.replaceOne(byId, toFingerprint(review, signature, MinHash.bandKeys(signature)),
+                            FindAndReplaceOptions.options().upsert());
+                }
+            }
+            bulkOps.execute();
+        } catch (DataAccessException e) {
+            log.error("Failed to index fingerprints for {} reviews", reviews.size(), e);
+        }
+    }
+
+    /**
+     * 删除评价时一并删除指纹
+     */
+    public void remove(Collection<String> reviewIds) {
+        if (reviewIds.isEmpty()) {
+            return;
+        }
+        try {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").in(reviewIds)), ReviewFingerprintDocument.class);
+        } catch (DataAccessException e) {
+            log.error("Failed to remove fingerprints for {} reviews", reviewIds.size(), e);
+        }
+    }
+
+    /**
+     * 启动后为历史评价回填一次指纹
+     * 通过插入唯一的标记文档抢占，多实例部署时只有一个实例执行
+     */
+    @Scheduled(initialDelayString = "${review.duplicate.backfill.initial-delay-ms:40000}")
+    public void backfillOnStartup() {
+        if (!enabled || !backfillEnabled) {
+            return;
+        }
+        ReviewFingerprintDocument marker = ReviewFingerprintDocument.builder()
+                .id(BACKFILL_MARKER_ID)
+                .createdAt(LocalDateTime.now())
+                .build();
+        try {
+            mongoTemplate.insert(marker);
+        } catch (DuplicateKeyException e) {
+            return;
+        }
+
+        try {
+            backfill();
+        } catch (Exception e) {
+            log.error("Failed to backfill review fingerprints", e);
+            // 释放标记，下次启动重试
+            mongoTemplate.remove(marker);
+        }
+    }
+
+    /**
+     * 按 _id 顺序为缺少指纹的评价计算指纹并检测重复，重复对中较晚写入的一条被举报
+     *
+     * @return 本次处理的评价数
+     */
+    public long backfill() {
+        long start = System.currentTimeMillis();
+        long processed = 0;
+        long flagged = 0;
+        String lastId = null;
+        List<ReviewDocument> batch;
+        do {
+            Query query = lastId == null ? new Query() : Query.query(Criteria.where("_id").gt(lastId));
+            query.with(Sort.by(Sort.Direction.ASC, "_id")).limit(backfillBatchSize);
+            query.fields().include("comment").include("userId").include("stallId").include("createdAt");
+            batch = mongoTemplate.find(query, ReviewDocument.class);
+            if (batch.isEmpty()) {
+                break;
+            }
+            lastId = batch.get(batch.size() - 1).getId();
+
+            // 写入路径已经建立指纹的评价跳过
+            Query existingQuery = Query.query(Criteria.where("_id").in(batch.stream().map(ReviewDocument::getId).toList()));
+            existingQuery.fields().include("_id");
+            Set<String> existing = mongoTemplate.find(existingQuery, ReviewFingerprintDocument.class).stream()
+                    .map(ReviewFingerprintDocument::getId)
+                    .collect(Collectors.toSet());
+
+            for (ReviewDocument review : batch) {
+                if (!existing.contains(review.getId())) {
+                    processed++;
+                    if (inspect(review, true).isPresent()) {
+                        flagged++;
+                    }
+                }
+            }
+        } while (batch.size() == backfillBatchSize);
+
+        log.info("Backfilled fingerprints for {} reviews ({} flagged as near-duplicates) in {} ms",
+                processed, flagged, System.currentTimeMillis() - start);
+        return processed;
+    }
+
+    private DuplicateMatch findMostSimilar(String reviewId, int[] signature, List<Long> bands) {
+        Query query = Query.query(Criteria.where("bands").in(bands).and("_id").ne(reviewId)).limit(candidateLimit);
+        query.fields().include("signature").include("createdAt");
+
+        DuplicateMatch best = null;
+        for (ReviewFingerprintDocument candidate : mongoTemplate.find(query, ReviewFingerprintDocument.class)) {
+            double similarity = MinHash.similarity(signature, candidate.getSignature());
+            if (similarity >= similarityThreshold && (best == null || similarity > best.similarity())) {
+                best = new DuplicateMatch(candidate.getId(), similarity, candidate.getCreatedAt());
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 举报重复对中较晚创建的一条
+     * 新建评价匹配到的总是更早的评价；回填按 _id 顺序处理，匹配到的可能是写入路径已建立指纹的更新评价
+     */
+    private void report(ReviewDocument review, DuplicateMatch match) {
+        boolean matchIsLater = match.createdAt() != null && review.getCreatedAt() != null
+                && !match.createdAt().equals(review.getCreatedAt())
+                ? match.createdAt().isAfter(review.getCreatedAt())
+                : match.reviewId().compareTo(review.getId()) > 0;
+        String reportedId = matchIsLater ? match.reviewId() : review.getId();
+        String originalId = matchIsLater ? review.getId() : match.reviewId();
+
+        String description = String.format("与评价 %s 内容高度相似（估计相似度 %.0f%%）",
+                originalId, match.similarity() * 100);
+        if (reviewReportService.createSystemReport(reportedId, ReportReason.SPAM, description)) {
+            log.info("Review {} flagged as near-duplicate of {} (similarity {})",
+                    reportedId, originalId, match.similarity());
+        }
+    }
+
+    private static ReviewFingerprintDocument toFingerprint(ReviewDocument review, int[] signature, List<Long> bands) {
+        return ReviewFingerprintDocument.builder()
+                .id(review.getId())
+                .bands(bands)
+                .signature(Arrays.stream(signature).boxed().toList())
+                .userId(review.getUserId())
+                .stallId(review.getStallId())
+                .createdAt(review.getCreatedAt())
+                .build();
+    }
+
+    public record DuplicateMatch(String reviewId, double similarity, LocalDateTime createdAt) {
+    }
+}
@@ -0,0 +1,116 @@
+package com.nushungry.reviewservice.service;
+
+import com.nushungry.reviewservice.document.BackfillMarkerDocument;
+import com.nushungry.reviewservice.document.ReviewDocument;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * 评价热度分计算
+ * 热度 = (点赞数 + 1) 按半衰期指数衰减。指数衰减下任意两条评价的先后顺序不随时间变化，
+ * 因此存储其对数形式 log2(likes + 1) + 创建时间(小时) / 半衰期(小时)：
+ * 点赞数每翻一倍相当于晚发布一个半衰期，分值只在点赞变化时改变，可以直接走 {stallId, hotScore} 索引排序
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReviewHotScoreService {
+
+    private static final double LN_2 = Math.log(2);
+    private static final String BACKFILL_MARKER_ID = "review-hot-score";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${review.hot.half-life-hours:48}")
+    private double halfLifeHours;
+
+    @Value("${review.hot.backfill.enabled:true}")
+    private boolean backfillEnabled;
+
+    @Value("${review.hot.backfill.batch-size:500}")
+    private int backfillBatchSize;
+
+    public double compute(Integer likesCount, LocalDateTime createdAt) {
+        int likes = likesCount == null ? 0 : Math.max(0, likesCount);
+        LocalDateTime created = createdAt == null ? LocalDateTime.now() : createdAt;
+        double createdHours = created.toEpochSecond(ZoneOffset.UTC) / 3600.0;
+        return Math.log(likes + 1) / LN_2 + createdHours / halfLifeHours;
+    }
+
+    public void applyTo(ReviewDocument review) {
+        review.setHotScore(compute(review.getLikesCount(), review.getCreatedAt()));
+    }
+
+    /**
+     * 启动后为历史评价补算一次热度分
+     * hotScore 为空的查询无法走索引，因此只执行一次：通过插入唯一的标记文档抢占，多实例部署时只有一个实例执行
+     */
+    @Scheduled(initialDelayString = "${review.hot.backfill.initial-delay-ms:30000}")
+    public void backfillOnStartup() {
+        if (!backfillEnabled) {
+            return;
+        }
+        BackfillMarkerDocument marker = BackfillMarkerDocument.builder()
+                .id(BACKFILL_MARKER_ID)
+                .createdAt(LocalDateTime.now())
+                .build();
+        try {
+            mongoTemplate.insert(marker);
+        } catch (DuplicateKeyException e) {
+            return;
+        }
+
+        try {
+            backfillMissingScores();
+        } catch (Exception e) {
+            log.error("Failed to backfill review hot scores", e);
+            // 释放标记，下次启动重试
+            mongoTemplate.remove(marker);
+        }
+    }
+
+    /**
+     * 补算缺少热度分的评价（上线前的历史数据）
+     *
+     * @return 本次补算的评价数
+     */
+    public long backfillMissingScores() {
+        long updated = 0;
+        List<ReviewDocument> batch;
+        do {
+            Query query = Query.query(Criteria.where("hotScore").is(null)).limit(backfillBatchSize);
+            query.fields().include("likesCount").include("createdAt");
+            batch = mongoTemplate.find(query, ReviewDocument.class);
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ReviewDocument.class);
+            for (ReviewDocument review : batch) {
+                bulkOps.updateOne(Query.query(Criteria.where("_id").is(review.getId())),
+                        Update.update("hotScore", compute(review.getLikesCount(), review.getCreatedAt())));
+            }
+            int modified = bulkOps.execute().getModifiedCount();
+            updated += modified;
+            if (modified == 0) {
+                break;
+            }
+        } while (batch.size() == backfillBatchSize);
+
+        log.info("Backfilled hot score for {} reviews", updated);
+        return updated;
+    }
+}
@@ -11,6 +11,9 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -19,6 +22,8 @@ public class ReviewLikeService {
 
     private final ReviewLikeRepository reviewLikeRepository;
     private final ReviewRepository reviewRepository;
+    private final StallReviewCache stallReviewCache;
+    private final ReviewHotScoreService reviewHotScoreService;
 
     @Transactional
     public boolean toggleLike(String reviewId, String userId) {
@@ -32,7 +37,9 @@ public class ReviewLikeService {
         if (exists) {
             reviewLikeRepository.deleteByReviewIdAndUserId(reviewId, userId);
             review.setLikesCount(Math.max(0, review.getLikesCount() - 1));
+            reviewHotScoreService.applyTo(review);
             reviewRepository.save(review);
+            stallReviewCache.onReviewSaved(review, false);
             log.info("Like removed for review ID: {}", reviewId);
             return false;
         } else {
@@ -44,7 +51,9 @@ public class ReviewLikeService {
             reviewLikeRepository.save(like);
             
             review.setLikesCount(review.getLikesCount() + 1);
+            reviewHotScoreService.applyTo(review);
             reviewRepository.save(review);
+            stallReviewCache.onReviewSaved(review, false);
             log.info("Like added for review ID: {}", reviewId);
             return true;
         }
@@ -54,6 +63,18 @@ public class ReviewLikeService {
         return reviewLikeRepository.existsByReviewIdAndUserId(reviewId, userId);
     }
 
+    /**
+     * 批量查询用户点赞过的评价ID
+     */
+    public Set<String> getLikedReviewIds(Collection<String> reviewIds, String userId) {
+        if (reviewIds.isEmpty()) {
+            return Set.of();
+        }
+        return reviewLikeRepository.findByUserIdAndReviewIdIn(userId, reviewIds).stream()
+                .map(ReviewLikeDocument::getReviewId)
+                .collect(Collectors.toSet());
+    }
+
     public long getLikeCount(String reviewId) {
         return reviewLikeRepository.countByReviewId(reviewId);
     }
@@ -0,0 +1,112 @@
+package com.nushungry.reviewservice.service;
+
+import com.nushungry.reviewservice.document.ReviewDocument;
+import com.nushungry.reviewservice.dto.RatingDistributionResponse;
+import com.nushungry.reviewservice.dto.ReviewResponse;
+import com.nushungry.reviewservice.repository.ReviewRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * 非阻塞的评价读取
+ * 分页内容与总数两个子查询并行执行，点赞状态按页批量查询一次；
+ * 结果以 CompletableFuture 返回，请求线程不在 MongoDB 往返上等待
+ */
+@Service
+@Slf4j
+public class ReviewQueryService {
+
+    private final MongoTemplate mongoTemplate;
+    private final ReviewRepository reviewRepository;
+    private final ReviewLikeService reviewLikeService;
+    private final ReviewService reviewService;
+    private final RatingCalculationService ratingCalculationService;
+    private final StallReviewCache stallReviewCache;
+    private final Executor executor;
+
+    public ReviewQueryService(MongoTemplate mongoTemplate,
+                              ReviewRepository reviewRepository,
+                              ReviewLikeService reviewLikeService,
+                              ReviewService reviewService,
+                              RatingCalculationService ratingCalculationService,
+                              StallReviewCache stallReviewCache,
+                              @Qualifier("reviewReadExecutor") Executor executor) {
+        this.mongoTemplate = mongoTemplate;
+        this.reviewRepository = reviewRepository;
+        this.reviewLikeService = reviewLikeService;
+        this.reviewService = reviewService;
+        this.ratingCalculationService = ratingCalculationService;
+        this.stallReviewCache = stallReviewCache;
+        this.executor = executor;
+    }
+
+    public CompletableFuture<Page<ReviewResponse>> getReviewsByStallId(Long stallId, String sortBy,
+                                                                      String currentUserId, Pageable pageable) {
+        log.info("Getting reviews for stall ID: {} sorted by: {} (async)", stallId, sortBy);
+
+        String sortField = "hot".equalsIgnoreCase(sortBy) ? "hotScore"
+                : "likes".equalsIgnoreCase(sortBy) ? "likesCount" : "createdAt";
+
+        // 首页缓存命中时只剩一次批量点赞查询，直接复用同步实现
+        if (!"hotScore".equals(sortField) && pageable.getPageNumber() == 0
+                && stallReviewCache.canServe(pageable.getPageSize())) {
+            return supply(() -> reviewService.getReviewsByStallId(stallId, sortBy, currentUserId, pageable));
+        }
+
+        Criteria criteria = Criteria.where("stallId").is(stallId);
+        return findPage(criteria, sortField, currentUserId, pageable, () -> reviewRepository.countByStallId(stallId));
+    }
+
+    public CompletableFuture<Page<ReviewResponse>> getReviewsByUserId(String userId, String currentUserId,
+                                                                     Pageable pageable) {
+        log.info("Getting reviews by user ID: {} (async)", userId);
+
+        Criteria criteria = Criteria.where("userId").is(userId);
+        return findPage(criteria, "createdAt", currentUserId, pageable, () -> reviewRepository.countByUserId(userId));
+    }
+
+    public CompletableFuture<RatingDistributionResponse> getRatingDistribution(Long stallId) {
+        return supply(() -> ratingCalculationService.getRatingDistribution(stallId));
+    }
+
+    private CompletableFuture<Page<ReviewResponse>> findPage(Criteria criteria, String sortField, String currentUserId,
+                                                            Pageable pageable, Supplier<Long> count) {
+        Query query = Query.query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, sortField).and(Sort.by(Sort.Direction.DESC, "_id")))
+                .skip(pageable.getOffset())
+                .limit(pageable.getPageSize());
+
+        CompletableFuture<List<ReviewDocument>> content = supply(() -> mongoTemplate.find(query, ReviewDocument.class));
+        CompletableFuture<Long> total = supply(count);
+        CompletableFuture<Set<String>> likedIds = content.thenApplyAsync(reviews -> currentUserId == null
+                ? Set.<String>of()
+                : reviewLikeService.getLikedReviewIds(reviews.stream().map(ReviewDocument::getId).toList(), currentUserId),
+                executor);
+
+        return CompletableFuture.allOf(content, total, likedIds).thenApply(ignored -> {
+            Set<String> liked = likedIds.join();
+            List<ReviewResponse> responses = content.join().stream()
+                    .map(review -> ReviewService.mapToResponse(review, liked.contains(review.getId())))
+                    .toList();
+            return new PageImpl<>(responses, pageable, total.join());
+        });
+    }
+
+    private <T> CompletableFuture<T> supply(Supplier<T> supplier) {
+        return CompletableFuture.supplyAsync(supplier, executor);
+    }
+}
@@ -5,6 +5,7 @@ import com.nushungry.reviewservice.dto.CreateReportRequest;
 import com.nushungry.reviewservice.dto.HandleReportRequest;
 import com.nushungry.reviewservice.dto.ReportResponse;
 import com.nushungry.reviewservice.dto.ReportStatistics;
+import com.nushungry.reviewservice.enums.ActivityMetric;
 import com.nushungry.reviewservice.enums.ReportReason;
 import com.nushungry.reviewservice.enums.ReportStatus;
 import com.nushungry.reviewservice.exception.ResourceNotFoundException;
@@ -13,19 +14,26 @@ import com.nushungry.reviewservice.repository.ReviewReportRepository;
 import com.nushungry.reviewservice.repository.ReviewRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.FacetOperation;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 @Service
@@ -36,6 +44,20 @@ public class ReviewReportService {
     private final ReviewReportRepository reviewReportRepository;
     private final ReviewRepository reviewRepository;
     private final MongoTemplate mongoTemplate;
+    private final ActivityBucketService activityBucketService;
+
+    private static final long MILLIS_PER_HOUR = 3_600_000L;
+
+    public static final String SYSTEM_REPORTER_ID = "system";
+    private static final String SYSTEM_REPORTER_NAME = "系统检测";
+
+    @Value("${review.report.stats-cache-ttl-ms:30000}")
+    private long statsCacheTtlMs;
+
+    private final AtomicReference<CachedStatistics> cachedStatistics = new AtomicReference<>();
+
+    /** 每次失效加一；计算期间发生过失效的结果不写入缓存 */
+    private final AtomicLong statisticsGeneration = new AtomicLong();
 
     @Transactional
     public ReportResponse createReport(String reviewId, CreateReportRequest request, String reporterId, String reporterName) {
@@ -60,11 +82,40 @@ public class ReviewReportService {
                 .build();
 
         ReviewReportDocument savedReport = reviewReportRepository.save(report);
+        activityBucketService.record(ActivityMetric.REPORT, savedReport.getCreatedAt(), 1);
+        invalidateStatistics();
         log.info("Report created with ID: {}", savedReport.getId());
 
         return mapToResponse(savedReport);
     }
 
+    /**
+     * 系统自动检测创建的举报（如疑似重复内容），同一条评价只保留一条系统举报
+     *
+     * @return 是否新建了举报
+     */
+    public boolean createSystemReport(String reviewId, ReportReason reason, String description) {
+        if (reviewReportRepository.existsByReviewIdAndReporterId(reviewId, SYSTEM_REPORTER_ID)) {
+            return false;
+        }
+
+        ReviewReportDocument report = ReviewReportDocument.builder()
+                .reviewId(reviewId)
+                .reporterId(SYSTEM_REPORTER_ID)
+                .reporterName(SYSTEM_REPORTER_NAME)
+                .reason(reason)
+                .description(description)
+                .status(ReportStatus.PENDING)
+                .createdAt(LocalDateTime.now())
+                .build();
+
+        ReviewReportDocument savedReport = reviewReportRepository.save(report);
+        activityBucketService.record(ActivityMetric.REPORT, savedReport.getCreatedAt(), 1);
+        invalidateStatistics();
+        log.info("System report created with ID: {} for review ID: {}", savedReport.getId(), reviewId);
+        return true;
+    }
+
     public List<ReportResponse> getReportsByReviewId(String reviewId) {
         log.info("Getting reports for review ID: {}", reviewId);
         List<ReviewReportDocument> reports = reviewReportRepository.findByReviewId(reviewId);
@@ -90,6 +141,7 @@ public class ReviewReportService {
         report.setHandleNote(request.getHandleNote());
 
         ReviewReportDocument updatedReport = reviewReportRepository.save(report);
+        invalidateStatistics();
         log.info("Report handled successfully");
 
         return mapToResponse(updatedReport);
@@ -134,58 +186,97 @@ public class ReviewReportService {
 
     /**
      * 获取举报统计数据（管理员功能）
+     * 结果在内存中缓存 statsCacheTtlMs 毫秒，创建或处理举报时失效
      */
     public ReportStatistics getStatistics() {
+        long generation = statisticsGeneration.get();
+        CachedStatistics cached = cachedStatistics.get();
+        if (cached != null && cached.generation() == generation && cached.expiresAt() > System.currentTimeMillis()) {
+            return cached.statistics();
+        }
+
         log.info("Getting report statistics for admin");
+        ReportStatistics statistics = aggregateStatistics(LocalDateTime.now());
+        if (statsCacheTtlMs > 0 && statisticsGeneration.get() == generation) {
+            cachedStatistics.compareAndSet(cached,
+                    new CachedStatistics(statistics, System.currentTimeMillis() + statsCacheTtlMs, generation));
+        }
+        return statistics;
+    }
 
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime todayStart = now.toLocalDate().atStartOfDay();
-        LocalDateTime weekStart = now.minusDays(7);
-        LocalDateTime monthStart = now.minusDays(30);
+    /**
+     * 使用单次 $facet 聚合计算总数、状态分布、原因分布和平均处理时间；
+     * 时间窗口数量由 ActivityBucketService 的分桶计数提供，不再扫描 createdAt 范围
+     */
+    private ReportStatistics aggregateStatistics(LocalDateTime now) {
+        // 处理耗时（小时，向下取整，与 ChronoUnit.HOURS 一致）
+        AggregationExpression handlingHours = ArithmeticOperators.Floor.floorValueOf(
+                ArithmeticOperators.Divide.valueOf(
+                        ArithmeticOperators.Subtract.valueOf("handledAt").subtract("createdAt"))
+                        .divideBy(MILLIS_PER_HOUR));
+
+        FacetOperation facet = Aggregation.facet(Aggregation.count().as("count")).as("total")
+                .and(Aggregation.group("status").count().as("count")).as("byStatus")
+                .and(Aggregation.group("reason").count().as("count")).as("byReason")
+                .and(Aggregation.match(Criteria.where("status").in(ReportStatus.RESOLVED, ReportStatus.REJECTED)
+                                .and("handledAt").ne(null)
+                                .and("createdAt").ne(null)),
+                        Aggregation.project().and(handlingHours).as("hours"),
+                        Aggregation.group().avg("hours").as("avgHours")).as("handling");
+
+        Aggregation aggregation = Aggregation.newAggregation(ReviewReportDocument.class, facet);
+        Document result = mongoTemplate.aggregate(aggregation, ReviewReportDocument.class, Document.class)
+                .getUniqueMappedResult();
+        if (result == null) {
+            result = new Document();
+        }
 
-        // 基础统计
-        long totalCount = reviewReportRepository.count();
-        long pendingCount = reviewReportRepository.countByStatus(ReportStatus.PENDING);
-        long reviewingCount = reviewReportRepository.countByStatus(ReportStatus.REVIEWING);
-        long processedCount = reviewReportRepository.countByStatus(ReportStatus.RESOLVED);
-        long rejectedCount = reviewReportRepository.countByStatus(ReportStatus.REJECTED);
+        // 总数单独 $count，缺少 status 的旧举报不在任何状态桶里，但仍计入总数
+        Document total = firstFacetDocument(result, "total");
+        long totalCount = total != null && total.get("count") instanceof Number count ? count.longValue() : 0L;
 
-        // 时间统计
-        long todayCount = reviewReportRepository.countTodayReports(todayStart);
-        long thisWeekCount = reviewReportRepository.countWeekReports(weekStart);
-        long thisMonthCount = reviewReportRepository.countMonthReports(monthStart);
+        // 状态分布统计
+        Map<String, Long> countsByStatus = toDistribution(result, "byStatus");
+        long pendingCount = countsByStatus.getOrDefault(ReportStatus.PENDING.name(), 0L);
+        long reviewingCount = countsByStatus.getOrDefault(ReportStatus.REVIEWING.name(), 0L);
+        long processedCount = countsByStatus.getOrDefault(ReportStatus.RESOLVED.name(), 0L);
+        long rejectedCount = countsByStatus.getOrDefault(ReportStatus.REJECTED.name(), 0L);
 
-        // 原因分布统计
+        Map<String, Long> statusDistribution = new HashMap<>();
+        statusDistribution.put("PENDING", pendingCount);
+        statusDistribution.put("REVIEWING", reviewingCount);
+        statusDistribution.put("RESOLVED", processedCount);
+        statusDistribution.put("REJECTED", rejectedCount);
+
+        // 原因分布统计（只保留已知原因）
         Map<String, Long> reasonDistribution = new HashMap<>();
+        Map<String, Long> countsByReason = toDistribution(result, "byReason");
         for (ReportReason reason : ReportReason.values()) {
-            long count = reviewReportRepository.countByReason(reason.name());
+            long count = countsByReason.getOrDefault(reason.name(), 0L);
             if (count > 0) {
                 reasonDistribution.put(reason.name(), count);
             }
         }
 
-        // 状态分布统计
-        Map<String, Long> statusDistribution = new HashMap<>();
-        statusDistribution.put("PENDING", pendingCount);
-        statusDistribution.put("REVIEWING", reviewingCount);
-        statusDistribution.put("RESOLVED", processedCount);
-        statusDistribution.put("REJECTED", rejectedCount);
-
-        // 计算平均处理时间
-        Double averageHandlingTimeHours = calculateAverageHandlingTime();
+        // 平均处理时间
+        Document handling = firstFacetDocument(result, "handling");
+        Double averageHandlingTimeHours = handling != null && handling.get("avgHours") instanceof Number avg
+                ? avg.doubleValue() : null;
 
         // 计算处理率
         Double processingRate = totalCount > 0 ? (double) processedCount / totalCount : 0.0;
 
+        ActivityBucketService.WindowCounts windowCounts = activityBucketService.getWindowCounts(ActivityMetric.REPORT, now);
+
         return ReportStatistics.builder()
                 .totalCount(totalCount)
                 .pendingCount(pendingCount)
                 .reviewingCount(reviewingCount)
                 .processedCount(processedCount)
                 .rejectedCount(rejectedCount)
-                .todayCount(todayCount)
-                .thisWeekCount(thisWeekCount)
-                .thisMonthCount(thisMonthCount)
+                .todayCount(windowCounts.today())
+                .thisWeekCount(windowCounts.thisWeek())
+                .thisMonthCount(windowCounts.thisMonth())
                 .reasonDistribution(reasonDistribution)
                 .statusDistribution(statusDistribution)
                 .averageHandlingTimeHours(averageHandlingTimeHours)
@@ -194,31 +285,33 @@ public class ReviewReportService {
     }
 
     /**
-     * 计算平均处理时间（小时）
+     * 清除统计缓存，举报数据变更后调用
      */
-    private Double calculateAverageHandlingTime() {
-        Query query = new Query();
-        query.addCriteria(Criteria.where("status").in(Arrays.asList(ReportStatus.RESOLVED, ReportStatus.REJECTED)));
-        query.addCriteria(Criteria.where("handledAt").ne(null));
-
-        List<ReviewReportDocument> handledReports = mongoTemplate.find(query, ReviewReportDocument.class);
-
-        if (handledReports.isEmpty()) {
-            return null;
-        }
-
-        double totalHours = 0;
-        int count = 0;
+    private void invalidateStatistics() {
+        statisticsGeneration.incrementAndGet();
+        cachedStatistics.set(null);
+    }
 
-        for (ReviewReportDocument report : handledReports) {
-            if (report.getHandledAt() != null && report.getCreatedAt() != null) {
-                long hours = ChronoUnit.HOURS.between(report.getCreatedAt(), report.getHandledAt());
-                totalHours += hours;
-                count++;
+    private Map<String, Long> toDistribution(Document result, String facetName) {
+        Map<String, Long> distribution = new HashMap<>();
+        for (Document bucket : result.getList(facetName, Document.class, List.of())) {
+            Object key = bucket.get("_id");
+            if (key != null) {
+                distribution.put(key.toString(), ((Number) bucket.get("count")).longValue());
             }
         }
+        return distribution;
+    }
+
+    private Document firstFacetDocument(Document result, String facetName) {
+        List<Document> buckets = result.getList(facetName, Document.class, List.of());
+        return buckets.isEmpty() ? null : buckets.get(0);
+    }
 
-        return count > 0 ? totalHours / count : null;
+    /**
+     * @param generation 开始计算时的失效代数，与当前代数不同时视为过期
+     */
+    private record CachedStatistics(ReportStatistics statistics, long expiresAt, long generation) {
     }
 
     private ReportResponse mapToResponse(ReviewReportDocument document) {
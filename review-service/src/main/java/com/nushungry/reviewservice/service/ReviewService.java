@@ -1,20 +1,40 @@
 package com.nushungry.reviewservice.service;
 
 import com.nushungry.reviewservice.document.ReviewDocument;
+import com.nushungry.reviewservice.document.ReviewLikeDocument;
+import com.nushungry.reviewservice.document.ReviewReportDocument;
+import com.nushungry.reviewservice.dto.BatchDeleteResponse;
 import com.nushungry.reviewservice.dto.CreateReviewRequest;
+import com.nushungry.reviewservice.dto.CursorPageResponse;
 import com.nushungry.reviewservice.dto.ReviewResponse;
 import com.nushungry.reviewservice.dto.UpdateReviewRequest;
+import com.nushungry.reviewservice.enums.ActivityMetric;
 import com.nushungry.reviewservice.exception.ResourceNotFoundException;
 import com.nushungry.reviewservice.exception.UnauthorizedException;
+import com.nushungry.reviewservice.exception.ValidationException;
 import com.nushungry.reviewservice.repository.ReviewRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 
 @Service
 @RequiredArgsConstructor
@@ -23,8 +43,16 @@ public class ReviewService {
 
     private final ReviewRepository reviewRepository;
     private final ReviewLikeService reviewLikeService;
-    private final RatingCalculationService ratingCalculationService;
-    private final PriceCalculationService priceCalculationService;
+    private final StallAggregateDebouncer stallAggregateDebouncer;
+    private final StallReviewCache stallReviewCache;
+    private final MongoTemplate mongoTemplate;
+    private final ReviewHotScoreService reviewHotScoreService;
+    private final ActivityBucketService activityBucketService;
+    private final ReviewDuplicateService reviewDuplicateService;
+    private final StallTermService stallTermService;
+
+    private static final String CURSOR_SEPARATOR = "|";
+    private static final int MAX_CURSOR_PAGE_SIZE = 50;
 
     @Transactional
     public ReviewResponse createReview(CreateReviewRequest request, String userId, String username, String userAvatarUrl) {
@@ -45,12 +73,17 @@ public class ReviewService {
                 .createdAt(LocalDateTime.now())
                 .updatedAt(LocalDateTime.now())
                 .build();
+        reviewHotScoreService.applyTo(review);
 
         ReviewDocument savedReview = reviewRepository.save(review);
         log.info("Review created with ID: {}", savedReview.getId());
 
-        ratingCalculationService.calculateAndPublishRating(request.getStallId());
-        priceCalculationService.calculateAndPublishPrice(request.getStallId());
+        stallReviewCache.onReviewSaved(savedReview, true);
+        activityBucketService.record(ActivityMetric.REVIEW, savedReview.getCreatedAt(), 1);
+        reviewDuplicateService.inspect(savedReview, true);
+        stallTermService.onCommentChanged(savedReview.getStallId(), null, savedReview.getComment());
+
+        stallAggregateDebouncer.requestRefresh(request.getStallId());
 
         return mapToResponse(savedReview, userId);
     }
@@ -64,6 +97,8 @@ public class ReviewService {
 
         checkOwnership(review, userId);
 
+        String previousComment = review.getComment();
+        boolean commentChanged = request.getComment() != null && !request.getComment().equals(previousComment);
         if (request.getRating() != null) {
             review.setRating(request.getRating());
         }
@@ -84,8 +119,13 @@ public class ReviewService {
         ReviewDocument updatedReview = reviewRepository.save(review);
         log.info("Review updated successfully");
 
-        ratingCalculationService.calculateAndPublishRating(review.getStallId());
-        priceCalculationService.calculateAndPublishPrice(review.getStallId());
+        stallReviewCache.onReviewSaved(updatedReview, false);
+        if (commentChanged) {
+            reviewDuplicateService.inspect(updatedReview, false);
+            stallTermService.onCommentChanged(updatedReview.getStallId(), previousComment, updatedReview.getComment());
+        }
+
+        stallAggregateDebouncer.requestRefresh(review.getStallId());
 
         return mapToResponse(updatedReview, userId);
     }
@@ -103,8 +143,112 @@ public class ReviewService {
         reviewRepository.delete(review);
         log.info("Review deleted successfully");
 
-        ratingCalculationService.calculateAndPublishRating(stallId);
-        priceCalculationService.calculateAndPublishPrice(stallId);
+        stallReviewCache.onReviewDeleted(review);
+        activityBucketService.record(ActivityMetric.REVIEW, review.getCreatedAt(), -1);
+        reviewDuplicateService.remove(List.of(reviewId));
+        stallTermService.onCommentChanged(stallId, review.getComment(), null);
+
+        stallAggregateDebouncer.requestRefresh(stallId);
+    }
+
+    /**
+     * 批量删除评价（管理员）
+     * 一次投影查询取得受影响的摊位，一次 deleteMany 删除评价，并级联删除点赞和举报；
+     * 每个受影响的摊位只重算一次评分和价格
+     */
+    @Transactional
+    public BatchDeleteResponse batchDeleteReviews(List<String> reviewIds) {
+        List<String> ids = reviewIds.stream().filter(Objects::nonNull).distinct().toList();
+        log.info("Batch deleting {} reviews", ids.size());
+
+        if (ids.isEmpty()) {
+            return BatchDeleteResponse.builder()
+                    .requestedCount(0)
+                    .deletedReviews(0L)
+                    .deletedLikes(0L)
+                    .deletedReports(0L)
+                    .affectedStallIds(List.of())
+                    .build();
+        }
+
+        Query existing = Query.query(Criteria.where("_id").in(ids));
+        existing.fields().include("stallId").include("createdAt");
+        List<ReviewDocument> found = mongoTemplate.find(existing, ReviewDocument.class);
+
+        List<String> foundIds = found.stream().map(ReviewDocument::getId).toList();
+        Set<Long> stallIds = new LinkedHashSet<>();
+        found.forEach(review -> stallIds.add(review.getStallId()));
+
+        long deletedReviews = 0;
+        long deletedLikes = 0;
+        long deletedReports = 0;
+        if (!foundIds.isEmpty()) {
+            Query reportQuery = Query.query(Criteria.where("reviewId").in(foundIds));
+            reportQuery.fields().include("createdAt");
+            List<LocalDateTime> reportCreatedAts = mongoTemplate.find(reportQuery, ReviewReportDocument.class).stream()
+                    .map(ReviewReportDocument::getCreatedAt)
+                    .toList();
+
+            deletedReviews = mongoTemplate.remove(
+                    Query.query(Criteria.where("_id").in(foundIds)), ReviewDocument.class).getDeletedCount();
+            deletedLikes = mongoTemplate.remove(
+                    Query.query(Criteria.where("reviewId").in(foundIds)), ReviewLikeDocument.class).getDeletedCount();
+            deletedReports = mongoTemplate.remove(
+                    Query.query(Criteria.where("reviewId").in(foundIds)), ReviewReportDocument.class).getDeletedCount();
+
+            activityBucketService.record(ActivityMetric.REVIEW,
+                    found.stream().map(ReviewDocument::getCreatedAt).toList(), -1);
+            activityBucketService.record(ActivityMetric.REPORT, reportCreatedAts, -1);
+            reviewDuplicateService.remove(foundIds);
+        }
+        log.info("Batch delete completed: {} reviews, {} likes, {} reports deleted across {} stalls",
+                deletedReviews, deletedLikes, deletedReports, stallIds.size());
+
+        for (Long stallId : stallIds) {
+            stallReviewCache.evictStall(stallId);
+            stallTermService.evict(stallId);
+            stallAggregateDebouncer.requestRefresh(stallId);
+        }
+
+        return BatchDeleteResponse.builder()
+                .requestedCount(ids.size())
+                .deletedReviews(deletedReviews)
+                .deletedLikes(deletedLikes)
+                .deletedReports(deletedReports)
+                .affectedStallIds(List.copyOf(stallIds))
+                .build();
+    }
+
+    /**
+     * 同步用户资料变更到该用户的全部评价
+     * 一次 updateMany 按 userId 过滤（命中 user_created_id_idx 前缀）；
+     * 带事件时间时只改写 profileUpdatedAt 更早的评价，重复投递和乱序到达的旧事件都不会生效，
+     * 没有事件时间时退回为只改写资料不同的评价
+     *
+     * @param updatedAt 资料变更事件时间，可为空
+     * @return 实际修改的评价数
+     */
+    public long updateUserProfile(String userId, String username, String userAvatarUrl, LocalDateTime updatedAt) {
+        Criteria criteria = Criteria.where("userId").is(userId);
+        Update update = new Update()
+                .set("username", username)
+                .set("userAvatarUrl", userAvatarUrl);
+        if (updatedAt != null) {
+            criteria.orOperator(Criteria.where("profileUpdatedAt").is(null),
+                    Criteria.where("profileUpdatedAt").lt(updatedAt));
+            update.set("profileUpdatedAt", updatedAt);
+        } else {
+            criteria.orOperator(Criteria.where("username").ne(username),
+                    Criteria.where("userAvatarUrl").ne(userAvatarUrl));
+        }
+        Query query = Query.query(criteria);
+        long modified = mongoTemplate.updateMulti(query, update, ReviewDocument.class).getModifiedCount();
+        log.info("Synced profile of user {} to {} reviews", userId, modified);
+
+        if (modified > 0) {
+            stallReviewCache.onUserProfileChanged(userId, username, userAvatarUrl);
+        }
+        return modified;
     }
 
     public ReviewResponse getReviewById(String reviewId, String currentUserId) {
@@ -116,9 +260,16 @@ public class ReviewService {
 
     public Page<ReviewResponse> getReviewsByStallId(Long stallId, String sortBy, String currentUserId, Pageable pageable) {
         log.info("Getting reviews for stall ID: {} sorted by: {}", stallId, sortBy);
-        
+
+        boolean byHot = "hot".equalsIgnoreCase(sortBy);
+        if (!byHot && pageable.getPageNumber() == 0 && stallReviewCache.canServe(pageable.getPageSize())) {
+            return getFirstPageByStallId(stallId, "likes".equalsIgnoreCase(sortBy), currentUserId, pageable);
+        }
+
         Page<ReviewDocument> reviews;
-        if ("likes".equalsIgnoreCase(sortBy)) {
+        if (byHot) {
+            reviews = reviewRepository.findByStallIdOrderByHotScoreDescIdDesc(stallId, pageable);
+        } else if ("likes".equalsIgnoreCase(sortBy)) {
             reviews = reviewRepository.findByStallIdOrderByLikesCountDesc(stallId, pageable);
         } else {
             reviews = reviewRepository.findByStallIdOrderByCreatedAtDesc(stallId, pageable);
@@ -127,21 +278,177 @@ public class ReviewService {
         return reviews.map(review -> mapToResponse(review, currentUserId));
     }
 
+    /**
+     * 摊位评价首页走缓存，缓存中只有文档，点赞状态按当前用户一次批量查询后叠加
+     */
+    private Page<ReviewResponse> getFirstPageByStallId(Long stallId, boolean byLikes, String currentUserId,
+                                                       Pageable pageable) {
+        StallReviewCache.CachedPage cached = stallReviewCache.get(stallId, byLikes, pageable.getPageSize());
+        if (cached == null) {
+            long generation = stallReviewCache.currentGeneration();
+            Pageable top = PageRequest.of(0, stallReviewCache.getDepth());
+            List<ReviewDocument> reviews = byLikes
+                    ? reviewRepository.findByStallIdOrderByLikesCountDescIdDesc(stallId, top)
+                    : reviewRepository.findByStallIdOrderByCreatedAtDescIdDesc(stallId, top);
+            long total = reviews.size() < top.getPageSize() ? reviews.size() : reviewRepository.countByStallId(stallId);
+            stallReviewCache.put(stallId, byLikes, reviews, total, generation);
+            cached = new StallReviewCache.CachedPage(
+                    reviews.subList(0, Math.min(pageable.getPageSize(), reviews.size())), total);
+        }
+
+        return new PageImpl<>(mapToResponses(cached.reviews(), currentUserId), pageable, cached.total());
+    }
+
     public Page<ReviewResponse> getReviewsByUserId(String userId, String currentUserId, Pageable pageable) {
         log.info("Getting reviews by user ID: {}", userId);
         Page<ReviewDocument> reviews = reviewRepository.findByUserIdOrderByCreatedAtDesc(userId, pageable);
         return reviews.map(review -> mapToResponse(review, currentUserId));
     }
 
+    /**
+     * 游标分页获取摊位评价，每页都是一次有界的索引范围扫描，不执行 count
+     * cursor 为空表示第一页
+     */
+    public CursorPageResponse<ReviewResponse> getReviewsByStallIdCursor(Long stallId, String sortBy, String cursor,
+                                                                       int size, String currentUserId) {
+        log.info("Getting reviews for stall ID: {} sorted by: {} with cursor", stallId, sortBy);
+        validateCursorPageSize(size);
+
+        Pageable limit = PageRequest.of(0, size + 1);
+        boolean byLikes = "likes".equalsIgnoreCase(sortBy);
+        String[] position = decodeCursor(cursor);
+
+        List<ReviewDocument> reviews;
+        if (byLikes) {
+            reviews = position == null
+                    ? reviewRepository.findByStallIdOrderByLikesCountDescIdDesc(stallId, limit)
+                    : reviewRepository.findByStallIdLikesCountAfterCursor(
+                            stallId, parseCursorValue(position[0], Integer::valueOf), toObjectId(position[1]), limit);
+        } else {
+            reviews = position == null
+                    ? reviewRepository.findByStallIdOrderByCreatedAtDescIdDesc(stallId, limit)
+                    : reviewRepository.findByStallIdCreatedAtAfterCursor(
+                            stallId, parseCursorValue(position[0], LocalDateTime::parse), toObjectId(position[1]), limit);
+        }
+
+        return toCursorPage(reviews, size, currentUserId,
+                last -> byLikes
+                        ? encodeCursor(String.valueOf(Objects.requireNonNullElse(last.getLikesCount(), 0)), last.getId())
+                        : encodeCursor(last.getCreatedAt(), last.getId()));
+    }
+
+    /**
+     * 游标分页获取用户评价（按创建时间倒序）
+     */
+    public CursorPageResponse<ReviewResponse> getReviewsByUserIdCursor(String userId, String cursor, int size,
+                                                                      String currentUserId) {
+        log.info("Getting reviews by user ID: {} with cursor", userId);
+        validateCursorPageSize(size);
+
+        Pageable limit = PageRequest.of(0, size + 1);
+        String[] position = decodeCursor(cursor);
+
+        List<ReviewDocument> reviews = position == null
+                ? reviewRepository.findByUserIdOrderByCreatedAtDescIdDesc(userId, limit)
+                : reviewRepository.findByUserIdCreatedAtAfterCursor(
+                        userId, parseCursorValue(position[0], LocalDateTime::parse), toObjectId(position[1]), limit);
+
+        return toCursorPage(reviews, size, currentUserId,
+                last -> encodeCursor(last.getCreatedAt(), last.getId()));
+    }
+
+    private void validateCursorPageSize(int size) {
+        if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+            throw new ValidationException("Page size must be between 1 and " + MAX_CURSOR_PAGE_SIZE);
+        }
+    }
+
+    /**
+     * 多查询一条用于判断是否还有下一页
+     * 最后一条没有排序字段（旧数据缺少 createdAt）时无法生成游标，到此结束
+     */
+    private CursorPageResponse<ReviewResponse> toCursorPage(List<ReviewDocument> reviews, int size, String currentUserId,
+                                                           Function<ReviewDocument, String> cursorOf) {
+        boolean hasNext = reviews.size() > size;
+        List<ReviewDocument> pageContent = hasNext ? reviews.subList(0, size) : reviews;
+        String nextCursor = hasNext ? cursorOf.apply(pageContent.get(pageContent.size() - 1)) : null;
+        if (hasNext && nextCursor == null) {
+            log.warn("Review {} has no sort value, ending cursor feed", pageContent.get(pageContent.size() - 1).getId());
+            hasNext = false;
+        }
+
+        return CursorPageResponse.<ReviewResponse>builder()
+                .content(mapToResponses(pageContent, currentUserId))
+                .nextCursor(nextCursor)
+                .hasNext(hasNext)
+                .size(pageContent.size())
+                .build();
+    }
+
+    private String encodeCursor(LocalDateTime createdAt, String id) {
+        return createdAt == null ? null : encodeCursor(createdAt.toString(), id);
+    }
+
+    private String encodeCursor(String sortValue, String id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((sortValue + CURSOR_SEPARATOR + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String[] decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.lastIndexOf(CURSOR_SEPARATOR);
+            if (separator <= 0) {
+                throw new ValidationException("Invalid cursor");
+            }
+            return new String[]{decoded.substring(0, separator), decoded.substring(separator + 1)};
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Invalid cursor");
+        }
+    }
+
+    private <T> T parseCursorValue(String value, Function<String, T> parser) {
+        try {
+            return parser.apply(value);
+        } catch (RuntimeException e) {
+            throw new ValidationException("Invalid cursor");
+        }
+    }
+
+    private ObjectId toObjectId(String id) {
+        if (!ObjectId.isValid(id)) {
+            throw new ValidationException("Invalid cursor");
+        }
+        return new ObjectId(id);
+    }
+
     private void checkOwnership(ReviewDocument review, String userId) {
         if (!review.getUserId().equals(userId)) {
             throw new UnauthorizedException("You are not authorized to modify this review");
         }
     }
 
+    /**
+     * 一页评价的点赞状态按当前用户一次批量查询，避免逐条 isLikedByUser
+     */
+    private List<ReviewResponse> mapToResponses(List<ReviewDocument> reviews, String currentUserId) {
+        Set<String> likedIds = currentUserId == null || reviews.isEmpty()
+                ? Set.of()
+                : reviewLikeService.getLikedReviewIds(reviews.stream().map(ReviewDocument::getId).toList(), currentUserId);
+        return reviews.stream()
+                .map(review -> mapToResponse(review, likedIds.contains(review.getId())))
+                .toList();
+    }
+
     private ReviewResponse mapToResponse(ReviewDocument document, String currentUserId) {
         boolean isLiked = currentUserId != null && reviewLikeService.isLikedByUser(document.getId(), currentUserId);
-        
+        return mapToResponse(document, isLiked);
+    }
+
+    static ReviewResponse mapToResponse(ReviewDocument document, boolean isLiked) {
         return ReviewResponse.builder()
                 .id(document.getId())
                 .stallId(document.getStallId())
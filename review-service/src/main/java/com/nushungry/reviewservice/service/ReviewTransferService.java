@@ -0,0 +1,265 @@
+package com.nushungry.reviewservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import com.nushungry.reviewservice.document.ReviewDocument;
+import com.nushungry.reviewservice.dto.ReviewImportResponse;
+import com.nushungry.reviewservice.enums.ActivityMetric;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * 评价批量导出/导入（NDJSON，每行一条评价文档）
+ * 导出通过 MongoDB 游标逐条写出，导入按批次执行无序 bulk 写入，
+ * 评分和价格的重算推迟到导入结束后对每个受影响摊位执行一次
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReviewTransferService {
+
+    private static final int MAX_REPORTED_ERRORS = 20;
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final StallAggregateDebouncer stallAggregateDebouncer;
+    private final StallReviewCache stallReviewCache;
+    private final ReviewHotScoreService reviewHotScoreService;
+    private final ActivityBucketService activityBucketService;
+    private final ReviewDuplicateService reviewDuplicateService;
+    private final StallTermService stallTermService;
+
+    @Value("${review.transfer.import.batch-size:1000}")
+    private int importBatchSize;
+
+    @Value("${review.transfer.export.cursor-batch-size:1000}")
+    private int exportCursorBatchSize;
+
+    /**
+     * 按 _id 顺序导出评价，stallId 为空时导出全部
+     *
+     * @return 导出的评价数
+     */
+    public long exportReviews(Long stallId, OutputStream outputStream) throws IOException {
+        long start = System.currentTimeMillis();
+        Query query = stallId == null ? new Query() : Query.query(Criteria.where("stallId").is(stallId));
+        query.with(Sort.by(Sort.Direction.ASC, "_id")).cursorBatchSize(exportCursorBatchSize);
+
+        long count = 0;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        try (Stream<ReviewDocument> reviews = mongoTemplate.stream(query, ReviewDocument.class)) {
+            for (ReviewDocument review : (Iterable<ReviewDocument>) reviews::iterator) {
+                writer.write(objectMapper.writeValueAsString(review));
+                writer.write('\n');
+                count++;
+            }
+        }
+        writer.flush();
+
+        long durationMs = System.currentTimeMillis() - start;
+        log.info("Exported {} reviews in {} ms ({} reviews/s)", count, durationMs, throughput(count, durationMs));
+        return count;
+    }
+
+    /**
+     * 导入 NDJSON 评价
+     * 带 id 的行按 id 覆盖写入（可重复执行），不带 id 的行作为新评价插入；
+     * 单行解析或写入失败不影响其他行
+     */
+    public ReviewImportResponse importReviews(InputStream inputStream) throws IOException {
+        long start = System.currentTimeMillis();
+        ImportProgress progress = new ImportProgress();
+        List<ReviewDocument> batch = new ArrayList<>(importBatchSize);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        String line;
+        long lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            progress.received++;
+
+            ReviewDocument review = parseLine(line, lineNumber, progress);
+            if (review == null) {
+                continue;
+            }
+            batch.add(review);
+            if (batch.size() >= importBatchSize) {
+                writeBatch(batch, progress);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(batch, progress);
+        }
+
+        // 所有数据写入后，每个摊位只重算一次
+        for (Long stallId : progress.stallIds) {
+            stallReviewCache.evictStall(stallId);
+            stallTermService.evict(stallId);
+            stallAggregateDebouncer.requestRefresh(stallId);
+        }
+
+        long durationMs = System.currentTimeMillis() - start;
+        double reviewsPerSecond = throughput(progress.imported, durationMs);
+        log.info("Imported {} of {} reviews ({} failed) in {} batches, {} ms ({} reviews/s)",
+                progress.imported, progress.received, progress.failed, progress.batches, durationMs, reviewsPerSecond);
+
+        return ReviewImportResponse.builder()
+                .receivedLines(progress.received)
+                .importedCount(progress.imported)
+                .failedCount(progress.failed)
+                .batches(progress.batches)
+                .affectedStalls(progress.stallIds.size())
+                .durationMs(durationMs)
+                .reviewsPerSecond(reviewsPerSecond)
+                .errors(progress.errors)
+                .build();
+    }
+
+    private ReviewDocument parseLine(String line, long lineNumber, ImportProgress progress) {
+        ReviewDocument review;
+        try {
+            review = objectMapper.readValue(line, ReviewDocument.class);
+        } catch (IOException e) {
+            progress.fail("line " + lineNumber + ": invalid JSON");
+            return null;
+        }
+        if (review.getStallId() == null || review.getRating() == null) {
+            progress.fail("line " + lineNumber + ": stallId and rating are required");
+            return null;
+        }
+        if (review.getLikesCount() == null) {
+            review.setLikesCount(0);
+        }
+        if (review.getCreatedAt() == null) {
+            review.setCreatedAt(LocalDateTime.now());
+        }
+        if (review.getUpdatedAt() == null) {
+            review.setUpdatedAt(review.getCreatedAt());
+        }
+        reviewHotScoreService.applyTo(review);
+        return review;
+    }
+
+    private void writeBatch(List<ReviewDocument> batch, ImportProgress progress) {
+        collectOverwrittenStallIds(batch, progress);
+
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ReviewDocument.class);
+        boolean[] inserts = new boolean[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            ReviewDocument review = batch.get(i);
+            inserts[i] = review.getId() == null;
+            if (inserts[i]) {
+                // 预先分配 id，写入后用于建立内容指纹
+                review.setId(new ObjectId().toHexString());
+                bulkOps.insert(review);
+            } else {
+                bulkOps.replaceOne(Query.query(Criteria.where("_id").is(review.getId())), review,
+                        FindAndReplaceOptions.options().upsert());
+            }
+        }
+
+        BulkWriteResult result;
+        Set<Integer> failedIndexes = new HashSet<>();
+        try {
+            result = bulkOps.execute();
+        } catch (BulkOperationException e) {
+            // 无序模式下其余写入仍会执行，只统计失败的部分
+            result = e.getResult();
+            e.getErrors().forEach(error -> progress.fail("bulk write: " + error.getMessage()));
+            e.getErrors().stream().map(BulkWriteError::getIndex).forEach(failedIndexes::add);
+        }
+
+        progress.batches++;
+        progress.imported += result.getInsertedCount() + result.getMatchedCount() + result.getUpserts().size();
+        batch.forEach(review -> progress.stallIds.add(review.getStallId()));
+
+        // 新增的评价（成功的 insert 和 upsert 插入）计入分桶计数，覆盖已有评价不改变数量
+        Set<Integer> upsertedIndexes = new HashSet<>();
+        result.getUpserts().stream().map(BulkWriteUpsert::getIndex).forEach(upsertedIndexes::add);
+        // 所有写入成功的评价（包括覆盖）重建内容指纹，导入数据不做重复检测
+        List<LocalDateTime> createdAts = new ArrayList<>();
+        List<ReviewDocument> written = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            boolean created = inserts[i] ? !failedIndexes.contains(i) : upsertedIndexes.contains(i);
+            if (created) {
+                createdAts.add(batch.get(i).getCreatedAt());
+            }
+            if (!failedIndexes.contains(i)) {
+                written.add(batch.get(i));
+            }
+        }
+        activityBucketService.record(ActivityMetric.REVIEW, createdAts, 1);
+        reviewDuplicateService.index(written);
+    }
+
+    /**
+     * 按 id 覆盖的评价可能被移到其他摊位，原摊位的聚合、首页缓存和高频词同样需要刷新；
+     * 写入前用一次只取 stallId 的 $in 查询找出原摊位
+     */
+    private void collectOverwrittenStallIds(List<ReviewDocument> batch, ImportProgress progress) {
+        List<String> ids = batch.stream().map(ReviewDocument::getId).filter(Objects::nonNull).toList();
+        if (ids.isEmpty()) {
+            return;
+        }
+        Query query = Query.query(Criteria.where("_id").in(ids));
+        query.fields().include("stallId");
+        for (ReviewDocument existing : mongoTemplate.find(query, ReviewDocument.class)) {
+            if (existing.getStallId() != null) {
+                progress.stallIds.add(existing.getStallId());
+            }
+        }
+    }
+
+    private static double throughput(long count, long durationMs) {
+        return durationMs <= 0 ? count : Math.round(count * 1000.0 / durationMs * 10) / 10.0;
+    }
+
+    private static final class ImportProgress {
+        private long received;
+        private long imported;
+        private long failed;
+        private int batches;
+        private final Set<Long> stallIds = new HashSet<>();
+        private final List<String> errors = new ArrayList<>();
+
+        private void fail(String error) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(error);
+            }
+        }
+    }
+}
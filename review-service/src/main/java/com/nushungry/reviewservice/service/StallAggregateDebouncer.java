@@ -0,0 +1,224 @@
+package com.nushungry.reviewservice.service;
+
+import com.nushungry.reviewservice.document.StallAggregateDirtyDocument;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 摊位聚合数据（评分、价格）重算的防抖器
+ * 同一摊位在 window 内的多次评价变更合并为一次重算和发布；
+ * 持续有变更时，从第一次变更起最多延迟 max-delay 后必定执行一次。
+ * 待重算的摊位同时记录在 stall_aggregate_dirty 集合中，重算成功后才删除；
+ * 实例崩溃丢失内存中的任务或重算失败时，由 recoverDirtyStalls 定时补做
+ */
+@Service
+@Slf4j
+public class StallAggregateDebouncer {
+
+    private final RatingCalculationService ratingCalculationService;
+    private final PriceCalculationService priceCalculationService;
+    private final MongoTemplate mongoTemplate;
+
+    private final Map<Long, PendingRefresh> pending = new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    private final Counter requestedCounter;
+    private final Counter coalescedCounter;
+    private final Counter flushedCounter;
+
+    @Value("${review.aggregate.debounce.window-ms:2000}")
+    private long windowMs;
+
+    @Value("${review.aggregate.debounce.max-delay-ms:10000}")
+    private long maxDelayMs;
+
+    // 标记超过 max-delay 加上这段宽限仍未删除，视为丢失或失败，由定时任务补做
+    @Value("${review.aggregate.recovery.grace-ms:30000}")
+    private long recoveryGraceMs;
+
+    @Value("${review.aggregate.recovery.batch-size:100}")
+    private int recoveryBatchSize;
+
+    public StallAggregateDebouncer(RatingCalculationService ratingCalculationService,
+                                   PriceCalculationService priceCalculationService,
+                                   MongoTemplate mongoTemplate,
+                                   MeterRegistry meterRegistry) {
+        this.ratingCalculationService = ratingCalculationService;
+        this.priceCalculationService = priceCalculationService;
+        this.mongoTemplate = mongoTemplate;
+
+        this.scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "stall-aggregate-debouncer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.setRemoveOnCancelPolicy(true);
+
+        this.requestedCounter = Counter.builder("review.aggregate.refresh.requested")
+                .description("Stall aggregate refresh requests from review mutations")
+                .register(meterRegistry);
+        this.coalescedCounter = Counter.builder("review.aggregate.refresh.coalesced")
+                .description("Refresh requests merged into an already pending refresh")
+                .register(meterRegistry);
+        this.flushedCounter = Counter.builder("review.aggregate.refresh.executed")
+                .description("Stall aggregate recalculations actually executed")
+                .register(meterRegistry);
+        Gauge.builder("review.aggregate.refresh.pending", pending, Map::size)
+                .description("Stalls with a pending aggregate refresh")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 请求重算摊位的评分和价格；window-ms 为 0 时同步执行
+     */
+    public void requestRefresh(Long stallId) {
+        if (stallId == null) {
+            return;
+        }
+        requestedCounter.increment();
+        markDirty(stallId);
+
+        if (windowMs <= 0) {
+            refresh(stallId);
+            return;
+        }
+
+        PendingRefresh next = pending.compute(stallId, (id, existing) -> {
+            if (existing == null) {
+                return new PendingRefresh(System.currentTimeMillis());
+            }
+            existing.cancel();
+            coalescedCounter.increment();
+            return new PendingRefresh(existing.firstRequestedAt);
+        });
+
+        // 映射写入之后再调度，保证任务执行时能找到自己
+        long delay = Math.max(0, Math.min(windowMs, next.firstRequestedAt + maxDelayMs - System.currentTimeMillis()));
+        next.future = scheduler.schedule(() -> flush(stallId, next), delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 补做残留的重算：标记超过 max-delay + grace 仍未删除，说明负责的实例已崩溃或重算失败；
+     * 仍失败的保留标记，下次继续重试
+     *
+     * @return 本次成功重算的摊位数
+     */
+    @Scheduled(initialDelayString = "${review.aggregate.recovery.interval-ms:60000}",
+            fixedDelayString = "${review.aggregate.recovery.interval-ms:60000}")
+    public int recoverDirtyStalls() {
+        LocalDateTime staleBefore = LocalDateTime.now().minusNanos((maxDelayMs + recoveryGraceMs) * 1_000_000);
+        Query query = Query.query(Criteria.where("requestedAt").lt(staleBefore))
+                .with(Sort.by("requestedAt"))
+                .limit(recoveryBatchSize);
+
+        int recovered = 0;
+        try {
+            for (StallAggregateDirtyDocument dirty : mongoTemplate.find(query, StallAggregateDirtyDocument.class)) {
+                // 本实例内存中仍有待执行的任务，交给它处理
+                if (pending.containsKey(dirty.getId())) {
+                    continue;
+                }
+                log.warn("Recovering lost aggregate refresh for stall ID: {}", dirty.getId());
+                if (refresh(dirty.getId())) {
+                    recovered++;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Failed to recover dirty stall aggregates", e);
+        }
+        return recovered;
+    }
+
+    /**
+     * 服务关闭时立即执行所有待处理的重算，避免丢失
+     */
+    @PreDestroy
+    public void flushAll() {
+        List<Long> stallIds = new ArrayList<>(pending.keySet());
+        for (Long stallId : stallIds) {
+            PendingRefresh refresh = pending.get(stallId);
+            if (refresh != null) {
+                refresh.cancel();
+                flush(stallId, refresh);
+            }
+        }
+        scheduler.shutdown();
+    }
+
+    private void flush(Long stallId, PendingRefresh refresh) {
+        // 已被更新的请求替换时由新的任务负责执行
+        if (!pending.remove(stallId, refresh)) {
+            return;
+        }
+        refresh(stallId);
+    }
+
+    /**
+     * 重算成功后删除标记；只删除开始重算之前写入的标记，重算期间的新请求保留
+     */
+    private boolean refresh(Long stallId) {
+        LocalDateTime startedAt = LocalDateTime.now();
+        try {
+            ratingCalculationService.calculateAndPublishRating(stallId);
+            priceCalculationService.calculateAndPublishPrice(stallId);
+            flushedCounter.increment();
+        } catch (Exception e) {
+            log.error("Failed to refresh aggregates for stall ID: {}, will retry", stallId, e);
+            return false;
+        }
+
+        try {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").is(stallId).and("requestedAt").lt(startedAt)),
+                    StallAggregateDirtyDocument.class);
+        } catch (Exception e) {
+            log.warn("Failed to clear dirty marker for stall ID: {}", stallId, e);
+        }
+        return true;
+    }
+
+    private void markDirty(Long stallId) {
+        try {
+            mongoTemplate.upsert(Query.query(Criteria.where("_id").is(stallId)),
+                    Update.update("requestedAt", LocalDateTime.now()), StallAggregateDirtyDocument.class);
+        } catch (Exception e) {
+            // 评价已经写入，不因标记失败而让请求失败；内存中的任务仍会执行
+            log.error("Failed to mark stall ID: {} dirty", stallId, e);
+        }
+    }
+
+    private static final class PendingRefresh {
+        private final long firstRequestedAt;
+        private volatile ScheduledFuture<?> future;
+
+        private PendingRefresh(long firstRequestedAt) {
+            this.firstRequestedAt = firstRequestedAt;
+        }
+
+        private void cancel() {
+            ScheduledFuture<?> scheduled = future;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+        }
+    }
+}
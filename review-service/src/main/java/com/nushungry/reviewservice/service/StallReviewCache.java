@@ -0,0 +1,251 @@
+package com.nushungry.reviewservice.service;
+
+import com.nushungry.reviewservice.document.ReviewDocument;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 摊位评价首页缓存
+ * 按 (摊位, 排序方式) 缓存前 depth 条评价文档及摊位评价总数，按 LRU 限制缓存的摊位数。
+ * 评价的创建、更新、删除和点赞变化直接在缓存中就地修改，而不是简单失效；
+ * 缓存内容与用户无关，isLikedByCurrentUser 在响应时单独叠加。
+ * 多实例部署时其他实例的写入无法同步到本地，因此另设 TTL 限制最大陈旧时间。
+ */
+@Service
+public class StallReviewCache {
+
+    private static final Comparator<ReviewDocument> BY_ID_DESC =
+            Comparator.comparing(ReviewDocument::getId, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    private static final Comparator<ReviewDocument> BY_CREATED_AT =
+            Comparator.comparing(ReviewDocument::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder()))
+                    .thenComparing(BY_ID_DESC);
+
+    private static final Comparator<ReviewDocument> BY_LIKES =
+            Comparator.comparing((ReviewDocument review) -> likesOf(review), Comparator.reverseOrder())
+                    .thenComparing(BY_ID_DESC);
+
+    private final int maxStalls;
+    private final int depth;
+    private final long ttlMs;
+
+    private final Map<CacheKey, Entry> entries;
+
+    /**
+     * 每次写入递增；加载期间该摊位发生过写入的结果不放入缓存，避免覆盖就地修改
+     */
+    private long generation;
+
+    /**
+     * 各摊位最近一次写入时的 generation，只有同一摊位的写入才使加载结果作废
+     */
+    private final Map<Long, Long> lastWriteByStall = new HashMap<>();
+
+    /**
+     * 影响所有摊位的写入（用户资料变更、清空）以及 lastWriteByStall 超限清空时的 generation
+     */
+    private long globalWriteGeneration;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    public StallReviewCache(@Value("${review.cache.stall-first-page.max-stalls:1000}") int maxStalls,
+                            @Value("${review.cache.stall-first-page.depth:50}") int depth,
+                            @Value("${review.cache.stall-first-page.ttl-ms:60000}") long ttlMs,
+                            MeterRegistry meterRegistry) {
+        this.maxStalls = maxStalls;
+        this.depth = depth;
+        this.ttlMs = ttlMs;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, Entry> eldest) {
+                return size() > StallReviewCache.this.maxStalls * 2;
+            }
+        };
+
+        this.hitCounter = Counter.builder("review.cache.stall-first-page.hits")
+                .description("Stall first-page review requests served from cache")
+                .register(meterRegistry);
+        this.missCounter = Counter.builder("review.cache.stall-first-page.misses")
+                .description("Stall first-page review requests loaded from MongoDB")
+                .register(meterRegistry);
+        Gauge.builder("review.cache.stall-first-page.size", this, StallReviewCache::size)
+                .description("Cached (stall, sort) first pages")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 是否可以由缓存提供该大小的首页
+     */
+    public boolean canServe(int pageSize) {
+        return maxStalls > 0 && pageSize > 0 && pageSize <= depth;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * 读取缓存的首页，未命中、已过期或缓存条数不足时返回 null
+     */
+    public synchronized CachedPage get(Long stallId, boolean byLikes, int pageSize) {
+        CacheKey key = new CacheKey(stallId, byLikes);
+        Entry entry = entries.get(key);
+        if (entry != null && System.currentTimeMillis() - entry.loadedAt > ttlMs) {
+            entries.remove(key);
+            entry = null;
+        }
+        // 删除后缓存条数可能少于一页，此时只有在已缓存摊位的全部评价时才能直接返回
+        if (entry == null || (entry.reviews.size() < pageSize && entry.reviews.size() < entry.total)) {
+            missCounter.increment();
+            return null;
+        }
+        hitCounter.increment();
+        int end = Math.min(pageSize, entry.reviews.size());
+        return new CachedPage(List.copyOf(entry.reviews.subList(0, end)), entry.total);
+    }
+
+    /**
+     * 加载前获取当前版本，传给 {@link #put}
+     */
+    public synchronized long currentGeneration() {
+        return generation;
+    }
+
+    public synchronized void put(Long stallId, boolean byLikes, List<ReviewDocument> reviews, long total,
+                                 long loadedGeneration) {
+        if (maxStalls <= 0 || lastWriteGeneration(stallId) > loadedGeneration) {
+            return;
+        }
+        List<ReviewDocument> top = new ArrayList<>(reviews.subList(0, Math.min(depth, reviews.size())));
+        entries.put(new CacheKey(stallId, byLikes), new Entry(top, total, System.currentTimeMillis()));
+    }
+
+    /**
+     * 评价新建或更新（包括点赞数变化）后就地修改该摊位的缓存页
+     */
+    public synchronized void onReviewSaved(ReviewDocument review, boolean created) {
+        markWritten(review.getStallId());
+        for (boolean byLikes : new boolean[]{false, true}) {
+            Entry entry = entries.get(new CacheKey(review.getStallId(), byLikes));
+            if (entry != null) {
+                reposition(entry, review, created, byLikes ? BY_LIKES : BY_CREATED_AT);
+            }
+        }
+    }
+
+    public synchronized void onReviewDeleted(ReviewDocument review) {
+        markWritten(review.getStallId());
+        for (boolean byLikes : new boolean[]{false, true}) {
+            Entry entry = entries.get(new CacheKey(review.getStallId(), byLikes));
+            if (entry != null) {
+                entry.reviews.removeIf(cached -> Objects.equals(cached.getId(), review.getId()));
+                entry.total = Math.max(0, entry.total - 1);
+            }
+        }
+    }
+
+    /**
+     * 用户资料变更后就地修改缓存中该用户评价的用户名和头像，排序不受影响
+     */
+    public synchronized void onUserProfileChanged(String userId, String username, String userAvatarUrl) {
+        markAllWritten();
+        for (Entry entry : entries.values()) {
+            for (ReviewDocument cached : entry.reviews) {
+                if (Objects.equals(cached.getUserId(), userId)) {
+                    cached.setUsername(username);
+                    cached.setUserAvatarUrl(userAvatarUrl);
+                }
+            }
+        }
+    }
+
+    public synchronized void evictStall(Long stallId) {
+        markWritten(stallId);
+        entries.remove(new CacheKey(stallId, false));
+        entries.remove(new CacheKey(stallId, true));
+    }
+
+    public synchronized void clear() {
+        markAllWritten();
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private long lastWriteGeneration(Long stallId) {
+        return Math.max(globalWriteGeneration, lastWriteByStall.getOrDefault(stallId, 0L));
+    }
+
+    private void markWritten(Long stallId) {
+        generation++;
+        lastWriteByStall.put(stallId, generation);
+        // 限制记录的摊位数，超限时清空并当作一次全局写入
+        if (lastWriteByStall.size() > maxStalls * 4) {
+            markAllWritten();
+        }
+    }
+
+    private void markAllWritten() {
+        generation++;
+        globalWriteGeneration = generation;
+        lastWriteByStall.clear();
+    }
+
+    private void reposition(Entry entry, ReviewDocument review, boolean created,
+                            Comparator<ReviewDocument> comparator) {
+        // 所有未缓存的评价都排在最后一条缓存评价之后
+        boolean complete = entry.reviews.size() >= entry.total;
+        entry.reviews.removeIf(cached -> Objects.equals(cached.getId(), review.getId()));
+        if (created) {
+            entry.total++;
+        }
+
+        int position = 0;
+        while (position < entry.reviews.size() && comparator.compare(entry.reviews.get(position), review) <= 0) {
+            position++;
+        }
+        // 落在末尾且还有未缓存的评价时无法确定真实位置，不放入缓存
+        if (position < entry.reviews.size() || complete) {
+            entry.reviews.add(position, review);
+        }
+        while (entry.reviews.size() > depth) {
+            entry.reviews.remove(entry.reviews.size() - 1);
+        }
+    }
+
+    private static int likesOf(ReviewDocument review) {
+        return review.getLikesCount() == null ? 0 : review.getLikesCount();
+    }
+
+    public record CachedPage(List<ReviewDocument> reviews, long total) {
+    }
+
+    private record CacheKey(Long stallId, boolean byLikes) {
+    }
+
+    private static final class Entry {
+        private final List<ReviewDocument> reviews;
+        private long total;
+        private final long loadedAt;
+
+        private Entry(List<ReviewDocument> reviews, long total, long loadedAt) {
+            this.reviews = reviews;
+            this.total = total;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
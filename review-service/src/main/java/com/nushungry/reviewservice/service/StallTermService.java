@@ -0,0 +1,228 @@
+package com.nushungry.reviewservice.service;
+
+import com.nushungry.reviewservice.document.ReviewDocument;
+import com.nushungry.reviewservice.document.StallTermSummaryDocument;
+import com.nushungry.reviewservice.document.StallTermSummaryDocument.TermCounter;
+import com.nushungry.reviewservice.dto.TopTermsResponse;
+import com.nushungry.reviewservice.util.TermTokenizer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * 摊位评价高频词统计
+ * 每个摊位一个 Space-Saving 摘要，最多 capacity 个计数器：评价创建、修改内容、删除时增量更新，
+ * 读取时只取一个文档，不需要扫描摊位的全部评价。
+ * 摘要不存在的摊位在第一次读取时由该摊位的全部评价构建；批量删除和导入后直接删除摘要，下次读取时重建。
+ * 构建前先写入占位文档，构建期间的评价写入删除占位，使这次构建结果不被保存，避免丢失这些写入。
+ * 删除评价时只能减去仍被跟踪的词，已被挤出摘要的词的计数会略有偏高。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StallTermService {
+
+    // 构建实例崩溃后残留的占位超过这个时间由读取方清理
+    private static final long STALE_REBUILD_MINUTES = 5;
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${review.top-terms.capacity:100}")
+    private int capacity;
+
+    @Value("${review.top-terms.max-retries:3}")
+    private int maxRetries;
+
+    /**
+     * 评价内容变化：新建时 oldComment 为 null，删除时 newComment 为 null
+     * 更新失败只记录日志，不影响评价写入
+     */
+    public void onCommentChanged(Long stallId, String oldComment, String newComment) {
+        if (stallId == null) {
+            return;
+        }
+        Set<String> removed = TermTokenizer.terms(oldComment);
+        Set<String> added = TermTokenizer.terms(newComment);
+        Set<String> unchanged = new HashSet<>(removed);
+        unchanged.retainAll(added);
+        removed.removeAll(unchanged);
+        added.removeAll(unchanged);
+        if (removed.isEmpty() && added.isEmpty()) {
+            return;
+        }
+
+        try {
+            for (int attempt = 0; attempt < maxRetries; attempt++) {
+                StallTermSummaryDocument summary = mongoTemplate.findById(stallId, StallTermSummaryDocument.class);
+                if (summary == null) {
+                    // 还没有人读取过，第一次读取时从全部评价构建
+                    return;
+                }
+                if (summary.getRebuildToken() != null) {
+                    // 正在构建，这次写入可能未被读到，删除占位使构建结果作废
+                    removePlaceholder(stallId, summary.getRebuildToken());
+                    return;
+                }
+                removed.forEach(term -> decrement(summary.getTerms(), term));
+                added.forEach(term -> increment(summary.getTerms(), term));
+                summary.setUpdatedAt(LocalDateTime.now());
+                try {
+                    mongoTemplate.save(summary);
+                    return;
+                } catch (OptimisticLockingFailureException e) {
+                    log.debug("Concurrent term summary update for stall {}, retrying", stallId);
+                }
+            }
+            log.warn("Gave up updating term summary for stall {} after {} attempts, evicting", stallId, maxRetries);
+            evict(stallId);
+        } catch (DataAccessException e) {
+            log.error("Failed to update term summary for stall {}", stallId, e);
+        }
+    }
+
+    /**
+     * 删除摊位的摘要，下次读取时重建
+     */
+    public void evict(Long stallId) {
+        try {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").is(stallId)), StallTermSummaryDocument.class);
+        } catch (DataAccessException e) {
+            log.error("Failed to evict term summary for stall {}", stallId, e);
+        }
+    }
+
+    public TopTermsResponse getTopTerms(Long stallId, int limit) {
+        StallTermSummaryDocument summary = mongoTemplate.findById(stallId, StallTermSummaryDocument.class);
+        if (summary == null || summary.getRebuildToken() != null) {
+            summary = rebuild(stallId);
+        }
+
+        List<TopTermsResponse.TermCount> terms = summary.getTerms().stream()
+                .sorted(Comparator.comparingLong(TermCounter::getCount).reversed()
+                        .thenComparing(TermCounter::getTerm))
+                .limit(Math.max(0, limit))
+                .map(counter -> TopTermsResponse.TermCount.builder()
+                        .term(counter.getTerm())
+                        .count(counter.getCount())
+                        .build())
+                .toList();
+
+        return TopTermsResponse.builder()
+                .stallId(stallId)
+                .terms(terms)
+                .build();
+    }
+
+    /**
+     * 由摊位的全部评价构建摘要，只读取 comment 字段
+     * 先插入占位再读取评价，读取完成后只在占位仍然存在时写入结果；
+     * 其他请求正在构建时只计算本次的结果，不写入
+     */
+    private StallTermSummaryDocument rebuild(Long stallId) {
+        long start = System.currentTimeMillis();
+        String token = UUID.randomUUID().toString();
+        boolean owner = true;
+        try {
+            mongoTemplate.insert(StallTermSummaryDocument.builder()
+                    .id(stallId)
+                    .rebuildToken(token)
+                    .updatedAt(LocalDateTime.now())
+                    .build());
+        } catch (DuplicateKeyException e) {
+            StallTermSummaryDocument existing = mongoTemplate.findById(stallId, StallTermSummaryDocument.class);
+            if (existing != null && existing.getRebuildToken() == null) {
+                // 其他请求已经构建完成
+                return existing;
+            }
+            owner = false;
+            if (existing != null && existing.getUpdatedAt() != null
+                    && existing.getUpdatedAt().isBefore(LocalDateTime.now().minusMinutes(STALE_REBUILD_MINUTES))) {
+                removePlaceholder(stallId, existing.getRebuildToken());
+            }
+        }
+
+        StallTermSummaryDocument summary = StallTermSummaryDocument.builder().id(stallId).build();
+
+        Query query = Query.query(Criteria.where("stallId").is(stallId));
+        query.fields().include("comment");
+        long scanned = 0;
+        try (Stream<ReviewDocument> reviews = mongoTemplate.stream(query, ReviewDocument.class)) {
+            for (ReviewDocument review : (Iterable<ReviewDocument>) reviews::iterator) {
+                TermTokenizer.terms(review.getComment()).forEach(term -> increment(summary.getTerms(), term));
+                scanned++;
+            }
+        }
+        summary.setUpdatedAt(LocalDateTime.now());
+        if (!owner) {
+            return summary;
+        }
+
+        Update update = new Update()
+                .set("terms", summary.getTerms())
+                .set("updatedAt", summary.getUpdatedAt())
+                .unset("rebuildToken")
+                .inc("version", 1);
+        long modified = mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(stallId).and("rebuildToken").is(token)),
+                update, StallTermSummaryDocument.class).getModifiedCount();
+        if (modified == 0) {
+            log.info("Term summary for stall {} changed during rebuild, discarding", stallId);
+            return summary;
+        }
+        log.info("Built term summary for stall {} from {} reviews in {} ms",
+                stallId, scanned, System.currentTimeMillis() - start);
+        return summary;
+    }
+
+    private void removePlaceholder(Long stallId, String token) {
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(stallId).and("rebuildToken").is(token)),
+                StallTermSummaryDocument.class);
+    }
+
+    /**
+     * Space-Saving：已跟踪的词计数加一；未跟踪且已满时替换计数最小的词，继承其计数作为误差
+     */
+    private void increment(List<TermCounter> counters, String term) {
+        for (TermCounter counter : counters) {
+            if (counter.getTerm().equals(term)) {
+                counter.setCount(counter.getCount() + 1);
+                return;
+            }
+        }
+        if (counters.size() < capacity) {
+            counters.add(TermCounter.builder().term(term).count(1).error(0).build());
+            return;
+        }
+        TermCounter min = counters.stream().min(Comparator.comparingLong(TermCounter::getCount)).orElseThrow();
+        min.setError(min.getCount());
+        min.setTerm(term);
+        min.setCount(min.getCount() + 1);
+    }
+
+    private void decrement(List<TermCounter> counters, String term) {
+        counters.removeIf(counter -> {
+            if (!counter.getTerm().equals(term)) {
+                return false;
+            }
+            counter.setCount(counter.getCount() - 1);
+            counter.setError(Math.min(counter.getError(), counter.getCount()));
+            return counter.getCount() <= 0;
+        });
+    }
+}
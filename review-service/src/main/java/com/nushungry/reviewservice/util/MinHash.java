@@ -0,0 +1,96 @@
+package com.nushungry.reviewservice.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * 评价内容的 MinHash 签名和 LSH 分带
+ * 文本归一化（小写、只保留字母和数字，中英文通用）后取长度为 3 的字符 shingle，
+ * 用 128 个哈希函数各取最小值得到签名，两个签名相同位置相等的比例即 Jaccard 相似度的估计值。
+ * 签名按每 4 行一带切成 32 带，任意一带完全相同即成为候选：相似度 0.8 的两条评价几乎必然成为候选，
+ * 相似度 0.3 的约 23%。修改这些参数后已存储的签名全部失效，需要重新回填。
+ */
+public final class MinHash {
+
+    public static final int NUM_HASHES = 128;
+    public static final int BANDS = 32;
+    private static final int ROWS_PER_BAND = NUM_HASHES / BANDS;
+    private static final int SHINGLE_SIZE = 3;
+
+    private static final long[] SEEDS = new SplittableRandom(0x5EED_CAFEL).longs(NUM_HASHES).toArray();
+
+    private MinHash() {
+    }
+
+    /**
+     * 归一化后不足 minLength 个字符的文本（如“好吃”）没有区分度，返回 null
+     */
+    public static int[] signature(String text, int minLength) {
+        if (text == null) {
+            return null;
+        }
+        int[] codePoints = text.toLowerCase().codePoints().filter(Character::isLetterOrDigit).toArray();
+        if (codePoints.length < Math.max(minLength, SHINGLE_SIZE)) {
+            return null;
+        }
+
+        int[] signature = new int[NUM_HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (int start = 0; start + SHINGLE_SIZE <= codePoints.length; start++) {
+            long shingle = 0xcbf29ce484222325L;
+            for (int i = start; i < start + SHINGLE_SIZE; i++) {
+                shingle = (shingle ^ codePoints[i]) * 0x100000001b3L;
+            }
+            for (int i = 0; i < NUM_HASHES; i++) {
+                int hash = (int) mix(shingle ^ SEEDS[i]);
+                if (hash < signature[i]) {
+                    signature[i] = hash;
+                }
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * 每一带的哈希值，带序号参与哈希，不同带的相同取值不会互相命中
+     */
+    public static List<Long> bandKeys(int[] signature) {
+        List<Long> keys = new ArrayList<>(BANDS);
+        for (int band = 0; band < BANDS; band++) {
+            long hash = band;
+            for (int row = band * ROWS_PER_BAND; row < (band + 1) * ROWS_PER_BAND; row++) {
+                hash = hash * 31 + signature[row];
+            }
+            keys.add(mix(hash));
+        }
+        return keys;
+    }
+
+    /**
+     * 由两个签名估计 Jaccard 相似度
+     */
+    public static double similarity(int[] signature, List<Integer> other) {
+        if (other == null || other.size() != signature.length) {
+            return 0;
+        }
+        int equal = 0;
+        for (int i = 0; i < signature.length; i++) {
+            if (signature[i] == other.get(i)) {
+                equal++;
+            }
+        }
+        return (double) equal / signature.length;
+    }
+
+    // MurmurHash3 fmix64
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
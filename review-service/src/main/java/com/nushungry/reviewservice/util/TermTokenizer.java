@@ -0,0 +1,86 @@
+package com.nushungry.reviewservice.util;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 评价内容分词
+ * 英文和数字按单词切分，去掉长度不足 3 的词、纯数字和停用词；
+ * 中文没有分词器，连续汉字取相邻两字组合（“鸡饭”“咖喱”），含虚词的组合和常见套话去掉。
+ * 同一条评价中重复出现的词只计一次。
+ */
+public final class TermTokenizer {
+
+    private static final int MIN_WORD_LENGTH = 3;
+    private static final int MAX_TERM_LENGTH = 30;
+
+    private static final Set<String> ENGLISH_STOP_WORDS = Set.of(
+            "the", "and", "for", "are", "but", "not", "you", "all", "any", "can", "was", "were", "this", "that",
+            "with", "have", "has", "had", "they", "them", "their", "there", "here", "from", "what", "when",
+            "which", "who", "will", "would", "very", "just", "also", "too", "than", "then", "its", "our", "out",
+            "get", "got", "really", "quite", "some", "more", "most", "much", "one", "two", "like", "been",
+            "being", "into", "only", "about", "over", "again", "did", "does", "don", "didn", "doesn", "isn",
+            "wasn", "aren", "could", "should", "because", "even", "still", "how", "why", "she", "her",
+            "his", "him", "your", "yours", "these", "those", "other", "such", "each", "few", "own", "same",
+            "lah", "leh", "lor", "meh");
+
+    private static final String CHINESE_STOP_CHARS = "的了是在和也都很就我你他她它吗呢吧啊么着过这那有不个";
+
+    private static final Set<String> CHINESE_STOP_BIGRAMS = Set.of(
+            "非常", "一般", "真心", "可以", "觉得", "比较", "感觉", "一点", "因为", "所以", "而且", "还行",
+            "还会", "以后", "今天", "时候", "推荐", "下次");
+
+    private TermTokenizer() {
+    }
+
+    public static Set<String> terms(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (text == null || text.isBlank()) {
+            return terms;
+        }
+
+        int[] codePoints = text.toLowerCase().codePoints().toArray();
+        int i = 0;
+        while (i < codePoints.length) {
+            int start = i;
+            if (isHan(codePoints[i])) {
+                while (i < codePoints.length && isHan(codePoints[i])) {
+                    i++;
+                }
+                addBigrams(codePoints, start, i, terms);
+            } else if (Character.isLetterOrDigit(codePoints[i])) {
+                while (i < codePoints.length && Character.isLetterOrDigit(codePoints[i]) && !isHan(codePoints[i])) {
+                    i++;
+                }
+                addWord(new String(codePoints, start, i - start), terms);
+            } else {
+                i++;
+            }
+        }
+        return terms;
+    }
+
+    private static void addWord(String word, Set<String> terms) {
+        if (word.length() < MIN_WORD_LENGTH || word.length() > MAX_TERM_LENGTH
+                || word.chars().allMatch(Character::isDigit) || ENGLISH_STOP_WORDS.contains(word)) {
+            return;
+        }
+        terms.add(word);
+    }
+
+    private static void addBigrams(int[] codePoints, int start, int end, Set<String> terms) {
+        for (int i = start; i + 1 < end; i++) {
+            if (CHINESE_STOP_CHARS.indexOf(codePoints[i]) >= 0 || CHINESE_STOP_CHARS.indexOf(codePoints[i + 1]) >= 0) {
+                continue;
+            }
+            String bigram = new String(codePoints, i, 2);
+            if (!CHINESE_STOP_BIGRAMS.contains(bigram)) {
+                terms.add(bigram);
+            }
+        }
+    }
+
+    private static boolean isHan(int codePoint) {
+        return Character.UnicodeScript.of(codePoint) == Character.UnicodeScript.HAN;
+    }
+}
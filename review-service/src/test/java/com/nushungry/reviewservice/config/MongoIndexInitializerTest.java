@@ -0,0 +1,66 @@
+package com.nushungry.reviewservice.config;
+
+import com.nushungry.reviewservice.document.ReviewDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MongoIndexInitializerTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private IndexOperations indexOperations;
+
+    @InjectMocks
+    private MongoIndexInitializer mongoIndexInitializer;
+
+    @BeforeEach
+    void setUp() {
+        when(mongoTemplate.indexOps(ReviewDocument.class)).thenReturn(indexOperations);
+    }
+
+    @Test
+    void testCreatesCursorAndTextIndexes() {
+        mongoIndexInitializer.createIndexes();
+
+        ArgumentCaptor<IndexDefinition> captor = ArgumentCaptor.forClass(IndexDefinition.class);
+        verify(indexOperations, times(5)).ensureIndex(captor.capture());
+        List<IndexDefinition> indexes = captor.getAllValues();
+        assertThat(indexes).extracting(index -> index.getIndexOptions().getString("name"))
+                .containsExactly("stall_created_id_idx", "stall_likes_id_idx", "stall_hot_id_idx",
+                        "user_created_id_idx", MongoIndexInitializer.REVIEW_TEXT_INDEX);
+        assertThat(indexes.get(0).getIndexKeys())
+                .isEqualTo(new Document("stallId", 1).append("createdAt", -1).append("_id", -1));
+        Document weights = (Document) indexes.get(4).getIndexOptions().get("weights");
+        assertThat(weights).containsEntry("stallName", 3F).containsEntry("username", 2F);
+    }
+
+    @Test
+    void testFailedIndexDoesNotStopTheOthers() {
+        when(indexOperations.ensureIndex(any()))
+                .thenThrow(new DataIntegrityViolationException("IndexOptionsConflict"))
+                .thenReturn("ok");
+
+        mongoIndexInitializer.createIndexes();
+
+        verify(indexOperations, times(5)).ensureIndex(any());
+    }
+}
@@ -2,11 +2,18 @@ package com.nushungry.reviewservice.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nushungry.reviewservice.document.ReviewDocument;
+import com.nushungry.reviewservice.dto.BatchDeleteResponse;
+import com.nushungry.reviewservice.dto.ReviewImportResponse;
 import com.nushungry.reviewservice.dto.ReviewStatsResponse;
+import com.nushungry.reviewservice.enums.ActivityMetric;
 import com.nushungry.reviewservice.repository.ReviewRepository;
+import com.nushungry.reviewservice.service.ActivityBucketService;
+import com.nushungry.reviewservice.service.ReviewDuplicateService;
+import com.nushungry.reviewservice.service.StallTermService;
 import com.nushungry.reviewservice.service.ReviewService;
-import com.nushungry.reviewservice.service.RatingCalculationService;
-import com.nushungry.reviewservice.service.PriceCalculationService;
+import com.nushungry.reviewservice.service.ReviewTransferService;
+import com.nushungry.reviewservice.service.StallAggregateDebouncer;
+import com.nushungry.reviewservice.service.StallReviewCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,6 +32,7 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.TextQuery;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
@@ -82,14 +90,26 @@ class AdminReviewControllerTest {
     private ReviewService reviewService;
 
     @MockBean
-    private RatingCalculationService ratingCalculationService;
+    private ReviewTransferService reviewTransferService;
 
     @MockBean
-    private PriceCalculationService priceCalculationService;
+    private StallAggregateDebouncer stallAggregateDebouncer;
+
+    @MockBean
+    private StallReviewCache stallReviewCache;
 
     @MockBean
     private MongoTemplate mongoTemplate;
 
+    @MockBean
+    private ActivityBucketService activityBucketService;
+
+    @MockBean
+    private ReviewDuplicateService reviewDuplicateService;
+
+    @MockBean
+    private StallTermService stallTermService;
+
     private ReviewDocument testReview;
     private List<ReviewDocument> testReviews;
 
@@ -147,6 +167,45 @@ class AdminReviewControllerTest {
         verify(mongoTemplate, times(1)).find(any(), eq(ReviewDocument.class));
     }
 
+    @Test
+    void getAllReviews_KeywordNextPage_SkipsCount() throws Exception {
+        // 翻页时不再对全文检索计数，多取一条判断是否还有下一页
+        List<ReviewDocument> pagePlusOne = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            pagePlusOne.add(testReviews.get(0));
+        }
+        when(mongoTemplate.find(any(), eq(ReviewDocument.class))).thenReturn(pagePlusOne);
+
+        mockMvc.perform(get("/api/admin/reviews")
+                        .param("keyword", "Great")
+                        .param("page", "1")
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data.reviews.length()").value(2))
+                .andExpect(jsonPath("$.data.hasNext").value(true))
+                .andExpect(jsonPath("$.data.totalItems").doesNotExist());
+
+        verify(mongoTemplate, never()).count(any(), eq(ReviewDocument.class));
+        verify(mongoTemplate, times(1)).find(argThat(query -> query instanceof TextQuery && query.getLimit() == 3),
+                eq(ReviewDocument.class));
+    }
+
+    @Test
+    void getAllReviews_KeywordLastPage_NoNext() throws Exception {
+        when(mongoTemplate.find(any(), eq(ReviewDocument.class))).thenReturn(testReviews);
+
+        mockMvc.perform(get("/api/admin/reviews")
+                        .param("keyword", "Great")
+                        .param("page", "3")
+                        .param("size", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.reviews.length()").value(testReviews.size()))
+                .andExpect(jsonPath("$.data.hasNext").value(false));
+
+        verify(mongoTemplate, never()).count(any(), eq(ReviewDocument.class));
+    }
+
     @Test
     void getAllReviews_WithRatingFilter() throws Exception {
         when(mongoTemplate.count(any(), eq(ReviewDocument.class))).thenReturn(1L);
@@ -256,8 +315,8 @@ class AdminReviewControllerTest {
         allReviews.add(review2Star);
 
         when(reviewRepository.findAll()).thenReturn(allReviews);
-        when(reviewRepository.countByCreatedAtBetween(any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(3L, 10L, 15L);
+        when(activityBucketService.getWindowCounts(eq(ActivityMetric.REVIEW), any(LocalDateTime.class)))
+                .thenReturn(new ActivityBucketService.WindowCounts(3L, 10L, 15L));
 
         mockMvc.perform(get("/api/admin/reviews/stats"))
                 .andExpect(status().isOk())
@@ -274,15 +333,16 @@ class AdminReviewControllerTest {
 
         verify(reviewRepository, times(1)).count();
         verify(reviewRepository, times(1)).findAll();
-        verify(reviewRepository, times(3)).countByCreatedAtBetween(any(LocalDateTime.class), any(LocalDateTime.class));
+        verify(activityBucketService, times(1)).getWindowCounts(eq(ActivityMetric.REVIEW), any(LocalDateTime.class));
+        verify(reviewRepository, never()).countByCreatedAtBetween(any(LocalDateTime.class), any(LocalDateTime.class));
     }
 
     @Test
     void getReviewStats_EmptyDatabase() throws Exception {
         when(reviewRepository.count()).thenReturn(0L);
         when(reviewRepository.findAll()).thenReturn(Collections.emptyList());
-        when(reviewRepository.countByCreatedAtBetween(any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(0L);
+        when(activityBucketService.getWindowCounts(eq(ActivityMetric.REVIEW), any(LocalDateTime.class)))
+                .thenReturn(new ActivityBucketService.WindowCounts(0L, 0L, 0L));
 
         mockMvc.perform(get("/api/admin/reviews/stats"))
                 .andExpect(status().isOk())
@@ -299,8 +359,6 @@ class AdminReviewControllerTest {
     void deleteReview_Success() throws Exception {
         when(reviewRepository.findById(anyString())).thenReturn(Optional.of(testReview));
         doNothing().when(reviewRepository).deleteById(anyString());
-        doNothing().when(ratingCalculationService).calculateAndPublishRating(anyLong());
-        doNothing().when(priceCalculationService).calculateAndPublishPrice(anyLong());
 
         mockMvc.perform(delete("/api/admin/reviews/review123"))
                 .andExpect(status().isOk())
@@ -309,8 +367,11 @@ class AdminReviewControllerTest {
 
         verify(reviewRepository, times(1)).findById(eq("review123"));
         verify(reviewRepository, times(1)).deleteById(eq("review123"));
-        verify(ratingCalculationService, times(1)).calculateAndPublishRating(eq(1L));
-        verify(priceCalculationService, times(1)).calculateAndPublishPrice(eq(1L));
+        verify(stallReviewCache, times(1)).onReviewDeleted(testReview);
+        verify(activityBucketService, times(1)).record(ActivityMetric.REVIEW, testReview.getCreatedAt(), -1);
+        verify(reviewDuplicateService, times(1)).remove(List.of("review123"));
+        verify(stallTermService, times(1)).onCommentChanged(1L, testReview.getComment(), null);
+        verify(stallAggregateDebouncer, times(1)).requestRefresh(eq(1L));
     }
 
     @Test
@@ -322,88 +383,115 @@ class AdminReviewControllerTest {
 
         verify(reviewRepository, times(1)).findById(eq("nonexistent"));
         verify(reviewRepository, never()).deleteById(anyString());
-        verify(ratingCalculationService, never()).calculateAndPublishRating(anyLong());
+        verify(stallAggregateDebouncer, never()).requestRefresh(anyLong());
     }
 
     @Test
     void batchDeleteReviews_Success() throws Exception {
-        ReviewDocument review1 = new ReviewDocument();
-        review1.setId("review1");
-        review1.setStallId(1L);
-
-        ReviewDocument review2 = new ReviewDocument();
-        review2.setId("review2");
-        review2.setStallId(2L);
-
-        ReviewDocument review3 = new ReviewDocument();
-        review3.setId("review3");
-        review3.setStallId(1L);
-
-        when(reviewRepository.findById("review1")).thenReturn(Optional.of(review1));
-        when(reviewRepository.findById("review2")).thenReturn(Optional.of(review2));
-        when(reviewRepository.findById("review3")).thenReturn(Optional.of(review3));
-        doNothing().when(reviewRepository).deleteById(anyString());
-        doNothing().when(ratingCalculationService).calculateAndPublishRating(anyLong());
-        doNothing().when(priceCalculationService).calculateAndPublishPrice(anyLong());
-
         List<String> reviewIds = Arrays.asList("review1", "review2", "review3");
+        BatchDeleteResponse response = BatchDeleteResponse.builder()
+                .requestedCount(3)
+                .deletedReviews(3L)
+                .deletedLikes(5L)
+                .deletedReports(1L)
+                .affectedStallIds(List.of(1L, 2L))
+                .build();
+        when(reviewService.batchDeleteReviews(reviewIds)).thenReturn(response);
 
         mockMvc.perform(delete("/api/admin/reviews/batch")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(reviewIds)))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.success").value(true))
-                .andExpect(jsonPath("$.data").value("批量删除评价成功"));
-
-        verify(reviewRepository, times(3)).findById(anyString());
-        verify(reviewRepository, times(3)).deleteById(anyString());
-        // 两个不同的档口,应该各调用一次
-        verify(ratingCalculationService, times(1)).calculateAndPublishRating(eq(1L));
-        verify(ratingCalculationService, times(1)).calculateAndPublishRating(eq(2L));
-        verify(priceCalculationService, times(1)).calculateAndPublishPrice(eq(1L));
-        verify(priceCalculationService, times(1)).calculateAndPublishPrice(eq(2L));
+                .andExpect(jsonPath("$.message").value("批量删除评价成功"))
+                .andExpect(jsonPath("$.data.deletedReviews").value(3))
+                .andExpect(jsonPath("$.data.deletedLikes").value(5))
+                .andExpect(jsonPath("$.data.deletedReports").value(1))
+                .andExpect(jsonPath("$.data.affectedStallIds.length()").value(2));
+
+        verify(reviewService, times(1)).batchDeleteReviews(eq(reviewIds));
+        // 不再逐条查询和删除
+        verify(reviewRepository, never()).findById(anyString());
+        verify(reviewRepository, never()).deleteById(anyString());
     }
 
     @Test
     void batchDeleteReviews_PartialSuccess() throws Exception {
         // 第一个评价存在,第二个不存在
-        ReviewDocument review1 = new ReviewDocument();
-        review1.setId("review1");
-        review1.setStallId(1L);
-
-        when(reviewRepository.findById("review1")).thenReturn(Optional.of(review1));
-        when(reviewRepository.findById("review2")).thenReturn(Optional.empty());
-        doNothing().when(reviewRepository).deleteById(anyString());
-        doNothing().when(ratingCalculationService).calculateAndPublishRating(anyLong());
-        doNothing().when(priceCalculationService).calculateAndPublishPrice(anyLong());
-
         List<String> reviewIds = Arrays.asList("review1", "review2");
+        when(reviewService.batchDeleteReviews(reviewIds)).thenReturn(BatchDeleteResponse.builder()
+                .requestedCount(2)
+                .deletedReviews(1L)
+                .deletedLikes(0L)
+                .deletedReports(0L)
+                .affectedStallIds(List.of(1L))
+                .build());
 
         mockMvc.perform(delete("/api/admin/reviews/batch")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(reviewIds)))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.success").value(true));
-
-        // 只删除了存在的评价
-        verify(reviewRepository, times(1)).deleteById(eq("review1"));
-        verify(reviewRepository, never()).deleteById(eq("review2"));
-        verify(ratingCalculationService, times(1)).calculateAndPublishRating(eq(1L));
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data.requestedCount").value(2))
+                .andExpect(jsonPath("$.data.deletedReviews").value(1));
     }
 
     @Test
     void batchDeleteReviews_EmptyList() throws Exception {
         List<String> reviewIds = Collections.emptyList();
+        when(reviewService.batchDeleteReviews(reviewIds)).thenReturn(BatchDeleteResponse.builder()
+                .requestedCount(0)
+                .deletedReviews(0L)
+                .deletedLikes(0L)
+                .deletedReports(0L)
+                .affectedStallIds(List.of())
+                .build());
 
         mockMvc.perform(delete("/api/admin/reviews/batch")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(reviewIds)))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.success").value(true));
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data.deletedReviews").value(0));
 
-        verify(reviewRepository, never()).findById(anyString());
         verify(reviewRepository, never()).deleteById(anyString());
-        verify(ratingCalculationService, never()).calculateAndPublishRating(anyLong());
+        verify(stallAggregateDebouncer, never()).requestRefresh(anyLong());
+    }
+
+    @Test
+    void importReviews_ReturnsThroughputReport() throws Exception {
+        when(reviewTransferService.importReviews(any())).thenReturn(ReviewImportResponse.builder()
+                .receivedLines(2L)
+                .importedCount(2L)
+                .failedCount(0L)
+                .batches(1)
+                .affectedStalls(1)
+                .durationMs(10L)
+                .reviewsPerSecond(200.0)
+                .errors(List.of())
+                .build());
+
+        mockMvc.perform(post("/api/admin/reviews/import")
+                        .contentType("application/x-ndjson")
+                        .content("{\"stallId\":1,\"rating\":5}\n{\"stallId\":1,\"rating\":4}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data.importedCount").value(2))
+                .andExpect(jsonPath("$.data.reviewsPerSecond").value(200.0));
+
+        verify(reviewTransferService, times(1)).importReviews(any());
+    }
+
+    @Test
+    void rebuildStatsBuckets_Success() throws Exception {
+        when(activityBucketService.rebuild(ActivityMetric.REVIEW)).thenReturn(120L);
+        when(activityBucketService.rebuild(ActivityMetric.REPORT)).thenReturn(8L);
+
+        mockMvc.perform(post("/api/admin/reviews/stats/rebuild"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data.REVIEW").value(120))
+                .andExpect(jsonPath("$.data.REPORT").value(8));
     }
 
     @Test
@@ -5,8 +5,9 @@ import com.nushungry.reviewservice.common.ApiResponse;
 import com.nushungry.reviewservice.dto.*;
 import com.nushungry.reviewservice.exception.ResourceNotFoundException;
 import com.nushungry.reviewservice.exception.UnauthorizedException;
-import com.nushungry.reviewservice.service.RatingCalculationService;
+import com.nushungry.reviewservice.service.ReviewQueryService;
 import com.nushungry.reviewservice.service.ReviewService;
+import com.nushungry.reviewservice.service.StallTermService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,12 +19,14 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -78,7 +81,10 @@ class ReviewControllerTest {
     private ReviewService reviewService;
 
     @MockBean
-    private RatingCalculationService ratingCalculationService;
+    private ReviewQueryService reviewQueryService;
+
+    @MockBean
+    private StallTermService stallTermService;
 
     private ReviewResponse reviewResponse;
     private CreateReviewRequest createRequest;
@@ -258,17 +264,21 @@ class ReviewControllerTest {
         List<ReviewResponse> reviews = Arrays.asList(reviewResponse);
         Page<ReviewResponse> page = new PageImpl<>(reviews, PageRequest.of(0, 10), 1);
 
-        when(reviewService.getReviewsByStallId(anyLong(), anyString(), anyString(), any(Pageable.class)))
-                .thenReturn(page);
+        when(reviewQueryService.getReviewsByStallId(anyLong(), anyString(), anyString(), any(Pageable.class)))
+                .thenReturn(CompletableFuture.completedFuture(page));
 
-        mockMvc.perform(get("/api/reviews/stall/1")
+        MvcResult asyncResult = mockMvc.perform(get("/api/reviews/stall/1")
                         .header("X-User-Id", "user123"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.success").value(true))
                 .andExpect(jsonPath("$.data.content[0].id").value("review123"))
                 .andExpect(jsonPath("$.data.totalElements").value(1));
 
-        verify(reviewService, times(1)).getReviewsByStallId(eq(1L), eq("createdAt"), eq("user123"), any(Pageable.class));
+        verify(reviewQueryService, times(1)).getReviewsByStallId(eq(1L), eq("createdAt"), eq("user123"), any(Pageable.class));
     }
 
     @Test
@@ -276,19 +286,23 @@ class ReviewControllerTest {
         List<ReviewResponse> reviews = Arrays.asList(reviewResponse);
         Page<ReviewResponse> page = new PageImpl<>(reviews, PageRequest.of(0, 10), 1);
 
-        when(reviewService.getReviewsByStallId(anyLong(), anyString(), anyString(), any(Pageable.class)))
-                .thenReturn(page);
+        when(reviewQueryService.getReviewsByStallId(anyLong(), anyString(), anyString(), any(Pageable.class)))
+                .thenReturn(CompletableFuture.completedFuture(page));
 
-        mockMvc.perform(get("/api/reviews/stall/1")
+        MvcResult asyncResult = mockMvc.perform(get("/api/reviews/stall/1")
                         .param("sortBy", "likesCount")
                         .param("page", "0")
                         .param("size", "10")
                         .header("X-User-Id", "user123"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.success").value(true))
                 .andExpect(jsonPath("$.data.content[0].id").value("review123"));
 
-        verify(reviewService, times(1)).getReviewsByStallId(eq(1L), eq("likesCount"), eq("user123"), any(Pageable.class));
+        verify(reviewQueryService, times(1)).getReviewsByStallId(eq(1L), eq("likesCount"), eq("user123"), any(Pageable.class));
     }
 
     @Test
@@ -296,17 +310,46 @@ class ReviewControllerTest {
         List<ReviewResponse> reviews = Arrays.asList(reviewResponse);
         Page<ReviewResponse> page = new PageImpl<>(reviews, PageRequest.of(0, 10), 1);
 
-        when(reviewService.getReviewsByUserId(anyString(), anyString(), any(Pageable.class)))
-                .thenReturn(page);
+        when(reviewQueryService.getReviewsByUserId(anyString(), anyString(), any(Pageable.class)))
+                .thenReturn(CompletableFuture.completedFuture(page));
 
-        mockMvc.perform(get("/api/reviews/user/user123")
+        MvcResult asyncResult = mockMvc.perform(get("/api/reviews/user/user123")
                         .header("X-User-Id", "user123"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.success").value(true))
                 .andExpect(jsonPath("$.data.content[0].id").value("review123"))
                 .andExpect(jsonPath("$.data.totalElements").value(1));
 
-        verify(reviewService, times(1)).getReviewsByUserId(eq("user123"), eq("user123"), any(Pageable.class));
+        verify(reviewQueryService, times(1)).getReviewsByUserId(eq("user123"), eq("user123"), any(Pageable.class));
+    }
+
+    @Test
+    void getReviewsByStallId_WithCursor() throws Exception {
+        CursorPageResponse<ReviewResponse> cursorPage = CursorPageResponse.<ReviewResponse>builder()
+                .content(Arrays.asList(reviewResponse))
+                .nextCursor("next")
+                .hasNext(true)
+                .size(1)
+                .build();
+
+        when(reviewService.getReviewsByStallIdCursor(anyLong(), anyString(), anyString(), anyInt(), any()))
+                .thenReturn(cursorPage);
+
+        mockMvc.perform(get("/api/reviews/stall/1")
+                        .param("cursor", "")
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data.content[0].id").value("review123"))
+                .andExpect(jsonPath("$.data.nextCursor").value("next"))
+                .andExpect(jsonPath("$.data.hasNext").value(true));
+
+        verify(reviewService, times(1)).getReviewsByStallIdCursor(eq(1L), eq("createdAt"), eq(""), eq(1), isNull());
+        verify(reviewQueryService, never()).getReviewsByStallId(anyLong(), anyString(), any(), any(Pageable.class));
     }
 
     @Test
@@ -325,10 +368,14 @@ class ReviewControllerTest {
                 .distribution(distribution)
                 .build();
 
-        when(ratingCalculationService.getRatingDistribution(anyLong()))
-                .thenReturn(response);
+        when(reviewQueryService.getRatingDistribution(anyLong()))
+                .thenReturn(CompletableFuture.completedFuture(response));
+
+        MvcResult asyncResult = mockMvc.perform(get("/api/reviews/stall/1/rating-distribution"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
 
-        mockMvc.perform(get("/api/reviews/stall/1/rating-distribution"))
+        mockMvc.perform(asyncDispatch(asyncResult))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.success").value(true))
                 .andExpect(jsonPath("$.data.stallId").value(1))
@@ -336,7 +383,37 @@ class ReviewControllerTest {
                 .andExpect(jsonPath("$.data.totalReviews").value(18))
                 .andExpect(jsonPath("$.data.distribution.5").value(10));
 
-        verify(ratingCalculationService, times(1)).getRatingDistribution(eq(1L));
+        verify(reviewQueryService, times(1)).getRatingDistribution(eq(1L));
+    }
+
+    @Test
+    void getTopTerms_Success() throws Exception {
+        TopTermsResponse response = TopTermsResponse.builder()
+                .stallId(1L)
+                .terms(List.of(
+                        TopTermsResponse.TermCount.builder().term("chicken").count(12L).build(),
+                        TopTermsResponse.TermCount.builder().term("咖喱").count(5L).build()))
+                .build();
+        when(stallTermService.getTopTerms(1L, 5)).thenReturn(response);
+
+        mockMvc.perform(get("/api/reviews/stall/1/top-terms").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data.stallId").value(1))
+                .andExpect(jsonPath("$.data.terms[0].term").value("chicken"))
+                .andExpect(jsonPath("$.data.terms[0].count").value(12))
+                .andExpect(jsonPath("$.data.terms[1].term").value("咖喱"));
+    }
+
+    @Test
+    void getTopTerms_LimitIsCapped() throws Exception {
+        when(stallTermService.getTopTerms(1L, 50))
+                .thenReturn(TopTermsResponse.builder().stallId(1L).terms(List.of()).build());
+
+        mockMvc.perform(get("/api/reviews/stall/1/top-terms").param("limit", "1000"))
+                .andExpect(status().isOk());
+
+        verify(stallTermService, times(1)).getTopTerms(1L, 50);
     }
 
     @Test
@@ -0,0 +1,59 @@
+package com.nushungry.reviewservice.listener;
+
+import com.nushungry.reviewservice.event.UserProfileChangedEvent;
+import com.nushungry.reviewservice.service.ReviewService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserProfileEventListenerTest {
+
+    @Mock
+    private ReviewService reviewService;
+
+    @InjectMocks
+    private UserProfileEventListener listener;
+
+    @Test
+    void testHandleUserProfileChangedSyncsReviews() {
+        LocalDateTime timestamp = LocalDateTime.of(2024, 5, 1, 12, 0);
+        listener.handleUserProfileChanged(UserProfileChangedEvent.builder()
+                .userId(7L)
+                .username("alice")
+                .avatarUrl("http://avatar/alice.png")
+                .timestamp(timestamp)
+                .build());
+
+        verify(reviewService).updateUserProfile("7", "alice", "http://avatar/alice.png", timestamp);
+    }
+
+    @Test
+    void testHandleUserProfileChangedIgnoresIncompleteEvent() {
+        listener.handleUserProfileChanged(UserProfileChangedEvent.builder().username("alice").build());
+
+        verifyNoInteractions(reviewService);
+    }
+
+    @Test
+    void testHandleUserProfileChangedRejectsMessageOnFailure() {
+        when(reviewService.updateUserProfile(anyString(), anyString(), any(), any()))
+                .thenThrow(new RuntimeException("mongo down"));
+        UserProfileChangedEvent event = UserProfileChangedEvent.builder().userId(7L).username("alice").build();
+
+        // 不重新入队，由死信交换机转入死信队列
+        assertThatThrownBy(() -> listener.handleUserProfileChanged(event))
+                .isInstanceOf(AmqpRejectAndDontRequeueException.class)
+                .hasRootCauseMessage("mongo down");
+
+        verify(reviewService).updateUserProfile("7", "alice", null, null);
+    }
+}
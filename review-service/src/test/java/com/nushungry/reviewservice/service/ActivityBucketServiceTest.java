@@ -0,0 +1,144 @@
+package com.nushungry.reviewservice.service;
+
+import com.nushungry.reviewservice.document.ActivityBucketDocument;
+import com.nushungry.reviewservice.document.ReviewDocument;
+import com.nushungry.reviewservice.enums.ActivityMetric;
+import com.nushungry.reviewservice.enums.BucketGranularity;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ActivityBucketServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @InjectMocks
+    private ActivityBucketService activityBucketService;
+
+    @Test
+    void testRecordMergesDeltasPerBucketInOneBulkWrite() {
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ActivityBucketDocument.class)).thenReturn(bulkOperations);
+
+        activityBucketService.record(ActivityMetric.REVIEW, List.of(
+                LocalDateTime.of(2024, 1, 10, 10, 15),
+                LocalDateTime.of(2024, 1, 10, 10, 45),
+                LocalDateTime.of(2024, 1, 10, 11, 5)), 1);
+
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations, times(3)).upsert(any(Query.class), updates.capture());
+        assertThat(updates.getAllValues())
+                .extracting(update -> update.getUpdateObject().get("$inc", Document.class).get("count"))
+                .containsExactlyInAnyOrder(2L, 1L, 3L);
+        verify(bulkOperations, times(1)).execute();
+    }
+
+    @Test
+    void testRecordWithoutTimestampsDoesNothing() {
+        activityBucketService.record(ActivityMetric.REPORT, (LocalDateTime) null, 1);
+
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void testRecordFailureDoesNotPropagate() {
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ActivityBucketDocument.class)).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenThrow(new DataAccessResourceFailureException("mongo down"));
+
+        activityBucketService.record(ActivityMetric.REVIEW, LocalDateTime.now(), -1);
+
+        verify(bulkOperations).execute();
+    }
+
+    @Test
+    void testCountWithinOneDaySumsHourBuckets() {
+        when(mongoTemplate.find(any(Query.class), eq(ActivityBucketDocument.class)))
+                .thenReturn(List.of(bucket(2L), bucket(3L)));
+
+        long count = activityBucketService.countBetween(ActivityMetric.REVIEW,
+                LocalDateTime.of(2024, 1, 10, 0, 0), LocalDateTime.of(2024, 1, 10, 15, 20));
+
+        assertThat(count).isEqualTo(5);
+        List<Document> ranges = capturedRanges();
+        assertThat(ranges).hasSize(1);
+        assertRange(ranges.get(0), BucketGranularity.HOUR,
+                LocalDateTime.of(2024, 1, 10, 0, 0), LocalDateTime.of(2024, 1, 10, 16, 0));
+    }
+
+    @Test
+    void testCountAcrossDaysUsesDayBucketsInTheMiddle() {
+        when(mongoTemplate.find(any(Query.class), eq(ActivityBucketDocument.class)))
+                .thenReturn(List.of(bucket(4L), bucket(40L), bucket(6L)));
+
+        long count = activityBucketService.countBetween(ActivityMetric.REPORT,
+                LocalDateTime.of(2024, 1, 3, 10, 30), LocalDateTime.of(2024, 1, 10, 15, 20));
+
+        assertThat(count).isEqualTo(50);
+        List<Document> ranges = capturedRanges();
+        assertThat(ranges).hasSize(3);
+        assertRange(ranges.get(0), BucketGranularity.HOUR,
+                LocalDateTime.of(2024, 1, 3, 10, 0), LocalDateTime.of(2024, 1, 4, 0, 0));
+        assertRange(ranges.get(1), BucketGranularity.DAY,
+                LocalDateTime.of(2024, 1, 4, 0, 0), LocalDateTime.of(2024, 1, 10, 0, 0));
+        assertRange(ranges.get(2), BucketGranularity.HOUR,
+                LocalDateTime.of(2024, 1, 10, 0, 0), LocalDateTime.of(2024, 1, 10, 16, 0));
+    }
+
+    @Test
+    void testRebuildReplacesBucketsFromHistory() {
+        when(mongoTemplate.stream(any(Query.class), eq(ReviewDocument.class))).thenReturn(Stream.of(
+                ReviewDocument.builder().createdAt(LocalDateTime.of(2024, 1, 10, 9, 5)).build(),
+                ReviewDocument.builder().createdAt(LocalDateTime.of(2024, 1, 10, 9, 50)).build()));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ActivityBucketDocument.class)).thenReturn(bulkOperations);
+
+        long scanned = activityBucketService.rebuild(ActivityMetric.REVIEW);
+
+        assertThat(scanned).isEqualTo(2);
+        verify(mongoTemplate).remove(any(Query.class), eq(ActivityBucketDocument.class));
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations, times(2)).upsert(any(Query.class), updates.capture());
+        assertThat(updates.getAllValues())
+                .extracting(update -> update.getUpdateObject().get("$set", Document.class).get("count"))
+                .containsExactly(2L, 2L);
+    }
+
+    private List<Document> capturedRanges() {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(ActivityBucketDocument.class));
+        return query.getValue().getQueryObject().getList("$or", Document.class);
+    }
+
+    private static void assertRange(Document range, BucketGranularity granularity,
+                                    LocalDateTime fromInclusive, LocalDateTime toExclusive) {
+        assertThat(range.get("granularity")).isEqualTo(granularity);
+        Document bucketStart = range.get("bucketStart", Document.class);
+        assertThat(bucketStart.get("$gte")).isEqualTo(fromInclusive);
+        assertThat(bucketStart.get("$lt")).isEqualTo(toExclusive);
+    }
+
+    private static ActivityBucketDocument bucket(long count) {
+        return ActivityBucketDocument.builder().count(count).build();
+    }
+}
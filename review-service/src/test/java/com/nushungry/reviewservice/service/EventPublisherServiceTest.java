@@ -1,15 +1,18 @@
 package com.nushungry.reviewservice.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nushungry.reviewservice.document.OutboxEventDocument;
+import com.nushungry.reviewservice.enums.OutboxStatus;
 import com.nushungry.reviewservice.event.PriceChangedEvent;
 import com.nushungry.reviewservice.event.RatingChangedEvent;
+import com.nushungry.reviewservice.repository.OutboxEventRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.ArgumentCaptor;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
@@ -18,6 +21,8 @@ import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.LocalDateTime;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
@@ -26,7 +31,7 @@ import static org.mockito.Mockito.*;
 class EventPublisherServiceTest {
 
     @Mock
-    private RabbitTemplate rabbitTemplate;
+    private OutboxEventRepository outboxEventRepository;
 
     @InjectMocks
     private EventPublisherService eventPublisherService;
@@ -67,30 +72,52 @@ class EventPublisherServiceTest {
 
 
     @Test
-    void testPublishRatingChanged_Success() {
+    void testPublishRatingChanged_WritesOutboxEvent() {
         // When
         eventPublisherService.publishRatingChanged(ratingChangedEvent);
 
-        // Then
-        verify(rabbitTemplate, times(1)).convertAndSend(
-                anyString(),
-                anyString(),
-                any(RatingChangedEvent.class)
-        );
+        // Then - 只写入发件箱，不直接访问 RabbitMQ
+        ArgumentCaptor<OutboxEventDocument> captor = ArgumentCaptor.forClass(OutboxEventDocument.class);
+        verify(outboxEventRepository, times(1)).save(captor.capture());
+
+        OutboxEventDocument outboxEvent = captor.getValue();
+        assertThat(outboxEvent.getId()).isNotBlank();
+        assertThat(outboxEvent.getEventType()).isEqualTo(EventPublisherService.RATING_CHANGED);
+        assertThat(outboxEvent.getStallId()).isEqualTo(1L);
+        assertThat(outboxEvent.getExchange()).isEqualTo("review.exchange");
+        assertThat(outboxEvent.getRoutingKey()).isEqualTo("review.rating.changed");
+        assertThat(outboxEvent.getPayload()).isSameAs(ratingChangedEvent);
+        assertThat(outboxEvent.getStatus()).isEqualTo(OutboxStatus.PENDING);
+        assertThat(outboxEvent.getNextAttemptAt()).isNotNull();
     }
 
 
     @Test
-    void testPublishPriceChanged_Success() {
+    void testPublishPriceChanged_WritesOutboxEvent() {
         // When
         eventPublisherService.publishPriceChanged(priceChangedEvent);
 
         // Then
-        verify(rabbitTemplate, times(1)).convertAndSend(
-                anyString(),
-                anyString(),
-                any(PriceChangedEvent.class)
-        );
+        ArgumentCaptor<OutboxEventDocument> captor = ArgumentCaptor.forClass(OutboxEventDocument.class);
+        verify(outboxEventRepository, times(1)).save(captor.capture());
+
+        OutboxEventDocument outboxEvent = captor.getValue();
+        assertThat(outboxEvent.getEventType()).isEqualTo(EventPublisherService.PRICE_CHANGED);
+        assertThat(outboxEvent.getRoutingKey()).isEqualTo("review.price.changed");
+        assertThat(outboxEvent.getPayload()).isSameAs(priceChangedEvent);
+    }
+
+
+    @Test
+    void testPublish_UniqueEventIds() {
+        // When
+        eventPublisherService.publishRatingChanged(ratingChangedEvent);
+        eventPublisherService.publishRatingChanged(ratingChangedEvent);
+
+        // Then - 每个事件都有独立的 ID 用于去重
+        ArgumentCaptor<OutboxEventDocument> captor = ArgumentCaptor.forClass(OutboxEventDocument.class);
+        verify(outboxEventRepository, times(2)).save(captor.capture());
+        assertThat(captor.getAllValues().get(0).getId()).isNotEqualTo(captor.getAllValues().get(1).getId());
     }
 
 
@@ -133,66 +160,15 @@ class EventPublisherServiceTest {
 
 
     @Test
-    void testPublishRatingChanged_RabbitMQFailure() {
-        // Given
-        doThrow(new RuntimeException("RabbitMQ connection failed"))
-                .when(rabbitTemplate).convertAndSend(anyString(), anyString(), any(Object.class));
-
-        // When - should not throw exception (handled internally)
-        eventPublisherService.publishRatingChanged(ratingChangedEvent);
-
-        // Then - verify method was called and exception was caught
-        verify(rabbitTemplate, times(1)).convertAndSend(
-                anyString(),
-                anyString(),
-                any(Object.class)
-        );
-    }
-
-
-    @Test
-    void testPublishPriceChanged_RabbitMQFailure() {
-        // Given
-        doThrow(new RuntimeException("RabbitMQ connection failed"))
-                .when(rabbitTemplate).convertAndSend(anyString(), anyString(), any(Object.class));
-
-        // When - should not throw exception (handled internally)
-        eventPublisherService.publishPriceChanged(priceChangedEvent);
-
-        // Then - verify method was called and exception was caught
-        verify(rabbitTemplate, times(1)).convertAndSend(
-                anyString(),
-                anyString(),
-                any(Object.class)
-        );
-    }
-
-
-    @Test
-    void testPublishRatingChanged_CorrectRoutingKey() {
-        // When
-        eventPublisherService.publishRatingChanged(ratingChangedEvent);
-
-        // Then - verify correct routing key is used
-        verify(rabbitTemplate).convertAndSend(
-                "review.exchange",
-                "review.rating.changed",
-                ratingChangedEvent
-        );
-    }
-
-
-    @Test
-    void testPublishPriceChanged_CorrectRoutingKey() {
-        // When
-        eventPublisherService.publishPriceChanged(priceChangedEvent);
-
-        // Then - verify correct routing key is used
-        verify(rabbitTemplate).convertAndSend(
-                "review.exchange",
-                "review.price.changed",
-                priceChangedEvent
-        );
+    void testPublishRatingChanged_OutboxWriteFailurePropagates() {
+        // Given - 发件箱写入失败时不能静默丢失事件
+        when(outboxEventRepository.save(any(OutboxEventDocument.class)))
+                .thenThrow(new RuntimeException("MongoDB unavailable"));
+
+        // When / Then
+        assertThatThrownBy(() -> eventPublisherService.publishRatingChanged(ratingChangedEvent))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("MongoDB unavailable");
     }
 
 
@@ -209,11 +185,7 @@ class EventPublisherServiceTest {
         // When
         eventPublisherService.publishRatingChanged(nullEvent);
 
-        // Then - should still attempt to publish
-        verify(rabbitTemplate, times(1)).convertAndSend(
-                anyString(),
-                anyString(),
-                any(RatingChangedEvent.class)
-        );
+        // Then - should still be queued
+        verify(outboxEventRepository, times(1)).save(any(OutboxEventDocument.class));
     }
 }
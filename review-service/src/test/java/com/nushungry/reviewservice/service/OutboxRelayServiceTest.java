@@ -0,0 +1,153 @@
+package com.nushungry.reviewservice.service;
+
+import com.nushungry.reviewservice.document.OutboxEventDocument;
+import com.nushungry.reviewservice.enums.OutboxStatus;
+import com.nushungry.reviewservice.event.RatingChangedEvent;
+import com.nushungry.reviewservice.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private OutboxRelayService outboxRelayService;
+    private OutboxEventDocument outboxEvent;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        outboxRelayService = new OutboxRelayService(mongoTemplate, outboxEventRepository, rabbitTemplate, meterRegistry);
+        ReflectionTestUtils.setField(outboxRelayService, "batchSize", 100);
+        ReflectionTestUtils.setField(outboxRelayService, "confirmTimeoutMs", 1000L);
+        ReflectionTestUtils.setField(outboxRelayService, "leaseMs", 60000L);
+        ReflectionTestUtils.setField(outboxRelayService, "maxAttempts", 3);
+        ReflectionTestUtils.setField(outboxRelayService, "backoffInitialMs", 1000L);
+        ReflectionTestUtils.setField(outboxRelayService, "backoffMaxMs", 60000L);
+
+        outboxEvent = OutboxEventDocument.builder()
+                .id("event-1")
+                .eventType(EventPublisherService.RATING_CHANGED)
+                .stallId(1L)
+                .exchange("review.exchange")
+                .routingKey("review.rating.changed")
+                .payload(RatingChangedEvent.builder().stallId(1L).newAverageRating(4.5).reviewCount(2L).build())
+                .status(OutboxStatus.IN_FLIGHT)
+                .createdAt(LocalDateTime.now().minusSeconds(1))
+                .build();
+
+        when(mongoTemplate.find(any(Query.class), eq(OutboxEventDocument.class))).thenReturn(List.of(outboxEvent));
+        when(outboxEventRepository.findByClaimTokenOrderByCreatedAtAsc(anyString())).thenReturn(List.of(outboxEvent));
+    }
+
+    @Test
+    void testRelayBatch_ConfirmedEventMarkedPublished() {
+        answerWithConfirm(true);
+
+        int confirmed = outboxRelayService.relayBatch();
+
+        assertThat(confirmed).isEqualTo(1);
+        verify(rabbitTemplate).convertAndSend(eq("review.exchange"), eq("review.rating.changed"),
+                eq(outboxEvent.getPayload()), any(MessagePostProcessor.class), any(CorrelationData.class));
+
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(2)).updateMulti(any(Query.class), updates.capture(), eq(OutboxEventDocument.class));
+        Document published = updates.getAllValues().get(1).getUpdateObject();
+        assertThat(published.get("$set", Document.class).get("status")).isEqualTo(OutboxStatus.PUBLISHED);
+        assertThat(meterRegistry.counter("review.outbox.published").count()).isEqualTo(1.0);
+        assertThat(meterRegistry.timer("review.outbox.relay.lag").count()).isEqualTo(1);
+    }
+
+    @Test
+    void testRelayBatch_NackedEventScheduledForRetry() {
+        answerWithConfirm(false);
+
+        int confirmed = outboxRelayService.relayBatch();
+
+        assertThat(confirmed).isZero();
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(OutboxEventDocument.class));
+        Document set = update.getValue().getUpdateObject().get("$set", Document.class);
+        assertThat(set.get("status")).isEqualTo(OutboxStatus.PENDING);
+        assertThat(set.get("attempts")).isEqualTo(1);
+        assertThat(meterRegistry.counter("review.outbox.failed").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void testRelayBatch_RetryExhaustedMarksFailed() {
+        outboxEvent.setAttempts(2);
+        when(mongoTemplate.exists(any(Query.class), eq(OutboxEventDocument.class))).thenReturn(false);
+        doThrow(new RuntimeException("connection refused")).when(rabbitTemplate).convertAndSend(
+                anyString(), anyString(), any(Object.class), any(MessagePostProcessor.class), any(CorrelationData.class));
+
+        outboxRelayService.relayBatch();
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(OutboxEventDocument.class));
+        assertThat(update.getValue().getUpdateObject().get("$set", Document.class).get("status"))
+                .isEqualTo(OutboxStatus.FAILED);
+    }
+
+    @Test
+    void testRelayBatch_SupersededRetryIsNotResent() {
+        outboxEvent.setAttempts(1);
+        when(mongoTemplate.exists(any(Query.class), eq(OutboxEventDocument.class))).thenReturn(true);
+
+        int confirmed = outboxRelayService.relayBatch();
+
+        assertThat(confirmed).isEqualTo(1);
+        verify(rabbitTemplate, never()).convertAndSend(
+                anyString(), anyString(), any(Object.class), any(MessagePostProcessor.class), any(CorrelationData.class));
+    }
+
+    @Test
+    void testRelay_RefreshesDepthGauge() {
+        answerWithConfirm(true);
+        when(outboxEventRepository.countByStatusIn(anyCollection())).thenReturn(7L);
+        when(outboxEventRepository.findFirstByStatusInOrderByCreatedAtAsc(anyCollection()))
+                .thenReturn(Optional.of(outboxEvent));
+
+        outboxRelayService.relay();
+
+        assertThat(meterRegistry.get("review.outbox.depth").gauge().value()).isEqualTo(7.0);
+    }
+
+    private void answerWithConfirm(boolean ack) {
+        doAnswer(invocation -> {
+            CorrelationData correlationData = invocation.getArgument(4);
+            correlationData.getFuture().complete(new CorrelationData.Confirm(ack, ack ? null : "nack"));
+            return null;
+        }).when(rabbitTemplate).convertAndSend(anyString(), anyString(), any(Object.class),
+                any(MessagePostProcessor.class), any(CorrelationData.class));
+    }
+}
@@ -0,0 +1,163 @@
+package com.nushungry.reviewservice.service;
+
+import com.nushungry.reviewservice.document.ReviewDocument;
+import com.nushungry.reviewservice.document.ReviewFingerprintDocument;
+import com.nushungry.reviewservice.enums.ReportReason;
+import com.nushungry.reviewservice.util.MinHash;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReviewDuplicateServiceTest {
+
+    private static final String SPAM = "Best chicken rice on campus, visit stall 12 now and get a free drink with code NUS2024!";
+    private static final String SPAM_VARIANT = "Best chicken rice on campus, visit stall 15 now and get a free drink with code NUS2024!!";
+    private static final String GENUINE = "The laksa was a bit too salty today but the portion was generous and the queue moved fast.";
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private ReviewReportService reviewReportService;
+
+    @InjectMocks
+    private ReviewDuplicateService reviewDuplicateService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(reviewDuplicateService, "enabled", true);
+        ReflectionTestUtils.setField(reviewDuplicateService, "similarityThreshold", 0.8);
+        ReflectionTestUtils.setField(reviewDuplicateService, "minLength", 10);
+        ReflectionTestUtils.setField(reviewDuplicateService, "candidateLimit", 50);
+        ReflectionTestUtils.setField(reviewDuplicateService, "backfillBatchSize", 2);
+    }
+
+    @Test
+    void testMinHashEstimatesSimilarity() {
+        int[] spam = MinHash.signature(SPAM, 10);
+
+        assertThat(MinHash.similarity(spam, boxed(MinHash.signature(SPAM.toUpperCase(), 10)))).isEqualTo(1.0);
+        assertThat(MinHash.similarity(spam, boxed(MinHash.signature(SPAM_VARIANT, 10)))).isGreaterThan(0.8);
+        assertThat(MinHash.similarity(spam, boxed(MinHash.signature(GENUINE, 10)))).isLessThan(0.2);
+        assertThat(MinHash.bandKeys(spam)).hasSize(MinHash.BANDS);
+        assertThat(MinHash.signature("好吃！", 10)).isNull();
+    }
+
+    @Test
+    void testInspectReportsNearDuplicateAndIndexesFingerprint() {
+        when(mongoTemplate.find(any(Query.class), eq(ReviewFingerprintDocument.class)))
+                .thenReturn(List.of(fingerprint("r1", SPAM), fingerprint("r9", GENUINE)));
+        when(reviewReportService.createSystemReport(eq("r2"), eq(ReportReason.SPAM), contains("r1"))).thenReturn(true);
+
+        Optional<ReviewDuplicateService.DuplicateMatch> match = reviewDuplicateService.inspect(review("r2", SPAM_VARIANT), true);
+
+        assertThat(match).isPresent();
+        assertThat(match.get().reviewId()).isEqualTo("r1");
+        ArgumentCaptor<ReviewFingerprintDocument> saved = ArgumentCaptor.forClass(ReviewFingerprintDocument.class);
+        verify(mongoTemplate).save(saved.capture());
+        assertThat(saved.getValue().getId()).isEqualTo("r2");
+        assertThat(saved.getValue().getBands()).hasSize(MinHash.BANDS);
+        assertThat(saved.getValue().getSignature()).hasSize(MinHash.NUM_HASHES);
+    }
+
+    @Test
+    void testInspectDissimilarCandidatesDoesNotReport() {
+        when(mongoTemplate.find(any(Query.class), eq(ReviewFingerprintDocument.class)))
+                .thenReturn(List.of(fingerprint("r9", GENUINE)));
+
+        Optional<ReviewDuplicateService.DuplicateMatch> match = reviewDuplicateService.inspect(review("r2", SPAM), true);
+
+        assertThat(match).isEmpty();
+        verify(mongoTemplate).save(any(ReviewFingerprintDocument.class));
+        verifyNoInteractions(reviewReportService);
+    }
+
+    @Test
+    void testInspectShortCommentSkipsDetection() {
+        reviewDuplicateService.inspect(review("r2", "Nice!"), true);
+        verifyNoInteractions(mongoTemplate);
+
+        // 修改为短评论时删除旧指纹
+        reviewDuplicateService.inspect(review("r2", "Nice!"), false);
+        verify(mongoTemplate).remove(any(Query.class), eq(ReviewFingerprintDocument.class));
+        verifyNoInteractions(reviewReportService);
+    }
+
+    @Test
+    void testInspectFailureDoesNotPropagate() {
+        when(mongoTemplate.find(any(Query.class), eq(ReviewFingerprintDocument.class)))
+                .thenThrow(new DataAccessResourceFailureException("mongo down"));
+
+        Optional<ReviewDuplicateService.DuplicateMatch> match = reviewDuplicateService.inspect(review("r2", SPAM), true);
+
+        assertThat(match).isEmpty();
+        verify(mongoTemplate, never()).save(any(ReviewFingerprintDocument.class));
+    }
+
+    @Test
+    void testBackfillSkipsReviewsThatAlreadyHaveFingerprints() {
+        when(mongoTemplate.find(any(Query.class), eq(ReviewDocument.class)))
+                .thenReturn(List.of(review("r1", SPAM), review("r2", GENUINE)))
+                .thenReturn(List.of());
+        when(mongoTemplate.find(any(Query.class), eq(ReviewFingerprintDocument.class)))
+                .thenReturn(List.of(ReviewFingerprintDocument.builder().id("r1").build()))
+                .thenReturn(List.of());
+
+        long processed = reviewDuplicateService.backfill();
+
+        assertThat(processed).isEqualTo(1);
+        ArgumentCaptor<ReviewFingerprintDocument> saved = ArgumentCaptor.forClass(ReviewFingerprintDocument.class);
+        verify(mongoTemplate).save(saved.capture());
+        assertThat(saved.getValue().getId()).isEqualTo("r2");
+        verify(mongoTemplate, times(2)).find(any(Query.class), eq(ReviewDocument.class));
+    }
+
+    @Test
+    void testBackfillReportsLaterReviewOfPair() {
+        ReviewDocument older = review("r1", SPAM);
+        older.setCreatedAt(LocalDateTime.of(2024, 1, 1, 12, 0));
+        ReviewFingerprintDocument newer = fingerprint("r2", SPAM_VARIANT);
+        newer.setCreatedAt(LocalDateTime.of(2024, 3, 1, 12, 0));
+        when(mongoTemplate.find(any(Query.class), eq(ReviewDocument.class))).thenReturn(List.of(older));
+        when(mongoTemplate.find(any(Query.class), eq(ReviewFingerprintDocument.class)))
+                .thenReturn(List.of())
+                .thenReturn(List.of(newer));
+
+        reviewDuplicateService.backfill();
+
+        verify(reviewReportService).createSystemReport(eq("r2"), eq(ReportReason.SPAM), contains("r1"));
+        verify(reviewReportService, never()).createSystemReport(eq("r1"), any(), any());
+    }
+
+    private static ReviewDocument review(String id, String comment) {
+        return ReviewDocument.builder().id(id).stallId(1L).userId("user1").comment(comment).build();
+    }
+
+    private static ReviewFingerprintDocument fingerprint(String id, String comment) {
+        return ReviewFingerprintDocument.builder().id(id).signature(boxed(MinHash.signature(comment, 10))).build();
+    }
+
+    private static List<Integer> boxed(int[] signature) {
+        return Arrays.stream(signature).boxed().toList();
+    }
+}
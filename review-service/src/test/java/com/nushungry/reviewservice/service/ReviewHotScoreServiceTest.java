@@ -0,0 +1,112 @@
+package com.nushungry.reviewservice.service;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.nushungry.reviewservice.document.BackfillMarkerDocument;
+import com.nushungry.reviewservice.document.ReviewDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReviewHotScoreServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @InjectMocks
+    private ReviewHotScoreService reviewHotScoreService;
+
+    private final LocalDateTime now = LocalDateTime.of(2024, 6, 1, 12, 0);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(reviewHotScoreService, "halfLifeHours", 48.0);
+        ReflectionTestUtils.setField(reviewHotScoreService, "backfillEnabled", true);
+        ReflectionTestUtils.setField(reviewHotScoreService, "backfillBatchSize", 2);
+    }
+
+    @Test
+    void testDoublingLikesEqualsOneHalfLifeNewer() {
+        double older = reviewHotScoreService.compute(3, now.minusHours(48));
+        double newer = reviewHotScoreService.compute(1, now);
+
+        // (3 + 1) 个赞早一个半衰期 == (1 + 1) 个赞
+        assertThat(older).isCloseTo(newer, within(1e-9));
+    }
+
+    @Test
+    void testOldPopularReviewEventuallyRanksBelowNewOne() {
+        double oldPopular = reviewHotScoreService.compute(100, now.minusDays(30));
+        double fresh = reviewHotScoreService.compute(2, now);
+        double freshSameAge = reviewHotScoreService.compute(0, now);
+
+        assertThat(fresh).isGreaterThan(oldPopular);
+        assertThat(fresh).isGreaterThan(freshSameAge);
+    }
+
+    @Test
+    void testBackfillUpdatesReviewsWithoutScore() {
+        ReviewDocument first = ReviewDocument.builder().id("r1").likesCount(1).createdAt(now).build();
+        ReviewDocument second = ReviewDocument.builder().id("r2").likesCount(0).createdAt(now).build();
+        when(mongoTemplate.find(any(Query.class), eq(ReviewDocument.class)))
+                .thenReturn(List.of(first, second))
+                .thenReturn(List.of());
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ReviewDocument.class)).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(BulkWriteResult.acknowledged(0, 2, 0, 2, List.of(), List.of()));
+
+        long updated = reviewHotScoreService.backfillMissingScores();
+
+        assertThat(updated).isEqualTo(2);
+        verify(bulkOperations, times(2)).updateOne(any(Query.class), any(Update.class));
+        verify(mongoTemplate, times(2)).find(any(Query.class), eq(ReviewDocument.class));
+    }
+
+    @Test
+    void testBackfillOnStartupSkippedWhenMarkerExists() {
+        when(mongoTemplate.insert(any(BackfillMarkerDocument.class))).thenThrow(new DuplicateKeyException("dup"));
+
+        reviewHotScoreService.backfillOnStartup();
+
+        verify(mongoTemplate, never()).find(any(Query.class), eq(ReviewDocument.class));
+    }
+
+    @Test
+    void testBackfillOnStartupReleasesMarkerOnFailure() {
+        when(mongoTemplate.find(any(Query.class), eq(ReviewDocument.class))).thenThrow(new RuntimeException("mongo down"));
+
+        reviewHotScoreService.backfillOnStartup();
+
+        verify(mongoTemplate).insert(argThat((BackfillMarkerDocument marker) -> "review-hot-score".equals(marker.getId())));
+        verify(mongoTemplate).remove(any(BackfillMarkerDocument.class));
+    }
+
+    @Test
+    void testBackfillDisabled() {
+        ReflectionTestUtils.setField(reviewHotScoreService, "backfillEnabled", false);
+
+        reviewHotScoreService.backfillOnStartup();
+        verifyNoInteractions(mongoTemplate);
+    }
+}
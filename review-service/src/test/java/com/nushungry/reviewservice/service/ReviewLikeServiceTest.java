@@ -14,6 +14,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -31,6 +32,12 @@ class ReviewLikeServiceTest {
     @Mock
     private ReviewRepository reviewRepository;
 
+    @Mock
+    private StallReviewCache stallReviewCache;
+
+    @Mock
+    private ReviewHotScoreService reviewHotScoreService;
+
     @InjectMocks
     private ReviewLikeService reviewLikeService;
 
@@ -65,6 +72,8 @@ class ReviewLikeServiceTest {
         assertThat(result).isTrue();
         verify(reviewLikeRepository).save(any(ReviewLikeDocument.class));
         verify(reviewRepository).save(any(ReviewDocument.class));
+        verify(reviewHotScoreService).applyTo(testReview);
+        verify(stallReviewCache).onReviewSaved(testReview, false);
         assertThat(testReview.getLikesCount()).isEqualTo(6);
     }
 
@@ -124,6 +133,15 @@ class ReviewLikeServiceTest {
         verify(reviewLikeRepository).countByReviewId("review1");
     }
 
+    @Test
+    void testGetLikedReviewIds() {
+        when(reviewLikeRepository.findByUserIdAndReviewIdIn("user2", List.of("review1", "review2")))
+                .thenReturn(List.of(testLike));
+
+        assertThat(reviewLikeService.getLikedReviewIds(List.of("review1", "review2"), "user2"))
+                .containsExactly("review1");
+    }
+
     @Test
     void testToggleLikeDecrementsCountToZero() {
         testReview.setLikesCount(1);
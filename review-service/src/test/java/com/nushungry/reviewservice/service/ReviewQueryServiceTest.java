@@ -0,0 +1,128 @@
+package com.nushungry.reviewservice.service;
+
+import com.nushungry.reviewservice.document.ReviewDocument;
+import com.nushungry.reviewservice.dto.ReviewResponse;
+import com.nushungry.reviewservice.repository.ReviewRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReviewQueryServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private ReviewRepository reviewRepository;
+
+    @Mock
+    private ReviewLikeService reviewLikeService;
+
+    @Mock
+    private ReviewService reviewService;
+
+    @Mock
+    private RatingCalculationService ratingCalculationService;
+
+    @Mock
+    private StallReviewCache stallReviewCache;
+
+    private ExecutorService executor;
+    private ReviewQueryService reviewQueryService;
+    private ReviewDocument testReview;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+        reviewQueryService = new ReviewQueryService(mongoTemplate, reviewRepository, reviewLikeService,
+                reviewService, ratingCalculationService, stallReviewCache, executor);
+
+        testReview = ReviewDocument.builder()
+                .id("review1")
+                .stallId(1L)
+                .userId("user1")
+                .rating(5)
+                .likesCount(3)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testPageAndCountQueriedInParallel() throws Exception {
+        // 两个子查询必须同时到达屏障，串行执行会超时
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        when(mongoTemplate.find(any(Query.class), eq(ReviewDocument.class))).thenAnswer(invocation -> {
+            barrier.await(5, TimeUnit.SECONDS);
+            return List.of(testReview);
+        });
+        when(reviewRepository.countByStallId(1L)).thenAnswer(invocation -> {
+            barrier.await(5, TimeUnit.SECONDS);
+            return 25L;
+        });
+        when(reviewLikeService.getLikedReviewIds(List.of("review1"), "user2")).thenReturn(Set.of("review1"));
+
+        Page<ReviewResponse> page = reviewQueryService
+                .getReviewsByStallId(1L, "hot", "user2", PageRequest.of(1, 10))
+                .get(10, TimeUnit.SECONDS);
+
+        assertThat(page.getTotalElements()).isEqualTo(25);
+        assertThat(page.getContent()).extracting(ReviewResponse::getId).containsExactly("review1");
+        assertThat(page.getContent().get(0).getIsLikedByCurrentUser()).isTrue();
+        verify(reviewLikeService, never()).isLikedByUser(any(), any());
+    }
+
+    @Test
+    void testCachedFirstPageDelegatesToReviewService() throws Exception {
+        Pageable pageable = PageRequest.of(0, 10);
+        Page<ReviewResponse> cached = new PageImpl<>(List.of());
+        when(stallReviewCache.canServe(10)).thenReturn(true);
+        when(reviewService.getReviewsByStallId(1L, "createdAt", null, pageable)).thenReturn(cached);
+
+        Page<ReviewResponse> page = reviewQueryService.getReviewsByStallId(1L, "createdAt", null, pageable)
+                .get(5, TimeUnit.SECONDS);
+
+        assertThat(page).isSameAs(cached);
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void testUserFeedWithoutCurrentUserSkipsLikeLookup() throws Exception {
+        when(mongoTemplate.find(any(Query.class), eq(ReviewDocument.class))).thenReturn(List.of(testReview));
+        when(reviewRepository.countByUserId("user1")).thenReturn(1L);
+
+        Page<ReviewResponse> page = reviewQueryService.getReviewsByUserId("user1", null, PageRequest.of(0, 10))
+                .get(5, TimeUnit.SECONDS);
+
+        assertThat(page.getTotalElements()).isEqualTo(1);
+        assertThat(page.getContent().get(0).getIsLikedByCurrentUser()).isFalse();
+        verifyNoInteractions(reviewLikeService);
+    }
+}
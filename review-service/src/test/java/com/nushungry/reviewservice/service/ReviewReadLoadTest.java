@@ -0,0 +1,157 @@
+package com.nushungry.reviewservice.service;
+
+import com.nushungry.reviewservice.document.ReviewDocument;
+import com.nushungry.reviewservice.repository.ReviewRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 评价读取负载测试：在相同线程总数、相同批量查询下对比阻塞读取与异步读取
+ * 每次 MongoDB 往返用固定延迟模拟；阻塞模式的请求线程数等于异步模式请求线程与读取线程之和
+ * 吞吐量受 MongoDB 往返总数限制，两种模式接近，只记录不断言；
+ * 断言异步模式的收益：请求线程几乎不被占用，分页与计数并行后单次请求延迟更低
+ * 运行方式: mvn test -Dtest=ReviewReadLoadTest -DloadTest=true
+ */
+@Tag("load")
+@EnabledIfSystemProperty(named = "loadTest", matches = "true")
+@Slf4j
+class ReviewReadLoadTest {
+
+    private static final int REQUEST_THREADS = 20;
+    private static final int READ_THREADS = 48;
+    private static final int REQUESTS = 1000;
+    private static final int SEQUENTIAL_REQUESTS = 20;
+    private static final long MONGO_LATENCY_MS = 20;
+
+    @Test
+    void testAsyncReadPathReleasesRequestThreadsAndCutsLatency() throws Exception {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        ReviewRepository reviewRepository = mock(ReviewRepository.class);
+        ReviewLikeService reviewLikeService = mock(ReviewLikeService.class);
+        StallReviewCache stallReviewCache = mock(StallReviewCache.class);
+
+        List<ReviewDocument> page = IntStream.range(0, 10)
+                .mapToObj(i -> ReviewDocument.builder().id("review" + i).stallId(1L).rating(5).likesCount(i)
+                        .createdAt(LocalDateTime.now()).build())
+                .toList();
+        when(mongoTemplate.find(any(Query.class), eq(ReviewDocument.class))).thenAnswer(invocation -> {
+            Thread.sleep(MONGO_LATENCY_MS);
+            return page;
+        });
+        when(reviewRepository.countByStallId(anyLong())).thenAnswer(invocation -> {
+            Thread.sleep(MONGO_LATENCY_MS);
+            return 100L;
+        });
+        when(reviewLikeService.getLikedReviewIds(any(), anyString())).thenAnswer(invocation -> {
+            Thread.sleep(MONGO_LATENCY_MS);
+            return Set.of();
+        });
+
+        ExecutorService blockingThreads = Executors.newFixedThreadPool(REQUEST_THREADS + READ_THREADS);
+        ExecutorService requestThreads = Executors.newFixedThreadPool(REQUEST_THREADS);
+        ExecutorService readThreads = Executors.newFixedThreadPool(READ_THREADS);
+        try {
+            ReviewQueryService reviewQueryService = new ReviewQueryService(mongoTemplate, reviewRepository,
+                    reviewLikeService, null, null, stallReviewCache, readThreads);
+
+            // 阻塞模式：与异步模式相同的三次往返（分页、计数、一次批量点赞查询），由请求线程依次等待
+            Supplier<CompletableFuture<?>> blocking = () -> {
+                List<ReviewDocument> reviews = mongoTemplate.find(new Query(), ReviewDocument.class);
+                reviewRepository.countByStallId(1L);
+                reviewLikeService.getLikedReviewIds(reviews.stream().map(ReviewDocument::getId).toList(), "user1");
+                return CompletableFuture.completedFuture(null);
+            };
+            // 异步模式：请求线程只负责发起，随后立即释放（对应 Servlet 异步请求）
+            Supplier<CompletableFuture<?>> async =
+                    () -> reviewQueryService.getReviewsByStallId(1L, "hot", "user1", PageRequest.of(1, 10));
+
+            double blockingLatencyMs = sequentialLatencyMs(blocking);
+            double asyncLatencyMs = sequentialLatencyMs(async);
+            RunResult blockingRun = run(blockingThreads, blocking);
+            RunResult asyncRun = run(requestThreads, async);
+
+            log.info("Review feed load test: {} requests, {} threads in total, {} ms Mongo latency",
+                    REQUESTS, REQUEST_THREADS + READ_THREADS, MONGO_LATENCY_MS);
+            log.info("  blocking: {} ms ({} req/s), latency {} ms, request thread held {} ms per request",
+                    blockingRun.wallMs(), blockingRun.requestsPerSecond(), blockingLatencyMs,
+                    blockingRun.requestThreadMsPerRequest());
+            log.info("  async:    {} ms ({} req/s), latency {} ms, request thread held {} ms per request",
+                    asyncRun.wallMs(), asyncRun.requestsPerSecond(), asyncLatencyMs,
+                    asyncRun.requestThreadMsPerRequest());
+
+            assertThat(asyncRun.requestThreadMsPerRequest()).isLessThan(MONGO_LATENCY_MS);
+            assertThat(blockingRun.requestThreadMsPerRequest()).isGreaterThanOrEqualTo(3 * MONGO_LATENCY_MS);
+            assertThat(asyncLatencyMs).isLessThan(blockingLatencyMs);
+        } finally {
+            blockingThreads.shutdownNow();
+            requestThreads.shutdownNow();
+            readThreads.shutdownNow();
+        }
+    }
+
+    /**
+     * 无并发时逐个请求的平均延迟
+     */
+    private double sequentialLatencyMs(Supplier<CompletableFuture<?>> request) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < SEQUENTIAL_REQUESTS; i++) {
+            request.get().get(10, TimeUnit.SECONDS);
+        }
+        return (System.nanoTime() - start) / 1_000_000.0 / SEQUENTIAL_REQUESTS;
+    }
+
+    private RunResult run(ExecutorService requestThreads, Supplier<CompletableFuture<?>> request) throws Exception {
+        LongAdder heldNanos = new LongAdder();
+        long start = System.nanoTime();
+        List<Future<CompletableFuture<?>>> submitted = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            submitted.add(requestThreads.submit(() -> {
+                long begin = System.nanoTime();
+                try {
+                    return request.get();
+                } finally {
+                    heldNanos.add(System.nanoTime() - begin);
+                }
+            }));
+        }
+        List<CompletableFuture<?>> responses = new ArrayList<>();
+        for (Future<CompletableFuture<?>> future : submitted) {
+            responses.add(future.get(60, TimeUnit.SECONDS));
+        }
+        CompletableFuture.allOf(responses.toArray(new CompletableFuture[0])).get(60, TimeUnit.SECONDS);
+        return new RunResult(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                heldNanos.sum() / 1_000_000.0 / REQUESTS);
+    }
+
+    private record RunResult(long wallMs, double requestThreadMsPerRequest) {
+
+        long requestsPerSecond() {
+            return wallMs == 0 ? REQUESTS : REQUESTS * 1000L / wallMs;
+        }
+    }
+}
@@ -4,12 +4,15 @@ import com.nushungry.reviewservice.document.ReviewReportDocument;
 import com.nushungry.reviewservice.dto.CreateReportRequest;
 import com.nushungry.reviewservice.dto.HandleReportRequest;
 import com.nushungry.reviewservice.dto.ReportResponse;
+import com.nushungry.reviewservice.enums.ActivityMetric;
 import com.nushungry.reviewservice.enums.ReportReason;
 import com.nushungry.reviewservice.enums.ReportStatus;
 import com.nushungry.reviewservice.exception.ResourceNotFoundException;
 import com.nushungry.reviewservice.exception.ValidationException;
 import com.nushungry.reviewservice.repository.ReviewReportRepository;
 import com.nushungry.reviewservice.repository.ReviewRepository;
+import com.nushungry.reviewservice.dto.ReportStatistics;
+import org.bson.Document;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -20,6 +23,10 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
@@ -30,6 +37,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -42,6 +50,12 @@ class ReviewReportServiceTest {
     @Mock
     private ReviewRepository reviewRepository;
 
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private ActivityBucketService activityBucketService;
+
     @InjectMocks
     private ReviewReportService reviewReportService;
 
@@ -88,6 +102,34 @@ class ReviewReportServiceTest {
 
         verify(reviewRepository).existsById("review1");
         verify(reviewReportRepository).save(any(ReviewReportDocument.class));
+        verify(activityBucketService).record(ActivityMetric.REPORT, testReport.getCreatedAt(), 1);
+    }
+
+    @Test
+    void testCreateSystemReport() {
+        when(reviewReportRepository.existsByReviewIdAndReporterId("review1", ReviewReportService.SYSTEM_REPORTER_ID))
+                .thenReturn(false);
+        when(reviewReportRepository.save(any(ReviewReportDocument.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        boolean created = reviewReportService.createSystemReport("review1", ReportReason.SPAM, "与评价 review0 内容高度相似");
+
+        assertThat(created).isTrue();
+        verify(reviewReportRepository).save(argThat(report -> report.getReporterId().equals(ReviewReportService.SYSTEM_REPORTER_ID)
+                && report.getReason() == ReportReason.SPAM
+                && report.getStatus() == ReportStatus.PENDING));
+        verify(activityBucketService).record(eq(ActivityMetric.REPORT), any(LocalDateTime.class), eq(1L));
+    }
+
+    @Test
+    void testCreateSystemReportOnlyOncePerReview() {
+        when(reviewReportRepository.existsByReviewIdAndReporterId("review1", ReviewReportService.SYSTEM_REPORTER_ID))
+                .thenReturn(true);
+
+        boolean created = reviewReportService.createSystemReport("review1", ReportReason.SPAM, "duplicate");
+
+        assertThat(created).isFalse();
+        verify(reviewReportRepository, never()).save(any(ReviewReportDocument.class));
+        verifyNoInteractions(activityBucketService);
     }
 
     @Test
@@ -195,4 +237,103 @@ class ReviewReportServiceTest {
         verify(reviewRepository, times(3)).existsById(anyString());
         verify(reviewReportRepository, times(3)).save(any(ReviewReportDocument.class));
     }
+
+    @Test
+    void testGetStatisticsFromFacetAggregation() {
+        Document facetResult = new Document()
+                .append("total", List.of(new Document("count", 10)))
+                .append("byStatus", List.of(
+                        new Document("_id", "PENDING").append("count", 3),
+                        new Document("_id", "RESOLVED").append("count", 4),
+                        new Document("_id", "REJECTED").append("count", 1),
+                        new Document("_id", "IGNORED").append("count", 2)))
+                .append("byReason", List.of(
+                        new Document("_id", "SPAM").append("count", 7),
+                        new Document("_id", "FAKE").append("count", 3)))
+                .append("handling", List.of(new Document("_id", null).append("avgHours", 2.5)));
+        mockAggregation(facetResult);
+        when(activityBucketService.getWindowCounts(eq(ActivityMetric.REPORT), any(LocalDateTime.class)))
+                .thenReturn(new ActivityBucketService.WindowCounts(1, 5, 0));
+
+        ReportStatistics stats = reviewReportService.getStatistics();
+
+        assertThat(stats.getTotalCount()).isEqualTo(10);
+        assertThat(stats.getPendingCount()).isEqualTo(3);
+        assertThat(stats.getReviewingCount()).isZero();
+        assertThat(stats.getProcessedCount()).isEqualTo(4);
+        assertThat(stats.getRejectedCount()).isEqualTo(1);
+        assertThat(stats.getTodayCount()).isEqualTo(1);
+        assertThat(stats.getThisWeekCount()).isEqualTo(5);
+        assertThat(stats.getThisMonthCount()).isZero();
+        assertThat(stats.getReasonDistribution()).containsEntry("SPAM", 7L).containsEntry("FAKE", 3L).hasSize(2);
+        assertThat(stats.getStatusDistribution()).containsEntry("REVIEWING", 0L);
+        assertThat(stats.getAverageHandlingTimeHours()).isEqualTo(2.5);
+        assertThat(stats.getProcessingRate()).isEqualTo(0.4);
+    }
+
+    @Test
+    void testGetStatisticsCountsReportsWithoutStatus() {
+        Document facetResult = new Document()
+                .append("total", List.of(new Document("count", 5)))
+                .append("byStatus", List.of(
+                        new Document("_id", null).append("count", 3),
+                        new Document("_id", "RESOLVED").append("count", 2)));
+        mockAggregation(facetResult);
+        when(activityBucketService.getWindowCounts(eq(ActivityMetric.REPORT), any(LocalDateTime.class)))
+                .thenReturn(new ActivityBucketService.WindowCounts(0, 0, 0));
+
+        ReportStatistics stats = reviewReportService.getStatistics();
+
+        assertThat(stats.getTotalCount()).isEqualTo(5);
+        assertThat(stats.getProcessedCount()).isEqualTo(2);
+        assertThat(stats.getProcessingRate()).isEqualTo(0.4);
+    }
+
+    @Test
+    void testGetStatisticsCachedUntilReportHandled() {
+        ReflectionTestUtils.setField(reviewReportService, "statsCacheTtlMs", 60_000L);
+        mockAggregation(new Document());
+        when(activityBucketService.getWindowCounts(eq(ActivityMetric.REPORT), any(LocalDateTime.class)))
+                .thenReturn(new ActivityBucketService.WindowCounts(0, 0, 0));
+        when(reviewReportRepository.findById("report1")).thenReturn(Optional.of(testReport));
+        when(reviewReportRepository.save(any(ReviewReportDocument.class))).thenReturn(testReport);
+
+        ReportStatistics first = reviewReportService.getStatistics();
+        ReportStatistics second = reviewReportService.getStatistics();
+        assertThat(second).isSameAs(first);
+        assertThat(first.getAverageHandlingTimeHours()).isNull();
+
+        reviewReportService.handleReport("report1", handleRequest, "admin1");
+        reviewReportService.getStatistics();
+
+        verify(mongoTemplate, times(2)).aggregate(any(Aggregation.class), eq(ReviewReportDocument.class), eq(Document.class));
+    }
+
+    @Test
+    void testGetStatisticsNotCachedWhenInvalidatedDuringAggregation() {
+        ReflectionTestUtils.setField(reviewReportService, "statsCacheTtlMs", 60_000L);
+        AggregationResults<Document> results = new AggregationResults<>(List.of(new Document()), new Document());
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(ReviewReportDocument.class), eq(Document.class)))
+                .thenAnswer(invocation -> {
+                    // 聚合进行中有举报被处理
+                    reviewReportService.handleReport("report1", handleRequest, "admin1");
+                    return results;
+                })
+                .thenReturn(results);
+        when(activityBucketService.getWindowCounts(eq(ActivityMetric.REPORT), any(LocalDateTime.class)))
+                .thenReturn(new ActivityBucketService.WindowCounts(0, 0, 0));
+        when(reviewReportRepository.findById("report1")).thenReturn(Optional.of(testReport));
+        when(reviewReportRepository.save(any(ReviewReportDocument.class))).thenReturn(testReport);
+
+        reviewReportService.getStatistics();
+        reviewReportService.getStatistics();
+
+        verify(mongoTemplate, times(2)).aggregate(any(Aggregation.class), eq(ReviewReportDocument.class), eq(Document.class));
+    }
+
+    private void mockAggregation(Document facetResult) {
+        AggregationResults<Document> results = new AggregationResults<>(List.of(facetResult), new Document());
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(ReviewReportDocument.class), eq(Document.class)))
+                .thenReturn(results);
+    }
 }
@@ -1,15 +1,26 @@
 package com.nushungry.reviewservice.service;
 
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
 import com.nushungry.reviewservice.document.ReviewDocument;
+import com.nushungry.reviewservice.document.ReviewLikeDocument;
+import com.nushungry.reviewservice.document.ReviewReportDocument;
+import com.nushungry.reviewservice.dto.BatchDeleteResponse;
 import com.nushungry.reviewservice.dto.CreateReviewRequest;
+import com.nushungry.reviewservice.dto.CursorPageResponse;
 import com.nushungry.reviewservice.dto.ReviewResponse;
 import com.nushungry.reviewservice.dto.UpdateReviewRequest;
+import com.nushungry.reviewservice.enums.ActivityMetric;
 import com.nushungry.reviewservice.exception.ResourceNotFoundException;
 import com.nushungry.reviewservice.exception.UnauthorizedException;
+import com.nushungry.reviewservice.exception.ValidationException;
 import com.nushungry.reviewservice.repository.ReviewRepository;
+import org.bson.Document;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -17,15 +28,20 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
@@ -41,10 +57,25 @@ class ReviewServiceTest {
     private ReviewLikeService reviewLikeService;
 
     @Mock
-    private RatingCalculationService ratingCalculationService;
+    private StallAggregateDebouncer stallAggregateDebouncer;
 
     @Mock
-    private PriceCalculationService priceCalculationService;
+    private StallReviewCache stallReviewCache;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private ReviewHotScoreService reviewHotScoreService;
+
+    @Mock
+    private ActivityBucketService activityBucketService;
+
+    @Mock
+    private ReviewDuplicateService reviewDuplicateService;
+
+    @Mock
+    private StallTermService stallTermService;
 
     @InjectMocks
     private ReviewService reviewService;
@@ -102,8 +133,12 @@ class ReviewServiceTest {
         assertThat(response.getComment()).isEqualTo("Great food!");
 
         verify(reviewRepository).save(any(ReviewDocument.class));
-        verify(ratingCalculationService).calculateAndPublishRating(1L);
-        verify(priceCalculationService).calculateAndPublishPrice(1L);
+        verify(reviewHotScoreService).applyTo(any(ReviewDocument.class));
+        verify(stallReviewCache).onReviewSaved(testReview, true);
+        verify(stallAggregateDebouncer).requestRefresh(1L);
+        verify(activityBucketService).record(ActivityMetric.REVIEW, testReview.getCreatedAt(), 1);
+        verify(reviewDuplicateService).inspect(testReview, true);
+        verify(stallTermService).onCommentChanged(1L, null, "Great food!");
     }
 
     @Test
@@ -116,8 +151,21 @@ class ReviewServiceTest {
 
         assertThat(response).isNotNull();
         verify(reviewRepository).save(any(ReviewDocument.class));
-        verify(ratingCalculationService).calculateAndPublishRating(1L);
-        verify(priceCalculationService).calculateAndPublishPrice(1L);
+        verify(stallAggregateDebouncer).requestRefresh(1L);
+        verify(reviewDuplicateService).inspect(testReview, false);
+        verify(stallTermService).onCommentChanged(1L, "Great food!", "Updated comment");
+    }
+
+    @Test
+    void testUpdateReviewWithoutCommentChangeSkipsDuplicateCheck() {
+        when(reviewRepository.findById("review1")).thenReturn(Optional.of(testReview));
+        when(reviewRepository.save(any(ReviewDocument.class))).thenReturn(testReview);
+        when(reviewLikeService.isLikedByUser(anyString(), anyString())).thenReturn(false);
+
+        reviewService.updateReview("review1", UpdateReviewRequest.builder().rating(3).comment("Great food!").build(), "user1");
+
+        verifyNoInteractions(reviewDuplicateService);
+        verifyNoInteractions(stallTermService);
     }
 
     @Test
@@ -149,8 +197,11 @@ class ReviewServiceTest {
         reviewService.deleteReview("review1", "user1");
 
         verify(reviewRepository).delete(testReview);
-        verify(ratingCalculationService).calculateAndPublishRating(1L);
-        verify(priceCalculationService).calculateAndPublishPrice(1L);
+        verify(stallReviewCache).onReviewDeleted(testReview);
+        verify(stallAggregateDebouncer).requestRefresh(1L);
+        verify(activityBucketService).record(ActivityMetric.REVIEW, testReview.getCreatedAt(), -1);
+        verify(reviewDuplicateService).remove(List.of("review1"));
+        verify(stallTermService).onCommentChanged(1L, "Great food!", null);
     }
 
     @Test
@@ -173,6 +224,88 @@ class ReviewServiceTest {
         verify(reviewRepository, never()).delete(any());
     }
 
+    @Test
+    void testBatchDeleteReviewsCascadesAndRefreshesEachStallOnce() {
+        LocalDateTime reportedAt = LocalDateTime.of(2024, 1, 2, 10, 30);
+        ReviewDocument review2 = ReviewDocument.builder().id("review2").stallId(2L).build();
+        ReviewDocument review3 = ReviewDocument.builder().id("review3").stallId(1L).build();
+        when(mongoTemplate.find(any(Query.class), eq(ReviewDocument.class)))
+                .thenReturn(List.of(testReview, review2, review3));
+        when(mongoTemplate.find(any(Query.class), eq(ReviewReportDocument.class)))
+                .thenReturn(List.of(ReviewReportDocument.builder().createdAt(reportedAt).build()));
+        when(mongoTemplate.remove(any(Query.class), eq(ReviewDocument.class))).thenReturn(DeleteResult.acknowledged(3));
+        when(mongoTemplate.remove(any(Query.class), eq(ReviewLikeDocument.class))).thenReturn(DeleteResult.acknowledged(7));
+        when(mongoTemplate.remove(any(Query.class), eq(ReviewReportDocument.class))).thenReturn(DeleteResult.acknowledged(2));
+
+        BatchDeleteResponse response = reviewService.batchDeleteReviews(
+                Arrays.asList("review1", "review2", "review3", "review1", "missing"));
+
+        assertThat(response.getRequestedCount()).isEqualTo(4);
+        assertThat(response.getDeletedReviews()).isEqualTo(3);
+        assertThat(response.getDeletedLikes()).isEqualTo(7);
+        assertThat(response.getDeletedReports()).isEqualTo(2);
+        assertThat(response.getAffectedStallIds()).containsExactly(1L, 2L);
+
+        verify(mongoTemplate, times(1)).find(any(Query.class), eq(ReviewDocument.class));
+        verify(stallAggregateDebouncer, times(1)).requestRefresh(1L);
+        verify(stallAggregateDebouncer, times(1)).requestRefresh(2L);
+        verify(stallReviewCache).evictStall(1L);
+        verify(stallReviewCache).evictStall(2L);
+        verify(stallTermService).evict(1L);
+        verify(stallTermService).evict(2L);
+        verify(activityBucketService).record(ActivityMetric.REVIEW, Arrays.asList(testReview.getCreatedAt(), null, null), -1);
+        verify(activityBucketService).record(ActivityMetric.REPORT, List.of(reportedAt), -1);
+        verify(reviewDuplicateService).remove(List.of("review1", "review2", "review3"));
+        verifyNoInteractions(reviewRepository);
+    }
+
+    @Test
+    void testBatchDeleteReviewsNoneFound() {
+        when(mongoTemplate.find(any(Query.class), eq(ReviewDocument.class))).thenReturn(List.of());
+
+        BatchDeleteResponse response = reviewService.batchDeleteReviews(List.of("missing"));
+
+        assertThat(response.getDeletedReviews()).isZero();
+        assertThat(response.getAffectedStallIds()).isEmpty();
+        verify(mongoTemplate, never()).remove(any(Query.class), any(Class.class));
+        verifyNoInteractions(stallAggregateDebouncer);
+    }
+
+    @Test
+    void testUpdateUserProfileUsesSingleUpdateMany() {
+        LocalDateTime updatedAt = LocalDateTime.of(2024, 5, 1, 12, 0);
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(ReviewDocument.class)))
+                .thenReturn(UpdateResult.acknowledged(12, 12L, null));
+
+        long modified = reviewService.updateUserProfile("user1", "newname", "http://avatar/new.png", updatedAt);
+
+        assertThat(modified).isEqualTo(12);
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updateCaptor = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(1)).updateMulti(queryCaptor.capture(), updateCaptor.capture(), eq(ReviewDocument.class));
+        assertThat(queryCaptor.getValue().getQueryObject().get("userId")).isEqualTo("user1");
+        // 只改写资料时间早于本事件的评价，旧事件晚到或重复投递时不会覆盖
+        assertThat(queryCaptor.getValue().getQueryObject().getList("$or", Document.class))
+                .containsExactly(new Document("profileUpdatedAt", null),
+                        new Document("profileUpdatedAt", new Document("$lt", updatedAt)));
+        assertThat(updateCaptor.getValue().getUpdateObject().get("$set", Document.class))
+                .containsEntry("username", "newname")
+                .containsEntry("userAvatarUrl", "http://avatar/new.png")
+                .containsEntry("profileUpdatedAt", updatedAt);
+        verify(stallReviewCache).onUserProfileChanged("user1", "newname", "http://avatar/new.png");
+        verifyNoInteractions(reviewRepository);
+    }
+
+    @Test
+    void testUpdateUserProfileNothingChanged() {
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(ReviewDocument.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+        assertThat(reviewService.updateUserProfile("user1", "testuser", null, null)).isZero();
+
+        verifyNoInteractions(stallReviewCache);
+    }
+
     @Test
     void testGetReviewById() {
         when(reviewRepository.findById("review1")).thenReturn(Optional.of(testReview));
@@ -229,6 +362,55 @@ class ReviewServiceTest {
         verify(reviewRepository).findByStallIdOrderByLikesCountDesc(1L, pageable);
     }
 
+    @Test
+    void testGetReviewsByStallIdSortByHot() {
+        Page<ReviewDocument> page = new PageImpl<>(List.of(testReview));
+        Pageable pageable = PageRequest.of(0, 10);
+
+        when(reviewRepository.findByStallIdOrderByHotScoreDescIdDesc(1L, pageable)).thenReturn(page);
+
+        Page<ReviewResponse> result = reviewService.getReviewsByStallId(1L, "hot", null, pageable);
+
+        assertThat(result.getContent()).extracting(ReviewResponse::getId).containsExactly("review1");
+        // 热度排序直接走 {stallId, hotScore} 索引，不使用首页缓存
+        verifyNoInteractions(stallReviewCache);
+    }
+
+    @Test
+    void testGetReviewsByStallIdFirstPageFromCache() {
+        Pageable pageable = PageRequest.of(0, 10);
+        when(stallReviewCache.canServe(10)).thenReturn(true);
+        when(stallReviewCache.get(1L, false, 10))
+                .thenReturn(new StallReviewCache.CachedPage(List.of(testReview), 42));
+        when(reviewLikeService.getLikedReviewIds(List.of("review1"), "user2")).thenReturn(Set.of("review1"));
+
+        Page<ReviewResponse> result = reviewService.getReviewsByStallId(1L, "createdAt", "user2", pageable);
+
+        assertThat(result.getTotalElements()).isEqualTo(42);
+        assertThat(result.getContent()).hasSize(1);
+        assertThat(result.getContent().get(0).getIsLikedByCurrentUser()).isTrue();
+        verifyNoInteractions(reviewRepository);
+        verify(reviewLikeService, never()).isLikedByUser(anyString(), anyString());
+    }
+
+    @Test
+    void testGetReviewsByStallIdFirstPageCacheMissLoadsAndCaches() {
+        Pageable pageable = PageRequest.of(0, 10);
+        when(stallReviewCache.canServe(10)).thenReturn(true);
+        when(stallReviewCache.getDepth()).thenReturn(50);
+        when(stallReviewCache.currentGeneration()).thenReturn(7L);
+        when(reviewRepository.findByStallIdOrderByLikesCountDescIdDesc(1L, PageRequest.of(0, 50)))
+                .thenReturn(List.of(testReview));
+
+        Page<ReviewResponse> result = reviewService.getReviewsByStallId(1L, "likes", null, pageable);
+
+        assertThat(result.getTotalElements()).isEqualTo(1);
+        assertThat(result.getContent().get(0).getIsLikedByCurrentUser()).isFalse();
+        verify(stallReviewCache).put(1L, true, List.of(testReview), 1L, 7L);
+        // 不足一个 depth 时总数即为结果条数，不需要 count
+        verify(reviewRepository, never()).countByStallId(anyLong());
+    }
+
     @Test
     void testGetReviewsByUserId() {
         List<ReviewDocument> reviews = Arrays.asList(testReview);
@@ -245,4 +427,112 @@ class ReviewServiceTest {
 
         verify(reviewRepository).findByUserIdOrderByCreatedAtDesc("user1", pageable);
     }
+
+    @Test
+    void testGetReviewsByStallIdCursorFirstPageHasNext() {
+        ReviewDocument older = ReviewDocument.builder()
+                .id("65a000000000000000000001")
+                .stallId(1L)
+                .userId("user2")
+                .rating(4)
+                .likesCount(0)
+                .createdAt(LocalDateTime.of(2024, 1, 1, 12, 0))
+                .build();
+        testReview.setId("65a000000000000000000002");
+        testReview.setCreatedAt(LocalDateTime.of(2024, 1, 2, 12, 0));
+
+        when(reviewRepository.findByStallIdOrderByCreatedAtDescIdDesc(1L, PageRequest.of(0, 2)))
+                .thenReturn(Arrays.asList(testReview, older));
+
+        CursorPageResponse<ReviewResponse> result =
+                reviewService.getReviewsByStallIdCursor(1L, "createdAt", "", 1, null);
+
+        assertThat(result.getContent()).hasSize(1);
+        assertThat(result.isHasNext()).isTrue();
+        assertThat(result.getNextCursor()).isNotNull();
+
+        when(reviewRepository.findByStallIdCreatedAtAfterCursor(
+                eq(1L), eq(testReview.getCreatedAt()), eq(new ObjectId(testReview.getId())), eq(PageRequest.of(0, 2))))
+                .thenReturn(List.of(older));
+
+        CursorPageResponse<ReviewResponse> next =
+                reviewService.getReviewsByStallIdCursor(1L, "createdAt", result.getNextCursor(), 1, null);
+
+        assertThat(next.getContent()).extracting(ReviewResponse::getId).containsExactly(older.getId());
+        assertThat(next.isHasNext()).isFalse();
+        assertThat(next.getNextCursor()).isNull();
+        verify(reviewRepository, never()).countByStallId(anyLong());
+    }
+
+    @Test
+    void testGetReviewsByStallIdCursorNullLikesCountEncodedAsZero() {
+        testReview.setId("65a000000000000000000002");
+        testReview.setLikesCount(null);
+        ReviewDocument other = ReviewDocument.builder()
+                .id("65a000000000000000000001")
+                .stallId(1L)
+                .userId("user2")
+                .rating(4)
+                .build();
+        when(reviewRepository.findByStallIdOrderByLikesCountDescIdDesc(1L, PageRequest.of(0, 2)))
+                .thenReturn(Arrays.asList(testReview, other));
+
+        CursorPageResponse<ReviewResponse> result =
+                reviewService.getReviewsByStallIdCursor(1L, "likes", "", 1, null);
+
+        when(reviewRepository.findByStallIdLikesCountAfterCursor(
+                eq(1L), eq(0), eq(new ObjectId(testReview.getId())), eq(PageRequest.of(0, 2))))
+                .thenReturn(List.of(other));
+        CursorPageResponse<ReviewResponse> next =
+                reviewService.getReviewsByStallIdCursor(1L, "likes", result.getNextCursor(), 1, null);
+
+        assertThat(next.getContent()).extracting(ReviewResponse::getId).containsExactly(other.getId());
+    }
+
+    @Test
+    void testGetReviewsByUserIdCursorMissingCreatedAtEndsFeed() {
+        testReview.setCreatedAt(null);
+        ReviewDocument other = ReviewDocument.builder().id("65a000000000000000000001").userId("user1").build();
+        when(reviewRepository.findByUserIdOrderByCreatedAtDescIdDesc("user1", PageRequest.of(0, 2)))
+                .thenReturn(Arrays.asList(testReview, other));
+
+        CursorPageResponse<ReviewResponse> result = reviewService.getReviewsByUserIdCursor("user1", "", 1, null);
+
+        assertThat(result.getContent()).hasSize(1);
+        assertThat(result.isHasNext()).isFalse();
+        assertThat(result.getNextCursor()).isNull();
+    }
+
+    @Test
+    void testGetReviewsByUserIdCursorBatchesLikedLookup() {
+        ReviewDocument other = ReviewDocument.builder()
+                .id("review2")
+                .userId("user1")
+                .createdAt(LocalDateTime.of(2024, 1, 1, 12, 0))
+                .build();
+        when(reviewRepository.findByUserIdOrderByCreatedAtDescIdDesc("user1", PageRequest.of(0, 3)))
+                .thenReturn(Arrays.asList(testReview, other));
+        when(reviewLikeService.getLikedReviewIds(List.of("review1", "review2"), "user2")).thenReturn(Set.of("review2"));
+
+        CursorPageResponse<ReviewResponse> result = reviewService.getReviewsByUserIdCursor("user1", "", 2, "user2");
+
+        assertThat(result.getContent()).extracting(ReviewResponse::getIsLikedByCurrentUser).containsExactly(false, true);
+        verify(reviewLikeService).getLikedReviewIds(anyList(), anyString());
+        verify(reviewLikeService, never()).isLikedByUser(anyString(), anyString());
+    }
+
+    @Test
+    void testGetReviewsByCursorRejectsInvalidSize() {
+        assertThatThrownBy(() -> reviewService.getReviewsByUserIdCursor("user1", "", 0, null))
+                .isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> reviewService.getReviewsByStallIdCursor(1L, "createdAt", "", 51, null))
+                .isInstanceOf(ValidationException.class);
+        verifyNoInteractions(reviewRepository);
+    }
+
+    @Test
+    void testGetReviewsByUserIdCursorInvalidCursor() {
+        assertThatThrownBy(() -> reviewService.getReviewsByUserIdCursor("user1", "not-a-cursor", 10, null))
+                .isInstanceOf(ValidationException.class);
+    }
 }
@@ -0,0 +1,159 @@
+package com.nushungry.reviewservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import com.nushungry.reviewservice.document.ReviewDocument;
+import com.nushungry.reviewservice.dto.ReviewImportResponse;
+import com.nushungry.reviewservice.enums.ActivityMetric;
+import org.bson.BsonString;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReviewTransferServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private StallAggregateDebouncer stallAggregateDebouncer;
+
+    @Mock
+    private StallReviewCache stallReviewCache;
+
+    @Mock
+    private ReviewHotScoreService reviewHotScoreService;
+
+    @Mock
+    private ActivityBucketService activityBucketService;
+
+    @Mock
+    private ReviewDuplicateService reviewDuplicateService;
+
+    @Mock
+    private StallTermService stallTermService;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    private ObjectMapper objectMapper;
+    private ReviewTransferService reviewTransferService;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        reviewTransferService = new ReviewTransferService(
+                mongoTemplate, objectMapper, stallAggregateDebouncer, stallReviewCache, reviewHotScoreService,
+                activityBucketService, reviewDuplicateService, stallTermService);
+        ReflectionTestUtils.setField(reviewTransferService, "importBatchSize", 2);
+        ReflectionTestUtils.setField(reviewTransferService, "exportCursorBatchSize", 100);
+    }
+
+    @Test
+    void testExportWritesOneJsonLinePerReview() throws Exception {
+        ReviewDocument first = ReviewDocument.builder().id("r1").stallId(1L).rating(5)
+                .createdAt(LocalDateTime.of(2024, 1, 1, 12, 0)).build();
+        ReviewDocument second = ReviewDocument.builder().id("r2").stallId(2L).rating(3)
+                .createdAt(LocalDateTime.of(2024, 1, 2, 12, 0)).build();
+        when(mongoTemplate.stream(any(Query.class), eq(ReviewDocument.class))).thenReturn(Stream.of(first, second));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long count = reviewTransferService.exportReviews(null, output);
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(count).isEqualTo(2);
+        assertThat(lines).hasSize(2);
+        assertThat(objectMapper.readValue(lines[1], ReviewDocument.class).getId()).isEqualTo("r2");
+    }
+
+    @Test
+    void testImportWritesUnorderedBatchesAndRefreshesEachStallOnce() throws Exception {
+        String ndjson = String.join("\n",
+                "{\"id\":\"r1\",\"stallId\":1,\"rating\":5}",
+                "{\"stallId\":1,\"rating\":4}",
+                "",
+                "not json",
+                "{\"stallId\":2}",
+                "{\"stallId\":2,\"rating\":3}");
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ReviewDocument.class)).thenReturn(bulkOperations);
+        when(bulkOperations.execute())
+                .thenReturn(BulkWriteResult.acknowledged(1, 0, 0, 0,
+                        List.of(new BulkWriteUpsert(0, new BsonString("r1"))), List.of()))
+                .thenReturn(BulkWriteResult.acknowledged(1, 0, 0, 0, List.of(), List.of()));
+
+        ReviewImportResponse response = reviewTransferService.importReviews(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(response.getReceivedLines()).isEqualTo(5);
+        assertThat(response.getFailedCount()).isEqualTo(2);
+        assertThat(response.getErrors()).hasSize(2);
+        assertThat(response.getBatches()).isEqualTo(2);
+        assertThat(response.getAffectedStalls()).isEqualTo(2);
+
+        verify(bulkOperations).replaceOne(any(Query.class), any(ReviewDocument.class), any(FindAndReplaceOptions.class));
+        verify(bulkOperations, times(2)).insert(any(ReviewDocument.class));
+        verify(reviewHotScoreService, times(3)).applyTo(any(ReviewDocument.class));
+        verify(stallAggregateDebouncer, times(1)).requestRefresh(1L);
+        verify(stallAggregateDebouncer, times(1)).requestRefresh(2L);
+        verify(stallReviewCache).evictStall(1L);
+        verify(stallReviewCache).evictStall(2L);
+        verify(stallTermService).evict(1L);
+        verify(stallTermService).evict(2L);
+        // 第一批 upsert 插入 + insert，第二批一条 insert，均计入分桶
+        verify(activityBucketService).record(eq(ActivityMetric.REVIEW),
+                argThat((Collection<LocalDateTime> createdAts) -> createdAts.size() == 2), eq(1L));
+        verify(activityBucketService).record(eq(ActivityMetric.REVIEW),
+                argThat((Collection<LocalDateTime> createdAts) -> createdAts.size() == 1), eq(1L));
+        // 写入成功的评价都建立内容指纹，新插入的评价预先分配了 id
+        verify(reviewDuplicateService).index(argThat((Collection<ReviewDocument> reviews) -> reviews.size() == 2
+                && reviews.stream().allMatch(review -> review.getId() != null)));
+        verify(reviewDuplicateService).index(argThat((Collection<ReviewDocument> reviews) -> reviews.size() == 1));
+    }
+
+    @Test
+    void testImportMovingReviewToAnotherStallRefreshesOldStall() throws Exception {
+        when(mongoTemplate.find(any(Query.class), eq(ReviewDocument.class)))
+                .thenReturn(List.of(ReviewDocument.builder().id("r1").stallId(9L).build()));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ReviewDocument.class)).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(BulkWriteResult.acknowledged(0, 1, 0, 1, List.of(), List.of()));
+
+        ReviewImportResponse response = reviewTransferService.importReviews(new ByteArrayInputStream(
+                "{\"id\":\"r1\",\"stallId\":1,\"rating\":5}".getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(response.getAffectedStalls()).isEqualTo(2);
+        verify(mongoTemplate).find(argThat((Query query) -> query.getQueryObject().containsKey("_id")
+                && query.getFieldsObject().containsKey("stallId")), eq(ReviewDocument.class));
+        for (Long stallId : List.of(1L, 9L)) {
+            verify(stallReviewCache).evictStall(stallId);
+            verify(stallTermService).evict(stallId);
+            verify(stallAggregateDebouncer).requestRefresh(stallId);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.nushungry.reviewservice.service;
+
+import com.nushungry.reviewservice.document.StallAggregateDirtyDocument;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StallAggregateDebouncerTest {
+
+    @Mock
+    private RatingCalculationService ratingCalculationService;
+
+    @Mock
+    private PriceCalculationService priceCalculationService;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private StallAggregateDebouncer debouncer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        debouncer = new StallAggregateDebouncer(ratingCalculationService, priceCalculationService, mongoTemplate,
+                meterRegistry);
+        ReflectionTestUtils.setField(debouncer, "windowMs", 100L);
+        ReflectionTestUtils.setField(debouncer, "maxDelayMs", 1000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        debouncer.flushAll();
+    }
+
+    @Test
+    void testBurstForSameStallCoalescedIntoSingleRefresh() {
+        for (int i = 0; i < 5; i++) {
+            debouncer.requestRefresh(1L);
+        }
+        debouncer.requestRefresh(2L);
+
+        verify(ratingCalculationService, timeout(2000).times(1)).calculateAndPublishRating(1L);
+        verify(priceCalculationService, timeout(2000).times(1)).calculateAndPublishPrice(1L);
+        verify(ratingCalculationService, timeout(2000).times(1)).calculateAndPublishRating(2L);
+
+        assertThat(meterRegistry.counter("review.aggregate.refresh.requested").count()).isEqualTo(6.0);
+        assertThat(meterRegistry.counter("review.aggregate.refresh.coalesced").count()).isEqualTo(4.0);
+    }
+
+    @Test
+    void testContinuousUpdatesFlushedWithinMaxDelay() throws InterruptedException {
+        ReflectionTestUtils.setField(debouncer, "windowMs", 200L);
+        ReflectionTestUtils.setField(debouncer, "maxDelayMs", 300L);
+
+        long deadline = System.currentTimeMillis() + 600;
+        while (System.currentTimeMillis() < deadline) {
+            debouncer.requestRefresh(1L);
+            Thread.sleep(50);
+        }
+
+        // 请求间隔始终小于 window，仍应在 max-delay 到达时执行
+        verify(ratingCalculationService, atLeastOnce()).calculateAndPublishRating(1L);
+    }
+
+    @Test
+    void testZeroWindowRefreshesSynchronously() {
+        ReflectionTestUtils.setField(debouncer, "windowMs", 0L);
+
+        debouncer.requestRefresh(1L);
+
+        verify(ratingCalculationService).calculateAndPublishRating(1L);
+        verify(priceCalculationService).calculateAndPublishPrice(1L);
+    }
+
+    @Test
+    void testDirtyMarkerWrittenAndClearedAfterRefresh() {
+        ReflectionTestUtils.setField(debouncer, "windowMs", 0L);
+
+        debouncer.requestRefresh(1L);
+
+        var inOrder = inOrder(mongoTemplate, ratingCalculationService);
+        inOrder.verify(mongoTemplate).upsert(any(Query.class), any(Update.class), eq(StallAggregateDirtyDocument.class));
+        inOrder.verify(ratingCalculationService).calculateAndPublishRating(1L);
+        inOrder.verify(mongoTemplate).remove(any(Query.class), eq(StallAggregateDirtyDocument.class));
+    }
+
+    @Test
+    void testFailedRefreshKeepsDirtyMarker() {
+        ReflectionTestUtils.setField(debouncer, "windowMs", 0L);
+        doThrow(new RuntimeException("mongo down")).when(ratingCalculationService).calculateAndPublishRating(1L);
+
+        debouncer.requestRefresh(1L);
+
+        verify(mongoTemplate, never()).remove(any(Query.class), eq(StallAggregateDirtyDocument.class));
+    }
+
+    @Test
+    void testRecoverDirtyStallsRefreshesLeftoverMarkers() {
+        when(mongoTemplate.find(any(Query.class), eq(StallAggregateDirtyDocument.class)))
+                .thenReturn(List.of(new StallAggregateDirtyDocument(3L, null), new StallAggregateDirtyDocument(4L, null)));
+        doThrow(new RuntimeException("mongo down")).when(priceCalculationService).calculateAndPublishPrice(4L);
+
+        int recovered = debouncer.recoverDirtyStalls();
+
+        assertThat(recovered).isEqualTo(1);
+        verify(ratingCalculationService).calculateAndPublishRating(3L);
+        verify(ratingCalculationService).calculateAndPublishRating(4L);
+        verify(mongoTemplate, times(1)).remove(any(Query.class), eq(StallAggregateDirtyDocument.class));
+    }
+
+    @Test
+    void testFlushAllRunsPendingRefreshes() {
+        ReflectionTestUtils.setField(debouncer, "windowMs", 60000L);
+        ReflectionTestUtils.setField(debouncer, "maxDelayMs", 60000L);
+
+        debouncer.requestRefresh(1L);
+        verifyNoInteractions(ratingCalculationService);
+
+        debouncer.flushAll();
+
+        verify(ratingCalculationService).calculateAndPublishRating(1L);
+        verify(priceCalculationService).calculateAndPublishPrice(1L);
+    }
+}
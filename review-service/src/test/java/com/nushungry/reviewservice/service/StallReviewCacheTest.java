@@ -0,0 +1,132 @@
+package com.nushungry.reviewservice.service;
+
+import com.nushungry.reviewservice.document.ReviewDocument;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StallReviewCacheTest {
+
+    private StallReviewCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new StallReviewCache(10, 3, 60000, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testNewReviewInsertedAtTopOfNewestPage() {
+        cache.put(1L, false, List.of(review("03", 3, 0), review("02", 2, 0), review("01", 1, 0)), 5, cache.currentGeneration());
+
+        cache.onReviewSaved(review("04", 4, 0), true);
+
+        StallReviewCache.CachedPage page = cache.get(1L, false, 3);
+        assertThat(page.reviews()).extracting(ReviewDocument::getId).containsExactly("04", "03", "02");
+        assertThat(page.total()).isEqualTo(6);
+    }
+
+    @Test
+    void testLikeChangeRepositionsLikesPage() {
+        cache.put(1L, true, List.of(review("01", 1, 9), review("02", 2, 5), review("03", 3, 1)), 5, cache.currentGeneration());
+
+        cache.onReviewSaved(review("03", 3, 7), false);
+
+        assertThat(cache.get(1L, true, 3).reviews()).extracting(ReviewDocument::getId)
+                .containsExactly("01", "03", "02");
+    }
+
+    @Test
+    void testReviewFallingBelowCachedRangeIsDropped() {
+        cache.put(1L, true, List.of(review("01", 1, 9), review("02", 2, 5), review("03", 3, 4)), 5, cache.currentGeneration());
+
+        // 点赞数下降后可能排在未缓存的评价之后，真实位置未知
+        cache.onReviewSaved(review("01", 1, 0), false);
+
+        assertThat(cache.get(1L, true, 2).reviews()).extracting(ReviewDocument::getId)
+                .containsExactly("02", "03");
+        assertThat(cache.get(1L, true, 3)).isNull();
+    }
+
+    @Test
+    void testDeleteRemovesReviewAndDecrementsTotal() {
+        cache.put(1L, false, List.of(review("02", 2, 0), review("01", 1, 0)), 2, cache.currentGeneration());
+
+        cache.onReviewDeleted(review("02", 2, 0));
+
+        StallReviewCache.CachedPage page = cache.get(1L, false, 3);
+        assertThat(page.reviews()).extracting(ReviewDocument::getId).containsExactly("01");
+        assertThat(page.total()).isEqualTo(1);
+    }
+
+    @Test
+    void testLoadRacingWithWriteIsNotCached() {
+        long generation = cache.currentGeneration();
+        cache.onReviewSaved(review("01", 1, 0), true);
+
+        cache.put(1L, false, new ArrayList<>(), 0, generation);
+
+        assertThat(cache.get(1L, false, 3)).isNull();
+    }
+
+    @Test
+    void testWriteToOtherStallDoesNotDiscardLoad() {
+        long generation = cache.currentGeneration();
+        ReviewDocument otherStall = review("09", 9, 0);
+        otherStall.setStallId(2L);
+        cache.onReviewSaved(otherStall, true);
+
+        cache.put(1L, false, List.of(review("01", 1, 0)), 1, generation);
+
+        assertThat(cache.get(1L, false, 3)).isNotNull();
+    }
+
+    @Test
+    void testClearDiscardsLoadForAnyStall() {
+        long generation = cache.currentGeneration();
+        cache.clear();
+
+        cache.put(1L, false, List.of(review("01", 1, 0)), 1, generation);
+
+        assertThat(cache.get(1L, false, 3)).isNull();
+    }
+
+    @Test
+    void testUserProfileChangeUpdatesCachedReviewsInPlace() {
+        ReviewDocument mine = review("02", 2, 0);
+        mine.setUserId("user1");
+        mine.setUsername("old");
+        ReviewDocument other = review("01", 1, 0);
+        other.setUserId("user2");
+        other.setUsername("other");
+        cache.put(1L, false, List.of(mine, other), 2, cache.currentGeneration());
+
+        cache.onUserProfileChanged("user1", "new", "http://avatar/new.png");
+
+        List<ReviewDocument> reviews = cache.get(1L, false, 3).reviews();
+        assertThat(reviews).extracting(ReviewDocument::getUsername).containsExactly("new", "other");
+        assertThat(reviews.get(0).getUserAvatarUrl()).isEqualTo("http://avatar/new.png");
+        assertThat(reviews.get(1).getUserAvatarUrl()).isNull();
+    }
+
+    @Test
+    void testCanServeOnlyUpToDepth() {
+        assertThat(cache.canServe(3)).isTrue();
+        assertThat(cache.canServe(4)).isFalse();
+        assertThat(new StallReviewCache(0, 3, 60000, new SimpleMeterRegistry()).canServe(3)).isFalse();
+    }
+
+    private ReviewDocument review(String idSuffix, int day, int likes) {
+        return ReviewDocument.builder()
+                .id("65a0000000000000000000" + idSuffix)
+                .stallId(1L)
+                .likesCount(likes)
+                .createdAt(LocalDateTime.of(2024, 1, day, 12, 0))
+                .build();
+    }
+}
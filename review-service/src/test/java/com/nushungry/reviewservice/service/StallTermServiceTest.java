@@ -0,0 +1,189 @@
+package com.nushungry.reviewservice.service;
+
+import com.mongodb.client.result.UpdateResult;
+import com.nushungry.reviewservice.document.ReviewDocument;
+import com.nushungry.reviewservice.document.StallTermSummaryDocument;
+import com.nushungry.reviewservice.document.StallTermSummaryDocument.TermCounter;
+import com.nushungry.reviewservice.dto.TopTermsResponse;
+import com.nushungry.reviewservice.util.TermTokenizer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StallTermServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @InjectMocks
+    private StallTermService stallTermService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(stallTermService, "capacity", 3);
+        ReflectionTestUtils.setField(stallTermService, "maxRetries", 3);
+    }
+
+    @Test
+    void testTokenizerDropsStopWordsAndSplitsChineseIntoBigrams() {
+        assertThat(TermTokenizer.terms("The chicken rice was AMAZING, the chicken was tender! 咖喱鸡很好吃 $5"))
+                .containsExactly("chicken", "rice", "amazing", "tender", "咖喱", "喱鸡", "好吃");
+        assertThat(TermTokenizer.terms(null)).isEmpty();
+    }
+
+    @Test
+    void testCommentChangeUpdatesOnlyDifferingTerms() {
+        StallTermSummaryDocument summary = summary(counter("chicken", 5), counter("rice", 2));
+        when(mongoTemplate.findById(1L, StallTermSummaryDocument.class)).thenReturn(summary);
+
+        stallTermService.onCommentChanged(1L, "chicken rice", "chicken curry");
+
+        verify(mongoTemplate).save(summary);
+        assertThat(summary.getTerms())
+                .extracting(TermCounter::getTerm, TermCounter::getCount)
+                .containsExactlyInAnyOrder(
+                        tuple("chicken", 5L),
+                        tuple("rice", 1L),
+                        tuple("curry", 1L));
+    }
+
+    @Test
+    void testFullSummaryReplacesMinimumCounter() {
+        StallTermSummaryDocument summary = summary(counter("chicken", 5), counter("rice", 2), counter("soup", 1));
+        when(mongoTemplate.findById(1L, StallTermSummaryDocument.class)).thenReturn(summary);
+
+        stallTermService.onCommentChanged(1L, null, "laksa");
+
+        TermCounter replaced = summary.getTerms().get(2);
+        assertThat(replaced.getTerm()).isEqualTo("laksa");
+        assertThat(replaced.getCount()).isEqualTo(2);
+        assertThat(replaced.getError()).isEqualTo(1);
+        assertThat(summary.getTerms()).hasSize(3);
+    }
+
+    @Test
+    void testDeleteRemovesExhaustedCounter() {
+        StallTermSummaryDocument summary = summary(counter("chicken", 5), counter("soup", 1));
+        when(mongoTemplate.findById(1L, StallTermSummaryDocument.class)).thenReturn(summary);
+
+        stallTermService.onCommentChanged(1L, "chicken soup", null);
+
+        assertThat(summary.getTerms())
+                .extracting(TermCounter::getTerm)
+                .containsExactly("chicken");
+        assertThat(summary.getTerms().get(0).getCount()).isEqualTo(4);
+    }
+
+    @Test
+    void testMissingSummaryIsLeftForFirstRead() {
+        when(mongoTemplate.findById(1L, StallTermSummaryDocument.class)).thenReturn(null);
+
+        stallTermService.onCommentChanged(1L, null, "chicken rice");
+
+        verify(mongoTemplate, never()).save(any());
+    }
+
+    @Test
+    void testConcurrentUpdateRetriesThenEvicts() {
+        when(mongoTemplate.findById(1L, StallTermSummaryDocument.class))
+                .thenAnswer(invocation -> summary(counter("chicken", 5)));
+        when(mongoTemplate.save(any(StallTermSummaryDocument.class)))
+                .thenThrow(new OptimisticLockingFailureException("version changed"));
+
+        stallTermService.onCommentChanged(1L, null, "chicken");
+
+        verify(mongoTemplate, times(3)).save(any(StallTermSummaryDocument.class));
+        verify(mongoTemplate).remove(any(Query.class), eq(StallTermSummaryDocument.class));
+    }
+
+    @Test
+    void testFirstReadBuildsSummaryFromReviews() {
+        ReflectionTestUtils.setField(stallTermService, "capacity", 100);
+        when(mongoTemplate.findById(1L, StallTermSummaryDocument.class)).thenReturn(null);
+        when(mongoTemplate.stream(any(Query.class), eq(ReviewDocument.class))).thenReturn(Stream.of(
+                ReviewDocument.builder().comment("Chicken rice, chicken everywhere").build(),
+                ReviewDocument.builder().comment("Best chicken in town").build(),
+                ReviewDocument.builder().comment("Rice too dry").build()));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(StallTermSummaryDocument.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        TopTermsResponse response = stallTermService.getTopTerms(1L, 2);
+
+        assertThat(response.getStallId()).isEqualTo(1L);
+        assertThat(response.getTerms())
+                .extracting(TopTermsResponse.TermCount::getTerm, TopTermsResponse.TermCount::getCount)
+                .containsExactly(
+                        tuple("chicken", 2L),
+                        tuple("rice", 2L));
+        ArgumentCaptor<StallTermSummaryDocument> inserted = ArgumentCaptor.forClass(StallTermSummaryDocument.class);
+        verify(mongoTemplate).insert(inserted.capture());
+        assertThat(inserted.getValue().getId()).isEqualTo(1L);
+        // 先插入占位，读取完成后按占位 token 写入结果
+        String token = inserted.getValue().getRebuildToken();
+        assertThat(token).isNotNull();
+        verify(mongoTemplate).updateFirst(argThat((Query query) -> token.equals(query.getQueryObject().get("rebuildToken"))),
+                argThat((Update update) -> update.getUpdateObject().containsKey("$unset")),
+                eq(StallTermSummaryDocument.class));
+    }
+
+    @Test
+    void testWriteDuringRebuildRemovesPlaceholder() {
+        StallTermSummaryDocument placeholder = summary();
+        placeholder.setRebuildToken("token");
+        when(mongoTemplate.findById(1L, StallTermSummaryDocument.class)).thenReturn(placeholder);
+
+        stallTermService.onCommentChanged(1L, null, "chicken rice");
+
+        verify(mongoTemplate, never()).save(any());
+        verify(mongoTemplate).remove(argThat((Query query) -> "token".equals(query.getQueryObject().get("rebuildToken"))),
+                eq(StallTermSummaryDocument.class));
+    }
+
+    @Test
+    void testRebuildNotSavedWhenPlaceholderRemoved() {
+        when(mongoTemplate.findById(1L, StallTermSummaryDocument.class)).thenReturn(null);
+        when(mongoTemplate.stream(any(Query.class), eq(ReviewDocument.class)))
+                .thenReturn(Stream.of(ReviewDocument.builder().comment("Chicken rice").build()));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(StallTermSummaryDocument.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+        TopTermsResponse response = stallTermService.getTopTerms(1L, 5);
+
+        // 本次仍返回计算结果，下次读取重新构建
+        assertThat(response.getTerms()).extracting(TopTermsResponse.TermCount::getTerm)
+                .containsExactlyInAnyOrder("chicken", "rice");
+    }
+
+    private static StallTermSummaryDocument summary(TermCounter... counters) {
+        return StallTermSummaryDocument.builder()
+                .id(1L)
+                .terms(new ArrayList<>(List.of(counters)))
+                .version(0L)
+                .build();
+    }
+
+    private static TermCounter counter(String term, long count) {
+        return TermCounter.builder().term(term).count(count).error(0).build();
+    }
+}
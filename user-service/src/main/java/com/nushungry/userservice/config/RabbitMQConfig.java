@@ -0,0 +1,38 @@
+package com.nushungry.userservice.config;
+
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * RabbitMQ 配置
+ *
+ * 功能:
+ * - 声明用户事件交换机，消费方自行声明队列并绑定
+ * - 使用 JSON 消息格式，RabbitTemplate 由 Spring Boot 自动配置
+ */
+@Configuration
+public class RabbitMQConfig {
+
+    @Value("${rabbitmq.exchange.user}")
+    private String userExchange;
+
+    /**
+     * 用户事件 Topic 交换机（持久化）
+     */
+    @Bean
+    public TopicExchange userExchange() {
+        return new TopicExchange(userExchange, true, false);
+    }
+
+    /**
+     * 消息转换器 - 使用 Jackson2 JSON 格式
+     */
+    @Bean
+    public MessageConverter messageConverter() {
+        return new Jackson2JsonMessageConverter();
+    }
+}
@@ -0,0 +1,39 @@
+package com.nushungry.userservice.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 用户资料变更事件
+ * 用户名或头像变化后发布，供冗余了用户资料的服务（如 review-service）批量刷新
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserProfileChangedEvent {
+
+    /**
+     * 用户ID
+     */
+    private Long userId;
+
+    /**
+     * 变更后的用户名
+     */
+    private String username;
+
+    /**
+     * 变更后的头像URL
+     */
+    private String avatarUrl;
+
+    /**
+     * 事件时间戳
+     */
+    private LocalDateTime timestamp;
+}
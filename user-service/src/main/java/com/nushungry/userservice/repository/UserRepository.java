@@ -2,9 +2,12 @@ package com.nushungry.userservice.repository;
 
 import com.nushungry.userservice.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -18,4 +21,10 @@ public interface UserRepository extends JpaRepository<User, Long> {
     long countByCreatedAtBefore(LocalDateTime dateTime);
     long countByCreatedAtBetween(LocalDateTime start, LocalDateTime end);
     long countByLastLoginAfter(LocalDateTime dateTime);
+
+    // 按天分组统计 [start, end) 内的新增用户数，每行为 {LocalDate 日期, Long 数量}
+    @Query("SELECT CAST(u.createdAt AS LocalDate), COUNT(u) FROM User u "
+            + "WHERE u.createdAt >= :start AND u.createdAt < :end "
+            + "GROUP BY CAST(u.createdAt AS LocalDate)")
+    List<Object[]> countDailyRegistrations(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
 }
\ No newline at end of file
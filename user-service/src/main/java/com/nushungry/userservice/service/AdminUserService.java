@@ -1,11 +1,13 @@
 package com.nushungry.userservice.service;
 
 import com.nushungry.userservice.dto.*;
+import com.nushungry.userservice.event.UserProfileChangedEvent;
 import com.nushungry.userservice.model.User;
 import com.nushungry.userservice.model.UserRole;
 import com.nushungry.userservice.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -14,6 +16,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -24,6 +27,7 @@ public class AdminUserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * 分页查询用户列表
@@ -109,11 +113,13 @@ public class AdminUserService {
                 .orElseThrow(() -> new RuntimeException("用户不存在: " + id));
 
         // 更新用户名（如果提供且不同）
+        boolean usernameChanged = false;
         if (request.getUsername() != null && !request.getUsername().equals(user.getUsername())) {
             if (userRepository.existsByUsername(request.getUsername())) {
                 throw new RuntimeException("用户名已存在: " + request.getUsername());
             }
             user.setUsername(request.getUsername());
+            usernameChanged = true;
         }
 
         // 更新邮箱（如果提供且不同）
@@ -142,6 +148,16 @@ public class AdminUserService {
         User updatedUser = userRepository.save(user);
         log.info("Updated user: {}", updatedUser.getUsername());
 
+        // 用户名变更需同步到其他服务冗余的用户资料
+        if (usernameChanged) {
+            eventPublisher.publishEvent(UserProfileChangedEvent.builder()
+                    .userId(updatedUser.getId())
+                    .username(updatedUser.getUsername())
+                    .avatarUrl(updatedUser.getAvatarUrl())
+                    .timestamp(LocalDateTime.now())
+                    .build());
+        }
+
         return convertToDTO(updatedUser);
     }
 
@@ -16,7 +16,9 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -33,9 +35,11 @@ public class DashboardService {
 
     public DashboardStatsDTO getDashboardStats() {
         log.info("获取仪表板统计数据");
+        // 统计卡片和系统概览共用一次 Review Service 调用
+        ReviewServiceClient.ReviewStatsResponse reviewStats = fetchReviewStats();
         return DashboardStatsDTO.builder()
-                .statsCards(getStatsCards())
-                .systemOverview(getSystemOverview())
+                .statsCards(buildStatsCards(reviewStats))
+                .systemOverview(buildSystemOverview(reviewStats))
                 .userGrowthData(getUserGrowthData())
                 .latestUsers(getLatestUsers())
                 .latestReviews(getLatestReviews())
@@ -43,6 +47,10 @@ public class DashboardService {
     }
 
     public DashboardStatsDTO.StatsCards getStatsCards() {
+        return buildStatsCards(fetchReviewStats());
+    }
+
+    private DashboardStatsDTO.StatsCards buildStatsCards(ReviewServiceClient.ReviewStatsResponse reviewStats) {
         log.info("获取统计卡片数据");
 
         // 获取本地用户数据
@@ -65,13 +73,8 @@ public class DashboardService {
                     .build();
         }
 
-        // 调用Review Service获取评价数据
-        ReviewServiceClient.ReviewStatsResponse reviewStats = null;
-        try {
-            reviewStats = reviewServiceClient.getReviewStats();
-            log.info("成功获取评价服务统计数据");
-        } catch (Exception e) {
-            log.error("调用Review Service失败", e);
+        // Review Service 调用失败时评价数据按 0 处理
+        if (reviewStats == null) {
             reviewStats = ReviewServiceClient.ReviewStatsResponse.builder()
                     .totalReviews(0)
                     .yesterdayReviews(0)
@@ -95,6 +98,10 @@ public class DashboardService {
     }
 
     public DashboardStatsDTO.SystemOverview getSystemOverview() {
+        return buildSystemOverview(fetchReviewStats());
+    }
+
+    private DashboardStatsDTO.SystemOverview buildSystemOverview(ReviewServiceClient.ReviewStatsResponse reviewStats) {
         log.info("获取系统概览");
 
         // 计算系统运行天数
@@ -106,17 +113,14 @@ public class DashboardService {
         long totalUsers = userRepository.count();
         double activePercentage = totalUsers > 0 ? (activeUsers * 100.0 / totalUsers) : 0;
 
-        // 调用Review Service获取投诉数据
+        // 投诉数据来自 Review Service
         int pendingComplaints = 0;
         double pendingPercentage = 0;
-        try {
-            ReviewServiceClient.ReviewStatsResponse reviewStats = reviewServiceClient.getReviewStats();
+        if (reviewStats != null && reviewStats.getPendingComplaints() != null
+                && reviewStats.getTotalComplaints() != null) {
             pendingComplaints = reviewStats.getPendingComplaints();
             int totalComplaints = reviewStats.getTotalComplaints();
             pendingPercentage = totalComplaints > 0 ? (pendingComplaints * 100.0 / totalComplaints) : 0;
-            log.info("成功获取投诉数据");
-        } catch (Exception e) {
-            log.error("调用Review Service获取投诉数据失败", e);
         }
 
         // 计算系统健康度
@@ -146,13 +150,16 @@ public class DashboardService {
         List<DashboardStatsDTO.UserGrowthData> growthData = new ArrayList<>();
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
-        // 遍历日期范围,统计每天的新增用户数
+        // 一次分组查询取得整个日期范围内每天的新增用户数，没有注册的日期补 0
+        Map<LocalDate, Long> dailyCounts = new HashMap<>();
+        for (Object[] row : userRepository.countDailyRegistrations(
+                startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay())) {
+            dailyCounts.put((LocalDate) row[0], ((Number) row[1]).longValue());
+        }
+
         LocalDate currentDate = startDate;
         while (!currentDate.isAfter(endDate)) {
-            LocalDateTime startOfDay = currentDate.atStartOfDay();
-            LocalDateTime endOfDay = currentDate.plusDays(1).atStartOfDay();
-
-            long count = userRepository.countByCreatedAtBetween(startOfDay, endOfDay);
+            long count = dailyCounts.getOrDefault(currentDate, 0L);
 
             growthData.add(DashboardStatsDTO.UserGrowthData.builder()
                     .date(currentDate.format(formatter))
@@ -182,6 +189,20 @@ public class DashboardService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * 调用 Review Service 获取评价和投诉统计，失败时返回 null
+     */
+    private ReviewServiceClient.ReviewStatsResponse fetchReviewStats() {
+        try {
+            ReviewServiceClient.ReviewStatsResponse reviewStats = reviewServiceClient.getReviewStats();
+            log.info("成功获取评价服务统计数据");
+            return reviewStats;
+        } catch (Exception e) {
+            log.error("调用Review Service失败", e);
+            return null;
+        }
+    }
+
     private List<DashboardStatsDTO.LatestReview> getLatestReviews() {
         log.info("获取最新评价列表");
         try {
@@ -0,0 +1,46 @@
+package com.nushungry.userservice.service;
+
+import com.nushungry.userservice.event.UserProfileChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * 用户事件发布器
+ * 在数据库事务提交后把用户资料变更事件投递到 RabbitMQ，回滚的修改不会被广播。
+ * 投递失败只记录日志，不影响用户请求。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserEventPublisher {
+
+    private final ObjectProvider<RabbitTemplate> rabbitTemplateProvider;
+
+    @Value("${rabbitmq.exchange.user}")
+    private String userExchange;
+
+    @Value("${rabbitmq.routing-key.user-profile-changed}")
+    private String userProfileChangedRoutingKey;
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserProfileChanged(UserProfileChangedEvent event) {
+        RabbitTemplate rabbitTemplate = rabbitTemplateProvider.getIfAvailable();
+        if (rabbitTemplate == null) {
+            log.debug("RabbitMQ not configured, skip user profile event for user {}", event.getUserId());
+            return;
+        }
+        try {
+            rabbitTemplate.convertAndSend(userExchange, userProfileChangedRoutingKey, event);
+            log.info("Published user profile changed event for user {}", event.getUserId());
+        } catch (AmqpException e) {
+            log.error("Failed to publish user profile changed event for user {}", event.getUserId(), e);
+        }
+    }
+}
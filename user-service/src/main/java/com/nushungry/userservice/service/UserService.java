@@ -4,12 +4,14 @@ import com.nushungry.userservice.dto.AuthResponse;
 import com.nushungry.userservice.dto.LoginRequest;
 import com.nushungry.userservice.dto.RegisterRequest;
 import com.nushungry.userservice.dto.UserProfileResponse;
+import com.nushungry.userservice.event.UserProfileChangedEvent;
 import com.nushungry.userservice.model.User;
 import com.nushungry.userservice.model.UserRole;
 import com.nushungry.userservice.repository.UserRepository;
 import com.nushungry.userservice.util.JwtUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -33,6 +35,7 @@ public class UserService {
     private final JwtUtil jwtUtil;
     private final AuthenticationManager authenticationManager;
     private final RefreshTokenService refreshTokenService;
+    private final ApplicationEventPublisher eventPublisher;
 
     public AuthResponse register(RegisterRequest request) {
         return register(request, null, null);
@@ -217,5 +220,13 @@ public class UserService {
         user.setAvatarUrl(avatarUrl);
         userRepository.save(user);
         log.info("Avatar updated for user: {}", user.getUsername());
+
+        // 事务提交后由 UserEventPublisher 投递，review-service 据此批量刷新评价中的头像
+        eventPublisher.publishEvent(UserProfileChangedEvent.builder()
+                .userId(user.getId())
+                .username(user.getUsername())
+                .avatarUrl(user.getAvatarUrl())
+                .timestamp(LocalDateTime.now())
+                .build());
     }
 }
\ No newline at end of file
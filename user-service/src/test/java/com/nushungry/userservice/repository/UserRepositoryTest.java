@@ -11,7 +11,10 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -243,6 +246,43 @@ class UserRepositoryTest {
         assertThat(count).isEqualTo(2);
     }
 
+    @Test
+    @DisplayName("countDailyRegistrations - 应该按天分组统计新增用户数")
+    void testCountDailyRegistrations() {
+        // Given
+        LocalDate day = LocalDate.now().minusDays(3);
+
+        User user1 = createUser("user1", "user1@example.com", UserRole.ROLE_USER);
+        User user2 = createUser("user2", "user2@example.com", UserRole.ROLE_USER);
+        User user3 = createUser("user3", "user3@example.com", UserRole.ROLE_USER);
+        User user4 = createUser("user4", "user4@example.com", UserRole.ROLE_USER);
+
+        userRepository.save(user1);
+        userRepository.save(user2);
+        userRepository.save(user3);
+        userRepository.save(user4);
+        entityManager.flush();
+
+        setCreatedAt(user1, day.atTime(9, 0));
+        setCreatedAt(user2, day.atTime(23, 30));
+        setCreatedAt(user3, day.plusDays(1).atTime(8, 0));
+        setCreatedAt(user4, day.plusDays(2).atStartOfDay()); // 范围之外
+
+        entityManager.flush();
+        entityManager.clear();
+
+        // When
+        Map<LocalDate, Long> counts = new HashMap<>();
+        for (Object[] row : userRepository.countDailyRegistrations(day.atStartOfDay(), day.plusDays(2).atStartOfDay())) {
+            counts.put((LocalDate) row[0], ((Number) row[1]).longValue());
+        }
+
+        // Then
+        assertThat(counts).containsOnly(
+                Map.entry(day, 2L),
+                Map.entry(day.plusDays(1), 1L));
+    }
+
     @Test
     @DisplayName("countByLastLoginAfter - 应该统计指定时间之后登录的用户数")
     void testCountByLastLoginAfter() {
@@ -346,6 +386,14 @@ class UserRepositoryTest {
     /**
      * 创建测试用户的辅助方法
      */
+    private void setCreatedAt(User user, LocalDateTime time) {
+        entityManager.getEntityManager()
+                .createQuery("UPDATE User u SET u.createdAt = :time WHERE u.id = :id")
+                .setParameter("time", time)
+                .setParameter("id", user.getId())
+                .executeUpdate();
+    }
+
     private User createUser(String username, String email, UserRole role) {
         User user = new User();
         user.setUsername(username);
@@ -1,6 +1,7 @@
 package com.nushungry.userservice.service;
 
 import com.nushungry.userservice.dto.*;
+import com.nushungry.userservice.event.UserProfileChangedEvent;
 import com.nushungry.userservice.model.User;
 import com.nushungry.userservice.model.UserRole;
 import com.nushungry.userservice.repository.UserRepository;
@@ -11,6 +12,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
@@ -38,6 +40,9 @@ class AdminUserServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private AdminUserService adminUserService;
 
@@ -244,6 +249,30 @@ class AdminUserServiceTest {
         // Assert
         assertNotNull(result);
         verify(userRepository).save(any(User.class));
+
+        ArgumentCaptor<UserProfileChangedEvent> eventCaptor = ArgumentCaptor.forClass(UserProfileChangedEvent.class);
+        verify(eventPublisher).publishEvent(eventCaptor.capture());
+        assertEquals(1L, eventCaptor.getValue().getUserId());
+        assertEquals("updateduser", eventCaptor.getValue().getUsername());
+    }
+
+    @Test
+    void testUpdateUser_UsernameUnchanged_NoProfileEvent() {
+        // Arrange
+        UpdateUserRequest request = UpdateUserRequest.builder()
+                .username("testuser")
+                .enabled(false)
+                .build();
+
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(userRepository.save(any(User.class))).thenReturn(testUser);
+
+        // Act
+        adminUserService.updateUser(1L, request);
+
+        // Assert
+        verify(userRepository, never()).existsByUsername(anyString());
+        verifyNoInteractions(eventPublisher);
     }
 
     @Test
@@ -17,6 +17,7 @@ import org.springframework.data.domain.Pageable;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -75,6 +76,9 @@ class DashboardServiceTest {
         assertNotNull(result.getUserGrowthData());
         assertNotNull(result.getLatestUsers());
         assertNotNull(result.getLatestReviews());
+        // 统计卡片和系统概览共用一次 Review Service 调用
+        verify(reviewServiceClient, times(1)).getReviewStats();
+        assertEquals(10, result.getSystemOverview().getPendingComplaints());
     }
 
     // ==================== getStatsCards() 测试 ====================
@@ -281,8 +285,8 @@ class DashboardServiceTest {
         LocalDate startDate = LocalDate.now().minusDays(6);
         LocalDate endDate = LocalDate.now();
 
-        when(userRepository.countByCreatedAtBetween(any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(10L);
+        when(userRepository.countDailyRegistrations(any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(dailyRows(startDate, endDate, 10L));
 
         // Act
         List<DashboardStatsDTO.UserGrowthData> result = dashboardService.getUserGrowthData(startDate, endDate);
@@ -294,6 +298,30 @@ class DashboardServiceTest {
             assertNotNull(data.getDate());
             assertEquals(10, data.getCount());
         });
+        // 整个日期范围只查询一次
+        verify(userRepository, times(1)).countDailyRegistrations(
+                startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay());
+    }
+
+    @Test
+    void testGetUserGrowthData_FillsMissingDaysWithZero() {
+        // Arrange
+        LocalDate startDate = LocalDate.now().minusDays(2);
+        LocalDate endDate = LocalDate.now();
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{startDate.plusDays(1), 4L});
+
+        when(userRepository.countDailyRegistrations(any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(rows);
+
+        // Act
+        List<DashboardStatsDTO.UserGrowthData> result = dashboardService.getUserGrowthData(startDate, endDate);
+
+        // Assert
+        assertEquals(3, result.size());
+        assertEquals(0, result.get(0).getCount());
+        assertEquals(4, result.get(1).getCount());
+        assertEquals(0, result.get(2).getCount());
     }
 
     @Test
@@ -302,8 +330,8 @@ class DashboardServiceTest {
         LocalDate startDate = LocalDate.now().minusDays(2);
         LocalDate endDate = LocalDate.now();
 
-        when(userRepository.countByCreatedAtBetween(any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(0L);
+        when(userRepository.countDailyRegistrations(any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(List.of());
 
         // Act
         List<DashboardStatsDTO.UserGrowthData> result = dashboardService.getUserGrowthData(startDate, endDate);
@@ -411,8 +439,8 @@ class DashboardServiceTest {
         when(userRepository.count()).thenReturn(100L);
         when(userRepository.countByCreatedAtBefore(any(LocalDateTime.class))).thenReturn(95L);
         when(userRepository.countByLastLoginAfter(any(LocalDateTime.class))).thenReturn(60L);
-        when(userRepository.countByCreatedAtBetween(any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(10L);
+        when(userRepository.countDailyRegistrations(any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(dailyRows(LocalDate.now().minusDays(6), LocalDate.now(), 10L));
         when(userRepository.findAll(any(Pageable.class)))
                 .thenReturn(new PageImpl<>(Arrays.asList(testUser)));
 
@@ -449,6 +477,14 @@ class DashboardServiceTest {
         when(reviewServiceClient.getLatestReviews()).thenReturn(Arrays.asList(reviewResponse));
     }
 
+    private static List<Object[]> dailyRows(LocalDate startDate, LocalDate endDate, long count) {
+        List<Object[]> rows = new ArrayList<>();
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            rows.add(new Object[]{date, count});
+        }
+        return rows;
+    }
+
     private void setupMinimalMocksForCafeteriaAndReview() {
         CafeteriaServiceClient.CafeteriaStatsResponse cafeteriaStats =
                 CafeteriaServiceClient.CafeteriaStatsResponse.builder()
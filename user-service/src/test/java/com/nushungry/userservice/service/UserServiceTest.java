@@ -4,6 +4,7 @@ import com.nushungry.userservice.dto.AuthResponse;
 import com.nushungry.userservice.dto.LoginRequest;
 import com.nushungry.userservice.dto.RegisterRequest;
 import com.nushungry.userservice.dto.UserProfileResponse;
+import com.nushungry.userservice.event.UserProfileChangedEvent;
 import com.nushungry.userservice.model.User;
 import com.nushungry.userservice.model.UserRole;
 import com.nushungry.userservice.repository.UserRepository;
@@ -15,6 +16,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -52,6 +54,9 @@ class UserServiceTest {
     @Mock
     private RefreshTokenService refreshTokenService;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private UserService userService;
 
@@ -487,6 +492,12 @@ class UserServiceTest {
         verify(userRepository).save(userCaptor.capture());
         assertEquals(newAvatarUrl, userCaptor.getValue().getAvatarUrl());
 
+        ArgumentCaptor<UserProfileChangedEvent> eventCaptor = ArgumentCaptor.forClass(UserProfileChangedEvent.class);
+        verify(eventPublisher).publishEvent(eventCaptor.capture());
+        assertEquals(1L, eventCaptor.getValue().getUserId());
+        assertEquals("testuser", eventCaptor.getValue().getUsername());
+        assertEquals(newAvatarUrl, eventCaptor.getValue().getAvatarUrl());
+
         // 清理 SecurityContext
         SecurityContextHolder.clearContext();
     }
@@ -508,6 +519,7 @@ class UserServiceTest {
         });
 
         verify(userRepository, never()).save(any(User.class));
+        verifyNoInteractions(eventPublisher);
 
         // 清理 SecurityContext
         SecurityContextHolder.clearContext();